@@ -0,0 +1,298 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A blocking row buffer with a capacity that can be changed while rows are flowing through it. Next to the rows it
+ * keeps track of how many rows passed and how long the producing and consuming steps had to wait on a full or an empty
+ * buffer. This information is used by the transformation engine to grow or shrink the buffer and to find out which
+ * hops are the bottleneck.
+ */
+public class AdaptiveRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+  private final ArrayDeque<Object[]> queue;
+
+  private final ReentrantLock lock;
+  private final Condition notEmpty;
+  private final Condition notFull;
+
+  private volatile int capacity;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  private long rowsWritten;
+  private long rowsRead;
+  private long putWaitNanos;
+  private long getWaitNanos;
+
+  /**
+   * Create a new adaptive row set with the given initial capacity.
+   *
+   * @param capacity
+   *          the initial maximum number of rows in the buffer
+   */
+  public AdaptiveRowSet( int capacity ) {
+    super();
+
+    this.capacity = Math.max( 1, capacity );
+    queue = new ArrayDeque<Object[]>( Math.min( this.capacity, 1024 ) );
+    lock = new ReentrantLock( false );
+    notEmpty = lock.newCondition();
+    notFull = lock.newCondition();
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( rowData == null ) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+    long nanos = tu.toNanos( time );
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return false;
+    }
+    try {
+      if ( queue.size() >= capacity ) {
+        long start = System.nanoTime();
+        try {
+          while ( queue.size() >= capacity ) {
+            if ( nanos <= 0L ) {
+              return false;
+            }
+            nanos = notFull.awaitNanos( nanos );
+          }
+        } catch ( InterruptedException e ) {
+          return false;
+        } finally {
+          putWaitNanos += System.nanoTime() - start;
+        }
+      }
+      queue.addLast( rowData );
+      rowsWritten++;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    lock.lock();
+    try {
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long nanos = tu.toNanos( timeout );
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return null;
+    }
+    try {
+      if ( queue.isEmpty() ) {
+        long start = System.nanoTime();
+        try {
+          while ( queue.isEmpty() ) {
+            if ( nanos <= 0L ) {
+              return null;
+            }
+            nanos = notEmpty.awaitNanos( nanos );
+          }
+        } catch ( InterruptedException e ) {
+          return null;
+        } finally {
+          getWaitNanos += System.nanoTime() - start;
+        }
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Must be called while holding the lock.
+   */
+  private Object[] dequeue() {
+    Object[] row = queue.pollFirst();
+    if ( row != null ) {
+      rowsRead++;
+      notFull.signal();
+    }
+    return row;
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      queue.clear();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    done.set( false );
+  }
+
+  /**
+   * @return the current maximum number of rows in this row set
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Change the maximum number of rows in this row set. Rows already in the buffer are kept when the capacity shrinks:
+   * the producer simply blocks until the consumer has caught up.
+   *
+   * @param capacity
+   *          the new capacity, at least 1
+   */
+  public void setCapacity( int capacity ) {
+    lock.lock();
+    try {
+      int oldCapacity = this.capacity;
+      this.capacity = Math.max( 1, capacity );
+      if ( this.capacity > oldCapacity ) {
+        notFull.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return a consistent snapshot of the counters of this row set
+   */
+  public Statistics getStatistics() {
+    lock.lock();
+    try {
+      return new Statistics( capacity, queue.size(), rowsWritten, rowsRead, putWaitNanos, getWaitNanos );
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * An immutable snapshot of the counters of an adaptive row set.
+   */
+  public static class Statistics {
+    private final int capacity;
+    private final int size;
+    private final long rowsWritten;
+    private final long rowsRead;
+    private final long putWaitNanos;
+    private final long getWaitNanos;
+
+    public Statistics( int capacity, int size, long rowsWritten, long rowsRead, long putWaitNanos,
+      long getWaitNanos ) {
+      this.capacity = capacity;
+      this.size = size;
+      this.rowsWritten = rowsWritten;
+      this.rowsRead = rowsRead;
+      this.putWaitNanos = putWaitNanos;
+      this.getWaitNanos = getWaitNanos;
+    }
+
+    /**
+     * @return the capacity of the row set at the time of the snapshot
+     */
+    public int getCapacity() {
+      return capacity;
+    }
+
+    /**
+     * @return the number of rows in the buffer at the time of the snapshot
+     */
+    public int getSize() {
+      return size;
+    }
+
+    /**
+     * @return the total number of rows put into the row set
+     */
+    public long getRowsWritten() {
+      return rowsWritten;
+    }
+
+    /**
+     * @return the total number of rows taken from the row set
+     */
+    public long getRowsRead() {
+      return rowsRead;
+    }
+
+    /**
+     * @return the total time (ns) the producing step waited because the buffer was full
+     */
+    public long getPutWaitNanos() {
+      return putWaitNanos;
+    }
+
+    /**
+     * @return the total time (ns) the consuming step waited because the buffer was empty
+     */
+    public long getGetWaitNanos() {
+      return getWaitNanos;
+    }
+  }
+}
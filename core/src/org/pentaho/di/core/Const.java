@@ -788,12 +788,53 @@ public class Const {
    */
   public static final String KETTLE_REDIRECT_STDOUT = "KETTLE_REDIRECT_STDOUT";
 
+  /**
+   * System wide flag to hand the log lines to the logging event listeners (log files, the console, ...) on a background
+   * thread instead of the thread that logs. Enabled if the value is equal ignoring case to the string "Y"
+   */
+  public static final String KETTLE_LOG_ASYNC = "KETTLE_LOG_ASYNC";
+
+  /**
+   * The maximum number of log lines waiting for the logging event listeners when KETTLE_LOG_ASYNC is enabled. Threads
+   * that log wait when it's reached. The default value is 10000.
+   */
+  public static final String KETTLE_LOG_ASYNC_QUEUE_SIZE = "KETTLE_LOG_ASYNC_QUEUE_SIZE";
+
   /**
    * This environment variable will set a time-out after which waiting, completed or stopped transformations and jobs
    * will be automatically cleaned up. The default value is 1440 (one day).
    */
   public static final String KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES = "KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES";
 
+  /**
+   * This environment variable sets the maximum number of completed or stopped transformations and jobs a Carte server
+   * keeps around. The oldest are cleaned up first. Set to 0 for no limit, which is the default.
+   */
+  public static final String KETTLE_CARTE_OBJECT_MAX_COUNT = "KETTLE_CARTE_OBJECT_MAX_COUNT";
+
+  /**
+   * The default maximum number of completed or stopped transformations and jobs a Carte server keeps around.
+   */
+  public static final int CARTE_OBJECT_MAX_COUNT = 0;
+
+  /**
+   * This environment variable sets a heap usage percentage. When more of the heap is in use, a Carte server cleans up
+   * its oldest completed or stopped transformations and jobs until the usage is below it again. Set to 0 (default) to
+   * disable.
+   */
+  public static final String KETTLE_CARTE_OBJECT_MAX_HEAP_PERCENT = "KETTLE_CARTE_OBJECT_MAX_HEAP_PERCENT";
+
+  /**
+   * This environment variable sets the maximum number of clients that can follow the status stream of a transformation
+   * or job on a Carte server at the same time. Set to 0 for no limit.
+   */
+  public static final String KETTLE_CARTE_STATUS_STREAM_MAX = "KETTLE_CARTE_STATUS_STREAM_MAX";
+
+  /**
+   * The default maximum number of concurrent status streams on a Carte server.
+   */
+  public static final int CARTE_STATUS_STREAM_MAX = 100;
+
   /**
    * System wide parameter: the maximum number of step performance snapshots to keep in memory. Set to 0 to keep all
    * snapshots indefinitely (default)
@@ -810,6 +851,40 @@ public class Const {
    */
   public static final String KETTLE_MAX_JOB_ENTRIES_LOGGED = "KETTLE_MAX_JOB_ENTRIES_LOGGED";
 
+  /**
+   * A variable to configure jobs to execute their job entries iteratively instead of recursively (Y/N, default N).
+   * Looping jobs then run in constant memory and parallel job entries use a shared pool of threads.
+   */
+  public static final String KETTLE_ITERATIVE_JOB_EXECUTION = "KETTLE_ITERATIVE_JOB_EXECUTION";
+
+  /**
+   * A variable to configure the maximum number of threads used to execute parallel job entries iteratively.
+   */
+  public static final String KETTLE_JOB_ENTRY_PARALLEL_THREADS = "KETTLE_JOB_ENTRY_PARALLEL_THREADS";
+
+  /**
+   * A variable to configure the number of result rows kept in memory, the rows after those are spilled to a temporary
+   * file. 0 or less, the default, keeps all the result rows in memory.
+   */
+  public static final String KETTLE_RESULT_ROWS_MEMORY_SIZE = "KETTLE_RESULT_ROWS_MEMORY_SIZE";
+
+  /**
+   * A variable to configure the number of threads the Copy Files, Move Files and Delete Files job entries use to
+   * process files. 1, the default, processes the files one after the other.
+   */
+  public static final String KETTLE_FILE_OPERATION_THREADS = "KETTLE_FILE_OPERATION_THREADS";
+
+  /**
+   * A variable to configure the number of milliseconds a transformation keeps the existence, type, size, modification
+   * time and children of the files it lists. 0 or less, the default, disables the file metadata cache.
+   */
+  public static final String KETTLE_VFS_METADATA_CACHE_TTL = "KETTLE_VFS_METADATA_CACHE_TTL";
+
+  /**
+   * A variable to configure the maximum number of files a transformation keeps metadata of.
+   */
+  public static final String KETTLE_VFS_METADATA_CACHE_SIZE = "KETTLE_VFS_METADATA_CACHE_SIZE";
+
   /**
    * A variable to configure the maximum number of logging registry entries kept in memory for logging purposes.
    */
@@ -837,6 +912,30 @@ public class Const {
    */
   public static final String KETTLE_PLUGIN_PACKAGES = "KETTLE_PLUGIN_PACKAGES";
 
+  /**
+   * Name of the environment variable to keep the annotations found in plugin jar files in an index between runs (Y/N,
+   * Y by default) so that only new or changed jar files are scanned.
+   */
+  public static final String KETTLE_PLUGIN_INDEX = "KETTLE_PLUGIN_INDEX";
+
+  /**
+   * The name of the file in the Kettle directory that keeps the annotations found in plugin jar files.
+   */
+  public static final String PLUGIN_INDEX_FILE = "plugin-index.dat";
+
+  /**
+   * Name of the environment variable with the maximum number of parsed transformation and job files kept in memory,
+   * 100 by default. Set it to 0 to parse the files every time they are loaded.
+   */
+  public static final String KETTLE_METADATA_CACHE_SIZE = "KETTLE_METADATA_CACHE_SIZE";
+
+  /**
+   * Name of the environment variable with the maximum number of loaded transformations kept in memory for job entries
+   * and sub-transformation steps, 0 (disabled) by default. Steps with a shallow clone() share state between the copies
+   * of a cached transformation, only enable it for transformations with steps that don't.
+   */
+  public static final String KETTLE_TRANS_META_CACHE_SIZE = "KETTLE_TRANS_META_CACHE_SIZE";
+
   /**
    * Name of the environment variable that contains the size of the transformation rowset size. This overwrites values
    * that you set transformation settings.
@@ -938,6 +1037,76 @@ public class Const {
    */
   public static final String KETTLE_BATCHING_ROWSET = "KETTLE_BATCHING_ROWSET";
 
+  /**
+   * Set this variable to Y to let the engine grow and shrink the row sets between steps based on the measured
+   * throughput and blocking times. (default = N)
+   */
+  public static final String KETTLE_ADAPTIVE_ROWSET = "KETTLE_ADAPTIVE_ROWSET";
+
+  /**
+   * The minimum number of rows in an adaptive row set.
+   */
+  public static final String KETTLE_ADAPTIVE_ROWSET_MIN_SIZE = "KETTLE_ADAPTIVE_ROWSET_MIN_SIZE";
+
+  /**
+   * The default minimum number of rows in an adaptive row set.
+   */
+  public static final int ADAPTIVE_ROWSET_MIN_SIZE = 100;
+
+  /**
+   * The maximum number of rows in an adaptive row set.
+   */
+  public static final String KETTLE_ADAPTIVE_ROWSET_MAX_SIZE = "KETTLE_ADAPTIVE_ROWSET_MAX_SIZE";
+
+  /**
+   * The default maximum number of rows in an adaptive row set.
+   */
+  public static final int ADAPTIVE_ROWSET_MAX_SIZE = 100000;
+
+  /**
+   * The number of megabytes all adaptive row sets of a transformation together are allowed to occupy. (0 = no limit)
+   */
+  public static final String KETTLE_ADAPTIVE_ROWSET_MEMORY_MB = "KETTLE_ADAPTIVE_ROWSET_MEMORY_MB";
+
+  /**
+   * The default number of megabytes all adaptive row sets of a transformation together are allowed to occupy.
+   */
+  public static final int ADAPTIVE_ROWSET_MEMORY_MB = 256;
+
+  /**
+   * The interval in milliseconds between two adjustments of the adaptive row sets.
+   */
+  public static final String KETTLE_ADAPTIVE_ROWSET_INTERVAL = "KETTLE_ADAPTIVE_ROWSET_INTERVAL";
+
+  /**
+   * The default interval in milliseconds between two adjustments of the adaptive row sets.
+   */
+  public static final int ADAPTIVE_ROWSET_INTERVAL = 1000;
+
+  /**
+   * Set this variable to Y to measure the time every step spends in processRow(), waiting for input rows and waiting
+   * to hand over output rows. The timing is always measured when step performance monitoring is enabled in the
+   * transformation. (default = N)
+   */
+  public static final String KETTLE_STEP_TIMING = "KETTLE_STEP_TIMING";
+
+  /**
+   * The number of megabytes the rows kept in memory by the steps of a transformation (Sort rows, Memory Group By,
+   * Stream Lookup, ...) are allowed to occupy. (0 = no limit)
+   */
+  public static final String KETTLE_TRANS_MEMORY_LIMIT_MB = "KETTLE_TRANS_MEMORY_LIMIT_MB";
+
+  /**
+   * The number of megabytes the rows kept in memory by all transformations running in this JVM are allowed to occupy.
+   * (0 = no limit)
+   */
+  public static final String KETTLE_GLOBAL_MEMORY_LIMIT_MB = "KETTLE_GLOBAL_MEMORY_LIMIT_MB";
+
+  /**
+   * What a step that can't spill to disk does when the memory limit is reached: FAIL (default) or WARN.
+   */
+  public static final String KETTLE_MEMORY_OVERFLOW_POLICY = "KETTLE_MEMORY_OVERFLOW_POLICY";
+
   /**
    * Set this variable to Y to disable standard Kettle logging to the console. (stdout)
    */
@@ -1907,6 +2076,17 @@ public class Const {
     return "pwd/kettle.pwd";
   }
 
+  /**
+   * Returns the path to the index of the plugin annotations in the home directory:
+   * <p>
+   * $KETTLE_HOME/.kettle/plugin-index.dat<br>
+   *
+   * @return The plugin index file in the home directory.
+   */
+  public static String getKettlePluginIndexFile() {
+    return getKettleDirectory() + FILE_SEPARATOR + PLUGIN_INDEX_FILE;
+  }
+
   /**
    * Returns the path to the Kettle Carte password file in the home directory:
    * <p>
@@ -141,7 +141,7 @@ public class Result implements Cloneable {
     result = false;
 
     exitStatus = 0;
-    rows = new ArrayList<RowMetaAndData>();
+    rows = new ResultRowList();
     resultFiles = new ConcurrentHashMap<String, ResultFile>();
 
     stopped = false;
@@ -198,7 +198,9 @@ public class Result implements Cloneable {
       Result result = (Result) super.clone();
 
       // Clone result rows and files as well...
-      if ( rows != null ) {
+      if ( rows instanceof ResultRowList ) {
+        result.setRows( ( (ResultRowList) rows ).copy() );
+      } else if ( rows != null ) {
         List<RowMetaAndData> clonedRows = new ArrayList<RowMetaAndData>();
         for ( int i = 0; i < rows.size(); i++ ) {
           clonedRows.add( ( rows.get( i ) ).clone() );
@@ -0,0 +1,450 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowCodec;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.EnvUtil;
+
+/**
+ * The result rows passed from one job entry or transformation to the next.<br>
+ * <br>
+ * The first rows are kept in memory, the rows after those are spilled to a temporary file in the {@link RowCodec}
+ * format. Reading the rows in order, with an iterator or with get() and increasing indexes, streams the spilled rows
+ * back from the file so that millions of rows can be passed along without keeping them on the heap. Every iterator
+ * reads the file on its own. The rows read from the file are new objects every time, changing them doesn't change the
+ * list.<br>
+ * <br>
+ * Only adding rows and clearing the list are supported. Copies share the temporary file until one of them adds rows.
+ * Clearing a list releases its use of the file, the file is removed as soon as no list uses it anymore. Files of lists
+ * that are never cleared are removed when the JVM exits.<br>
+ * <br>
+ * Spilling is off unless KETTLE_RESULT_ROWS_MEMORY_SIZE is set: by default all rows are kept in memory.
+ */
+public class ResultRowList extends AbstractList<RowMetaAndData> {
+
+  /** The default number of rows kept in memory before spilling to disk, 0 to never spill */
+  public static final int DEFAULT_MEMORY_ROWS = 0;
+
+  private static final int BUFFER_SIZE = 65536;
+
+  private final int memoryRows;
+  private final List<RowMetaAndData> memory;
+
+  private SpillFile spillFile;
+  private int spilledRows;
+
+  // The reader used by get()
+  //
+  private SpillReader reader;
+
+  /**
+   * Create a list that keeps KETTLE_RESULT_ROWS_MEMORY_SIZE rows in memory.
+   */
+  public ResultRowList() {
+    this( Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_RESULT_ROWS_MEMORY_SIZE ), DEFAULT_MEMORY_ROWS ) );
+  }
+
+  /**
+   * @param memoryRows
+   *          the number of rows to keep in memory before spilling to disk, 0 or less to never spill
+   */
+  public ResultRowList( int memoryRows ) {
+    this.memoryRows = memoryRows;
+    this.memory = new ArrayList<RowMetaAndData>();
+  }
+
+  /**
+   * Copy the given rows. A result row list is copied without reading its spilled rows, other lists are copied into a
+   * new result row list.
+   */
+  public static ResultRowList copyOf( List<RowMetaAndData> rows ) {
+    if ( rows instanceof ResultRowList ) {
+      return ( (ResultRowList) rows ).copy();
+    }
+    ResultRowList copy = new ResultRowList();
+    copy.addAll( rows );
+    return copy;
+  }
+
+  /**
+   * @return a copy of this list with clones of the rows kept in memory, sharing the spilled rows
+   */
+  public synchronized ResultRowList copy() {
+    ResultRowList copy = new ResultRowList( memoryRows );
+    for ( RowMetaAndData row : memory ) {
+      copy.memory.add( row.clone() );
+    }
+    copy.spillFile = spillFile == null ? null : spillFile.retain();
+    copy.spilledRows = spilledRows;
+    return copy;
+  }
+
+  @Override
+  public synchronized int size() {
+    return memory.size() + spilledRows;
+  }
+
+  /**
+   * @return the number of rows that were spilled to disk
+   */
+  public synchronized int getSpilledRows() {
+    return spilledRows;
+  }
+
+  @Override
+  public synchronized boolean add( RowMetaAndData row ) {
+    modCount++;
+    if ( spillFile == null && ( memoryRows <= 0 || memory.size() < memoryRows ) ) {
+      memory.add( row );
+      return true;
+    }
+    try {
+      if ( spillFile == null || spillFile.getRows() != spilledRows ) {
+        // Another copy added rows to the shared file, continue in a file of our own
+        //
+        SpillFile newFile = new SpillFile();
+        for ( int i = 0; i < spilledRows; i++ ) {
+          newFile.write( getSpilled( i ) );
+        }
+        closeReader();
+        releaseSpillFile();
+        spillFile = newFile;
+      }
+      spillFile.write( row );
+      spilledRows++;
+      return true;
+    } catch ( Exception e ) {
+      throw new RuntimeException( "Unable to write result row to a temporary file", e );
+    }
+  }
+
+  @Override
+  public synchronized boolean addAll( Collection<? extends RowMetaAndData> rows ) {
+    if ( isEmpty() && rows instanceof ResultRowList ) {
+      // Take over the spilled rows without reading them
+      //
+      ResultRowList other = (ResultRowList) rows;
+      synchronized ( other ) {
+        memory.addAll( other.memory );
+        closeReader();
+        releaseSpillFile();
+        spillFile = other.spillFile == null ? null : other.spillFile.retain();
+        spilledRows = other.spilledRows;
+      }
+      modCount++;
+      return !isEmpty();
+    }
+    return super.addAll( rows );
+  }
+
+  @Override
+  public synchronized RowMetaAndData get( int index ) {
+    if ( index < 0 || index >= size() ) {
+      throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size() );
+    }
+    if ( index < memory.size() ) {
+      return memory.get( index );
+    }
+    try {
+      return getSpilled( index - memory.size() );
+    } catch ( Exception e ) {
+      throw new RuntimeException( "Unable to read result row from a temporary file", e );
+    }
+  }
+
+  /**
+   * Removes all rows. The temporary file with the spilled rows is deleted when no copy of this list uses it anymore.
+   */
+  @Override
+  public synchronized void clear() {
+    modCount++;
+    memory.clear();
+    closeReader();
+    releaseSpillFile();
+    spilledRows = 0;
+  }
+
+  /**
+   * @return the temporary file with the spilled rows or null if no rows were spilled, for testing purposes
+   */
+  synchronized File getSpillFile() {
+    return spillFile == null ? null : spillFile.file;
+  }
+
+  @Override
+  public Iterator<RowMetaAndData> iterator() {
+    return new RowIterator();
+  }
+
+  /**
+   * Read a spilled row with the reader of get(), which only needs to be re-opened when going backwards.
+   */
+  private RowMetaAndData getSpilled( int index ) throws IOException, KettleFileException {
+    if ( reader == null || index < reader.index ) {
+      closeReader();
+      reader = new SpillReader( spillFile );
+    }
+    while ( reader.index < index ) {
+      reader.read();
+    }
+    RowMetaAndData row = reader.read();
+    if ( reader.index >= spilledRows ) {
+      closeReader();
+    }
+    return row;
+  }
+
+  private void closeReader() {
+    if ( reader != null ) {
+      reader.close();
+      reader = null;
+    }
+  }
+
+  private void releaseSpillFile() {
+    if ( spillFile != null ) {
+      spillFile.release();
+      spillFile = null;
+    }
+  }
+
+  /**
+   * Rows often carry a clone of the same metadata. Only metadata with other fields, types or formats is written to the
+   * spill file again. Values that aren't stored normally, binary strings for example, compare by identity.
+   *
+   * @return true if both describe the same fields with the same types, storage, lengths and formats
+   */
+  static boolean sameLayout( RowMetaInterface one, RowMetaInterface two ) {
+    if ( one == two ) {
+      return true;
+    }
+    if ( one == null || two == null || one.size() != two.size() ) {
+      return false;
+    }
+    for ( int i = 0; i < one.size(); i++ ) {
+      ValueMetaInterface a = one.getValueMeta( i );
+      ValueMetaInterface b = two.getValueMeta( i );
+      if ( a == b ) {
+        continue;
+      }
+      if ( a.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+        || b.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL || a.getType() != b.getType()
+        || a.getLength() != b.getLength() || a.getPrecision() != b.getPrecision()
+        || !Const.NVL( a.getName(), "" ).equals( Const.NVL( b.getName(), "" ) )
+        || !Const.NVL( a.getConversionMask(), "" ).equals( Const.NVL( b.getConversionMask(), "" ) )
+        || !Const.NVL( a.getDecimalSymbol(), "" ).equals( Const.NVL( b.getDecimalSymbol(), "" ) )
+        || !Const.NVL( a.getGroupingSymbol(), "" ).equals( Const.NVL( b.getGroupingSymbol(), "" ) ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Iterates over the rows with a reader of its own for the spilled rows.
+   */
+  private class RowIterator implements Iterator<RowMetaAndData> {
+    private int index;
+    private int expectedModCount = modCount;
+    private SpillReader iteratorReader;
+
+    @Override
+    public boolean hasNext() {
+      synchronized ( ResultRowList.this ) {
+        boolean hasNext = index < size();
+        if ( !hasNext && iteratorReader != null ) {
+          iteratorReader.close();
+          iteratorReader = null;
+        }
+        return hasNext;
+      }
+    }
+
+    @Override
+    public RowMetaAndData next() {
+      synchronized ( ResultRowList.this ) {
+        if ( modCount != expectedModCount ) {
+          throw new ConcurrentModificationException();
+        }
+        if ( index >= size() ) {
+          throw new NoSuchElementException();
+        }
+        if ( index < memory.size() ) {
+          return memory.get( index++ );
+        }
+        try {
+          if ( iteratorReader == null ) {
+            iteratorReader = new SpillReader( spillFile );
+            while ( iteratorReader.index < index - memory.size() ) {
+              iteratorReader.read();
+            }
+          }
+          RowMetaAndData row = iteratorReader.read();
+          index++;
+          if ( index >= size() ) {
+            iteratorReader.close();
+            iteratorReader = null;
+          }
+          return row;
+        } catch ( Exception e ) {
+          throw new RuntimeException( "Unable to read result row from a temporary file", e );
+        }
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Reads the rows of a spill file from the start.
+   */
+  private static class SpillReader {
+    private final SpillFile spillFile;
+    private final DataInputStream input;
+    private RowMetaInterface rowMeta;
+    private RowCodec codec;
+    private int index;
+
+    SpillReader( SpillFile spillFile ) throws IOException {
+      this.spillFile = spillFile;
+      this.input = spillFile.open();
+    }
+
+    RowMetaAndData read() throws IOException, KettleFileException {
+      // Rows may have been added since the file was opened
+      spillFile.flush();
+      if ( input.readBoolean() ) {
+        rowMeta = new RowMeta( input );
+        codec = new RowCodec( rowMeta );
+      }
+      Object[] data = codec.readRow( input );
+      index++;
+      return new RowMetaAndData( rowMeta, data );
+    }
+
+    void close() {
+      try {
+        input.close();
+      } catch ( IOException e ) {
+        // Ignore, we only read from it
+      }
+    }
+  }
+
+  /**
+   * The temporary file with the spilled rows. Every row starts with a flag telling if the row metadata changed, in
+   * which case the metadata follows, and then the row in the codec format of that metadata.<br>
+   * <br>
+   * The file counts the lists using it and is deleted when the last one releases it. Files of lists that are never
+   * cleared are deleted when the JVM exits.
+   */
+  private static class SpillFile {
+    private final File file;
+    private final DataOutputStream output;
+    private RowMetaInterface rowMeta;
+    private RowCodec codec;
+    private int rows;
+    private int references = 1;
+
+    SpillFile() throws IOException {
+      file = File.createTempFile( "result-rows-", ".tmp" );
+      file.deleteOnExit();
+      output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), BUFFER_SIZE ) );
+    }
+
+    synchronized SpillFile retain() {
+      references++;
+      return this;
+    }
+
+    synchronized void release() {
+      references--;
+      if ( references == 0 ) {
+        delete();
+      }
+    }
+
+    private synchronized void delete() {
+      try {
+        output.close();
+      } catch ( IOException e ) {
+        // Ignore, the file is deleted anyway
+      }
+      file.delete();
+    }
+
+    synchronized int getRows() {
+      return rows;
+    }
+
+    synchronized void write( RowMetaAndData row ) throws IOException, KettleFileException {
+      if ( row.getRowMeta() != rowMeta && sameLayout( row.getRowMeta(), rowMeta ) ) {
+        // A copy of the same metadata, the rows are written and read the same way
+        rowMeta = row.getRowMeta();
+      }
+      if ( row.getRowMeta() != rowMeta ) {
+        rowMeta = row.getRowMeta();
+        codec = new RowCodec( rowMeta );
+        output.writeBoolean( true );
+        rowMeta.writeMeta( output );
+      } else {
+        output.writeBoolean( false );
+      }
+      codec.writeRow( output, row.getData() );
+      rows++;
+    }
+
+    synchronized void flush() throws IOException {
+      output.flush();
+    }
+
+    synchronized DataInputStream open() throws IOException {
+      output.flush();
+      return new DataInputStream( new BufferedInputStream( new FileInputStream( file ), BUFFER_SIZE ) );
+    }
+  }
+}
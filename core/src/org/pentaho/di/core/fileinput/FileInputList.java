@@ -39,6 +39,7 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.logging.LogChannel;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.FileMetadataCache;
 import org.pentaho.di.core.vfs.KettleVFS;
 
 public class FileInputList {
@@ -145,6 +146,7 @@ public class FileInputList {
   public static FileInputList createFileList( VariableSpace space, String[] fileName, String[] fileMask,
     String[] excludeFileMask, String[] fileRequired, boolean[] includeSubdirs, FileTypeFilter[] fileTypeFilters ) {
     FileInputList fileInputList = new FileInputList();
+    final FileMetadataCache cache = FileMetadataCache.getCache( space );
 
     // Replace possible environment variables...
     final String[] realfile = space.environmentSubstitute( fileName );
@@ -170,10 +172,15 @@ public class FileInputList {
       //
       if ( !Const.isEmpty( onemask ) || !Const.isEmpty( excludeonemask ) ) {
         try {
+          // The masks are matched against every file in the folder, compile them once
+          //
+          final Pattern maskPattern = Const.isEmpty( onemask ) ? null : Pattern.compile( onemask );
+          final Pattern excludePattern = Const.isEmpty( excludeonemask ) ? null : Pattern.compile( excludeonemask );
+
           FileObject directoryFileObject = KettleVFS.getFileObject( onefile, space );
           boolean processFolder = true;
           if ( onerequired ) {
-            if ( !directoryFileObject.exists() ) {
+            if ( !cache.exists( directoryFileObject ) ) {
               // if we don't find folder..no need to continue
               fileInputList.addNonExistantFile( directoryFileObject );
               processFolder = false;
@@ -188,8 +195,9 @@ public class FileInputList {
           // Find all file names that match the wildcard in this directory
           //
           if ( processFolder ) {
-            if ( directoryFileObject != null && directoryFileObject.getType() == FileType.FOLDER ) { // it's a directory
-              FileObject[] fileObjects = directoryFileObject.findFiles( new AllFileSelector() {
+            // it's a directory
+            if ( directoryFileObject != null && cache.getType( directoryFileObject ) == FileType.FOLDER ) {
+              List<FileObject> fileObjects = cache.findFiles( directoryFileObject, new AllFileSelector() {
                 @Override
                 public boolean traverseDescendents( FileSelectInfo info ) {
                   return info.getDepth() == 0 || subdirs;
@@ -204,15 +212,15 @@ public class FileInputList {
 
                   FileObject fileObject = info.getFile();
                   try {
-                    if ( fileObject != null && filter.isFileTypeAllowed( fileObject.getType() ) ) {
+                    if ( fileObject != null && filter.isFileTypeAllowed( cache.getType( fileObject ) ) ) {
                       String name = info.getFile().getName().getBaseName();
                       boolean matches = true;
-                      if ( !Const.isEmpty( onemask ) ) {
-                        matches = Pattern.matches( onemask, name );
+                      if ( maskPattern != null ) {
+                        matches = maskPattern.matcher( name ).matches();
                       }
                       boolean excludematches = false;
-                      if ( !Const.isEmpty( excludeonemask ) ) {
-                        excludematches = Pattern.matches( excludeonemask, name );
+                      if ( excludePattern != null ) {
+                        excludematches = excludePattern.matcher( name ).matches();
                       }
                       return ( matches && !excludematches );
                     }
@@ -223,14 +231,12 @@ public class FileInputList {
                   }
                 }
               } );
-              if ( fileObjects != null ) {
-                for ( int j = 0; j < fileObjects.length; j++ ) {
-                  if ( fileObjects[j].exists() ) {
-                    fileInputList.addFile( fileObjects[j] );
-                  }
+              for ( FileObject fileObject : fileObjects ) {
+                if ( cache.exists( fileObject ) ) {
+                  fileInputList.addFile( fileObject );
                 }
               }
-              if ( Const.isEmpty( fileObjects ) ) {
+              if ( fileObjects.isEmpty() ) {
                 if ( onerequired ) {
                   fileInputList.addNonAccessibleFile( directoryFileObject );
                 }
@@ -239,17 +245,17 @@ public class FileInputList {
               // Sort the list: quicksort, only for regular files
               fileInputList.sortFiles();
             } else {
-              FileObject[] children = directoryFileObject.getChildren();
+              FileObject[] children = cache.getChildren( directoryFileObject );
               for ( int j = 0; j < children.length; j++ ) {
                 // See if the wildcard (regexp) matches...
                 String name = children[j].getName().getBaseName();
                 boolean matches = true;
-                if ( !Const.isEmpty( onemask ) ) {
-                  matches = Pattern.matches( onemask, name );
+                if ( maskPattern != null ) {
+                  matches = maskPattern.matcher( name ).matches();
                 }
                 boolean excludematches = false;
-                if ( !Const.isEmpty( excludeonemask ) ) {
-                  excludematches = Pattern.matches( excludeonemask, name );
+                if ( excludePattern != null ) {
+                  excludematches = excludePattern.matcher( name ).matches();
                 }
                 if ( matches && !excludematches ) {
                   fileInputList.addFile( children[j] );
@@ -269,7 +275,7 @@ public class FileInputList {
 
         try {
           FileObject fileObject = KettleVFS.getFileObject( onefile, space );
-          if ( fileObject.exists() ) {
+          if ( cache.exists( fileObject ) ) {
             if ( fileObject.isReadable() ) {
               fileInputList.addFile( fileObject );
             } else {
@@ -296,6 +302,7 @@ public class FileInputList {
 
   public static FileInputList createFolderList( VariableSpace space, String[] folderName, String[] folderRequired ) {
     FileInputList fileInputList = new FileInputList();
+    final FileMetadataCache cache = FileMetadataCache.getCache( space );
 
     // Replace possible environment variables...
     final String[] realfolder = space.environmentSubstitute( folderName );
@@ -315,8 +322,9 @@ public class FileInputList {
         // Find all folder names in this directory
         //
         directoryFileObject = KettleVFS.getFileObject( onefile, space );
-        if ( directoryFileObject != null && directoryFileObject.getType() == FileType.FOLDER ) { // it's a directory
-          FileObject[] fileObjects = directoryFileObject.findFiles( new AllFileSelector() {
+        // it's a directory
+        if ( directoryFileObject != null && cache.getType( directoryFileObject ) == FileType.FOLDER ) {
+          List<FileObject> fileObjects = cache.findFiles( directoryFileObject, new AllFileSelector() {
             @Override
             public boolean traverseDescendents( FileSelectInfo info ) {
               return info.getDepth() == 0 || subdirs;
@@ -331,7 +339,7 @@ public class FileInputList {
 
               FileObject fileObject = info.getFile();
               try {
-                if ( fileObject != null && filter.isFileTypeAllowed( fileObject.getType() ) ) {
+                if ( fileObject != null && filter.isFileTypeAllowed( cache.getType( fileObject ) ) ) {
                   return true;
                 }
                 return false;
@@ -341,14 +349,12 @@ public class FileInputList {
               }
             }
           } );
-          if ( fileObjects != null ) {
-            for ( int j = 0; j < fileObjects.length; j++ ) {
-              if ( fileObjects[j].exists() ) {
-                fileInputList.addFile( fileObjects[j] );
-              }
+          for ( FileObject fileObject : fileObjects ) {
+            if ( cache.exists( fileObject ) ) {
+              fileInputList.addFile( fileObject );
             }
           }
-          if ( Const.isEmpty( fileObjects ) ) {
+          if ( fileObjects.isEmpty() ) {
             if ( onerequired ) {
               fileInputList.addNonAccessibleFile( directoryFileObject );
             }
@@ -357,7 +363,7 @@ public class FileInputList {
           // Sort the list: quicksort, only for regular files
           fileInputList.sortFiles();
         } else {
-          if ( onerequired && !directoryFileObject.exists() ) {
+          if ( onerequired && !cache.exists( directoryFileObject ) ) {
             fileInputList.addNonExistantFile( directoryFileObject );
           }
         }
@@ -111,6 +111,9 @@ public class FileLoggingEventListener implements KettleLoggingEventListener {
   }
 
   public void close() throws KettleException {
+    // Lines logged before closing can still be on their way when the listeners get them asynchronously
+    //
+    KettleLogStore.flush();
     try {
       if ( outputStream != null ) {
         outputStream.close();
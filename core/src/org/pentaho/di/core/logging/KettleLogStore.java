@@ -67,6 +67,20 @@ public class KettleLogStore {
     this.appender = new LoggingBuffer( maxSize );
     replaceLogCleaner( maxLogTimeoutMinutes );
 
+    if ( EnvUtil.getSystemProperty( Const.KETTLE_LOG_ASYNC, "N" ).equalsIgnoreCase( "Y" ) ) {
+      appender.setAsynchronous( true, Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_LOG_ASYNC_QUEUE_SIZE ),
+        AsyncLoggingEventDispatcher.DEFAULT_QUEUE_SIZE ) );
+
+      // Write out the last lines when the JVM exits
+      //
+      Runtime.getRuntime().addShutdownHook( new Thread( new Runnable() {
+        @Override
+        public void run() {
+          appender.flush();
+        }
+      } ) );
+    }
+
     if ( redirectStdOut ) {
       System.setOut( new LoggingPrintStream( OriginalSystemOut ) );
     }
@@ -272,4 +286,14 @@ public class KettleLogStore {
   public static boolean isInitialized() {
     return initialized.get();
   }
+
+  /**
+   * Wait until the logging event listeners got all the lines logged so far, only needed when KETTLE_LOG_ASYNC is
+   * enabled.
+   */
+  public static void flush() {
+    if ( store != null ) {
+      store.appender.flush();
+    }
+  }
 }
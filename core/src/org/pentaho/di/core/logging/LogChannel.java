@@ -131,68 +131,109 @@ public class LogChannel implements LogChannelInterface {
     println( traceMessage, channelLogLevel );
   }
 
+  // The log methods check the level before creating the message: a disabled level doesn't cost a thing.
+  //
   @Override
   public void logMinimal( String s ) {
+    if ( !LogLevel.MINIMAL.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, LogLevel.MINIMAL ), logLevel );
   }
 
   @Override
   public void logBasic( String s ) {
+    if ( !LogLevel.BASIC.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, LogLevel.BASIC ), logLevel );
   }
 
   @Override
   public void logError( String s ) {
+    if ( !LogLevel.ERROR.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, LogLevel.ERROR ), logLevel );
   }
 
   @Override
   public void logError( String s, Throwable e ) {
+    if ( !LogLevel.ERROR.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, LogLevel.ERROR ), e, logLevel );
   }
 
   @Override
   public void logBasic( String s, Object... arguments ) {
+    if ( !LogLevel.BASIC.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, arguments, LogLevel.BASIC ), logLevel );
   }
 
   @Override
   public void logDetailed( String s, Object... arguments ) {
+    if ( !LogLevel.DETAILED.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, arguments, LogLevel.DETAILED ), logLevel );
   }
 
   @Override
   public void logError( String s, Object... arguments ) {
+    if ( !LogLevel.ERROR.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, arguments, LogLevel.ERROR ), logLevel );
   }
 
   @Override
   public void logDetailed( String s ) {
+    if ( !LogLevel.DETAILED.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, LogLevel.DETAILED ), logLevel );
   }
 
   @Override
   public void logDebug( String s ) {
+    if ( !LogLevel.DEBUG.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, LogLevel.DEBUG ), logLevel );
   }
 
   @Override
   public void logDebug( String message, Object... arguments ) {
+    if ( !LogLevel.DEBUG.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( message, logChannelId, arguments, LogLevel.DEBUG ), logLevel );
   }
 
   @Override
   public void logRowlevel( String s ) {
+    if ( !LogLevel.ROWLEVEL.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( s, logChannelId, LogLevel.ROWLEVEL ), logLevel );
   }
 
   @Override
   public void logMinimal( String message, Object... arguments ) {
+    if ( !LogLevel.MINIMAL.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( message, logChannelId, arguments, LogLevel.MINIMAL ), logLevel );
   }
 
   @Override
   public void logRowlevel( String message, Object... arguments ) {
+    if ( !LogLevel.ROWLEVEL.isVisible( logLevel ) ) {
+      return;
+    }
     println( new LogMessage( message, logChannelId, arguments, LogLevel.ROWLEVEL ), logLevel );
   }
 
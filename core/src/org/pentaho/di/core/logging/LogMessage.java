@@ -38,6 +38,9 @@ public class LogMessage implements LogMessageInterface {
   private LogLevel level;
   private String copy;
 
+  /** The message formatted with its arguments, formatted once when it's first asked for */
+  private volatile String formattedMessage;
+
   /**
    * Backward compatibility : no registry used, just log the subject as part of the message
    *
@@ -136,11 +139,7 @@ public class LogMessage implements LogMessageInterface {
     if ( message == null ) {
       return subject;
     }
-    if ( arguments != null && arguments.length > 0 ) {
-      return subject + " - " + MessageFormat.format( message, arguments );
-    } else {
-      return subject + " - " + message;
-    }
+    return subject + " - " + getMessage();
   }
 
   @Override
@@ -159,7 +158,14 @@ public class LogMessage implements LogMessageInterface {
   @Override
   public String getMessage() {
     if ( arguments != null && arguments.length > 0 ) {
-      return MessageFormat.format( message, arguments );
+      // Every listener and every reader of the log buffer asks for the message, only format it once
+      //
+      String formatted = formattedMessage;
+      if ( formatted == null ) {
+        formatted = MessageFormat.format( message, arguments );
+        formattedMessage = formatted;
+      }
+      return formatted;
     } else {
       return message;
     }
@@ -172,6 +178,7 @@ public class LogMessage implements LogMessageInterface {
   @Deprecated
   public void setMessage( String message ) {
     this.message = message;
+    this.formattedMessage = null;
   }
 
   /**
@@ -223,6 +230,7 @@ public class LogMessage implements LogMessageInterface {
   @Deprecated
   public void setArguments( Object[] arguments ) {
     this.arguments = arguments;
+    this.formattedMessage = null;
   }
 
   public boolean isError() {
@@ -24,14 +24,28 @@ package org.pentaho.di.core.logging;
 
 import org.pentaho.di.core.Const;
 
-import java.util.Collections;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
- * This class keeps the last N lines in a buffer
+ * This class keeps the last N lines in a buffer.<br>
+ * <br>
+ * Lines are kept once, in a concurrent map ordered by line number. Per log channel only the line numbers are indexed.
+ * Appending, trimming and removing lines happen under one lock so the buffer and the index always agree, reading
+ * doesn't lock and only visits the lines of the requested channels within the requested range, never the complete
+ * buffer.
  *
  * @author matt
  *
@@ -39,17 +53,29 @@ import java.util.LinkedList;
 public class LoggingBuffer {
   private String name;
 
-  private List<BufferLine> buffer;
+  private final ConcurrentNavigableMap<Integer, BufferLine> buffer;
+
+  private final ConcurrentMap<String, ChannelLines> channels;
 
-  private int bufferSize;
+  /** Guards every change to the buffer and the channel index, including the numbering of new lines */
+  private final Object lock = new Object();
+
+  private volatile int nrLines;
+
+  private volatile int bufferSize;
 
   private KettleLogLayout layout;
 
   private List<KettleLoggingEventListener> eventListeners;
 
+  /** Hands the events to the listeners on a background thread, null to do it on the thread that logs */
+  private volatile AsyncLoggingEventDispatcher dispatcher;
+
   public LoggingBuffer( int bufferSize ) {
     this.bufferSize = bufferSize;
-    buffer = Collections.synchronizedList( new LinkedList<BufferLine>() );
+    buffer = new ConcurrentSkipListMap<Integer, BufferLine>();
+    channels = new ConcurrentHashMap<String, ChannelLines>();
+    nrLines = 0;
     layout = new KettleLogLayout( true );
     eventListeners = Collections.synchronizedList( new ArrayList<KettleLoggingEventListener>() );
   }
@@ -58,13 +84,8 @@ public class LoggingBuffer {
    * @return the number (sequence, 1..N) of the last log line. If no records are present in the buffer, 0 is returned.
    */
   public int getLastBufferLineNr() {
-    synchronized ( buffer ) {
-      if ( buffer.size() > 0 ) {
-        return buffer.get( buffer.size() - 1 ).getNr();
-      } else {
-        return 0;
-      }
-    }
+    Map.Entry<Integer, BufferLine> last = buffer.lastEntry();
+    return last == null ? 0 : last.getKey();
   }
 
   /**
@@ -80,57 +101,58 @@ public class LoggingBuffer {
   public List<KettleLoggingEvent> getLogBufferFromTo( List<String> channelId, boolean includeGeneral, int from,
     int to ) {
     List<KettleLoggingEvent> lines = new ArrayList<KettleLoggingEvent>();
+    if ( from >= to ) {
+      return lines;
+    }
 
-    synchronized ( buffer ) {
-      for ( BufferLine line : buffer ) {
-        if ( line.getNr() > from && line.getNr() <= to ) {
-          Object payload = line.getEvent().getMessage();
-          if ( payload instanceof LogMessage ) {
-            LogMessage message = (LogMessage) payload;
-
-            // Typically, the log channel id is the one from the transformation or job running currently.
-            // However, we also want to see the details of the steps etc.
-            // So we need to look at the parents all the way up if needed...
-            //
-            boolean include = channelId == null;
-
-            // See if we should include generic messages
-            //
-            if ( !include ) {
-              LoggingObjectInterface loggingObject =
-                LoggingRegistry.getInstance().getLoggingObject( message.getLogChannelId() );
-
-              if ( loggingObject != null
-                && includeGeneral && LoggingObjectType.GENERAL.equals( loggingObject.getObjectType() ) ) {
-                include = true;
-              }
-
-              // See if we should include a certain channel id (zero, one or more)
-              //
-              if ( !include ) {
-                for ( String id : channelId ) {
-                  if ( message.getLogChannelId().equals( id ) ) {
-                    include = true;
-                    break;
-                  }
-                }
-              }
-            }
-
-            if ( include ) {
-
-              try {
-                // String string = layout.format(line.getEvent());
-                lines.add( line.getEvent() );
-              } catch ( Exception e ) {
-                e.printStackTrace();
-              }
-            }
-          }
+    if ( channelId == null ) {
+      for ( BufferLine line : buffer.subMap( from, false, to, true ).values() ) {
+        if ( line.getEvent().getMessage() instanceof LogMessage ) {
+          lines.add( line.getEvent() );
         }
       }
+      return lines;
     }
 
+    // Typically, the log channel id is the one from the transformation or job running currently.
+    // However, we also want to see the details of the steps etc. so the caller passes all the children.
+    // We only look at the lines of these channels (and the general ones if needed).
+    //
+    Set<ChannelLines> selection = new LinkedHashSet<ChannelLines>();
+    for ( String id : channelId ) {
+      ChannelLines channel = id == null ? null : channels.get( id );
+      if ( channel != null ) {
+        selection.add( channel );
+      }
+    }
+    if ( includeGeneral ) {
+      for ( ChannelLines channel : channels.values() ) {
+        if ( channel.general ) {
+          selection.add( channel );
+        }
+      }
+    }
+
+    List<BufferLine> selected = new ArrayList<BufferLine>();
+    for ( ChannelLines channel : selection ) {
+      for ( Integer nr : channel.lineNrs.subSet( from, false, to, true ) ) {
+        BufferLine line = buffer.get( nr );
+        if ( line != null ) {
+          selected.add( line );
+        }
+      }
+    }
+    if ( selection.size() > 1 ) {
+      Collections.sort( selected, new Comparator<BufferLine>() {
+        @Override
+        public int compare( BufferLine one, BufferLine two ) {
+          return Integer.compare( one.getNr(), two.getNr() );
+        }
+      } );
+    }
+    for ( BufferLine line : selected ) {
+      lines.add( line.getEvent() );
+    }
     return lines;
   }
 
@@ -184,10 +206,75 @@ public class LoggingBuffer {
   }
 
   public void doAppend( KettleLoggingEvent event ) {
-    synchronized ( buffer ) {
-      buffer.add( new BufferLine( event ) );
-      while ( bufferSize > 0 && buffer.size() > bufferSize ) {
-        buffer.remove( 0 );
+    String channelId = getLogChannelId( event );
+    ChannelLines channel = channelId == null ? null : channels.get( channelId );
+    if ( channelId != null && channel == null ) {
+      // Look this up outside of the lock, the registry has its own
+      //
+      channel = new ChannelLines( isGeneral( channelId ) );
+    }
+
+    synchronized ( lock ) {
+      // The line number is assigned under the lock so the lines are added and trimmed in order
+      //
+      BufferLine line = new BufferLine( event );
+
+      // Index the line first: readers only look for lines up to the last one in the buffer
+      //
+      if ( channel != null ) {
+        ChannelLines existing = channels.putIfAbsent( channelId, channel );
+        ( existing != null ? existing : channel ).lineNrs.add( line.getNr() );
+      }
+      buffer.put( line.getNr(), line );
+      nrLines++;
+
+      // Drop the oldest lines if we have too many
+      //
+      while ( bufferSize > 0 && nrLines > bufferSize ) {
+        Map.Entry<Integer, BufferLine> first = buffer.pollFirstEntry();
+        if ( first == null ) {
+          break;
+        }
+        nrLines--;
+        removeFromChannel( first.getValue() );
+      }
+    }
+  }
+
+  private static String getLogChannelId( KettleLoggingEvent event ) {
+    Object payload = event.getMessage();
+    if ( payload instanceof LogMessage ) {
+      return ( (LogMessage) payload ).getLogChannelId();
+    }
+    return null;
+  }
+
+  private static boolean isGeneral( String logChannelId ) {
+    LoggingObjectInterface loggingObject = LoggingRegistry.getInstance().getLoggingObject( logChannelId );
+    return loggingObject != null && LoggingObjectType.GENERAL.equals( loggingObject.getObjectType() );
+  }
+
+  /**
+   * Only call this while holding the lock.
+   */
+  private void removeFromChannel( BufferLine line ) {
+    String channelId = getLogChannelId( line.getEvent() );
+    ChannelLines channel = channelId == null ? null : channels.get( channelId );
+    if ( channel != null ) {
+      channel.lineNrs.remove( line.getNr() );
+      if ( channel.lineNrs.isEmpty() ) {
+        channels.remove( channelId );
+      }
+    }
+  }
+
+  /**
+   * Only call this while holding the lock.
+   */
+  private void removeLines( Collection<Integer> lineNrs ) {
+    for ( Integer nr : lineNrs ) {
+      if ( buffer.remove( nr ) != null ) {
+        nrLines--;
       }
     }
   }
@@ -213,7 +300,11 @@ public class LoggingBuffer {
   }
 
   public void clear() {
-    buffer.clear();
+    synchronized ( lock ) {
+      channels.clear();
+      buffer.clear();
+      nrLines = 0;
+    }
   }
 
   /**
@@ -235,7 +326,7 @@ public class LoggingBuffer {
    * @return the nrLines
    */
   public int getNrLines() {
-    return buffer.size();
+    return nrLines;
   }
 
   /**
@@ -245,45 +336,33 @@ public class LoggingBuffer {
    *          the id of the logging channel to remove
    */
   public void removeChannelFromBuffer( String id ) {
-    synchronized ( buffer ) {
-      Iterator<BufferLine> iterator = buffer.iterator();
-      while ( iterator.hasNext() ) {
-        BufferLine bufferLine = iterator.next();
-        Object payload = bufferLine.getEvent().getMessage();
-        if ( payload instanceof LogMessage ) {
-          LogMessage message = (LogMessage) payload;
-          if ( id.equals( message.getLogChannelId() ) ) {
-            iterator.remove();
-          }
-        }
+    synchronized ( lock ) {
+      ChannelLines channel = channels.remove( id );
+      if ( channel != null ) {
+        removeLines( channel.lineNrs );
       }
     }
   }
 
   public int size() {
-    return buffer.size();
+    return nrLines;
   }
 
   public void removeGeneralMessages() {
-    synchronized ( buffer ) {
-      Iterator<BufferLine> iterator = buffer.iterator();
+    synchronized ( lock ) {
+      Iterator<ChannelLines> iterator = channels.values().iterator();
       while ( iterator.hasNext() ) {
-        BufferLine bufferLine = iterator.next();
-        Object payload = bufferLine.getEvent().getMessage();
-        if ( payload instanceof LogMessage ) {
-          LogMessage message = (LogMessage) payload;
-          LoggingObjectInterface loggingObject =
-            LoggingRegistry.getInstance().getLoggingObject( message.getLogChannelId() );
-          if ( loggingObject != null && LoggingObjectType.GENERAL.equals( loggingObject.getObjectType() ) ) {
-            iterator.remove();
-          }
+        ChannelLines channel = iterator.next();
+        if ( channel.general ) {
+          iterator.remove();
+          removeLines( channel.lineNrs );
         }
       }
     }
   }
 
   public Iterator<BufferLine> getBufferIterator() {
-    return buffer.iterator();
+    return buffer.values().iterator();
   }
 
   /**
@@ -292,37 +371,38 @@ public class LoggingBuffer {
   @Deprecated
   public String dump() {
     StringBuilder buf = new StringBuilder( 50000 );
-    synchronized ( buffer ) {
-      for ( BufferLine line : buffer ) {
-        Object payload = line.getEvent().getMessage();
-        if ( payload instanceof LogMessage ) {
-          LogMessage message = (LogMessage) payload;
-          // LoggingObjectInterface loggingObject =
-          // LoggingRegistry.getInstance().getLoggingObject(message.getLogChannelId());
-          buf
-            .append( message.getLogChannelId()
-              + "\t" + message.getSubject() + "\t" + message.getMessage() + "\n" );
-        }
-
+    for ( BufferLine line : buffer.values() ) {
+      Object payload = line.getEvent().getMessage();
+      if ( payload instanceof LogMessage ) {
+        LogMessage message = (LogMessage) payload;
+        // LoggingObjectInterface loggingObject =
+        // LoggingRegistry.getInstance().getLoggingObject(message.getLogChannelId());
+        buf
+          .append( message.getLogChannelId()
+            + "\t" + message.getSubject() + "\t" + message.getMessage() + "\n" );
       }
     }
     return buf.toString();
   }
 
   public void removeBufferLines( List<BufferLine> linesToRemove ) {
-    buffer.removeAll( linesToRemove );
+    synchronized ( lock ) {
+      for ( BufferLine line : linesToRemove ) {
+        if ( buffer.remove( line.getNr(), line ) ) {
+          nrLines--;
+          removeFromChannel( line );
+        }
+      }
+    }
   }
 
   public List<BufferLine> getBufferLinesBefore( long minTimeBoundary ) {
     List<BufferLine> linesToRemove = new ArrayList<BufferLine>();
-    synchronized ( buffer ) {
-      for ( Iterator<BufferLine> i = buffer.iterator(); i.hasNext(); ) {
-        BufferLine bufferLine = i.next();
-        if ( bufferLine.getEvent().timeStamp < minTimeBoundary ) {
-          linesToRemove.add( bufferLine );
-        } else {
-          break;
-        }
+    for ( BufferLine bufferLine : buffer.values() ) {
+      if ( bufferLine.getEvent().timeStamp < minTimeBoundary ) {
+        linesToRemove.add( bufferLine );
+      } else {
+        break;
       }
     }
     return linesToRemove;
@@ -330,6 +410,11 @@ public class LoggingBuffer {
 
   public void addLogggingEvent( KettleLoggingEvent loggingEvent ) {
     doAppend( loggingEvent );
+    AsyncLoggingEventDispatcher asyncDispatcher = dispatcher;
+    if ( asyncDispatcher != null ) {
+      asyncDispatcher.add( loggingEvent );
+      return;
+    }
     synchronized ( eventListeners ) {
       for ( KettleLoggingEventListener listener : eventListeners ) {
         listener.eventAdded( loggingEvent );
@@ -341,7 +426,58 @@ public class LoggingBuffer {
     eventListeners.add( listener );
   }
 
+  /**
+   * Remove a listener after it got all the events logged so far.
+   */
   public void removeLoggingEventListener( KettleLoggingEventListener listener ) {
+    flush();
     eventListeners.remove( listener );
   }
+
+  /**
+   * The lines are always added to the buffer right away. With an asynchronous buffer the listeners get them on a
+   * background thread, see {@link AsyncLoggingEventDispatcher}.
+   *
+   * @param asynchronous
+   *          true to hand the events to the listeners on a background thread
+   * @param queueSize
+   *          the maximum number of events waiting for the listeners
+   */
+  public synchronized void setAsynchronous( boolean asynchronous, int queueSize ) {
+    if ( dispatcher != null ) {
+      AsyncLoggingEventDispatcher previous = dispatcher;
+      dispatcher = null;
+      previous.stop();
+    }
+    if ( asynchronous ) {
+      dispatcher = new AsyncLoggingEventDispatcher( queueSize, eventListeners );
+    }
+  }
+
+  public boolean isAsynchronous() {
+    return dispatcher != null;
+  }
+
+  /**
+   * Wait until the listeners got all the events logged so far, only needed when the buffer is asynchronous.
+   */
+  public void flush() {
+    AsyncLoggingEventDispatcher asyncDispatcher = dispatcher;
+    if ( asyncDispatcher != null ) {
+      asyncDispatcher.flush();
+    }
+  }
+
+  /**
+   * The numbers of the lines of a single log channel, the lines themselves are only kept in the buffer.
+   */
+  private static class ChannelLines {
+    private final ConcurrentSkipListSet<Integer> lineNrs;
+    private final boolean general;
+
+    ChannelLines( boolean general ) {
+      this.lineNrs = new ConcurrentSkipListSet<Integer>();
+      this.general = general;
+    }
+  }
 }
@@ -39,6 +39,8 @@ public class LoggingRegistry {
   private static LoggingRegistry registry = new LoggingRegistry();
   private Map<String, LoggingObjectInterface> map;
   private Map<String, List<String>> childrenMap;
+  /** The children of a log channel as returned by getLogChannelChildren(), cleared whenever the registry changes */
+  private Map<String, List<String>> childrenCache;
   private Date lastModificationTime;
   private int maxSize;
   private final int DEFAULT_MAX_SIZE = 10000;
@@ -48,6 +50,7 @@ public class LoggingRegistry {
   private LoggingRegistry() {
     this.map = new ConcurrentHashMap<String, LoggingObjectInterface>();
     this.childrenMap = new ConcurrentHashMap<String, List<String>>();
+    this.childrenCache = new ConcurrentHashMap<String, List<String>>();
 
     this.lastModificationTime = new Date();
     this.maxSize = Const.toInt( EnvUtil.getSystemProperty( "KETTLE_MAX_LOGGING_REGISTRY_SIZE" ), DEFAULT_MAX_SIZE );
@@ -85,6 +88,7 @@ public class LoggingRegistry {
       loggingSource.setLogChannelId( logChannelId );
 
       this.map.put( logChannelId, loggingSource );
+      this.childrenCache.clear();
 
       if ( loggingSource.getParent() != null ) {
         String parentLogChannelId = loggingSource.getParent().getLogChannelId();
@@ -161,9 +165,17 @@ public class LoggingRegistry {
     if ( parentLogChannelId == null ) {
       return null;
     }
-    List<String> list = getLogChannelChildren( new ArrayList<String>(), parentLogChannelId );
-    list.add( parentLogChannelId );
-    return list;
+    // Log buffers and file loggers ask for this all the time: only walk the tree again once the registry changed.
+    //
+    List<String> list = this.childrenCache.get( parentLogChannelId );
+    if ( list == null ) {
+      synchronized ( this.syncObject ) {
+        list = getLogChannelChildren( new ArrayList<String>(), parentLogChannelId );
+        list.add( parentLogChannelId );
+        this.childrenCache.put( parentLogChannelId, list );
+      }
+    }
+    return new ArrayList<String>( list );
   }
 
   private List<String> getLogChannelChildren( List<String> children, String parentLogChannelId ) {
@@ -244,7 +256,10 @@ public class LoggingRegistry {
   }
 
   public void removeOrphans() {
-    // Remove all orphaned children
-    this.childrenMap.keySet().retainAll( this.map.keySet() );
+    synchronized ( this.syncObject ) {
+      // Remove all orphaned children
+      this.childrenMap.keySet().retainAll( this.map.keySet() );
+      this.childrenCache.clear();
+    }
   }
 }
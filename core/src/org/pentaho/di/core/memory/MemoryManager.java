@@ -0,0 +1,233 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.memory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.EnvUtil;
+
+/**
+ * Keeps track of the number of bytes rows occupy in the memory of a transformation. Memory hungry steps reserve the
+ * memory they need through a {@link MemoryReservation}. When the budget is exhausted, steps that are able to spill
+ * rows to disk do so, the others follow the {@link OverflowPolicy} of the manager.<br>
+ * <br>
+ * A manager can have a parent, typically the JVM-wide manager, in which case every reservation must fit in the budget
+ * of both.
+ */
+public class MemoryManager {
+
+  /**
+   * What to do when a step that can't spill to disk needs more memory than what is left in the budget.
+   */
+  public enum OverflowPolicy {
+    /** Stop the step with an error. */
+    FAIL,
+    /** Continue over the budget, the step only warns about it. */
+    WARN;
+
+    public static OverflowPolicy getPolicy( String code ) {
+      for ( OverflowPolicy policy : values() ) {
+        if ( policy.name().equalsIgnoreCase( code ) ) {
+          return policy;
+        }
+      }
+      return FAIL;
+    }
+  }
+
+  private static MemoryManager globalInstance;
+
+  private final String name;
+  private final long limit;
+  private final OverflowPolicy overflowPolicy;
+  private final MemoryManager parent;
+
+  private final AtomicLong used;
+  private final AtomicLong peak;
+
+  /**
+   * @param name
+   *          the name of the manager, used in error messages
+   * @param limit
+   *          the budget in bytes, 0 or less means there is no limit: the memory is only accounted for
+   * @param overflowPolicy
+   *          what to do when a step that can't spill runs out of budget
+   * @param parent
+   *          the parent manager or null
+   */
+  public MemoryManager( String name, long limit, OverflowPolicy overflowPolicy, MemoryManager parent ) {
+    this.name = name;
+    this.limit = limit;
+    this.overflowPolicy = overflowPolicy;
+    this.parent = parent;
+    this.used = new AtomicLong( 0L );
+    this.peak = new AtomicLong( 0L );
+  }
+
+  /**
+   * Gets the JVM-wide memory manager, configured with {@link Const#KETTLE_GLOBAL_MEMORY_LIMIT_MB}.
+   *
+   * @return the global memory manager or null if there is no global limit
+   */
+  public static synchronized MemoryManager getGlobalInstance() {
+    if ( globalInstance == null ) {
+      long limitMb = Const.toLong( EnvUtil.getSystemProperty( Const.KETTLE_GLOBAL_MEMORY_LIMIT_MB ), 0L );
+      if ( limitMb <= 0 ) {
+        return null;
+      }
+      globalInstance = new MemoryManager( "JVM", limitMb * 1024 * 1024, getDefaultOverflowPolicy(), null );
+    }
+    return globalInstance;
+  }
+
+  /**
+   * @return the overflow policy configured with {@link Const#KETTLE_MEMORY_OVERFLOW_POLICY}
+   */
+  public static OverflowPolicy getDefaultOverflowPolicy() {
+    return OverflowPolicy.getPolicy( EnvUtil.getSystemProperty( Const.KETTLE_MEMORY_OVERFLOW_POLICY ) );
+  }
+
+  /**
+   * Create a new reservation for a memory consumer, typically a step copy.
+   *
+   * @param owner
+   *          the name of the consumer, used in error messages
+   * @param spillable
+   *          true if the consumer is able to spill to disk when the budget is exhausted
+   * @return a new, empty reservation
+   */
+  public MemoryReservation createReservation( String owner, boolean spillable ) {
+    return new MemoryReservation( this, owner, spillable );
+  }
+
+  /**
+   * Try to allocate the given number of bytes from this budget and from the budget of the parent.
+   *
+   * @param bytes
+   *          the number of bytes
+   * @return true if the memory was allocated, false if there was not enough left in the budget
+   */
+  boolean tryAllocate( long bytes ) {
+    while ( true ) {
+      long current = used.get();
+      long next = current + bytes;
+      if ( limit > 0 && next > limit && bytes > 0 ) {
+        return false;
+      }
+      if ( used.compareAndSet( current, next ) ) {
+        break;
+      }
+    }
+    if ( parent != null && !parent.tryAllocate( bytes ) ) {
+      used.addAndGet( -bytes );
+      return false;
+    }
+    updatePeak();
+    return true;
+  }
+
+  /**
+   * Allocate the given number of bytes, even if this exceeds the budget.
+   *
+   * @param bytes
+   *          the number of bytes
+   */
+  void forceAllocate( long bytes ) {
+    used.addAndGet( bytes );
+    if ( parent != null ) {
+      parent.forceAllocate( bytes );
+    }
+    updatePeak();
+  }
+
+  /**
+   * Give the given number of bytes back to this budget and the budget of the parent.
+   *
+   * @param bytes
+   *          the number of bytes
+   */
+  void free( long bytes ) {
+    used.addAndGet( -bytes );
+    if ( parent != null ) {
+      parent.free( bytes );
+    }
+  }
+
+  private void updatePeak() {
+    long current = used.get();
+    long max = peak.get();
+    while ( current > max && !peak.compareAndSet( max, current ) ) {
+      max = peak.get();
+    }
+  }
+
+  /**
+   * @return the name of this manager
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the budget in bytes, 0 or less if there is no limit
+   */
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return the policy for steps that can't spill to disk
+   */
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  /**
+   * @return the parent manager or null
+   */
+  public MemoryManager getParent() {
+    return parent;
+  }
+
+  /**
+   * @return the number of bytes currently reserved
+   */
+  public long getUsed() {
+    return used.get();
+  }
+
+  /**
+   * @return the highest number of bytes reserved at any time
+   */
+  public long getPeak() {
+    return peak.get();
+  }
+
+  @Override
+  public String toString() {
+    return name + " : " + ( used.get() / 1024 ) + "k used, " + ( peak.get() / 1024 ) + "k peak"
+      + ( limit > 0 ? ", " + ( limit / 1024 ) + "k limit" : "" );
+  }
+}
@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.memory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.di.core.exception.KettleMemoryException;
+
+/**
+ * The memory reserved by a single consumer (step copy) from a {@link MemoryManager}. A consumer that is able to spill
+ * rows to disk uses {@link #tryReserve(long)} and spills when it returns false. Other consumers use
+ * {@link #reserve(long)} which either fails or overcommits, depending on the policy of the manager.<br>
+ * <br>
+ * Always call {@link #releaseAll()} when the consumer is done so the memory becomes available to others.
+ */
+public class MemoryReservation {
+  private final MemoryManager manager;
+  private final String owner;
+  private final boolean spillable;
+  private final AtomicLong reserved;
+
+  MemoryReservation( MemoryManager manager, String owner, boolean spillable ) {
+    this.manager = manager;
+    this.owner = owner;
+    this.spillable = spillable;
+    this.reserved = new AtomicLong( 0L );
+  }
+
+  /**
+   * Try to reserve memory.
+   *
+   * @param bytes
+   *          the number of bytes to reserve
+   * @return true if the memory was reserved, false if the budget is exhausted and the caller should spill to disk.
+   */
+  public boolean tryReserve( long bytes ) {
+    if ( manager.tryAllocate( bytes ) ) {
+      reserved.addAndGet( bytes );
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Reserve memory for a consumer that can't spill to disk.
+   *
+   * @param bytes
+   *          the number of bytes to reserve
+   * @return true if the memory fit in the budget, false if the budget was exceeded and the overflow policy allows it.
+   * @throws KettleMemoryException
+   *           in case the budget is exceeded and the overflow policy is {@link MemoryManager.OverflowPolicy#FAIL}
+   */
+  public boolean reserve( long bytes ) throws KettleMemoryException {
+    if ( tryReserve( bytes ) ) {
+      return true;
+    }
+    if ( getEffectivePolicy() == MemoryManager.OverflowPolicy.FAIL ) {
+      throw new KettleMemoryException( "Unable to reserve " + bytes + " bytes for " + owner
+        + ": the memory budget is exhausted (" + manager.toString() + ", " + reserved.get() + " bytes reserved by "
+        + owner + ")" );
+    }
+    manager.forceAllocate( bytes );
+    reserved.addAndGet( bytes );
+    return false;
+  }
+
+  private MemoryManager.OverflowPolicy getEffectivePolicy() {
+    // The strictest policy in the hierarchy wins
+    for ( MemoryManager m = manager; m != null; m = m.getParent() ) {
+      if ( m.getOverflowPolicy() == MemoryManager.OverflowPolicy.FAIL ) {
+        return MemoryManager.OverflowPolicy.FAIL;
+      }
+    }
+    return MemoryManager.OverflowPolicy.WARN;
+  }
+
+  /**
+   * Give back part of the reserved memory.
+   *
+   * @param bytes
+   *          the number of bytes to release
+   */
+  public void release( long bytes ) {
+    long toRelease = Math.min( bytes, reserved.get() );
+    if ( toRelease > 0 ) {
+      reserved.addAndGet( -toRelease );
+      manager.free( toRelease );
+    }
+  }
+
+  /**
+   * Give back all reserved memory.
+   */
+  public void releaseAll() {
+    long bytes = reserved.getAndSet( 0L );
+    if ( bytes > 0 ) {
+      manager.free( bytes );
+    }
+  }
+
+  /**
+   * @return the number of bytes currently reserved
+   */
+  public long getReserved() {
+    return reserved.get();
+  }
+
+  /**
+   * @return the name of the consumer
+   */
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * @return true if the consumer is able to spill to disk
+   */
+  public boolean isSpillable() {
+    return spillable;
+  }
+
+  /**
+   * @return the memory manager this reservation belongs to
+   */
+  public MemoryManager getManager() {
+    return manager;
+  }
+}
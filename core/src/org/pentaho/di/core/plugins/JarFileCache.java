@@ -22,26 +22,44 @@
 
 package org.pentaho.di.core.plugins;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.ExecutorUtil;
 import org.scannotation.AnnotationDB;
 
 public class JarFileCache {
 
   private static JarFileCache cache;
 
-  private final Map<PluginFolderInterface, FileObject[]> folderMap;
+  private final Map<Object, FileObject[]> folderMap;
 
-  private final Map<FileObject, AnnotationDB> annotationMap;
+  private final Map<FileObject, Map<String, Set<String>>> annotationIndexMap;
+
+  private JarFileIndex index;
 
   private JarFileCache() {
-    annotationMap = new HashMap<FileObject, AnnotationDB>();
-    folderMap = new HashMap<PluginFolderInterface, FileObject[]>();
+    folderMap = new HashMap<Object, FileObject[]>();
+    annotationIndexMap = new HashMap<FileObject, Map<String, Set<String>>>();
   }
 
   public static JarFileCache getInstance() {
@@ -51,27 +69,146 @@ public class JarFileCache {
     return cache;
   }
 
-  public AnnotationDB getAnnotationDB( FileObject fileObject ) throws FileSystemException, IOException {
-    AnnotationDB result = annotationMap.get( fileObject );
-    if ( result == null ) {
-      result = new AnnotationDB();
-      result.scanArchives( fileObject.getURL() );
-      annotationMap.put( fileObject, result );
+  /**
+   * Get the annotations found in a jar file, from the plugin index when the jar file didn't change since it was
+   * indexed.
+   *
+   * @return the annotation class names mapped to the names of the classes that carry them
+   */
+  public Map<String, Set<String>> getAnnotationIndex( FileObject fileObject ) throws FileSystemException,
+    IOException {
+    scanArchives( new FileObject[] { fileObject } );
+    return annotationIndexMap.get( fileObject );
+  }
+
+  /**
+   * Make sure the annotations of the given jar files are known. The jar files that aren't in the plugin index or that
+   * changed since they were indexed are scanned in parallel. A jar file that can't be scanned is logged and has no
+   * annotations, it doesn't keep the others from being found.
+   */
+  public void scanArchives( FileObject[] fileObjects ) throws FileSystemException, IOException {
+    JarFileIndex jarFileIndex = getIndex();
+    final ConcurrentLinkedQueue<FileObject> scanQueue = new ConcurrentLinkedQueue<FileObject>();
+    for ( FileObject fileObject : fileObjects ) {
+      if ( annotationIndexMap.containsKey( fileObject ) ) {
+        continue;
+      }
+      Map<String, Set<String>> annotationIndex = null;
+      if ( jarFileIndex != null ) {
+        FileContent content = fileObject.getContent();
+        annotationIndex = jarFileIndex.get( fileObject.getURL(), content.getSize(), content.getLastModifiedTime() );
+      }
+      if ( annotationIndex != null ) {
+        annotationIndexMap.put( fileObject, annotationIndex );
+      } else {
+        scanQueue.add( fileObject );
+      }
+    }
+    if ( scanQueue.isEmpty() ) {
+      return;
+    }
+
+    // Every worker scans jar files until there are none left
+    //
+    final Map<FileObject, Map<String, Set<String>>> scanned = new HashMap<FileObject, Map<String, Set<String>>>();
+    final List<FileObject> failed = Collections.synchronizedList( new ArrayList<FileObject>() );
+    int nrWorkers = Math.min( scanQueue.size(), Runtime.getRuntime().availableProcessors() );
+    List<Future<Void>> workers = new ArrayList<Future<Void>>();
+    for ( int i = 0; i < nrWorkers; i++ ) {
+      workers.add( ExecutorUtil.getExecutor().submit( new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          FileObject fileObject;
+          while ( ( fileObject = scanQueue.poll() ) != null ) {
+            try {
+              AnnotationDB annotationDB = new AnnotationDB();
+              annotationDB.scanArchives( fileObject.getURL() );
+              synchronized ( scanned ) {
+                scanned.put( fileObject, annotationDB.getAnnotationIndex() );
+              }
+            } catch ( Exception e ) {
+              if ( KettleLogStore.isInitialized() ) {
+                LogChannel.GENERAL.logError( "Unable to scan plugin jar file " + fileObject + " for annotations", e );
+              }
+              failed.add( fileObject );
+            }
+          }
+          return null;
+        }
+      } ) );
+    }
+    try {
+      for ( Future<Void> worker : workers ) {
+        worker.get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( "Interrupted while scanning plugin jar files", e );
+    } catch ( ExecutionException e ) {
+      throw new IOException( "Unable to scan plugin jar files for annotations", e.getCause() );
+    }
+
+    // Don't index a damaged jar file: it's scanned again on the next run in case it was fixed
+    //
+    for ( FileObject fileObject : failed ) {
+      annotationIndexMap.put( fileObject, Collections.<String, Set<String>>emptyMap() );
+    }
+    for ( Map.Entry<FileObject, Map<String, Set<String>>> entry : scanned.entrySet() ) {
+      FileObject fileObject = entry.getKey();
+      annotationIndexMap.put( fileObject, entry.getValue() );
+      if ( jarFileIndex != null ) {
+        FileContent content = fileObject.getContent();
+        jarFileIndex.put( fileObject.getURL(), content.getSize(), content.getLastModifiedTime(), entry.getValue() );
+      }
     }
-    return result;
   }
 
+  /**
+   * Get the jar files of a plugin folder. Every plugin type has its own plugin folder objects for the same folders, the
+   * jar files of a folder are only looked up once for all of them.
+   */
   public FileObject[] getFileObjects( PluginFolderInterface pluginFolderInterface ) throws KettleFileException {
-    FileObject[] result = folderMap.get( pluginFolderInterface );
+    Object key = getFolderKey( pluginFolderInterface );
+    FileObject[] result = folderMap.get( key );
     if ( result == null ) {
       result = pluginFolderInterface.findJarFiles();
-      folderMap.put( pluginFolderInterface, result );
+      folderMap.put( key, result );
     }
     return result;
   }
 
+  private static Object getFolderKey( PluginFolderInterface pluginFolderInterface ) {
+    if ( pluginFolderInterface instanceof PluginFolder ) {
+      PluginFolder pluginFolder = (PluginFolder) pluginFolderInterface;
+      return Arrays.<Object>asList( pluginFolder.getFolder(), pluginFolder.isSearchLibDir() );
+    }
+    return pluginFolderInterface;
+  }
+
+  /**
+   * Write the plugin index file if new or changed jar files were scanned.
+   */
+  public void saveIndex() throws IOException {
+    if ( index != null ) {
+      index.save();
+    }
+  }
+
+  /**
+   * @return the plugin index, loaded on first use, or null if the index is disabled with
+   *         {@link Const#KETTLE_PLUGIN_INDEX}
+   */
+  private JarFileIndex getIndex() {
+    if ( index == null && !"N".equalsIgnoreCase( EnvUtil.getSystemProperty( Const.KETTLE_PLUGIN_INDEX ) ) ) {
+      index = new JarFileIndex( new File( Const.getKettlePluginIndexFile() ) );
+      index.load();
+    }
+    return index;
+  }
+
   public void clear() {
-    annotationMap.clear();
     folderMap.clear();
+    annotationIndexMap.clear();
+    index = null;
   }
 }
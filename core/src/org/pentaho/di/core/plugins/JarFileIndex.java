@@ -0,0 +1,219 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.plugins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The annotations found in the plugin jar files, kept in a file between runs so that the jar files only need to be
+ * scanned again when they change. A jar file is identified by its URL, its size and its last modification time.<br>
+ * <br>
+ * Entries of jar files that are not used during a run are kept, unless the jar file is gone.
+ */
+public class JarFileIndex {
+
+  /** Written at the start of the index file, "KPIX" */
+  private static final int MAGIC = 0x4B504958;
+
+  private static final int VERSION = 1;
+
+  private final File file;
+
+  private final Map<String, Entry> entries;
+
+  private boolean changed;
+
+  private static class Entry {
+    private final long size;
+    private final long lastModified;
+    private final Map<String, Set<String>> annotationIndex;
+    private boolean used;
+
+    Entry( long size, long lastModified, Map<String, Set<String>> annotationIndex ) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.annotationIndex = annotationIndex;
+    }
+  }
+
+  public JarFileIndex( File file ) {
+    this.file = file;
+    this.entries = new HashMap<String, Entry>();
+  }
+
+  /**
+   * Load the index file. A missing, unreadable or outdated file simply leaves the index empty.
+   */
+  public synchronized void load() {
+    entries.clear();
+    changed = false;
+    if ( !file.isFile() ) {
+      return;
+    }
+    DataInputStream inputStream = null;
+    try {
+      inputStream = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+      if ( inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION ) {
+        return;
+      }
+      int nrEntries = inputStream.readInt();
+      for ( int i = 0; i < nrEntries; i++ ) {
+        String url = inputStream.readUTF();
+        long size = inputStream.readLong();
+        long lastModified = inputStream.readLong();
+        int nrAnnotations = inputStream.readInt();
+        Map<String, Set<String>> annotationIndex = new HashMap<String, Set<String>>();
+        for ( int a = 0; a < nrAnnotations; a++ ) {
+          String annotation = inputStream.readUTF();
+          int nrClasses = inputStream.readInt();
+          Set<String> classes = new HashSet<String>();
+          for ( int c = 0; c < nrClasses; c++ ) {
+            classes.add( inputStream.readUTF() );
+          }
+          annotationIndex.put( annotation, classes );
+        }
+        entries.put( url, new Entry( size, lastModified, annotationIndex ) );
+      }
+    } catch ( IOException e ) {
+      // A damaged index is the same as no index: the jar files are scanned again
+      //
+      entries.clear();
+    } finally {
+      if ( inputStream != null ) {
+        try {
+          inputStream.close();
+        } catch ( IOException e ) {
+          // Ignore
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the annotation index of the jar file: the annotation class names mapped to the names of the classes that
+   *         carry them, or null if the jar file isn't indexed or changed since it was indexed.
+   */
+  public synchronized Map<String, Set<String>> get( URL url, long size, long lastModified ) {
+    Entry entry = entries.get( url.toString() );
+    if ( entry == null || entry.size != size || entry.lastModified != lastModified ) {
+      return null;
+    }
+    entry.used = true;
+    return entry.annotationIndex;
+  }
+
+  public synchronized void put( URL url, long size, long lastModified, Map<String, Set<String>> annotationIndex ) {
+    Entry entry = new Entry( size, lastModified, annotationIndex );
+    entry.used = true;
+    entries.put( url.toString(), entry );
+    changed = true;
+  }
+
+  /**
+   * Write the index file if anything changed since it was loaded. The file is written next to the index file first and
+   * then renamed, so that concurrent runs never read a partial index. Nothing is written if the folder or the index file
+   * is read-only: the jar files are simply scanned again on the next run.
+   *
+   * @throws IOException
+   *           in case the index file can't be written
+   */
+  public synchronized void save() throws IOException {
+    for ( Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+      Map.Entry<String, Entry> entry = iterator.next();
+      if ( !entry.getValue().used && isRemoved( entry.getKey() ) ) {
+        iterator.remove();
+        changed = true;
+      }
+    }
+    if ( !changed ) {
+      return;
+    }
+
+    File folder = file.getAbsoluteFile().getParentFile();
+    if ( !folder.exists() && !folder.mkdirs() || !folder.canWrite() || file.exists() && !file.canWrite() ) {
+      return;
+    }
+    File tempFile = File.createTempFile( file.getName(), ".tmp", folder );
+    DataOutputStream outputStream = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) );
+    try {
+      outputStream.writeInt( MAGIC );
+      outputStream.writeInt( VERSION );
+      outputStream.writeInt( entries.size() );
+      for ( Map.Entry<String, Entry> entry : entries.entrySet() ) {
+        outputStream.writeUTF( entry.getKey() );
+        outputStream.writeLong( entry.getValue().size );
+        outputStream.writeLong( entry.getValue().lastModified );
+        outputStream.writeInt( entry.getValue().annotationIndex.size() );
+        for ( Map.Entry<String, Set<String>> annotation : entry.getValue().annotationIndex.entrySet() ) {
+          outputStream.writeUTF( annotation.getKey() );
+          outputStream.writeInt( annotation.getValue().size() );
+          for ( String className : annotation.getValue() ) {
+            outputStream.writeUTF( className );
+          }
+        }
+      }
+    } finally {
+      outputStream.close();
+    }
+
+    if ( !tempFile.renameTo( file ) ) {
+      // Windows doesn't rename over an existing file
+      //
+      file.delete();
+      if ( !tempFile.renameTo( file ) ) {
+        tempFile.delete();
+        throw new IOException( "Unable to rename " + tempFile + " to " + file );
+      }
+    }
+    changed = false;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return true if the URL points to a local file that no longer exists
+   */
+  private static boolean isRemoved( String url ) {
+    try {
+      URL location = new URL( url );
+      return "file".equals( location.getProtocol() ) && !new File( location.toURI() ).exists();
+    } catch ( Exception e ) {
+      return false;
+    }
+  }
+}
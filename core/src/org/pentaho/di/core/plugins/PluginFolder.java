@@ -190,4 +190,11 @@ public class PluginFolder implements PluginFolderInterface {
   public void setPluginAnnotationsFolder( boolean pluginAnnotationsFolder ) {
     this.pluginAnnotationsFolder = pluginAnnotationsFolder;
   }
+
+  /**
+   * @return true if the lib folders are searched for plugin jar files too
+   */
+  public boolean isSearchLibDir() {
+    return searchLibDir;
+  }
 }
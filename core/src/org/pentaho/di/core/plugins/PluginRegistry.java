@@ -23,6 +23,7 @@
 package org.pentaho.di.core.plugins;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
@@ -581,6 +582,16 @@ public class PluginRegistry {
      * System.out.println("   - "+duration.toString()+"          Total="+total); }
      */
 
+    // Keep the annotations of the scanned jar files for the next time around
+    //
+    try {
+      JarFileCache.getInstance().saveIndex();
+    } catch ( IOException e ) {
+      if ( KettleLogStore.isInitialized() ) {
+        LogChannel.GENERAL.logError( "Unable to save the plugin index file " + Const.getKettlePluginIndexFile(), e );
+      }
+    }
+
     // Clear the jar file cache so that we don't waste memory...
     //
     if ( !keepCache ) {
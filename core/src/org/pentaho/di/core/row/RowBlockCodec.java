@@ -0,0 +1,463 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+
+/**
+ * Writes and reads a stream of rows of one layout in blocks of rows stored column by column, for the transport of rows
+ * between the slave servers of a cluster.<br>
+ * <br>
+ * The rows are collected until a block is full or until the caller flushes, at the end of the stream or when a partial
+ * block waited long enough.
+ * The values of a block are then written one column at a time: a null bitmap followed by the non-null values, with
+ * integers and dates as variable length differences with the previous value and strings as references to the strings
+ * seen earlier in the column. Values of the same column next to each other compress a lot better than rows, so every
+ * block is compressed on its own with the fastest deflate level when compression is enabled. Blocks that don't get
+ * smaller are sent as they are.<br>
+ * <br>
+ * A codec keeps the state of one stream: use one instance for every stream that is written or read.
+ */
+public class RowBlockCodec {
+
+  /** Written in the header of a stream of row blocks, "KBLK" */
+  public static final int MAGIC = 0x4B424C4B;
+
+  /** The version of the format, increased when the format changes */
+  public static final int VERSION = 1;
+
+  /** The maximum number of rows in a block */
+  public static final int BLOCK_ROWS = 1024;
+
+  private static final int FLAG_COMPRESSED = 1;
+
+  private final ValueMetaInterface[] valueMetas;
+  private final int[] fields;
+  private final boolean compressing;
+
+  private final Object[][] rows;
+  private int nrRows;
+
+  private final RowCodec.Output output;
+  private final RowCodec.Input input;
+  private DataOutputStream delegateOutput;
+  private DataInputStream delegateInput;
+  private final Map<String, Integer> writeDictionary;
+  private final List<String> readDictionary;
+
+  private Deflater deflater;
+  private Inflater inflater;
+  private byte[] compressed;
+
+  private Object[][] readRows;
+  private int readIndex;
+  private int readCount;
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows
+   * @param compressing
+   *          true to compress the blocks that are written, the reader handles both
+   */
+  public RowBlockCodec( RowMetaInterface rowMeta, boolean compressing ) {
+    valueMetas = rowMeta.getValueMetaList().toArray( new ValueMetaInterface[rowMeta.size()] );
+    fields = new int[valueMetas.length];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      fields[i] = RowCodec.getField( valueMetas[i] );
+    }
+    this.compressing = compressing;
+
+    rows = new Object[BLOCK_ROWS][];
+    output = new RowCodec.Output();
+    input = new RowCodec.Input();
+    writeDictionary = new HashMap<String, Integer>();
+    readDictionary = new ArrayList<String>();
+    compressed = new byte[0];
+  }
+
+  /**
+   * Write the magic number and version of the format, to be checked with {@link #readHeader(DataInputStream)}.
+   */
+  public void writeHeader( DataOutputStream outputStream ) throws KettleFileException {
+    try {
+      outputStream.writeInt( MAGIC );
+      outputStream.writeInt( VERSION );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write the row block stream header", e );
+    }
+  }
+
+  /**
+   * Read the header written by {@link #writeHeader(DataOutputStream)}.
+   *
+   * @throws KettleFileException
+   *           in case the stream wasn't written with this version of the format
+   */
+  public void readHeader( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    int magic;
+    int version;
+    try {
+      magic = inputStream.readInt();
+      version = inputStream.readInt();
+    } catch ( SocketTimeoutException e ) {
+      throw e;
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( "End of file while reading the row block stream header", e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read the row block stream header", e );
+    }
+    if ( magic != MAGIC || version != VERSION ) {
+      throw new KettleFileException( "The rows were not written in row block format version " + VERSION
+        + ", make sure that both ends run the same version of the software" );
+    }
+  }
+
+  /**
+   * Add a row to the current block, the block is written when it is full.
+   */
+  public void addRow( DataOutputStream outputStream, Object[] row ) throws KettleFileException {
+    rows[nrRows++] = row;
+    if ( nrRows == BLOCK_ROWS ) {
+      flush( outputStream );
+    }
+  }
+
+  /**
+   * @return the number of rows in the current block that are not written yet
+   */
+  public int getNrRows() {
+    return nrRows;
+  }
+
+  /**
+   * Write the rows of the current block, if any. This doesn't flush the output stream itself.
+   */
+  public void flush( DataOutputStream outputStream ) throws KettleFileException {
+    if ( nrRows == 0 ) {
+      return;
+    }
+    output.reset();
+    for ( int i = 0; i < fields.length; i++ ) {
+      writeColumn( i );
+    }
+    int rawLength = output.size();
+
+    try {
+      int flags = 0;
+      byte[] data = output.buffer();
+      int length = rawLength;
+      if ( compressing ) {
+        if ( deflater == null ) {
+          deflater = new Deflater( Deflater.BEST_SPEED, true );
+        }
+        if ( compressed.length < rawLength ) {
+          compressed = new byte[rawLength];
+        }
+        deflater.reset();
+        deflater.setInput( data, 0, rawLength );
+        deflater.finish();
+        int compressedLength = deflater.deflate( compressed, 0, compressed.length );
+        if ( deflater.finished() && compressedLength < rawLength ) {
+          flags |= FLAG_COMPRESSED;
+          data = compressed;
+          length = compressedLength;
+        }
+      }
+      outputStream.writeInt( nrRows );
+      outputStream.writeByte( flags );
+      outputStream.writeInt( rawLength );
+      if ( ( flags & FLAG_COMPRESSED ) != 0 ) {
+        outputStream.writeInt( length );
+      }
+      outputStream.write( data, 0, length );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write a block of rows to the output stream", e );
+    }
+
+    Arrays.fill( rows, 0, nrRows, null );
+    nrRows = 0;
+  }
+
+  /**
+   * Read the next row, reading the next block from the stream when the current one is exhausted.
+   *
+   * @throws KettleEOFException
+   *           when the end of the stream is reached
+   */
+  public Object[] readRow( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    if ( readIndex == readCount ) {
+      readBlock( inputStream );
+    }
+    Object[] row = readRows[readIndex];
+    readRows[readIndex++] = null;
+    return row;
+  }
+
+  private void readBlock( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    int count;
+    try {
+      count = inputStream.readInt();
+      int flags = inputStream.readByte();
+      int rawLength = inputStream.readInt();
+      byte[] buffer = input.buffer( rawLength );
+      if ( ( flags & FLAG_COMPRESSED ) != 0 ) {
+        int length = inputStream.readInt();
+        if ( compressed.length < length ) {
+          compressed = new byte[length];
+        }
+        inputStream.readFully( compressed, 0, length );
+        if ( inflater == null ) {
+          inflater = new Inflater( true );
+        }
+        inflater.reset();
+        inflater.setInput( compressed, 0, length );
+        if ( inflater.inflate( buffer, 0, rawLength ) != rawLength ) {
+          throw new KettleFileException( "A compressed block of rows is incomplete" );
+        }
+      } else {
+        inputStream.readFully( buffer, 0, rawLength );
+      }
+      input.setLength( rawLength );
+    } catch ( SocketTimeoutException e ) {
+      throw e;
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( e );
+    } catch ( DataFormatException e ) {
+      throw new KettleFileException( "Unable to decompress a block of rows", e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read a block of rows from the input stream", e );
+    }
+
+    if ( readRows == null || readRows.length < count ) {
+      readRows = new Object[Math.max( count, BLOCK_ROWS )][];
+    }
+    for ( int r = 0; r < count; r++ ) {
+      readRows[r] = new Object[fields.length];
+    }
+    try {
+      for ( int i = 0; i < fields.length; i++ ) {
+        readColumn( i, count );
+      }
+    } catch ( KettleFileException e ) {
+      throw e;
+    } catch ( RuntimeException e ) {
+      throw new KettleFileException( "Unable to decode a block of rows, the stream is corrupt", e );
+    }
+    readIndex = 0;
+    readCount = count;
+  }
+
+  private void writeColumn( int i ) throws KettleFileException {
+    int field = fields[i];
+    if ( field == RowCodec.FIELD_DELEGATE ) {
+      if ( delegateOutput == null ) {
+        delegateOutput = new DataOutputStream( output );
+      }
+      for ( int r = 0; r < nrRows; r++ ) {
+        valueMetas[i].writeData( delegateOutput, rows[r][i] );
+      }
+      return;
+    }
+
+    // The null bitmap of the column
+    //
+    int bitmapLength = ( nrRows + 7 ) / 8;
+    output.ensureCapacity( bitmapLength );
+    byte[] buffer = output.buffer();
+    int bitmap = output.size();
+    Arrays.fill( buffer, bitmap, bitmap + bitmapLength, (byte) 0 );
+    for ( int r = 0; r < nrRows; r++ ) {
+      if ( rows[r][i] == null ) {
+        buffer[bitmap + ( r >> 3 )] |= 1 << ( r & 7 );
+      }
+    }
+    output.skip( bitmapLength );
+
+    writeDictionary.clear();
+    long previous = 0;
+    for ( int r = 0; r < nrRows; r++ ) {
+      Object object = rows[r][i];
+      if ( object == null ) {
+        continue;
+      }
+      try {
+        switch ( field ) {
+          case RowCodec.FIELD_STRING:
+            writeString( (String) object );
+            break;
+          case RowCodec.FIELD_INTEGER:
+            long integer = (Long) object;
+            output.writeVarLong( RowCodec.zigZag( integer - previous ) );
+            previous = integer;
+            break;
+          case RowCodec.FIELD_NUMBER:
+            output.writeLong( Double.doubleToLongBits( (Double) object ) );
+            break;
+          case RowCodec.FIELD_DATE:
+            long time = ( (Date) object ).getTime();
+            output.writeVarLong( RowCodec.zigZag( time - previous ) );
+            previous = time;
+            break;
+          case RowCodec.FIELD_BIGNUMBER:
+            BigDecimal number = (BigDecimal) object;
+            output.writeVarLong( RowCodec.zigZag( number.scale() ) );
+            writeBytes( number.unscaledValue().toByteArray() );
+            break;
+          case RowCodec.FIELD_BOOLEAN:
+            output.write( ( (Boolean) object ).booleanValue() ? 1 : 0 );
+            break;
+          case RowCodec.FIELD_BINARY:
+          case RowCodec.FIELD_BINARY_STRING:
+            writeBytes( (byte[]) object );
+            break;
+          default:
+            output.writeVarLong( (Integer) object );
+            break;
+        }
+      } catch ( ClassCastException e ) {
+        throw new KettleFileException( valueMetas[i].toString() + " : There was a data type error: the data type of "
+          + object.getClass().getName() + " object [" + object + "] does not correspond to value meta ["
+          + valueMetas[i].toStringMeta() + "]", e );
+      }
+    }
+  }
+
+  private void readColumn( int i, int count ) throws KettleFileException, SocketTimeoutException {
+    int field = fields[i];
+    if ( field == RowCodec.FIELD_DELEGATE ) {
+      if ( delegateInput == null ) {
+        delegateInput = new DataInputStream( input );
+      }
+      for ( int r = 0; r < count; r++ ) {
+        readRows[r][i] = valueMetas[i].readData( delegateInput );
+      }
+      return;
+    }
+
+    byte[] buffer = input.buffer();
+    int bitmap = input.position();
+    input.skip( ( count + 7 ) / 8 );
+
+    readDictionary.clear();
+    long previous = 0;
+    for ( int r = 0; r < count; r++ ) {
+      if ( ( buffer[bitmap + ( r >> 3 )] & ( 1 << ( r & 7 ) ) ) != 0 ) {
+        continue;
+      }
+      Object object;
+      switch ( field ) {
+        case RowCodec.FIELD_STRING:
+          object = readString();
+          break;
+        case RowCodec.FIELD_INTEGER:
+          previous += RowCodec.unZigZag( input.readVarLong() );
+          object = Long.valueOf( previous );
+          break;
+        case RowCodec.FIELD_NUMBER:
+          object = Double.valueOf( Double.longBitsToDouble( input.readLong() ) );
+          break;
+        case RowCodec.FIELD_DATE:
+          previous += RowCodec.unZigZag( input.readVarLong() );
+          object = new Date( previous );
+          break;
+        case RowCodec.FIELD_BIGNUMBER:
+          int scale = (int) RowCodec.unZigZag( input.readVarLong() );
+          object = new BigDecimal( new BigInteger( readBytes() ), scale );
+          break;
+        case RowCodec.FIELD_BOOLEAN:
+          object = Boolean.valueOf( input.read() != 0 );
+          break;
+        case RowCodec.FIELD_BINARY:
+        case RowCodec.FIELD_BINARY_STRING:
+          object = readBytes();
+          break;
+        default:
+          object = Integer.valueOf( (int) input.readVarLong() );
+          break;
+      }
+      readRows[r][i] = object;
+    }
+  }
+
+  /**
+   * 0 followed by the UTF-8 bytes for a new string, the index plus 1 for a string seen before in the column.
+   */
+  private void writeString( String string ) {
+    Integer index = writeDictionary.get( string );
+    if ( index != null ) {
+      output.writeVarLong( index.longValue() + 1 );
+      return;
+    }
+    output.write( 0 );
+    writeBytes( string.getBytes( RowCodec.UTF8 ) );
+    if ( string.length() <= RowCodec.MAX_DICTIONARY_STRING_LENGTH
+      && writeDictionary.size() < RowCodec.MAX_DICTIONARY_SIZE ) {
+      writeDictionary.put( string, writeDictionary.size() );
+    }
+  }
+
+  private String readString() {
+    int index = (int) input.readVarLong();
+    if ( index > 0 ) {
+      return readDictionary.get( index - 1 );
+    }
+    int length = (int) input.readVarLong();
+    String string = new String( input.buffer(), input.position(), length, RowCodec.UTF8 );
+    input.skip( length );
+    if ( string.length() <= RowCodec.MAX_DICTIONARY_STRING_LENGTH
+      && readDictionary.size() < RowCodec.MAX_DICTIONARY_SIZE ) {
+      readDictionary.add( string );
+    }
+    return string;
+  }
+
+  private void writeBytes( byte[] bytes ) {
+    output.writeVarLong( bytes.length );
+    output.write( bytes, 0, bytes.length );
+  }
+
+  private byte[] readBytes() {
+    int length = (int) input.readVarLong();
+    byte[] bytes = Arrays.copyOfRange( input.buffer(), input.position(), input.position() + length );
+    input.skip( length );
+    return bytes;
+  }
+}
@@ -0,0 +1,546 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+
+/**
+ * Writes and reads a stream of rows of one layout in a compact binary format. It replaces
+ * {@link RowMetaInterface#writeData(DataOutputStream, Object[])} and {@link RowMetaInterface#readData(DataInputStream)}
+ * where rows go over the wire or to temporary files and are read back by the same version of the code.<br>
+ * <br>
+ * Every row is written as its length followed by a null bitmap and the non-null values:
+ * <ul>
+ * <li>integers, dates and indexes as variable length integers</li>
+ * <li>strings as a reference to a string seen earlier in the same block of rows or as UTF-8 bytes</li>
+ * <li>big numbers as scale and unscaled bytes instead of their string representation</li>
+ * <li>binary strings of lazy conversion as the raw bytes</li>
+ * </ul>
+ * The row is encoded in a buffer that is re-used for every row and written or read in one go. Value types with their
+ * own serialization keep writing and reading their data with the value metadata.<br>
+ * <br>
+ * A codec keeps the state of one stream: use one instance for every stream that is written or read.
+ */
+public class RowCodec {
+
+  /** Written in the header of a stream of rows, "KROW" */
+  public static final int MAGIC = 0x4B524F57;
+
+  /** The version of the format, increased when the format changes */
+  public static final int VERSION = 1;
+
+  /** The string dictionary is cleared every block of this many rows */
+  static final int BLOCK_ROWS = 1024;
+
+  static final int MAX_DICTIONARY_SIZE = 4096;
+
+  static final int MAX_DICTIONARY_STRING_LENGTH = 64;
+
+  static final Charset UTF8 = Charset.forName( Const.XML_ENCODING );
+
+  static final int FIELD_DELEGATE = 0;
+  static final int FIELD_STRING = 1;
+  static final int FIELD_INTEGER = 2;
+  static final int FIELD_NUMBER = 3;
+  static final int FIELD_DATE = 4;
+  static final int FIELD_BIGNUMBER = 5;
+  static final int FIELD_BOOLEAN = 6;
+  static final int FIELD_BINARY = 7;
+  static final int FIELD_BINARY_STRING = 8;
+  static final int FIELD_INDEXED = 9;
+
+  private final ValueMetaInterface[] valueMetas;
+  private final int[] fields;
+  private final int bitmapLength;
+
+  private final Output output;
+  private final Input input;
+  private DataOutputStream delegateOutput;
+  private DataInputStream delegateInput;
+  private final byte[] lengthBuffer;
+
+  private final Map<String, Integer> writeDictionary;
+  private final List<String> readDictionary;
+  private int rowsInBlock;
+
+  public RowCodec( RowMetaInterface rowMeta ) {
+    valueMetas = rowMeta.getValueMetaList().toArray( new ValueMetaInterface[rowMeta.size()] );
+    fields = new int[valueMetas.length];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      fields[i] = getField( valueMetas[i] );
+    }
+    // At least one byte so that an empty row still takes space in the stream
+    bitmapLength = valueMetas.length / 8 + 1;
+
+    output = new Output();
+    input = new Input();
+    lengthBuffer = new byte[5];
+    writeDictionary = new HashMap<String, Integer>();
+    readDictionary = new ArrayList<String>();
+  }
+
+  /**
+   * Write the magic number and version of the format, to be checked with {@link #readHeader(DataInputStream)}.
+   */
+  public void writeHeader( DataOutputStream outputStream ) throws KettleFileException {
+    try {
+      outputStream.writeInt( MAGIC );
+      outputStream.writeInt( VERSION );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write the row stream header", e );
+    }
+  }
+
+  /**
+   * Read the header written by {@link #writeHeader(DataOutputStream)}.
+   *
+   * @throws KettleFileException
+   *           in case the stream wasn't written with this version of the format
+   */
+  public void readHeader( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    int magic;
+    int version;
+    try {
+      magic = inputStream.readInt();
+      version = inputStream.readInt();
+    } catch ( SocketTimeoutException e ) {
+      throw e;
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( "End of file while reading the row stream header", e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read the row stream header", e );
+    }
+    if ( magic != MAGIC || version != VERSION ) {
+      throw new KettleFileException( "The rows were not written in row format version " + VERSION
+        + ", make sure that both ends run the same version of the software" );
+    }
+  }
+
+  /**
+   * Write a row to the stream.
+   */
+  public void writeRow( DataOutputStream outputStream, Object[] row ) throws KettleFileException {
+    nextRow();
+    output.reset();
+    output.ensureCapacity( bitmapLength );
+    Arrays.fill( output.buffer(), 0, bitmapLength, (byte) 0 );
+    output.skip( bitmapLength );
+
+    for ( int i = 0; i < fields.length; i++ ) {
+      Object object = row[i];
+      try {
+        if ( fields[i] == FIELD_DELEGATE ) {
+          if ( delegateOutput == null ) {
+            delegateOutput = new DataOutputStream( output );
+          }
+          valueMetas[i].writeData( delegateOutput, object );
+          continue;
+        }
+        if ( object == null ) {
+          output.buffer()[i >> 3] |= 1 << ( i & 7 );
+          continue;
+        }
+        switch ( fields[i] ) {
+          case FIELD_STRING:
+            writeString( (String) object );
+            break;
+          case FIELD_INTEGER:
+            output.writeVarLong( zigZag( (Long) object ) );
+            break;
+          case FIELD_NUMBER:
+            output.writeLong( Double.doubleToLongBits( (Double) object ) );
+            break;
+          case FIELD_DATE:
+            output.writeVarLong( zigZag( ( (Date) object ).getTime() ) );
+            break;
+          case FIELD_BIGNUMBER:
+            BigDecimal number = (BigDecimal) object;
+            output.writeVarLong( zigZag( number.scale() ) );
+            writeBytes( number.unscaledValue().toByteArray() );
+            break;
+          case FIELD_BOOLEAN:
+            output.write( ( (Boolean) object ).booleanValue() ? 1 : 0 );
+            break;
+          case FIELD_BINARY:
+          case FIELD_BINARY_STRING:
+            writeBytes( (byte[]) object );
+            break;
+          default:
+            output.writeVarLong( (Integer) object );
+            break;
+        }
+      } catch ( ClassCastException e ) {
+        throw new KettleFileException( valueMetas[i].toString() + " : There was a data type error: the data type of "
+          + object.getClass().getName() + " object [" + object + "] does not correspond to value meta ["
+          + valueMetas[i].toStringMeta() + "]", e );
+      }
+    }
+
+    try {
+      int n = 0;
+      int length = output.size();
+      while ( ( length & ~0x7F ) != 0 ) {
+        lengthBuffer[n++] = (byte) ( ( length & 0x7F ) | 0x80 );
+        length >>>= 7;
+      }
+      lengthBuffer[n++] = (byte) length;
+      outputStream.write( lengthBuffer, 0, n );
+      outputStream.write( output.buffer(), 0, output.size() );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write row data to output stream", e );
+    }
+  }
+
+  /**
+   * Read the next row from the stream.
+   *
+   * @throws KettleEOFException
+   *           when the end of the stream is reached
+   */
+  public Object[] readRow( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    try {
+      int length = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = inputStream.read();
+        if ( b < 0 ) {
+          throw new KettleEOFException( "End of file while reading a row" );
+        }
+        length |= ( b & 0x7F ) << shift;
+        shift += 7;
+      } while ( ( b & 0x80 ) != 0 );
+      input.fill( inputStream, length );
+    } catch ( SocketTimeoutException e ) {
+      throw e;
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read row data from input stream", e );
+    }
+
+    nextRow();
+    Object[] row = new Object[fields.length];
+    byte[] buffer = input.buffer();
+    input.skip( bitmapLength );
+    try {
+      for ( int i = 0; i < fields.length; i++ ) {
+        if ( fields[i] == FIELD_DELEGATE ) {
+          if ( delegateInput == null ) {
+            delegateInput = new DataInputStream( input );
+          }
+          row[i] = valueMetas[i].readData( delegateInput );
+          continue;
+        }
+        if ( ( buffer[i >> 3] & ( 1 << ( i & 7 ) ) ) != 0 ) {
+          continue;
+        }
+        switch ( fields[i] ) {
+          case FIELD_STRING:
+            row[i] = readString();
+            break;
+          case FIELD_INTEGER:
+            row[i] = Long.valueOf( unZigZag( input.readVarLong() ) );
+            break;
+          case FIELD_NUMBER:
+            row[i] = Double.valueOf( Double.longBitsToDouble( input.readLong() ) );
+            break;
+          case FIELD_DATE:
+            row[i] = new Date( unZigZag( input.readVarLong() ) );
+            break;
+          case FIELD_BIGNUMBER:
+            int scale = (int) unZigZag( input.readVarLong() );
+            row[i] = new BigDecimal( new BigInteger( readBytes() ), scale );
+            break;
+          case FIELD_BOOLEAN:
+            row[i] = Boolean.valueOf( input.read() != 0 );
+            break;
+          case FIELD_BINARY:
+          case FIELD_BINARY_STRING:
+            row[i] = readBytes();
+            break;
+          default:
+            row[i] = Integer.valueOf( (int) input.readVarLong() );
+            break;
+        }
+      }
+    } catch ( SocketTimeoutException e ) {
+      throw e;
+    } catch ( KettleFileException e ) {
+      throw e;
+    } catch ( RuntimeException e ) {
+      throw new KettleFileException( "Unable to decode row data, the stream is corrupt", e );
+    }
+    return row;
+  }
+
+  /**
+   * The writer and the reader clear their dictionary at the same rows.
+   */
+  private void nextRow() {
+    if ( rowsInBlock == BLOCK_ROWS ) {
+      writeDictionary.clear();
+      readDictionary.clear();
+      rowsInBlock = 0;
+    }
+    rowsInBlock++;
+  }
+
+  /**
+   * 0 followed by the UTF-8 bytes for a new string, the dictionary index plus 1 for a string seen before in this block.
+   */
+  private void writeString( String string ) {
+    Integer index = writeDictionary.get( string );
+    if ( index != null ) {
+      output.writeVarLong( index.longValue() + 1 );
+      return;
+    }
+    output.write( 0 );
+    int length = string.length();
+    output.ensureCapacity( length + 5 );
+    boolean ascii = true;
+    for ( int i = 0; i < length && ascii; i++ ) {
+      ascii = string.charAt( i ) < 0x80;
+    }
+    if ( ascii ) {
+      output.writeVarLong( length );
+      byte[] buffer = output.buffer();
+      int position = output.size();
+      for ( int i = 0; i < length; i++ ) {
+        buffer[position + i] = (byte) string.charAt( i );
+      }
+      output.skip( length );
+    } else {
+      writeBytes( string.getBytes( UTF8 ) );
+    }
+    if ( length <= MAX_DICTIONARY_STRING_LENGTH && writeDictionary.size() < MAX_DICTIONARY_SIZE ) {
+      writeDictionary.put( string, writeDictionary.size() );
+    }
+  }
+
+  private String readString() {
+    int index = (int) input.readVarLong();
+    if ( index > 0 ) {
+      return readDictionary.get( index - 1 );
+    }
+    int length = (int) input.readVarLong();
+    String string = new String( input.buffer(), input.position(), length, UTF8 );
+    input.skip( length );
+    if ( string.length() <= MAX_DICTIONARY_STRING_LENGTH && readDictionary.size() < MAX_DICTIONARY_SIZE ) {
+      readDictionary.add( string );
+    }
+    return string;
+  }
+
+  private void writeBytes( byte[] bytes ) {
+    output.writeVarLong( bytes.length );
+    output.write( bytes, 0, bytes.length );
+  }
+
+  private byte[] readBytes() {
+    int length = (int) input.readVarLong();
+    byte[] bytes = Arrays.copyOfRange( input.buffer(), input.position(), input.position() + length );
+    input.skip( length );
+    return bytes;
+  }
+
+  static long zigZag( long value ) {
+    return ( value << 1 ) ^ ( value >> 63 );
+  }
+
+  static long unZigZag( long value ) {
+    return ( value >>> 1 ) ^ -( value & 1 );
+  }
+
+  /**
+   * Value metadata that serializes its data differently from ValueMetaBase keeps doing so.
+   */
+  static int getField( ValueMetaInterface valueMeta ) {
+    if ( !( valueMeta instanceof ValueMetaBase ) ) {
+      return FIELD_DELEGATE;
+    }
+    try {
+      Class<?> c = valueMeta.getClass();
+      if ( c.getMethod( "writeData", DataOutputStream.class, Object.class ).getDeclaringClass() != ValueMetaBase.class
+        || c.getMethod( "readData", DataInputStream.class ).getDeclaringClass() != ValueMetaBase.class ) {
+        return FIELD_DELEGATE;
+      }
+    } catch ( NoSuchMethodException e ) {
+      return FIELD_DELEGATE;
+    }
+    switch ( valueMeta.getStorageType() ) {
+      case ValueMetaInterface.STORAGE_TYPE_BINARY_STRING:
+        return FIELD_BINARY_STRING;
+      case ValueMetaInterface.STORAGE_TYPE_INDEXED:
+        return FIELD_INDEXED;
+      case ValueMetaInterface.STORAGE_TYPE_NORMAL:
+        break;
+      default:
+        return FIELD_DELEGATE;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        return FIELD_STRING;
+      case ValueMetaInterface.TYPE_INTEGER:
+        return FIELD_INTEGER;
+      case ValueMetaInterface.TYPE_NUMBER:
+        return FIELD_NUMBER;
+      case ValueMetaInterface.TYPE_DATE:
+        return FIELD_DATE;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return FIELD_BIGNUMBER;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return FIELD_BOOLEAN;
+      case ValueMetaInterface.TYPE_BINARY:
+        return FIELD_BINARY;
+      default:
+        return FIELD_DELEGATE;
+    }
+  }
+
+  /**
+   * The re-used buffer a row is encoded in.
+   */
+  static class Output extends ByteArrayOutputStream {
+    Output() {
+      super( 256 );
+    }
+
+    byte[] buffer() {
+      return buf;
+    }
+
+    void ensureCapacity( int extra ) {
+      if ( count + extra > buf.length ) {
+        buf = Arrays.copyOf( buf, Math.max( buf.length * 2, count + extra ) );
+      }
+    }
+
+    void skip( int length ) {
+      count += length;
+    }
+
+    void writeVarLong( long value ) {
+      ensureCapacity( 10 );
+      while ( ( value & ~0x7FL ) != 0 ) {
+        buf[count++] = (byte) ( ( value & 0x7F ) | 0x80 );
+        value >>>= 7;
+      }
+      buf[count++] = (byte) value;
+    }
+
+    void writeLong( long value ) {
+      ensureCapacity( 8 );
+      for ( int shift = 56; shift >= 0; shift -= 8 ) {
+        buf[count++] = (byte) ( value >>> shift );
+      }
+    }
+  }
+
+  /**
+   * The re-used buffer a row is decoded from.
+   */
+  static class Input extends ByteArrayInputStream {
+    Input() {
+      super( new byte[256] );
+    }
+
+    void fill( DataInputStream inputStream, int length ) throws IOException {
+      if ( buf.length < length ) {
+        buf = new byte[Math.max( buf.length * 2, length )];
+      }
+      inputStream.readFully( buf, 0, length );
+      pos = 0;
+      count = length;
+    }
+
+    byte[] buffer() {
+      return buf;
+    }
+
+    /**
+     * Make room for data that is put in the buffer directly, followed by {@link #setLength(int)}.
+     */
+    byte[] buffer( int capacity ) {
+      if ( buf.length < capacity ) {
+        buf = new byte[Math.max( buf.length * 2, capacity )];
+      }
+      return buf;
+    }
+
+    void setLength( int length ) {
+      pos = 0;
+      count = length;
+    }
+
+    int position() {
+      return pos;
+    }
+
+    @Override
+    public long skip( long length ) {
+      pos += (int) length;
+      return length;
+    }
+
+    long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buf[pos++];
+        value |= (long) ( b & 0x7F ) << shift;
+        shift += 7;
+      } while ( b < 0 );
+      return value;
+    }
+
+    long readLong() {
+      long value = 0;
+      for ( int i = 0; i < 8; i++ ) {
+        value = ( value << 8 ) | ( buf[pos++] & 0xFF );
+      }
+      return value;
+    }
+  }
+}
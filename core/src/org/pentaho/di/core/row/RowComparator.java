@@ -0,0 +1,364 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+
+/**
+ * Compares rows on a number of key fields like {@link RowMetaInterface#compare(Object[], Object[], int[])} does, but
+ * with the work that doesn't depend on the data done up front.<br>
+ * <br>
+ * For every key field a comparison specialized for its data type is picked when the comparator is created: plain
+ * {@link Long}, {@link Double}, {@link Date}, ... comparisons without the type and storage type switches, the null
+ * checks and the conversions of {@link ValueMetaInterface#compare(Object, Object)}. Key fields that need the complete
+ * logic (lazy conversion, indexed storage, trimming or padding, value types with their own compare method) keep using
+ * the value metadata. The results are the same as those of the row metadata.<br>
+ * <br>
+ * The value metadata is captured when the comparator is created, so create it after the sort order, case sensitivity
+ * and storage types of the key fields are set.
+ */
+public class RowComparator {
+
+  private final int[] fieldnrs1;
+  private final int[] fieldnrs2;
+  private final FieldComparator[] comparators;
+
+  private RowComparator( int[] fieldnrs1, int[] fieldnrs2, FieldComparator[] comparators ) {
+    this.fieldnrs1 = fieldnrs1;
+    this.fieldnrs2 = fieldnrs2;
+    this.comparators = comparators;
+  }
+
+  /**
+   * Create a comparator for rows of the same layout.
+   *
+   * @param rowMeta
+   *          the metadata of the rows
+   * @param fieldnrs
+   *          the indexes of the key fields, in order of importance
+   */
+  public static RowComparator create( RowMetaInterface rowMeta, int[] fieldnrs ) {
+    FieldComparator[] comparators = new FieldComparator[fieldnrs.length];
+    for ( int i = 0; i < fieldnrs.length; i++ ) {
+      comparators[i] = createFieldComparator( rowMeta.getValueMeta( fieldnrs[i] ), null );
+    }
+    return new RowComparator( fieldnrs.clone(), fieldnrs.clone(), comparators );
+  }
+
+  /**
+   * Create a comparator for all the fields of the rows.
+   */
+  public static RowComparator create( RowMetaInterface rowMeta ) {
+    int[] fieldnrs = new int[rowMeta.size()];
+    for ( int i = 0; i < fieldnrs.length; i++ ) {
+      fieldnrs[i] = i;
+    }
+    return create( rowMeta, fieldnrs );
+  }
+
+  /**
+   * Create a comparator for rows of different layouts, like
+   * {@link RowMetaInterface#compare(Object[], RowMetaInterface, Object[], int[], int[])}.
+   *
+   * @param rowMeta1
+   *          the metadata of the first rows, its sort order applies
+   * @param fieldnrs1
+   *          the indexes of the key fields in the first rows
+   * @param rowMeta2
+   *          the metadata of the second rows
+   * @param fieldnrs2
+   *          the indexes of the key fields in the second rows
+   */
+  public static RowComparator create( RowMetaInterface rowMeta1, int[] fieldnrs1, RowMetaInterface rowMeta2,
+    int[] fieldnrs2 ) {
+    int length = Math.min( fieldnrs1.length, fieldnrs2.length );
+    FieldComparator[] comparators = new FieldComparator[length];
+    for ( int i = 0; i < length; i++ ) {
+      comparators[i] =
+        createFieldComparator( rowMeta1.getValueMeta( fieldnrs1[i] ), rowMeta2.getValueMeta( fieldnrs2[i] ) );
+    }
+    return new RowComparator( fieldnrs1.clone(), fieldnrs2.clone(), comparators );
+  }
+
+  /**
+   * Compare 2 rows on the key fields.
+   *
+   * @return 0 if the rows are considered equal, a negative number if row1 is smaller and a positive one if it's larger
+   * @throws KettleValueException
+   *           in case the key values of a row can't be compared
+   */
+  public int compare( Object[] row1, Object[] row2 ) throws KettleValueException {
+    for ( int i = 0; i < comparators.length; i++ ) {
+      int cmp = comparators[i].compare( row1[fieldnrs1[i]], row2[fieldnrs2[i]] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return true if both rows have the same key values
+   */
+  public boolean equals( Object[] row1, Object[] row2 ) throws KettleValueException {
+    return compare( row1, row2 ) == 0;
+  }
+
+  /**
+   * @return the comparison that gives the same results as valueMeta1.compare() for this key field
+   */
+  static FieldComparator createFieldComparator( ValueMetaInterface valueMeta1, ValueMetaInterface valueMeta2 ) {
+    if ( valueMeta2 != null
+      && ( valueMeta1.getType() != valueMeta2.getType() || valueMeta1.getStorageType() != valueMeta2
+        .getStorageType() ) ) {
+      return new ConvertingComparator( valueMeta1, valueMeta2 );
+    }
+    if ( !hasPlainComparison( valueMeta1 ) ) {
+      return new ValueMetaComparator( valueMeta1 );
+    }
+    boolean descending = valueMeta1.isSortedDescending();
+    switch ( valueMeta1.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        return new StringComparator( descending, valueMeta1.isCaseInsensitive() );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return new IntegerComparator( descending );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return new NumberComparator( descending );
+      case ValueMetaInterface.TYPE_DATE:
+        return new DateComparator( descending );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return new BigNumberComparator( descending );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return new BooleanComparator( descending );
+      default:
+        return new ValueMetaComparator( valueMeta1 );
+    }
+  }
+
+  /**
+   * Only value metadata with the standard comparison and normal storage can skip the value metadata. A subclass that
+   * changes how values are compared or read keeps its own logic, so do strings that are trimmed or padded.
+   */
+  static boolean hasPlainComparison( ValueMetaInterface valueMeta ) {
+    if ( !( valueMeta instanceof ValueMetaBase )
+      || valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return false;
+    }
+    String getter;
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        if ( valueMeta.getTrimType() != ValueMetaInterface.TRIM_TYPE_NONE
+          || valueMeta.isOutputPaddingEnabled() && valueMeta.getLength() > 0 ) {
+          return false;
+        }
+        getter = "getString";
+        break;
+      case ValueMetaInterface.TYPE_INTEGER:
+        getter = "getInteger";
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        getter = "getNumber";
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+        getter = "getDate";
+        break;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        getter = "getBigNumber";
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        getter = "getBoolean";
+        break;
+      default:
+        return false;
+    }
+    try {
+      Class<?> c = valueMeta.getClass();
+      return c.getMethod( "compare", Object.class, Object.class ).getDeclaringClass() == ValueMetaBase.class
+        && c.getMethod( "compare", Object.class, ValueMetaInterface.class, Object.class )
+          .getDeclaringClass() == ValueMetaBase.class
+        && c.getMethod( "isNull", Object.class ).getDeclaringClass() == ValueMetaBase.class
+        && isStandardGetter( c.getMethod( getter, Object.class ).getDeclaringClass() );
+    } catch ( NoSuchMethodException e ) {
+      return false;
+    }
+  }
+
+  /**
+   * ValueMetaDate overrides getDate() only to call the ValueMetaBase version.
+   */
+  private static boolean isStandardGetter( Class<?> declaringClass ) {
+    return declaringClass == ValueMetaBase.class || declaringClass == ValueMetaDate.class;
+  }
+
+  abstract static class FieldComparator {
+    abstract int compare( Object data1, Object data2 ) throws KettleValueException;
+  }
+
+  /**
+   * Handles the null values and the sort order. Like in ValueMetaBase null is always smaller, also in descending order.
+   */
+  private abstract static class NativeComparator extends FieldComparator {
+    private final boolean descending;
+
+    NativeComparator( boolean descending ) {
+      this.descending = descending;
+    }
+
+    @Override
+    final int compare( Object data1, Object data2 ) throws KettleValueException {
+      boolean n1 = isNull( data1 );
+      boolean n2 = isNull( data2 );
+      if ( n1 || n2 ) {
+        return n1 == n2 ? 0 : ( n1 ? -1 : 1 );
+      }
+      int cmp;
+      try {
+        cmp = compareValues( data1, data2 );
+      } catch ( ClassCastException e ) {
+        throw new KettleValueException( "Unexpected data type comparing [" + data1 + "] with [" + data2 + "]", e );
+      }
+      return descending ? -cmp : cmp;
+    }
+
+    boolean isNull( Object data ) {
+      return data == null;
+    }
+
+    abstract int compareValues( Object data1, Object data2 );
+  }
+
+  private static class StringComparator extends NativeComparator {
+    private final boolean caseInsensitive;
+    private final boolean emptyIsNull;
+
+    StringComparator( boolean descending, boolean caseInsensitive ) {
+      super( descending );
+      this.caseInsensitive = caseInsensitive;
+      this.emptyIsNull = !ValueMetaBase.EMPTY_STRING_AND_NULL_ARE_DIFFERENT;
+    }
+
+    @Override
+    boolean isNull( Object data ) {
+      return data == null || emptyIsNull && data.toString().length() == 0;
+    }
+
+    @Override
+    int compareValues( Object data1, Object data2 ) {
+      String one = data1.toString();
+      String two = data2.toString();
+      return caseInsensitive ? one.compareToIgnoreCase( two ) : one.compareTo( two );
+    }
+  }
+
+  private static class IntegerComparator extends NativeComparator {
+    IntegerComparator( boolean descending ) {
+      super( descending );
+    }
+
+    @Override
+    int compareValues( Object data1, Object data2 ) {
+      return ( (Long) data1 ).compareTo( (Long) data2 );
+    }
+  }
+
+  private static class NumberComparator extends NativeComparator {
+    NumberComparator( boolean descending ) {
+      super( descending );
+    }
+
+    @Override
+    int compareValues( Object data1, Object data2 ) {
+      return Double.compare( ( (Double) data1 ).doubleValue(), ( (Double) data2 ).doubleValue() );
+    }
+  }
+
+  private static class DateComparator extends NativeComparator {
+    DateComparator( boolean descending ) {
+      super( descending );
+    }
+
+    @Override
+    int compareValues( Object data1, Object data2 ) {
+      long one = ( (Date) data1 ).getTime();
+      long two = ( (Date) data2 ).getTime();
+      return one < two ? -1 : ( one == two ? 0 : 1 );
+    }
+  }
+
+  private static class BigNumberComparator extends NativeComparator {
+    BigNumberComparator( boolean descending ) {
+      super( descending );
+    }
+
+    @Override
+    int compareValues( Object data1, Object data2 ) {
+      return ( (BigDecimal) data1 ).compareTo( (BigDecimal) data2 );
+    }
+  }
+
+  private static class BooleanComparator extends NativeComparator {
+    BooleanComparator( boolean descending ) {
+      super( descending );
+    }
+
+    @Override
+    int compareValues( Object data1, Object data2 ) {
+      boolean one = ( (Boolean) data1 ).booleanValue();
+      boolean two = ( (Boolean) data2 ).booleanValue();
+      return one == two ? 0 : ( one ? 1 : -1 );
+    }
+  }
+
+  private static class ValueMetaComparator extends FieldComparator {
+    private final ValueMetaInterface valueMeta;
+
+    ValueMetaComparator( ValueMetaInterface valueMeta ) {
+      this.valueMeta = valueMeta;
+    }
+
+    @Override
+    int compare( Object data1, Object data2 ) throws KettleValueException {
+      return valueMeta.compare( data1, data2 );
+    }
+  }
+
+  private static class ConvertingComparator extends FieldComparator {
+    private final ValueMetaInterface valueMeta1;
+    private final ValueMetaInterface valueMeta2;
+
+    ConvertingComparator( ValueMetaInterface valueMeta1, ValueMetaInterface valueMeta2 ) {
+      this.valueMeta1 = valueMeta1;
+      this.valueMeta2 = valueMeta2;
+    }
+
+    @Override
+    int compare( Object data1, Object data2 ) throws KettleValueException {
+      return valueMeta1.compare( data1, valueMeta2, data2 );
+    }
+  }
+}
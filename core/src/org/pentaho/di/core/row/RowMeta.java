@@ -823,6 +823,60 @@ public class RowMeta implements RowMetaInterface {
     }
   }
 
+  @Override
+  public long getEstimatedRowSize( Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    lock.readLock().lock();
+    try {
+      return estimateRowSize( valueMetaList, row );
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long getEstimatedRowSize() {
+    lock.readLock().lock();
+    try {
+      return estimateRowSize( valueMetaList );
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Estimates the size of a row of data, see {@link RowMetaInterface#getEstimatedRowSize(Object[])}.
+   */
+  static long estimateRowSize( List<ValueMetaInterface> valueMetas, Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = estimateRowArraySize( row.length );
+    int nrValues = Math.min( row.length, valueMetas.size() );
+    for ( int i = 0; i < nrValues; i++ ) {
+      size += valueMetas.get( i ).getEstimatedSize( row[i] );
+    }
+    return size;
+  }
+
+  /**
+   * Estimates the size of a typical row, see {@link RowMetaInterface#getEstimatedRowSize()}.
+   */
+  static long estimateRowSize( List<ValueMetaInterface> valueMetas ) {
+    long size = estimateRowArraySize( valueMetas.size() );
+    for ( ValueMetaInterface valueMeta : valueMetas ) {
+      size += valueMeta.getEstimatedSize();
+    }
+    return size;
+  }
+
+  private static long estimateRowArraySize( int nrValues ) {
+    // Object[] header plus one reference per value, padded to 8 bytes
+    return 16 + ( ( 4L * nrValues + 7 ) & ~7L );
+  }
+
   /**
    * Get an array of strings showing the name of the values in the row padded to a maximum length, followed by the types
    * of the values.
@@ -456,6 +456,29 @@ public interface RowMetaInterface extends Cloneable {
    */
   public String getString( Object[] row ) throws KettleValueException;
 
+  /**
+   * Estimates the number of bytes the given row of data occupies on the heap, including the row array itself.
+   *
+   * @param row
+   *          the row of data
+   * @return the estimated size of the row in bytes
+   * @see ValueMetaInterface#getEstimatedSize(Object)
+   */
+  public default long getEstimatedRowSize( Object[] row ) {
+    return RowMeta.estimateRowSize( getValueMetaList(), row );
+  }
+
+  /**
+   * Estimates the number of bytes a typical row described by this metadata occupies on the heap, based on the data
+   * types and lengths of the values.
+   *
+   * @return the estimated size of a row in bytes
+   * @see ValueMetaInterface#getEstimatedSize()
+   */
+  public default long getEstimatedRowSize() {
+    return RowMeta.estimateRowSize( getValueMetaList() );
+  }
+
   /**
    * Get an array of strings showing the name of the values in the row padded to a maximum length, followed by the types
    * of the values.
@@ -0,0 +1,333 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+
+/**
+ * Keeps the sort keys of a list of rows as normalized binary keys: byte arrays that compare with a plain unsigned byte
+ * comparison exactly like {@link RowComparator} compares the key fields of the rows.<br>
+ * <br>
+ * Every key field is encoded as a null marker (nulls first, also in descending order like in ValueMetaBase) followed by
+ * an order preserving encoding of the value: integers, dates and numbers as sign adjusted big-endian longs, strings as
+ * their characters followed by a terminator and lower cased per character when they are case insensitive. The bytes of
+ * a descending value are inverted. The keys of all the rows are stored back to back in one byte array, so sorting
+ * doesn't need any value metadata, type checks or object comparisons: a stable MSD radix sort on the key bytes gives
+ * the same order as a stable sort with the row comparator.<br>
+ * <br>
+ * Only key fields with the plain comparison of {@link RowComparator} can be encoded. Big numbers, lazy conversion,
+ * indexed storage, trimming, padding and value types with their own compare method can't, in which case
+ * {@link #create(RowMetaInterface, int[])} returns null and the comparator should be used.
+ */
+public class SortKeyBuffer {
+
+  /** Buckets smaller than this are sorted with an insertion sort on the rest of the keys */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
+  private final int[] fieldnrs;
+  private final int[] types;
+  private final boolean[] descending;
+  private final boolean[] caseInsensitive;
+  private final boolean emptyIsNull;
+
+  private byte[] keys;
+  private int used;
+  private int[] offsets;
+  private int size;
+
+  private SortKeyBuffer( int[] fieldnrs, int[] types, boolean[] descending, boolean[] caseInsensitive ) {
+    this.fieldnrs = fieldnrs;
+    this.types = types;
+    this.descending = descending;
+    this.caseInsensitive = caseInsensitive;
+    this.emptyIsNull = !ValueMetaBase.EMPTY_STRING_AND_NULL_ARE_DIFFERENT;
+    this.keys = new byte[1024];
+    this.offsets = new int[257];
+  }
+
+  /**
+   * Create a buffer for the keys of rows of the given layout.
+   *
+   * @param rowMeta
+   *          the metadata of the rows
+   * @param fieldnrs
+   *          the indexes of the key fields, in order of importance
+   * @return the buffer or null if one of the key fields can't be encoded
+   */
+  public static SortKeyBuffer create( RowMetaInterface rowMeta, int[] fieldnrs ) {
+    int[] types = new int[fieldnrs.length];
+    boolean[] descending = new boolean[fieldnrs.length];
+    boolean[] caseInsensitive = new boolean[fieldnrs.length];
+    for ( int i = 0; i < fieldnrs.length; i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( fieldnrs[i] );
+      if ( !RowComparator.hasPlainComparison( valueMeta ) ) {
+        return null;
+      }
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+        case ValueMetaInterface.TYPE_INTEGER:
+        case ValueMetaInterface.TYPE_NUMBER:
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          break;
+        default:
+          return null;
+      }
+      types[i] = valueMeta.getType();
+      descending[i] = valueMeta.isSortedDescending();
+      caseInsensitive[i] = valueMeta.isCaseInsensitive();
+    }
+    return new SortKeyBuffer( fieldnrs.clone(), types, descending, caseInsensitive );
+  }
+
+  /**
+   * Encode the key of a row and add it to the buffer.
+   *
+   * @throws KettleValueException
+   *           in case a key value doesn't have the data type of its field
+   */
+  public void add( Object[] row ) throws KettleValueException {
+    if ( size + 1 >= offsets.length ) {
+      offsets = Arrays.copyOf( offsets, offsets.length * 2 );
+    }
+    offsets[size] = used;
+    write( row );
+    size++;
+    offsets[size] = used;
+  }
+
+  /**
+   * @return the key of a row without adding it to the buffer
+   */
+  public byte[] encode( Object[] row ) throws KettleValueException {
+    int start = used;
+    write( row );
+    byte[] key = Arrays.copyOfRange( keys, start, used );
+    used = start;
+    return key;
+  }
+
+  /**
+   * @return the number of keys in the buffer
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Remove all the keys, the memory is kept for the next rows.
+   */
+  public void clear() {
+    used = 0;
+    size = 0;
+  }
+
+  /**
+   * Compare 2 keys the way the rows they were encoded from compare.
+   */
+  public static int compare( byte[] key1, byte[] key2 ) {
+    int length = Math.min( key1.length, key2.length );
+    for ( int i = 0; i < length; i++ ) {
+      int cmp = ( key1[i] & 0xFF ) - ( key2[i] & 0xFF );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return key1.length - key2.length;
+  }
+
+  /**
+   * Sort the keys in the buffer. The sort is stable: rows with equal keys keep the order in which they were added.
+   *
+   * @return the indexes of the added rows in sorted order
+   */
+  public int[] sort() {
+    int[] order = new int[size];
+    for ( int i = 0; i < size; i++ ) {
+      order[i] = i;
+    }
+    int[] aux = new int[size];
+
+    // Sort on one byte position at a time, the buckets that still contain more than one key are pushed to sort on the
+    // next position. An explicit stack instead of recursion since long string keys have many positions.
+    //
+    Deque<int[]> stack = new ArrayDeque<int[]>();
+    stack.push( new int[] { 0, size, 0 } );
+    int[] count = new int[258];
+    while ( !stack.isEmpty() ) {
+      int[] range = stack.pop();
+      int lo = range[0];
+      int hi = range[1];
+      int depth = range[2];
+      if ( hi - lo < INSERTION_SORT_THRESHOLD ) {
+        insertionSort( order, lo, hi, depth );
+        continue;
+      }
+
+      // Bucket 0 holds the keys that end before this position, they are all equal
+      //
+      Arrays.fill( count, 0 );
+      for ( int i = lo; i < hi; i++ ) {
+        count[byteAt( order[i], depth ) + 1]++;
+      }
+      for ( int r = 0; r < 257; r++ ) {
+        count[r + 1] += count[r];
+      }
+      for ( int i = lo; i < hi; i++ ) {
+        int index = order[i];
+        aux[count[byteAt( index, depth )]++] = index;
+      }
+      System.arraycopy( aux, 0, order, lo, hi - lo );
+
+      // count[r] is now the end of bucket r
+      //
+      for ( int r = 1; r < 257; r++ ) {
+        if ( count[r] - count[r - 1] > 1 ) {
+          stack.push( new int[] { lo + count[r - 1], lo + count[r], depth + 1 } );
+        }
+      }
+    }
+    return order;
+  }
+
+  /**
+   * @return the byte of a key at a position plus 1, 0 if the key is shorter
+   */
+  private int byteAt( int index, int depth ) {
+    int position = offsets[index] + depth;
+    return position < offsets[index + 1] ? ( keys[position] & 0xFF ) + 1 : 0;
+  }
+
+  private void insertionSort( int[] order, int lo, int hi, int depth ) {
+    for ( int i = lo + 1; i < hi; i++ ) {
+      int index = order[i];
+      int j = i;
+      while ( j > lo && compareFrom( order[j - 1], index, depth ) > 0 ) {
+        order[j] = order[j - 1];
+        j--;
+      }
+      order[j] = index;
+    }
+  }
+
+  private int compareFrom( int index1, int index2, int depth ) {
+    int p1 = offsets[index1] + depth;
+    int end1 = offsets[index1 + 1];
+    int p2 = offsets[index2] + depth;
+    int end2 = offsets[index2 + 1];
+    while ( p1 < end1 && p2 < end2 ) {
+      int cmp = ( keys[p1++] & 0xFF ) - ( keys[p2++] & 0xFF );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return ( end1 - p1 ) - ( end2 - p2 );
+  }
+
+  private void write( Object[] row ) throws KettleValueException {
+    for ( int i = 0; i < fieldnrs.length; i++ ) {
+      Object data = row[fieldnrs[i]];
+      try {
+        if ( data == null || types[i] == ValueMetaInterface.TYPE_STRING && emptyIsNull
+          && data.toString().length() == 0 ) {
+          writeByte( 0 );
+          continue;
+        }
+        writeByte( 1 );
+        int start = used;
+        switch ( types[i] ) {
+          case ValueMetaInterface.TYPE_STRING:
+            writeString( data.toString(), caseInsensitive[i] );
+            break;
+          case ValueMetaInterface.TYPE_INTEGER:
+            writeLong( (Long) data ^ Long.MIN_VALUE );
+            break;
+          case ValueMetaInterface.TYPE_NUMBER:
+            long bits = Double.doubleToLongBits( (Double) data );
+            writeLong( bits < 0 ? ~bits : bits ^ Long.MIN_VALUE );
+            break;
+          case ValueMetaInterface.TYPE_DATE:
+            writeLong( ( (Date) data ).getTime() ^ Long.MIN_VALUE );
+            break;
+          default:
+            writeByte( ( (Boolean) data ).booleanValue() ? 1 : 0 );
+            break;
+        }
+        if ( descending[i] ) {
+          for ( int p = start; p < used; p++ ) {
+            keys[p] = (byte) ~keys[p];
+          }
+        }
+      } catch ( ClassCastException e ) {
+        throw new KettleValueException( "Unexpected data type encoding sort key [" + data + "]", e );
+      }
+    }
+  }
+
+  /**
+   * Every character takes 2 bytes, character 0 takes 3 so that the 3 zero bytes at the end sort before anything else.
+   * Case insensitive characters are folded like {@link String#compareToIgnoreCase(String)} does.
+   */
+  private void writeString( String string, boolean foldCase ) {
+    int length = string.length();
+    ensureCapacity( length * 3 + 3 );
+    for ( int i = 0; i < length; i++ ) {
+      char c = string.charAt( i );
+      if ( foldCase ) {
+        c = Character.toLowerCase( Character.toUpperCase( c ) );
+      }
+      keys[used++] = (byte) ( c >>> 8 );
+      keys[used++] = (byte) c;
+      if ( c == 0 ) {
+        keys[used++] = 1;
+      }
+    }
+    keys[used++] = 0;
+    keys[used++] = 0;
+    keys[used++] = 0;
+  }
+
+  private void writeLong( long value ) {
+    ensureCapacity( 8 );
+    for ( int shift = 56; shift >= 0; shift -= 8 ) {
+      keys[used++] = (byte) ( value >>> shift );
+    }
+  }
+
+  private void writeByte( int value ) {
+    ensureCapacity( 1 );
+    keys[used++] = (byte) value;
+  }
+
+  private void ensureCapacity( int extra ) {
+    if ( used + extra > keys.length ) {
+      keys = Arrays.copyOf( keys, Math.max( keys.length * 2, used + extra ) );
+    }
+  }
+}
@@ -45,6 +45,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.gui.PrimitiveGCInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.w3c.dom.Node;
 
 /**
@@ -1249,6 +1250,28 @@ public interface ValueMetaInterface extends Cloneable {
    */
   public Class<?> getNativeDataTypeClass() throws KettleValueException;
 
+  /**
+   * Estimates the number of bytes the given value occupies on the heap, including the object headers. This is an
+   * approximation intended for memory accounting, not an exact measurement.
+   *
+   * @param object
+   *          The value to estimate the size of, in the storage type of this value metadata
+   * @return the estimated size in bytes, 0 for null values
+   */
+  public default long getEstimatedSize( Object object ) {
+    return ValueMetaBase.estimateSize( this, object );
+  }
+
+  /**
+   * Estimates the number of bytes a typical value described by this metadata occupies on the heap. The estimate is
+   * based on the data type, the storage type and the length.
+   *
+   * @return the estimated size in bytes
+   */
+  public default long getEstimatedSize() {
+    return ValueMetaBase.estimateSize( this );
+  }
+
   /**
    * Ask for suggestions as to how this plugin data type should be represented in the specified database interface
    *
@@ -0,0 +1,469 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Thread-safe counterparts of the date and decimal formats of a value meta.<br>
+ * <br>
+ * SimpleDateFormat and DecimalFormat are not thread-safe, which is why the conversion methods of
+ * {@link ValueMetaBase} used to be synchronized: all the copies of a step converting with the same metadata took turns.
+ * A conversion takes a snapshot of the format and either handles the value with a hand-rolled fast path or with a
+ * private clone of the format per thread. The fast paths only accept the canonical form of a value (all digits
+ * present, exact separators, no exotic calendars or time zones) and report everything else as not handled so that the
+ * caller falls back to the complete format. That way the results are exactly the same as with the original format.
+ */
+class ConversionFormats {
+
+  // Outside of this range the Julian calendar and the historical time zone data kick in
+  //
+  private static final int MIN_FAST_YEAR = 1900;
+  private static final int MAX_FAST_YEAR = 9999;
+
+  private static final int MAX_FAST_NUMBER_LENGTH = 18;
+
+  /**
+   * Converts between strings and dates like a SimpleDateFormat does.
+   */
+  static class DateConversion {
+    private final boolean threadSafe;
+    private final ThreadLocal<SimpleDateFormat> formats;
+
+    // The fast path: a mask made of yyyy, MM, dd, HH, mm, ss and SSS fields and literal separators
+    //
+    private final char[] fields;
+    private final int[] widths;
+    private final ZoneId zone;
+
+    DateConversion( SimpleDateFormat format ) {
+      // Subclasses like SimpleTimestampFormat carry state that is not cloned properly
+      //
+      threadSafe = format != null && format.getClass() == SimpleDateFormat.class;
+      if ( !threadSafe ) {
+        formats = null;
+        fields = null;
+        widths = null;
+        zone = null;
+        return;
+      }
+      final SimpleDateFormat template = (SimpleDateFormat) format.clone();
+      formats = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+          return (SimpleDateFormat) template.clone();
+        }
+      };
+
+      char[] maskFields = null;
+      int[] maskWidths = null;
+      ZoneId maskZone = null;
+      // Leniency only matters for values out of range, those are left to the format
+      //
+      if ( template.getCalendar().getClass() == GregorianCalendar.class
+        && hasLatinDigits( template.getNumberFormat() ) ) {
+        maskZone = toZoneId( template.getTimeZone() );
+        if ( maskZone != null ) {
+          String pattern = template.toPattern();
+          maskFields = new char[pattern.length()];
+          maskWidths = new int[pattern.length()];
+          int nrFields = compileMask( pattern, maskFields, maskWidths );
+          if ( nrFields < 0 ) {
+            maskFields = null;
+            maskWidths = null;
+          } else {
+            char[] f = new char[nrFields];
+            int[] w = new int[nrFields];
+            System.arraycopy( maskFields, 0, f, 0, nrFields );
+            System.arraycopy( maskWidths, 0, w, 0, nrFields );
+            maskFields = f;
+            maskWidths = w;
+          }
+        }
+      }
+      fields = maskFields;
+      widths = maskWidths;
+      zone = fields == null ? null : maskZone;
+    }
+
+    /**
+     * @return false if the format can't be used concurrently and the caller needs to synchronize on the original one
+     */
+    boolean isThreadSafe() {
+      return threadSafe;
+    }
+
+    /**
+     * @return the format of the calling thread
+     */
+    SimpleDateFormat getFormat() {
+      return formats.get();
+    }
+
+    String format( Date date ) {
+      if ( fields != null ) {
+        String string = fastFormat( date );
+        if ( string != null ) {
+          return string;
+        }
+      }
+      return getFormat().format( date );
+    }
+
+    /**
+     * Parse the canonical form of a date.
+     *
+     * @return the date or null if the string is not in the canonical form and needs the complete format
+     */
+    Date fastParse( String string ) {
+      if ( fields == null ) {
+        return null;
+      }
+      int year = 1970;
+      int month = 1;
+      int day = 1;
+      int hour = 0;
+      int minute = 0;
+      int second = 0;
+      int milli = 0;
+
+      int length = string.length();
+      int position = 0;
+      for ( int i = 0; i < fields.length; i++ ) {
+        int width = widths[i];
+        if ( width == 0 ) {
+          if ( position >= length || string.charAt( position ) != fields[i] ) {
+            return null;
+          }
+          position++;
+          continue;
+        }
+        if ( position + width > length ) {
+          return null;
+        }
+        int value = 0;
+        for ( int end = position + width; position < end; position++ ) {
+          char c = string.charAt( position );
+          if ( c < '0' || c > '9' ) {
+            return null;
+          }
+          value = value * 10 + c - '0';
+        }
+        // SimpleDateFormat only limits a number to the width of its field if another number follows directly
+        //
+        boolean nextIsNumber = i + 1 < widths.length && widths[i + 1] > 0;
+        if ( !nextIsNumber && position < length && Character.isDigit( string.charAt( position ) ) ) {
+          return null;
+        }
+        switch ( fields[i] ) {
+          case 'y':
+            year = value;
+            break;
+          case 'M':
+            month = value;
+            break;
+          case 'd':
+            day = value;
+            break;
+          case 'H':
+            hour = value;
+            break;
+          case 'm':
+            minute = value;
+            break;
+          case 's':
+            second = value;
+            break;
+          default:
+            milli = value;
+            break;
+        }
+      }
+
+      if ( year < MIN_FAST_YEAR || year > MAX_FAST_YEAR || month < 1 || month > 12 || day < 1 || hour > 23
+        || minute > 59 || second > 59 ) {
+        return null;
+      }
+      if ( day > 28 && day > YearMonth.of( year, month ).lengthOfMonth() ) {
+        return null;
+      }
+      LocalDateTime localDateTime = LocalDateTime.of( year, month, day, hour, minute, second );
+      List<ZoneOffset> offsets = zone.getRules().getValidOffsets( localDateTime );
+      if ( offsets.size() != 1 ) {
+        // A daylight saving time gap or overlap, leave it to the calendar
+        //
+        return null;
+      }
+      return new Date( localDateTime.toEpochSecond( offsets.get( 0 ) ) * 1000L + milli );
+    }
+
+    private String fastFormat( Date date ) {
+      ZonedDateTime dateTime = Instant.ofEpochMilli( date.getTime() ).atZone( zone );
+      int year = dateTime.getYear();
+      if ( year < MIN_FAST_YEAR || year > MAX_FAST_YEAR ) {
+        return null;
+      }
+      char[] chars = new char[fields.length * 4];
+      int length = 0;
+      for ( int i = 0; i < fields.length; i++ ) {
+        if ( widths[i] == 0 ) {
+          chars[length++] = fields[i];
+          continue;
+        }
+        int value;
+        switch ( fields[i] ) {
+          case 'y':
+            value = year;
+            break;
+          case 'M':
+            value = dateTime.getMonthValue();
+            break;
+          case 'd':
+            value = dateTime.getDayOfMonth();
+            break;
+          case 'H':
+            value = dateTime.getHour();
+            break;
+          case 'm':
+            value = dateTime.getMinute();
+            break;
+          case 's':
+            value = dateTime.getSecond();
+            break;
+          default:
+            value = dateTime.getNano() / 1000000;
+            break;
+        }
+        for ( int p = length + widths[i] - 1; p >= length; p-- ) {
+          chars[p] = (char) ( '0' + value % 10 );
+          value /= 10;
+        }
+        length += widths[i];
+      }
+      return new String( chars, 0, length );
+    }
+
+    /**
+     * Split a mask in fields and literal characters.
+     *
+     * @return the number of fields and literals or -1 if the mask has no fast path
+     */
+    private static int compileMask( String pattern, char[] fields, int[] widths ) {
+      int count = 0;
+      int seen = 0;
+      int i = 0;
+      while ( i < pattern.length() ) {
+        char c = pattern.charAt( i );
+        if ( c == '\'' ) {
+          return -1;
+        }
+        if ( ( c < 'a' || c > 'z' ) && ( c < 'A' || c > 'Z' ) ) {
+          fields[count] = c;
+          widths[count++] = 0;
+          i++;
+          continue;
+        }
+        int end = i;
+        while ( end < pattern.length() && pattern.charAt( end ) == c ) {
+          end++;
+        }
+        int width = end - i;
+        int expected;
+        int bit;
+        switch ( c ) {
+          case 'y':
+            expected = 4;
+            bit = 1;
+            break;
+          case 'M':
+            expected = 2;
+            bit = 2;
+            break;
+          case 'd':
+            expected = 2;
+            bit = 4;
+            break;
+          case 'H':
+            expected = 2;
+            bit = 8;
+            break;
+          case 'm':
+            expected = 2;
+            bit = 16;
+            break;
+          case 's':
+            expected = 2;
+            bit = 32;
+            break;
+          case 'S':
+            expected = 3;
+            bit = 64;
+            break;
+          default:
+            return -1;
+        }
+        if ( width != expected || ( seen & bit ) != 0 ) {
+          return -1;
+        }
+        seen |= bit;
+        fields[count] = c;
+        widths[count++] = width;
+        i = end;
+      }
+      return count;
+    }
+
+    private static ZoneId toZoneId( TimeZone timeZone ) {
+      try {
+        ZoneId zoneId = timeZone.toZoneId();
+        return TimeZone.getTimeZone( zoneId ).hasSameRules( timeZone ) ? zoneId : null;
+      } catch ( RuntimeException e ) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Converts between strings and numbers like a DecimalFormat does.
+   */
+  static class NumberConversion {
+    private final boolean threadSafe;
+    private final ThreadLocal<DecimalFormat> formats;
+
+    // The fast path: an optional minus sign, digits and an optional decimal separator
+    //
+    private final boolean fastParse;
+    private final char minusSign;
+    private final char decimalSeparator;
+
+    NumberConversion( DecimalFormat format ) {
+      threadSafe = format != null && format.getClass() == DecimalFormat.class;
+      if ( !threadSafe ) {
+        formats = null;
+        fastParse = false;
+        minusSign = 0;
+        decimalSeparator = 0;
+        return;
+      }
+      final DecimalFormat template = (DecimalFormat) format.clone();
+      formats = new ThreadLocal<DecimalFormat>() {
+        @Override
+        protected DecimalFormat initialValue() {
+          return (DecimalFormat) template.clone();
+        }
+      };
+
+      String negativePrefix = template.getNegativePrefix();
+      fastParse =
+        template.getPositivePrefix().isEmpty() && template.getPositiveSuffix().isEmpty()
+          && negativePrefix.length() == 1 && template.getNegativeSuffix().isEmpty()
+          && template.getMultiplier() == 1 && !template.isParseIntegerOnly() && !template.isParseBigDecimal();
+      minusSign = fastParse ? negativePrefix.charAt( 0 ) : 0;
+      decimalSeparator = template.getDecimalFormatSymbols().getDecimalSeparator();
+    }
+
+    /**
+     * @return false if the format can't be used concurrently and the caller needs to synchronize on the original one
+     */
+    boolean isThreadSafe() {
+      return threadSafe;
+    }
+
+    /**
+     * @return the format of the calling thread
+     */
+    DecimalFormat getFormat() {
+      return formats.get();
+    }
+
+    /**
+     * Parse a plain number like "-123.45".
+     *
+     * @return the number as a Long if it has no decimals, a Double otherwise or null if it needs the complete format
+     */
+    Number fastParse( String string ) {
+      if ( !fastParse ) {
+        return null;
+      }
+      int length = string.length();
+      if ( length == 0 || length > MAX_FAST_NUMBER_LENGTH ) {
+        return null;
+      }
+      boolean negative = string.charAt( 0 ) == minusSign;
+      int digits = 0;
+      int separator = -1;
+      for ( int i = negative ? 1 : 0; i < length; i++ ) {
+        char c = string.charAt( i );
+        if ( c >= '0' && c <= '9' ) {
+          digits++;
+        } else if ( c == decimalSeparator && separator < 0 ) {
+          separator = i;
+        } else {
+          return null;
+        }
+      }
+      if ( digits == 0 ) {
+        return null;
+      }
+      if ( separator < 0 ) {
+        long value = Long.parseLong( string.substring( negative ? 1 : 0 ) );
+        if ( negative ) {
+          // DecimalFormat keeps the sign of a negative zero
+          //
+          return value == 0 ? (Number) Double.valueOf( -0.0d ) : (Number) Long.valueOf( -value );
+        }
+        return value;
+      }
+      StringBuilder plain = new StringBuilder( length );
+      if ( negative ) {
+        plain.append( '-' );
+      }
+      plain.append( string, negative ? 1 : 0, separator ).append( '.' ).append( string, separator + 1, length );
+      if ( plain.charAt( plain.length() - 1 ) == '.' ) {
+        plain.append( '0' );
+      }
+      double value = Double.parseDouble( plain.toString() );
+      if ( value == Math.rint( value ) && !( value == 0.0d && negative ) ) {
+        return (long) value;
+      }
+      return value;
+    }
+  }
+
+  private static boolean hasLatinDigits( NumberFormat numberFormat ) {
+    return numberFormat instanceof DecimalFormat
+      && ( (DecimalFormat) numberFormat ).getDecimalFormatSymbols().getZeroDigit() == '0';
+  }
+}
@@ -125,6 +125,10 @@ public class ValueMetaBase implements ValueMetaInterface {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  /** Thread-safe versions of the date and decimal format, dropped whenever those are re-created */
+  private volatile ConversionFormats.DateConversion dateConversion;
+  private volatile ConversionFormats.NumberConversion numberConversion;
+
   protected ValueMetaInterface storageMetadata;
   protected boolean identicalFormat;
 
@@ -276,6 +280,8 @@ public class ValueMetaBase implements ValueMetaInterface {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.dateConversion = null;
+      valueMeta.numberConversion = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -671,12 +677,18 @@ public class ValueMetaBase implements ValueMetaInterface {
 
   // DATE + STRING
 
-  protected synchronized String convertDateToString( Date date ) {
+  protected String convertDateToString( Date date ) {
     if ( date == null ) {
       return null;
     }
 
-    return getDateFormat().format( date );
+    ConversionFormats.DateConversion conversion = getDateConversion();
+    if ( conversion == null ) {
+      synchronized ( this ) {
+        return getDateFormat().format( date );
+      }
+    }
+    return conversion.format( date );
   }
 
   protected static SimpleDateFormat compatibleDateFormat = new SimpleDateFormat( "yyyy/MM/dd HH:mm:ss.SSS" );
@@ -688,7 +700,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return compatibleDateFormat.format( date );
   }
 
-  protected synchronized Date convertStringToDate( String string ) throws KettleValueException {
+  protected Date convertStringToDate( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -697,9 +709,20 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    ConversionFormats.DateConversion conversion = getDateConversion();
+    if ( conversion == null ) {
+      synchronized ( this ) {
+        return convertStringToDate( string, getDateFormat() );
+      }
+    }
+    Date date = conversion.fastParse( string );
+    return date != null ? date : convertStringToDate( string, conversion.getFormat() );
+  }
+
+  private Date convertStringToDate( String string, SimpleDateFormat format ) throws KettleValueException {
     try {
       ParsePosition pp = new ParsePosition( 0 );
-      Date result = getDateFormat().parse( string, pp );
+      Date result = format.parse( string, pp );
       if ( pp.getErrorIndex() >= 0 ) {
         // error happen
         throw new ParseException( string, pp.getErrorIndex() );
@@ -709,7 +732,7 @@ public class ValueMetaBase implements ValueMetaInterface {
       // If there are only spaces after pp.getIndex() - that means full values was parsed
       return result;
     } catch ( ParseException e ) {
-      String dateFormat = ( getDateFormat() != null ) ? getDateFormat().toPattern() : "null";
+      String dateFormat = ( format != null ) ? format.toPattern() : "null";
       throw new KettleValueException( toString() + " : couldn't convert string [" + string
           + "] to a date using format [" + dateFormat + "] on offset location " + e.getErrorOffset(), e );
     }
@@ -745,7 +768,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return new Date( number.longValue() );
   }
 
-  protected synchronized String convertNumberToString( Double number ) throws KettleValueException {
+  protected String convertNumberToString( Double number ) throws KettleValueException {
     if ( number == null ) {
       if ( !outputPaddingEnabled || length < 1 ) {
         return null;
@@ -764,7 +787,13 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
-      return getDecimalFormat( false ).format( number );
+      ConversionFormats.NumberConversion conversion = getNumberConversion();
+      if ( conversion == null ) {
+        synchronized ( this ) {
+          return getDecimalFormat( false ).format( number );
+        }
+      }
+      return conversion.getFormat().format( number );
     } catch ( Exception e ) {
       throw new KettleValueException( toString() + " : couldn't convert Number to String ", e );
     }
@@ -777,7 +806,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return Double.toString( number );
   }
 
-  protected synchronized Double convertStringToNumber( String string ) throws KettleValueException {
+  protected Double convertStringToNumber( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -786,13 +815,27 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    ConversionFormats.NumberConversion conversion = getNumberConversion();
+    if ( conversion == null ) {
+      synchronized ( this ) {
+        return convertStringToNumber( string, getDecimalFormat( false ) );
+      }
+    }
+    Number number = conversion.fastParse( string );
+    if ( number != null ) {
+      return new Double( number.doubleValue() );
+    }
+    return convertStringToNumber( string, conversion.getFormat() );
+  }
+
+  private Double convertStringToNumber( String string, DecimalFormat format ) throws KettleValueException {
     try {
       Number number;
       if ( lenientStringToNumber ) {
-        number = getDecimalFormat( false ).parse( string );
+        number = format.parse( string );
       } else {
         ParsePosition parsePosition = new ParsePosition( 0 );
-        number = getDecimalFormat( false ).parse( string, parsePosition );
+        number = format.parse( string, parsePosition );
 
         if ( parsePosition.getIndex() < string.length() ) {
           throw new KettleValueException( toString()
@@ -852,10 +895,47 @@ public class ValueMetaBase implements ValueMetaInterface {
       dateFormat.setLenient( dateFormatLenient );
 
       dateFormatChanged = false;
+      dateConversion = null;
     }
     return dateFormat;
   }
 
+  /**
+   * @return the thread-safe version of the date format or null if conversions need to synchronize on this object
+   */
+  private ConversionFormats.DateConversion getDateConversion() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    ConversionFormats.DateConversion conversion = dateConversion;
+    if ( conversion == null || dateFormatChanged ) {
+      synchronized ( this ) {
+        SimpleDateFormat format = getDateFormat();
+        conversion = new ConversionFormats.DateConversion( format );
+        dateConversion = conversion;
+      }
+    }
+    return conversion.isThreadSafe() ? conversion : null;
+  }
+
+  /**
+   * @return the thread-safe version of the decimal format or null if conversions need to synchronize on this object
+   */
+  private ConversionFormats.NumberConversion getNumberConversion() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    ConversionFormats.NumberConversion conversion = numberConversion;
+    if ( conversion == null || decimalFormatChanged ) {
+      synchronized ( this ) {
+        DecimalFormat format = getDecimalFormat( false );
+        conversion = new ConversionFormats.NumberConversion( format );
+        numberConversion = conversion;
+      }
+    }
+    return conversion.isThreadSafe() ? conversion : null;
+  }
+
   @Override
   public synchronized DecimalFormat getDecimalFormat() {
     return getDecimalFormat( false );
@@ -974,11 +1054,12 @@ public class ValueMetaBase implements ValueMetaInterface {
       }
 
       decimalFormatChanged = false;
+      numberConversion = null;
     }
     return decimalFormat;
   }
 
-  protected synchronized String convertIntegerToString( Long integer ) throws KettleValueException {
+  protected String convertIntegerToString( Long integer ) throws KettleValueException {
     if ( integer == null ) {
       if ( !outputPaddingEnabled || length < 1 ) {
         return null;
@@ -997,7 +1078,13 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
-      return getDecimalFormat( false ).format( integer );
+      ConversionFormats.NumberConversion conversion = getNumberConversion();
+      if ( conversion == null ) {
+        synchronized ( this ) {
+          return getDecimalFormat( false ).format( integer );
+        }
+      }
+      return conversion.getFormat().format( integer );
     } catch ( Exception e ) {
       throw new KettleValueException( toString() + " : couldn't convert Long to String ", e );
     }
@@ -1010,7 +1097,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return Long.toString( integer );
   }
 
-  protected synchronized Long convertStringToInteger( String string ) throws KettleValueException {
+  protected Long convertStringToInteger( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1019,13 +1106,27 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    ConversionFormats.NumberConversion conversion = getNumberConversion();
+    if ( conversion == null ) {
+      synchronized ( this ) {
+        return convertStringToInteger( string, getDecimalFormat( false ) );
+      }
+    }
+    Number number = conversion.fastParse( string );
+    if ( number != null ) {
+      return new Long( number.longValue() );
+    }
+    return convertStringToInteger( string, conversion.getFormat() );
+  }
+
+  private Long convertStringToInteger( String string, DecimalFormat format ) throws KettleValueException {
     try {
       Number number;
       if ( lenientStringToNumber ) {
-        number = new Long( getDecimalFormat( false ).parse( string ).longValue() );
+        number = new Long( format.parse( string ).longValue() );
       } else {
         ParsePosition parsePosition = new ParsePosition( 0 );
-        number = getDecimalFormat( false ).parse( string, parsePosition );
+        number = format.parse( string, parsePosition );
 
         if ( parsePosition.getIndex() < string.length() ) {
           throw new KettleValueException( toString()
@@ -1370,6 +1471,96 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
   }
 
+  /** The estimated size of an object header plus a reference to it. */
+  private static final int ESTIMATED_OBJECT_OVERHEAD = 16;
+
+  /** The length assumed for strings and binaries of unknown length. */
+  private static final int ESTIMATED_DEFAULT_LENGTH = 32;
+
+  @Override
+  public long getEstimatedSize( Object object ) {
+    return estimateSize( this, object );
+  }
+
+  @Override
+  public long getEstimatedSize() {
+    return estimateSize( this );
+  }
+
+  /**
+   * Estimates the size of a value, see {@link ValueMetaInterface#getEstimatedSize(Object)}.
+   */
+  public static long estimateSize( ValueMetaInterface valueMeta, Object object ) {
+    if ( object == null ) {
+      return 0L;
+    }
+
+    switch ( valueMeta.getStorageType() ) {
+      case STORAGE_TYPE_BINARY_STRING:
+        return estimateArraySize( ( (byte[]) object ).length, 1 );
+      case STORAGE_TYPE_INDEXED:
+        return ESTIMATED_OBJECT_OVERHEAD; // the index itself is shared between all rows
+      default:
+        break;
+    }
+
+    switch ( valueMeta.getType() ) {
+      case TYPE_STRING:
+        // The String object itself plus its char[]
+        return 24 + estimateArraySize( ( (String) object ).length(), 2 );
+      case TYPE_BINARY:
+        return estimateArraySize( ( (byte[]) object ).length, 1 );
+      case TYPE_BIGNUMBER:
+        // BigDecimal with its BigInteger and int[] magnitude: 4 bytes hold more than 9 digits
+        return 72 + 4 * ( ( (BigDecimal) object ).precision() / 9 );
+      default:
+        return estimateSize( valueMeta );
+    }
+  }
+
+  /**
+   * Estimates the size of a typical value, see {@link ValueMetaInterface#getEstimatedSize()}.
+   */
+  public static long estimateSize( ValueMetaInterface valueMeta ) {
+    int estimatedLength = valueMeta.getLength() > 0 ? valueMeta.getLength() : ESTIMATED_DEFAULT_LENGTH;
+
+    switch ( valueMeta.getStorageType() ) {
+      case STORAGE_TYPE_BINARY_STRING:
+        return estimateArraySize( estimatedLength, 1 );
+      case STORAGE_TYPE_INDEXED:
+        return ESTIMATED_OBJECT_OVERHEAD;
+      default:
+        break;
+    }
+
+    switch ( valueMeta.getType() ) {
+      case TYPE_STRING:
+        return 24 + estimateArraySize( estimatedLength, 2 );
+      case TYPE_BINARY:
+        return estimateArraySize( estimatedLength, 1 );
+      case TYPE_BIGNUMBER:
+        return 72 + 4 * ( estimatedLength / 9 );
+      case TYPE_NUMBER:
+      case TYPE_INTEGER:
+        return ESTIMATED_OBJECT_OVERHEAD + 8;
+      case TYPE_BOOLEAN:
+        return ESTIMATED_OBJECT_OVERHEAD;
+      case TYPE_DATE:
+        return ESTIMATED_OBJECT_OVERHEAD + 16;
+      case TYPE_TIMESTAMP:
+        return ESTIMATED_OBJECT_OVERHEAD + 24;
+      case TYPE_INET:
+        return ESTIMATED_OBJECT_OVERHEAD + 40;
+      default:
+        return ESTIMATED_OBJECT_OVERHEAD + 48;
+    }
+  }
+
+  private static long estimateArraySize( int length, int elementSize ) {
+    // array header plus a reference, elements padded to 8 bytes
+    return ESTIMATED_OBJECT_OVERHEAD + 8 + ( ( (long) length * elementSize + 7 ) & ~7L );
+  }
+
   @Override
   public String getCompatibleString( Object object ) throws KettleValueException {
     try {
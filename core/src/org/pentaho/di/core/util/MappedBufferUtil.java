@@ -0,0 +1,136 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import org.pentaho.di.core.logging.LogChannel;
+
+/**
+ * Releases memory mapped file buffers right away instead of leaving that to the garbage collector. There is no public
+ * API for it so this relies on JVM internals: sun.misc.Unsafe.invokeCleaner() on Java 9 and later, the cleaner of the
+ * buffer on Java 8. If neither is available the buffers are simply left to the garbage collector.
+ */
+public class MappedBufferUtil {
+
+  private static final Unmapper UNMAPPER = createUnmapper();
+
+  private interface Unmapper {
+    void unmap( MappedByteBuffer buffer ) throws ReflectiveOperationException;
+  }
+
+  private MappedBufferUtil() {
+  }
+
+  private static Unmapper createUnmapper() {
+    try {
+      // Java 9 and later
+      //
+      Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+      final Method invokeCleaner = unsafeClass.getMethod( "invokeCleaner", ByteBuffer.class );
+      Field theUnsafeField = unsafeClass.getDeclaredField( "theUnsafe" );
+      theUnsafeField.setAccessible( true );
+      final Object theUnsafe = theUnsafeField.get( null );
+      return new Unmapper() {
+        @Override
+        public void unmap( MappedByteBuffer buffer ) throws ReflectiveOperationException {
+          invokeCleaner.invoke( theUnsafe, buffer );
+        }
+      };
+    } catch ( NoSuchMethodException e ) {
+      // Java 8, handled below
+    } catch ( ReflectiveOperationException | RuntimeException e ) {
+      logUnavailable( e );
+      return null;
+    }
+
+    try {
+      final Method cleanerMethod = Class.forName( "sun.nio.ch.DirectBuffer" ).getMethod( "cleaner" );
+      final Method cleanMethod = Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
+      return new Unmapper() {
+        @Override
+        public void unmap( MappedByteBuffer buffer ) throws ReflectiveOperationException {
+          Object cleaner = cleanerMethod.invoke( buffer );
+          if ( cleaner != null ) {
+            cleanMethod.invoke( cleaner );
+          }
+        }
+      };
+    } catch ( ReflectiveOperationException | RuntimeException e ) {
+      logUnavailable( e );
+      return null;
+    }
+  }
+
+  private static void logUnavailable( Exception e ) {
+    if ( LogChannel.GENERAL.isDebug() ) {
+      LogChannel.GENERAL.logDebug( "Memory mapped buffers can't be unmapped on this JVM, "
+        + "they are left to the garbage collector: " + e.toString() );
+    }
+  }
+
+  /**
+   * @return true if this JVM allows memory mapped buffers to be unmapped
+   */
+  public static boolean isUnmapSupported() {
+    return UNMAPPER != null;
+  }
+
+  /**
+   * Unmap a memory mapped buffer. Nothing may access the buffer, or any view of it, afterwards: that would crash the
+   * JVM.
+   *
+   * @param buffer
+   *          the buffer to unmap, null is ignored
+   * @return true if the buffer was unmapped, false if it is left to the garbage collector
+   */
+  public static boolean unmap( MappedByteBuffer buffer ) {
+    if ( buffer == null || UNMAPPER == null || !buffer.isDirect() ) {
+      return false;
+    }
+    try {
+      UNMAPPER.unmap( buffer );
+      return true;
+    } catch ( InvocationTargetException e ) {
+      if ( e.getCause() instanceof Error ) {
+        throw (Error) e.getCause();
+      }
+      logUnmapFailed( e.getCause() );
+      return false;
+    } catch ( ReflectiveOperationException e ) {
+      logUnmapFailed( e );
+      return false;
+    }
+  }
+
+  private static void logUnmapFailed( Throwable e ) {
+    if ( LogChannel.GENERAL.isDebug() ) {
+      LogChannel.GENERAL.logDebug( "Unable to unmap a memory mapped buffer, it is left to the garbage collector: "
+        + e.toString() );
+    }
+  }
+}
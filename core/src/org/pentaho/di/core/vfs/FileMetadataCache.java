@@ -0,0 +1,248 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.vfs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.variables.VariableSpace;
+
+/**
+ * Keeps the existence, type, size, modification time and children of files for a short time.<br>
+ * <br>
+ * Listing a folder with many files asks the file system for the type of every file, often several times: once to
+ * select the file and once more to see if it still exists. Steps listing the same folders do it all over again. A
+ * cache is owned by a scope, typically a transformation (see {@link HasFileMetadataCache}), which clears it when it
+ * starts and when it finishes. Within the scope the metadata of a file is kept for the configured time to live.<br>
+ * <br>
+ * The cache is disabled unless a time to live is configured: files created or changed by others within the time to
+ * live are not seen. Files opened for writing through {@link KettleVFS} with the variables of the scope are forgotten
+ * right away. A disabled cache simply asks the file system every time.
+ */
+public class FileMetadataCache {
+  public static final long DEFAULT_TIME_TO_LIVE = 0L;
+  public static final int DEFAULT_SIZE = 10000;
+
+  private static final FileMetadataCache DISABLED = new FileMetadataCache( 0L, 0 );
+
+  private final long timeToLive;
+  private final Map<String, Metadata> entries;
+
+  /**
+   * @param timeToLive
+   *          the number of milliseconds the metadata of a file is kept, 0 or less disables the cache
+   * @param size
+   *          the maximum number of files to keep the metadata of
+   */
+  public FileMetadataCache( long timeToLive, final int size ) {
+    this.timeToLive = timeToLive;
+    this.entries = new LinkedHashMap<String, Metadata>( 16, 0.75f, true ) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String, Metadata> eldest ) {
+        return size() > size;
+      }
+    };
+  }
+
+  /**
+   * Create a cache configured with KETTLE_VFS_METADATA_CACHE_TTL and KETTLE_VFS_METADATA_CACHE_SIZE.
+   */
+  public static FileMetadataCache create( VariableSpace space ) {
+    long timeToLive = Const.toLong( space.getVariable( Const.KETTLE_VFS_METADATA_CACHE_TTL ), DEFAULT_TIME_TO_LIVE );
+    int size = Const.toInt( space.getVariable( Const.KETTLE_VFS_METADATA_CACHE_SIZE ), DEFAULT_SIZE );
+    return new FileMetadataCache( timeToLive, size );
+  }
+
+  /**
+   * @return the cache of the scope of the given variables or a disabled cache if there is none
+   */
+  public static FileMetadataCache getCache( VariableSpace space ) {
+    if ( space instanceof HasFileMetadataCache ) {
+      FileMetadataCache cache = ( (HasFileMetadataCache) space ).getFileMetadataCache();
+      if ( cache != null ) {
+        return cache;
+      }
+    }
+    return DISABLED;
+  }
+
+  public boolean isEnabled() {
+    return timeToLive > 0;
+  }
+
+  public boolean exists( FileObject file ) throws FileSystemException {
+    return getType( file ) != FileType.IMAGINARY;
+  }
+
+  public FileType getType( FileObject file ) throws FileSystemException {
+    if ( !isEnabled() ) {
+      return file.getType();
+    }
+    Metadata metadata = getMetadata( file );
+    FileType type = metadata.type;
+    if ( type == null ) {
+      type = file.getType();
+      metadata.type = type;
+    }
+    return type;
+  }
+
+  public long getSize( FileObject file ) throws FileSystemException {
+    if ( !isEnabled() ) {
+      return file.getContent().getSize();
+    }
+    Metadata metadata = getMetadata( file );
+    Long size = metadata.size;
+    if ( size == null ) {
+      size = file.getContent().getSize();
+      metadata.size = size;
+    }
+    return size;
+  }
+
+  public long getLastModifiedTime( FileObject file ) throws FileSystemException {
+    if ( !isEnabled() ) {
+      return file.getContent().getLastModifiedTime();
+    }
+    Metadata metadata = getMetadata( file );
+    Long lastModified = metadata.lastModified;
+    if ( lastModified == null ) {
+      lastModified = file.getContent().getLastModifiedTime();
+      metadata.lastModified = lastModified;
+    }
+    return lastModified;
+  }
+
+  public FileObject[] getChildren( FileObject folder ) throws FileSystemException {
+    if ( !isEnabled() ) {
+      return folder.getChildren();
+    }
+    Metadata metadata = getMetadata( folder );
+    FileObject[] children = metadata.children;
+    if ( children == null ) {
+      children = folder.getChildren();
+      metadata.children = children;
+    }
+    return children.clone();
+  }
+
+  /**
+   * Find the files in a folder like {@link FileObject#findFiles(FileSelector)} does, with the children and the types
+   * of the folders coming from the cache.
+   *
+   * @return the selected files, the files of a folder before the folder itself
+   */
+  public List<FileObject> findFiles( FileObject baseFolder, FileSelector selector ) throws FileSystemException {
+    List<FileObject> files = new ArrayList<FileObject>();
+    if ( exists( baseFolder ) ) {
+      findFiles( new FileOperationExecutor.SelectInfo( baseFolder, baseFolder, 0 ), selector, files );
+    }
+    return files;
+  }
+
+  private void findFiles( FileOperationExecutor.SelectInfo info, FileSelector selector, List<FileObject> files )
+    throws FileSystemException {
+    FileObject file = info.getFile();
+    try {
+      if ( getType( file ).hasChildren() && selector.traverseDescendents( info ) ) {
+        for ( FileObject child : getChildren( file ) ) {
+          findFiles( new FileOperationExecutor.SelectInfo( info.getBaseFolder(), child, info.getDepth() + 1 ),
+            selector, files );
+        }
+      }
+      if ( selector.includeFile( info ) ) {
+        files.add( file );
+      }
+    } catch ( FileSystemException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new FileSystemException( "vfs.provider/find-files.error", file, e );
+    }
+  }
+
+  /**
+   * Forget the metadata of a file that was changed, together with the children of its folder.
+   */
+  public void invalidate( FileObject file ) throws FileSystemException {
+    synchronized ( entries ) {
+      entries.remove( file.getName().getURI() );
+      FileObject parent = file.getParent();
+      if ( parent != null ) {
+        entries.remove( parent.getName().getURI() );
+      }
+    }
+  }
+
+  /**
+   * Forget everything, for example when the scope of the cache starts or ends.
+   */
+  public void clear() {
+    synchronized ( entries ) {
+      entries.clear();
+    }
+  }
+
+  public int size() {
+    synchronized ( entries ) {
+      return entries.size();
+    }
+  }
+
+  private Metadata getMetadata( FileObject file ) {
+    String uri = file.getName().getURI();
+    long now = System.currentTimeMillis();
+    synchronized ( entries ) {
+      Metadata metadata = entries.get( uri );
+      if ( metadata == null || now - metadata.created > timeToLive ) {
+        metadata = new Metadata( now );
+        entries.put( uri, metadata );
+      }
+      return metadata;
+    }
+  }
+
+  /**
+   * The metadata of a file, fields are filled in the first time they are asked for.
+   */
+  private static class Metadata {
+    private final long created;
+    private volatile FileType type;
+    private volatile Long size;
+    private volatile Long lastModified;
+    private volatile FileObject[] children;
+
+    Metadata( long created ) {
+      this.created = created;
+    }
+  }
+}
@@ -0,0 +1,452 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.vfs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.NameScope;
+import org.apache.commons.vfs2.Selectors;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Executes operations on files, like copying, moving or deleting them, on a bounded number of threads.<br>
+ * <br>
+ * Operations wait in a queue of a few entries per thread, when the queue is full the thread handing out the work runs
+ * the operation itself. This keeps the number of files in flight bounded no matter how many files are found. With a
+ * single thread everything runs in the calling thread, in the order of the calls.<br>
+ * <br>
+ * The find, copy and delete methods replace the ones of {@link FileObject}: they list every folder once with
+ * {@link FileObject#getChildren()} and hand the selection and the copying or deleting of the files to the threads.
+ * The selectors and operations passed in need to be thread-safe when more than one thread is used.
+ */
+public class FileOperationExecutor {
+  private static Class<?> PKG = FileOperationExecutor.class; // for i18n purposes, needed by Translator2!!
+
+  /** The number of operations that can wait per thread */
+  private static final int QUEUE_SIZE_PER_THREAD = 4;
+
+  /** Log the progress at most every so many milliseconds */
+  private static final long PROGRESS_INTERVAL = 10000L;
+
+  private static final AtomicInteger threadNr = new AtomicInteger( 1 );
+
+  /**
+   * An operation on a single file.
+   */
+  public interface FileOperation {
+    /**
+     * @return true if the operation succeeded
+     */
+    boolean process( FileObject file ) throws Exception;
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final LogChannelInterface log;
+
+  private final Object lock = new Object();
+  private int pending;
+  private Exception firstException;
+
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong processed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private volatile long lastProgress;
+
+  /**
+   * @param threads
+   *          the number of threads, 1 or less executes all operations in the calling thread
+   * @param log
+   *          the log channel to report progress to or null
+   */
+  public FileOperationExecutor( int threads, LogChannelInterface log ) {
+    this.log = log;
+    this.lastProgress = System.currentTimeMillis();
+    if ( threads > 1 ) {
+      executor =
+        new ThreadPoolExecutor( threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+          threads * QUEUE_SIZE_PER_THREAD ), new ThreadFactory() {
+            @Override
+            public Thread newThread( Runnable r ) {
+              Thread thread = Executors.defaultThreadFactory().newThread( r );
+              thread.setDaemon( true );
+              thread.setName( "File operation thread " + threadNr.getAndIncrement() );
+              return thread;
+            }
+          }, new ThreadPoolExecutor.CallerRunsPolicy() );
+    } else {
+      executor = null;
+    }
+  }
+
+  /**
+   * @return the number of threads configured with KETTLE_FILE_OPERATION_THREADS in the given variables
+   */
+  public static int getThreads( VariableSpace space ) {
+    return Const.toInt( space.getVariable( Const.KETTLE_FILE_OPERATION_THREADS ), 1 );
+  }
+
+  /**
+   * Execute an operation on a file, in the calling thread if all threads are busy and the queue is full.
+   */
+  public void execute( final FileObject file, final FileOperation operation ) {
+    submitted.incrementAndGet();
+    runTask( new Runnable() {
+      @Override
+      public void run() {
+        process( file, operation );
+      }
+    } );
+  }
+
+  private void process( FileObject file, FileOperation operation ) {
+    boolean success = false;
+    try {
+      success = operation.process( file );
+    } catch ( Exception e ) {
+      synchronized ( lock ) {
+        if ( firstException == null ) {
+          firstException = e;
+        }
+      }
+    }
+    processed.incrementAndGet();
+    if ( !success ) {
+      failed.incrementAndGet();
+    }
+    logProgress( false );
+  }
+
+  /**
+   * Wait until all the operations executed so far are finished.
+   */
+  public void waitUntilFinished() throws InterruptedException {
+    if ( executor == null ) {
+      return;
+    }
+    synchronized ( lock ) {
+      while ( pending > 0 ) {
+        lock.wait();
+      }
+    }
+  }
+
+  /**
+   * Wait for the operations to finish and stop the threads.
+   */
+  public void shutdown() throws InterruptedException {
+    try {
+      waitUntilFinished();
+    } finally {
+      if ( executor != null ) {
+        executor.shutdown();
+      }
+      logProgress( true );
+    }
+  }
+
+  /**
+   * Find the files in a folder like {@link FileObject#findFiles(FileSelector, boolean, List)} does. Every folder is
+   * listed once by the calling thread, {@link FileSelector#includeFile(FileSelectInfo)} is called on the threads.
+   *
+   * @param baseFolder
+   *          the folder to search
+   * @param selector
+   *          the selector of the files
+   * @param depthwise
+   *          true to return the files of a folder before the folder, false to return them after the folder
+   * @return the selected files
+   */
+  public List<FileObject> findFiles( FileObject baseFolder, final FileSelector selector, boolean depthwise )
+    throws FileSystemException, InterruptedException {
+    List<SelectInfo> candidates = new ArrayList<SelectInfo>();
+    if ( baseFolder.exists() ) {
+      traverse( new SelectInfo( baseFolder, baseFolder, 0 ), selector, depthwise, candidates );
+    }
+
+    final boolean[] included = new boolean[candidates.size()];
+    final FileSystemException[] exception = new FileSystemException[1];
+    for ( int i = 0; i < candidates.size(); i++ ) {
+      final int index = i;
+      final SelectInfo info = candidates.get( i );
+      runTask( new Runnable() {
+        @Override
+        public void run() {
+          try {
+            included[index] = selector.includeFile( info );
+          } catch ( Exception e ) {
+            synchronized ( exception ) {
+              if ( exception[0] == null ) {
+                exception[0] = new FileSystemException( "vfs.provider/find-files.error", info.getFile(), e );
+              }
+            }
+          }
+        }
+      } );
+    }
+    waitUntilFinished();
+    if ( exception[0] != null ) {
+      throw exception[0];
+    }
+
+    List<FileObject> files = new ArrayList<FileObject>();
+    for ( int i = 0; i < included.length; i++ ) {
+      if ( included[i] ) {
+        files.add( candidates.get( i ).getFile() );
+      }
+    }
+    return files;
+  }
+
+  private void traverse( SelectInfo info, FileSelector selector, boolean depthwise, List<SelectInfo> candidates )
+    throws FileSystemException {
+    FileObject file = info.getFile();
+    int index = candidates.size();
+    if ( file.getType().hasChildren() && traverseDescendents( selector, info ) ) {
+      for ( FileObject child : file.getChildren() ) {
+        traverse( new SelectInfo( info.getBaseFolder(), child, info.getDepth() + 1 ), selector, depthwise,
+          candidates );
+      }
+    }
+    if ( depthwise ) {
+      candidates.add( info );
+    } else {
+      candidates.add( index, info );
+    }
+  }
+
+  private static boolean traverseDescendents( FileSelector selector, FileSelectInfo info )
+    throws FileSystemException {
+    try {
+      return selector.traverseDescendents( info );
+    } catch ( FileSystemException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new FileSystemException( "vfs.provider/find-files.error", info.getFile(), e );
+    }
+  }
+
+  /**
+   * Copy the selected files of a folder like {@link FileObject#copyFrom(FileObject, FileSelector)} does. The folders
+   * are created by the calling thread before the files are copied on the threads.
+   *
+   * @return the number of files and folders that were copied
+   */
+  public int copyFrom( final FileObject destination, final FileObject source, FileSelector selector )
+    throws FileSystemException, InterruptedException {
+    if ( !source.exists() ) {
+      throw new FileSystemException( "vfs.provider/copy-missing-file.error", source );
+    }
+    List<FileObject> files = findFiles( source, selector, false );
+
+    final AtomicInteger copied = new AtomicInteger();
+    for ( final FileObject sourceFile : files ) {
+      final FileObject destinationFile =
+        destination.resolveFile( source.getName().getRelativeName( sourceFile.getName() ),
+          NameScope.DESCENDENT_OR_SELF );
+      if ( sourceFile.getType().hasContent() ) {
+        execute( sourceFile, new FileOperation() {
+          @Override
+          public boolean process( FileObject file ) throws Exception {
+            try {
+              if ( destinationFile.exists() && destinationFile.getType() != sourceFile.getType() ) {
+                destinationFile.delete( Selectors.SELECT_ALL );
+              }
+              KettleVFS.copyContent( sourceFile, destinationFile );
+            } catch ( Exception e ) {
+              throw new FileSystemException( "vfs.provider/copy-file.error", e, sourceFile, destinationFile );
+            }
+            copied.incrementAndGet();
+            return true;
+          }
+        } );
+      } else if ( sourceFile.getType().hasChildren() ) {
+        if ( destinationFile.exists() && destinationFile.getType() != sourceFile.getType() ) {
+          destinationFile.delete( Selectors.SELECT_ALL );
+        }
+        destinationFile.createFolder();
+        copied.incrementAndGet();
+      }
+    }
+    waitUntilFinished();
+    throwFirstException();
+    return copied.get();
+  }
+
+  /**
+   * Delete the selected files of a folder like {@link FileObject#delete(FileSelector)} does. The files are deleted on
+   * the threads, the folders are deleted afterwards by the calling thread when they are empty.
+   *
+   * @return the number of files and folders that were deleted
+   */
+  public int delete( FileObject folder, FileSelector selector ) throws FileSystemException, InterruptedException {
+    List<FileObject> files = findFiles( folder, selector, true );
+
+    final AtomicInteger deleted = new AtomicInteger();
+    List<FileObject> folders = new ArrayList<FileObject>();
+    for ( FileObject file : files ) {
+      if ( file.getType().hasChildren() ) {
+        folders.add( file );
+        continue;
+      }
+      execute( file, new FileOperation() {
+        @Override
+        public boolean process( FileObject file ) throws Exception {
+          if ( file.delete() ) {
+            deleted.incrementAndGet();
+            return true;
+          }
+          return false;
+        }
+      } );
+    }
+    waitUntilFinished();
+    throwFirstException();
+
+    // Children come before their folder, only delete the folders that were emptied
+    //
+    for ( FileObject file : folders ) {
+      if ( file.getType() == FileType.FOLDER && file.getChildren().length == 0 && file.delete() ) {
+        deleted.incrementAndGet();
+      }
+    }
+    return deleted.get();
+  }
+
+  private void throwFirstException() throws FileSystemException {
+    Exception e = getFirstException();
+    if ( e instanceof FileSystemException ) {
+      throw (FileSystemException) e;
+    } else if ( e != null ) {
+      throw new FileSystemException( e );
+    }
+  }
+
+  private void runTask( final Runnable task ) {
+    if ( executor == null ) {
+      task.run();
+      return;
+    }
+    synchronized ( lock ) {
+      pending++;
+    }
+    executor.execute( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          task.run();
+        } finally {
+          synchronized ( lock ) {
+            pending--;
+            lock.notifyAll();
+          }
+        }
+      }
+    } );
+  }
+
+  private void logProgress( boolean force ) {
+    if ( log == null || !log.isBasic() || submitted.get() == 0 ) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if ( force || now - lastProgress >= PROGRESS_INTERVAL ) {
+      lastProgress = now;
+      log.logBasic( BaseMessages.getString( PKG, "FileOperationExecutor.Log.Progress", processed.get(), submitted
+        .get(), failed.get() ) );
+    }
+  }
+
+  /**
+   * @return the first exception thrown by an operation or null
+   */
+  public Exception getFirstException() {
+    synchronized ( lock ) {
+      return firstException;
+    }
+  }
+
+  /**
+   * @return the number of operations executed so far
+   */
+  public long getSubmitted() {
+    return submitted.get();
+  }
+
+  /**
+   * @return the number of operations that finished
+   */
+  public long getProcessed() {
+    return processed.get();
+  }
+
+  /**
+   * @return the number of operations that failed
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  static class SelectInfo implements FileSelectInfo {
+    private final FileObject baseFolder;
+    private final FileObject file;
+    private final int depth;
+
+    SelectInfo( FileObject baseFolder, FileObject file, int depth ) {
+      this.baseFolder = baseFolder;
+      this.file = file;
+      this.depth = depth;
+    }
+
+    @Override
+    public FileObject getBaseFolder() {
+      return baseFolder;
+    }
+
+    @Override
+    public FileObject getFile() {
+      return file;
+    }
+
+    @Override
+    public int getDepth() {
+      return depth;
+    }
+  }
+}
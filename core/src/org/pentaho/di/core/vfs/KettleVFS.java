@@ -29,7 +29,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileName;
@@ -37,6 +44,7 @@ import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileUtil;
 import org.apache.commons.vfs2.cache.WeakRefFilesCache;
 import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
 import org.apache.commons.vfs2.impl.StandardFileSystemManager;
@@ -58,6 +66,22 @@ public class KettleVFS {
 
   private static VariableSpace defaultVariableSpace;
 
+  /** The number of bytes transferred at once into a local file from a stream */
+  private static final long TRANSFER_SIZE = 1024 * 1024;
+
+  /** The maximum number of file system options kept for re-use */
+  private static final int FS_OPTIONS_CACHE_SIZE = 100;
+
+  private static final Map<String, FileSystemOptions> fsOptionsCache =
+    new LinkedHashMap<String, FileSystemOptions>( 16, 0.75f, true ) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String, FileSystemOptions> eldest ) {
+        return size() > FS_OPTIONS_CACHE_SIZE;
+      }
+    };
+
   static {
     // Create a new empty variable space...
     //
@@ -177,13 +201,32 @@ public class KettleVFS {
       return null;
     }
 
+    String[] varList = varSpace.listVariables();
+
+    // Equal options give the same file system: re-use the options built earlier for the same server and variables
+    //
+    String key = null;
+    if ( sourceOptions == null ) {
+      StringBuilder builder = new StringBuilder( getRootURI( vfsFilename, scheme ) );
+      for ( String var : varList ) {
+        if ( var.startsWith( "vfs." ) ) {
+          builder.append( '\n' ).append( var ).append( '=' ).append( varSpace.getVariable( var ) );
+        }
+      }
+      key = builder.toString();
+      synchronized ( fsOptionsCache ) {
+        FileSystemOptions fsOptions = fsOptionsCache.get( key );
+        if ( fsOptions != null ) {
+          return fsOptions;
+        }
+      }
+    }
+
     IKettleFileSystemConfigBuilder configBuilder =
         KettleFileSystemConfigBuilderFactory.getConfigBuilder( varSpace, scheme );
 
     FileSystemOptions fsOptions = ( sourceOptions == null ) ? new FileSystemOptions() : sourceOptions;
 
-    String[] varList = varSpace.listVariables();
-
     for ( String var : varList ) {
       if ( var.startsWith( "vfs." ) ) {
         String param = configBuilder.parseParameterName( var, scheme );
@@ -194,9 +237,26 @@ public class KettleVFS {
         }
       }
     }
+    if ( key != null ) {
+      synchronized ( fsOptionsCache ) {
+        fsOptionsCache.put( key, fsOptions );
+      }
+    }
     return fsOptions;
   }
 
+  /**
+   * @return the scheme, user and server part of a VFS URL, the options of some schemes depend on the server
+   */
+  private static String getRootURI( String vfsFilename, String scheme ) {
+    int start = vfsFilename.indexOf( "://" );
+    if ( start < 0 ) {
+      return scheme;
+    }
+    int end = vfsFilename.indexOf( '/', start + 3 );
+    return end < 0 ? vfsFilename : vfsFilename.substring( 0, end );
+  }
+
   /**
    * Read a text file (like an XML document). WARNING DO NOT USE FOR DATA FILES.
    *
@@ -243,7 +303,7 @@ public class KettleVFS {
     FileObject fileObject = null;
     try {
       fileObject = getFileObject( vfsFilename, space );
-      return fileObject.exists();
+      return FileMetadataCache.getCache( space ).exists( fileObject );
     } catch ( IOException e ) {
       throw new KettleFileException( e );
     } finally {
@@ -311,6 +371,7 @@ public class KettleVFS {
   public static OutputStream getOutputStream( String vfsFilename, VariableSpace space, boolean append ) throws KettleFileException {
     try {
       FileObject fileObject = getFileObject( vfsFilename, space );
+      FileMetadataCache.getCache( space ).invalidate( fileObject );
       return getOutputStream( fileObject, append );
     } catch ( IOException e ) {
       throw new KettleFileException( e );
@@ -321,12 +382,167 @@ public class KettleVFS {
       FileSystemOptions fsOptions, boolean append ) throws KettleFileException {
     try {
       FileObject fileObject = getFileObject( vfsFilename, space, fsOptions );
+      FileMetadataCache.getCache( space ).invalidate( fileObject );
+      return getOutputStream( fileObject, append );
+    } catch ( IOException e ) {
+      throw new KettleFileException( e );
+    }
+  }
+
+  /**
+   * Get the file on the local file system behind a VFS file object. Local files can be read and written through
+   * {@link FileChannel}s and plain file streams, without the monitoring and buffering layers of VFS.
+   *
+   * @return the local file or null if the file object isn't a local file
+   */
+  public static File getLocalFile( FileObject fileObject ) {
+    if ( fileObject instanceof LocalFile ) {
+      return new File( getFilename( fileObject ) );
+    }
+    return null;
+  }
+
+  /**
+   * Open a channel to read a local file, for example to read at a position or to map the file in memory.
+   *
+   * @return the channel or null if the file object isn't a local file
+   */
+  public static FileChannel getReadChannel( FileObject fileObject ) throws IOException {
+    File file = getLocalFile( fileObject );
+    if ( file == null ) {
+      return null;
+    }
+    return FileChannel.open( file.toPath(), StandardOpenOption.READ );
+  }
+
+  /**
+   * Open a channel to write a local file. Like {@link #getOutputStream(FileObject, boolean)} the parent folder has to
+   * exist.
+   *
+   * @return the channel or null if the file object isn't a local file
+   */
+  public static FileChannel getWriteChannel( FileObject fileObject, boolean append ) throws IOException {
+    File file = getLocalFile( fileObject );
+    if ( file == null ) {
+      return null;
+    }
+    FileObject parent = fileObject.getParent();
+    if ( parent != null && !parent.exists() ) {
+      throw new IOException( BaseMessages.getString(
+        PKG, "KettleVFS.Exception.ParentDirectoryDoesNotExist", getFriendlyURI( parent ) ) );
+    }
+    FileChannel channel =
+      FileChannel.open( file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING );
+
+    // VFS remembers that the file didn't exist, let it look again
+    //
+    fileObject.refresh();
+    return channel;
+  }
+
+  /**
+   * Get an input stream for callers that read in large blocks or do their own buffering. A local file is read with a
+   * plain file stream, other files get the VFS stream.
+   */
+  public static InputStream getUnbufferedInputStream( FileObject fileObject ) throws IOException {
+    File file = getLocalFile( fileObject );
+    if ( file == null ) {
+      return getInputStream( fileObject );
+    }
+    return new FileInputStream( file );
+  }
+
+  /**
+   * Get an output stream for callers that write in large blocks or do their own buffering. A local file is written
+   * with a plain file stream, other files get the VFS stream.
+   */
+  public static OutputStream getUnbufferedOutputStream( FileObject fileObject, boolean append ) throws IOException {
+    File file = getLocalFile( fileObject );
+    if ( file == null ) {
       return getOutputStream( fileObject, append );
+    }
+    FileObject parent = fileObject.getParent();
+    if ( parent != null && !parent.exists() ) {
+      throw new IOException( BaseMessages.getString(
+        PKG, "KettleVFS.Exception.ParentDirectoryDoesNotExist", getFriendlyURI( parent ) ) );
+    }
+    // Create the file through VFS so that it knows the file exists
+    //
+    fileObject.createFile();
+    return new FileOutputStream( file, append );
+  }
+
+  public static OutputStream getUnbufferedOutputStream( String vfsFilename, boolean append )
+    throws KettleFileException {
+    return getUnbufferedOutputStream( vfsFilename, defaultVariableSpace, append );
+  }
+
+  public static OutputStream getUnbufferedOutputStream( String vfsFilename, VariableSpace space, boolean append )
+    throws KettleFileException {
+    try {
+      FileObject fileObject = getFileObject( vfsFilename, space );
+      FileMetadataCache.getCache( space ).invalidate( fileObject );
+      return getUnbufferedOutputStream( fileObject, append );
     } catch ( IOException e ) {
       throw new KettleFileException( e );
     }
   }
 
+  /**
+   * Copy the content of a file, creating the parent folder of the target if needed. Two local files are copied by the
+   * operating system with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, when only
+   * one of them is local the other one is streamed straight through its channel. Other files are copied by VFS.
+   */
+  public static void copyContent( FileObject source, FileObject target ) throws IOException {
+    File sourceFile = getLocalFile( source );
+    File targetFile = getLocalFile( target );
+    if ( sourceFile == null && targetFile == null ) {
+      FileUtil.copyContent( source, target );
+      return;
+    }
+
+    FileObject parent = target.getParent();
+    if ( parent != null ) {
+      parent.createFolder();
+    }
+    if ( sourceFile != null ) {
+      FileChannel in = FileChannel.open( sourceFile.toPath(), StandardOpenOption.READ );
+      try {
+        WritableByteChannel out =
+          targetFile != null ? getWriteChannel( target, false ) : Channels.newChannel( getOutputStream(
+            target, false ) );
+        try {
+          long size = in.size();
+          long position = 0;
+          while ( position < size ) {
+            position += in.transferTo( position, size - position, out );
+          }
+        } finally {
+          out.close();
+        }
+      } finally {
+        in.close();
+      }
+    } else {
+      ReadableByteChannel in = Channels.newChannel( getInputStream( source ) );
+      try {
+        FileChannel out = getWriteChannel( target, false );
+        try {
+          long position = 0;
+          long transferred;
+          while ( ( transferred = out.transferFrom( in, position, TRANSFER_SIZE ) ) > 0 ) {
+            position += transferred;
+          }
+        } finally {
+          out.close();
+        }
+      } finally {
+        in.close();
+      }
+    }
+  }
+
   public static String getFilename( FileObject fileObject ) {
     FileName fileName = fileObject.getName();
     String root = fileName.getRootURI();
@@ -0,0 +1,199 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.xml;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.util.EnvUtil;
+import org.w3c.dom.Document;
+
+/**
+ * Singleton that keeps the parsed XML documents of transformation, job and repository files.<br>
+ * <br>
+ * A job that runs the same transformation thousands of times would otherwise read and parse the same file every time.
+ * A document is kept per file and re-used as long as the size and the modification time of the file stay the same.
+ * Every caller gets a deep copy of the document: copying a DOM tree is a lot cheaper than parsing the file and callers
+ * can't change or share each others nodes.<br>
+ * <br>
+ * The number of documents is limited by {@link Const#KETTLE_METADATA_CACHE_SIZE}, the least recently used document is
+ * dropped first. Files that don't report a modification time (HTTP for example) are never cached.
+ */
+public class XMLDocumentCache {
+  public static final int DEFAULT_MAX_SIZE = 100;
+
+  private static XMLDocumentCache cache;
+
+  private final int maxSize;
+
+  private final Map<String, CachedDocument> entries;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  private static class CachedDocument {
+    private final long size;
+    private final long lastModified;
+    private final Document document;
+
+    CachedDocument( long size, long lastModified, Document document ) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.document = document;
+    }
+  }
+
+  XMLDocumentCache( int maxSize ) {
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<String, CachedDocument>( 16, 0.75f, true ) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String, CachedDocument> eldest ) {
+        if ( size() > XMLDocumentCache.this.maxSize ) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public static final synchronized XMLDocumentCache getInstance() {
+    if ( cache != null ) {
+      return cache;
+    }
+
+    cache =
+      new XMLDocumentCache( Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_METADATA_CACHE_SIZE ),
+        DEFAULT_MAX_SIZE ) );
+    return cache;
+  }
+
+  /**
+   * Load a file into an XML document, re-using the parsed document if the file didn't change since it was parsed.
+   *
+   * @param fileObject
+   *          The fileObject to load into a document
+   * @return a document the caller can use and change as it sees fit
+   */
+  public Document loadXMLFile( FileObject fileObject ) throws KettleXMLException {
+    if ( maxSize <= 0 ) {
+      return XMLHandler.loadXMLFile( fileObject );
+    }
+
+    String key;
+    long size;
+    long lastModified;
+    try {
+      key = fileObject.getName().getURI();
+      FileContent content = fileObject.getContent();
+      size = content.getSize();
+      lastModified = content.getLastModifiedTime();
+    } catch ( FileSystemException e ) {
+      return XMLHandler.loadXMLFile( fileObject );
+    }
+    if ( lastModified <= 0 ) {
+      return XMLHandler.loadXMLFile( fileObject );
+    }
+
+    CachedDocument entry;
+    synchronized ( this ) {
+      entry = entries.get( key );
+      if ( entry != null && ( entry.size != size || entry.lastModified != lastModified ) ) {
+        entries.remove( key );
+        entry = null;
+      }
+      if ( entry != null ) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    if ( entry != null ) {
+      return copy( entry.document );
+    }
+
+    Document document = XMLHandler.loadXMLFile( fileObject );
+    if ( document == null ) {
+      return null;
+    }
+    synchronized ( this ) {
+      entries.put( key, new CachedDocument( size, lastModified, document ) );
+    }
+    return copy( document );
+  }
+
+  /**
+   * A DOM tree isn't safe to read from several threads, not even to copy it, so the copies are made one at a time.
+   */
+  private static Document copy( Document document ) {
+    synchronized ( document ) {
+      return (Document) document.cloneNode( true );
+    }
+  }
+
+  /**
+   * @return the number of documents that were re-used
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of files that were parsed
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of documents dropped because the cache was full
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the number of documents in the cache
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Clears the cache and the statistics
+   */
+  public synchronized void clear() {
+    entries.clear();
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+}
@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2015 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveRowSetTest {
+  @Test
+  public void testClass() {
+    AdaptiveRowSet rowSet = new AdaptiveRowSet( 1 );
+    assertEquals( 0, rowSet.size() );
+    final Object[] row = new Object[]{};
+    final RowMeta meta = new RowMeta();
+    assertTrue( rowSet.putRow( meta, row ) );
+    assertSame( meta, rowSet.getRowMeta() );
+    assertEquals( 1, rowSet.size() );
+    assertSame( row, rowSet.getRow() );
+    assertEquals( 0, rowSet.size() );
+    rowSet.putRow( meta, row );
+    assertSame( row, rowSet.getRowImmediate() );
+    assertNull( rowSet.getRowImmediate() );
+    rowSet.putRow( meta, row );
+    assertEquals( 1, rowSet.size() );
+    rowSet.clear();
+    assertEquals( 0, rowSet.size() );
+  }
+
+  @Test
+  public void testCapacity() {
+    AdaptiveRowSet rowSet = new AdaptiveRowSet( 2 );
+    final RowMeta meta = new RowMeta();
+    assertTrue( rowSet.putRowWait( meta, new Object[]{}, 1, TimeUnit.MILLISECONDS ) );
+    assertTrue( rowSet.putRowWait( meta, new Object[]{}, 1, TimeUnit.MILLISECONDS ) );
+    assertFalse( rowSet.putRowWait( meta, new Object[]{}, 1, TimeUnit.MILLISECONDS ) );
+
+    rowSet.setCapacity( 3 );
+    assertEquals( 3, rowSet.getCapacity() );
+    assertTrue( rowSet.putRowWait( meta, new Object[]{}, 1, TimeUnit.MILLISECONDS ) );
+
+    // Shrinking keeps the rows in the buffer
+    rowSet.setCapacity( 1 );
+    assertEquals( 3, rowSet.size() );
+    rowSet.getRowImmediate();
+    rowSet.getRowImmediate();
+    assertFalse( rowSet.putRowWait( meta, new Object[]{}, 1, TimeUnit.MILLISECONDS ) );
+    rowSet.getRowImmediate();
+    assertTrue( rowSet.putRowWait( meta, new Object[]{}, 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testStatistics() {
+    AdaptiveRowSet rowSet = new AdaptiveRowSet( 1 );
+    final RowMeta meta = new RowMeta();
+    assertNull( rowSet.getRowWait( 5, TimeUnit.MILLISECONDS ) );
+    rowSet.putRow( meta, new Object[]{} );
+    assertFalse( rowSet.putRowWait( meta, new Object[]{}, 5, TimeUnit.MILLISECONDS ) );
+    rowSet.getRow();
+
+    AdaptiveRowSet.Statistics statistics = rowSet.getStatistics();
+    assertEquals( 1, statistics.getCapacity() );
+    assertEquals( 0, statistics.getSize() );
+    assertEquals( 1L, statistics.getRowsWritten() );
+    assertEquals( 1L, statistics.getRowsRead() );
+    assertTrue( statistics.getPutWaitNanos() >= TimeUnit.MILLISECONDS.toNanos( 5 ) );
+    assertTrue( statistics.getGetWaitNanos() >= TimeUnit.MILLISECONDS.toNanos( 5 ) );
+  }
+}
@@ -0,0 +1,193 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class ResultRowListTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  @Test
+  public void testSpillAndRead() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    ResultRowList rows = new ResultRowList( 10 );
+    List<RowMetaAndData> expected = new ArrayList<RowMetaAndData>();
+    for ( int i = 0; i < 2500; i++ ) {
+      RowMetaAndData row = new RowMetaAndData( rowMeta, new Object[] { (long) i, i % 7 == 0 ? null : "row " + i } );
+      rows.add( row );
+      expected.add( row );
+    }
+    assertEquals( 2500, rows.size() );
+    assertEquals( 2490, rows.getSpilledRows() );
+
+    // Sequential get() and two interleaved iterators
+    //
+    Iterator<RowMetaAndData> one = rows.iterator();
+    Iterator<RowMetaAndData> two = rows.iterator();
+    for ( int i = 0; i < expected.size(); i++ ) {
+      assertRow( expected.get( i ), rows.get( i ) );
+      assertRow( expected.get( i ), one.next() );
+      assertRow( expected.get( i ), two.next() );
+    }
+    assertTrue( !one.hasNext() && !two.hasNext() );
+
+    // Going backwards and adding after reading
+    //
+    assertRow( expected.get( 20 ), rows.get( 20 ) );
+    assertRow( expected.get( 15 ), rows.get( 15 ) );
+    RowMetaAndData last = new RowMetaAndData( rowMeta, new Object[] { -1L, "last" } );
+    rows.add( last );
+    assertRow( last, rows.get( 2500 ) );
+
+    File spillFile = rows.getSpillFile();
+    assertTrue( spillFile.exists() );
+    rows.clear();
+    assertEquals( 0, rows.size() );
+    assertEquals( 0, rows.getSpilledRows() );
+    assertNull( rows.getSpillFile() );
+    assertFalse( spillFile.exists() );
+  }
+
+  @Test
+  public void testChangingRowMeta() throws Exception {
+    RowMetaInterface stringMeta = new RowMeta();
+    stringMeta.addValueMeta( new ValueMetaString( "name" ) );
+    ResultRowList rows = new ResultRowList( 1 );
+    rows.add( new RowMetaAndData( stringMeta, new Object[] { "a" } ) );
+    rows.add( new RowMetaAndData( createRowMeta(), new Object[] { 1L, "b" } ) );
+    rows.add( new RowMetaAndData( stringMeta, new Object[] { "c" } ) );
+
+    assertEquals( "b", rows.get( 1 ).getString( "name", null ) );
+    assertEquals( 1L, rows.get( 1 ).getInteger( "id", 0L ) );
+    assertEquals( 1, rows.get( 2 ).size() );
+    assertEquals( "c", rows.get( 2 ).getString( "name", null ) );
+
+    File spillFile = rows.getSpillFile();
+    rows.clear();
+    assertFalse( spillFile.exists() );
+  }
+
+  @Test
+  public void testClonedRowMetaIsWrittenOnce() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    ResultRowList shared = new ResultRowList( 1 );
+    ResultRowList cloned = new ResultRowList( 1 );
+    for ( int i = 0; i < 10; i++ ) {
+      shared.add( new RowMetaAndData( rowMeta, new Object[] { (long) i, "row " + i } ) );
+      cloned.add( new RowMetaAndData( rowMeta.clone(), new Object[] { (long) i, "row " + i } ) );
+    }
+    assertEquals( shared.getSpillFile().length(), cloned.getSpillFile().length() );
+    for ( int i = 0; i < 10; i++ ) {
+      assertRow( shared.get( i ), cloned.get( i ) );
+    }
+
+    RowMetaInterface otherMask = rowMeta.clone();
+    otherMask.getValueMeta( 0 ).setConversionMask( "#,##0" );
+    assertTrue( ResultRowList.sameLayout( rowMeta, rowMeta.clone() ) );
+    assertFalse( ResultRowList.sameLayout( rowMeta, otherMask ) );
+    assertFalse( ResultRowList.sameLayout( rowMeta, new RowMeta() ) );
+    shared.clear();
+    cloned.clear();
+  }
+
+  @Test
+  public void testCopiesShareSpilledRows() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    ResultRowList rows = new ResultRowList( 2 );
+    for ( int i = 0; i < 5; i++ ) {
+      rows.add( new RowMetaAndData( rowMeta, new Object[] { (long) i, "row " + i } ) );
+    }
+    ResultRowList copy = rows.copy();
+    File sharedFile = rows.getSpillFile();
+    assertSame( sharedFile, copy.getSpillFile() );
+    rows.add( new RowMetaAndData( rowMeta, new Object[] { 5L, "original" } ) );
+    copy.add( new RowMetaAndData( rowMeta, new Object[] { 5L, "copy" } ) );
+
+    assertEquals( 6, rows.size() );
+    assertEquals( 6, copy.size() );
+    assertEquals( "original", rows.get( 5 ).getString( "name", null ) );
+    assertEquals( "copy", copy.get( 5 ).getString( "name", null ) );
+    assertEquals( "row 3", copy.get( 3 ).getString( "name", null ) );
+
+    // An empty list takes over the rows of another one
+    //
+    ResultRowList target = new ResultRowList( 2 );
+    target.addAll( rows );
+    assertEquals( rows, target );
+
+    Result result = new Result();
+    result.setRows( rows );
+    ResultRowList cloned = (ResultRowList) result.clone().getRows();
+    assertEquals( rows, cloned );
+
+    // The file is only deleted when the last list using it is cleared
+    //
+    assertNotSame( sharedFile, copy.getSpillFile() );
+    File copyFile = copy.getSpillFile();
+    copy.clear();
+    assertFalse( copyFile.exists() );
+    rows.clear();
+    target.clear();
+    assertTrue( sharedFile.exists() );
+    cloned.clear();
+    assertFalse( sharedFile.exists() );
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  private static void assertRow( RowMetaAndData expected, RowMetaAndData actual ) throws Exception {
+    assertEquals( expected.getInteger( 0 ), actual.getInteger( 0 ) );
+    if ( expected.getData()[1] == null ) {
+      assertNull( actual.getData()[1] );
+    } else {
+      assertEquals( expected.getString( 1, null ), actual.getString( 1, null ) );
+    }
+  }
+}
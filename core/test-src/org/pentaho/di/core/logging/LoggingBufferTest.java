@@ -26,7 +26,10 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.pentaho.di.core.Const;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -102,6 +105,41 @@ public class LoggingBufferTest {
 
   }
 
+  @Test
+  public void testAsynchronousListeners() throws Exception {
+    final LoggingBuffer buff = new LoggingBuffer( 0 );
+    final List<Object> received = new ArrayList<Object>();
+    final List<String> threads = new ArrayList<String>();
+    KettleLoggingEventListener listener = new KettleLoggingEventListener() {
+      @Override
+      public void eventAdded( KettleLoggingEvent event ) {
+        received.add( event.getMessage() );
+        threads.add( Thread.currentThread().getName() );
+      }
+    };
+    buff.addLoggingEventListener( listener );
+    buff.setAsynchronous( true, 10 );
+    Assert.assertTrue( buff.isAsynchronous() );
+
+    // The queue is a lot smaller than the number of events: the logging thread waits, nothing is lost
+    //
+    List<Object> expected = new ArrayList<Object>();
+    for ( int i = 0; i < 500; i++ ) {
+      expected.add( "line " + i );
+      buff.addLogggingEvent( new KettleLoggingEvent( "line " + i, i, LogLevel.BASIC ) );
+    }
+    Assert.assertEquals( 500, buff.getNrLines() );
+
+    // Removing the listener waits until it got everything
+    //
+    buff.removeLoggingEventListener( listener );
+    Assert.assertEquals( expected, received );
+    Assert.assertFalse( threads.contains( Thread.currentThread().getName() ) );
+
+    buff.setAsynchronous( false, 0 );
+    Assert.assertFalse( buff.isAsynchronous() );
+  }
+
   @Test
   public void testBufferSizeRestrictions() {
     final LoggingBuffer buff = new LoggingBuffer( 10 );
@@ -143,4 +181,76 @@ public class LoggingBufferTest {
       Assert.fail( "This should never be reached, as the LogBuffer is empty" );
     }
   }
+
+  @Test
+  public void testChannelIndex() {
+    final LoggingBuffer buff = new LoggingBuffer( 0 );
+
+    final String trans =
+      LoggingRegistry.getInstance().registerLoggingSource(
+        new SimpleLoggingObject( "indexTrans", LoggingObjectType.TRANS, null ) );
+    SimpleLoggingObject parent = new SimpleLoggingObject( "indexTrans", LoggingObjectType.TRANS, null ) {
+      @Override
+      public String getLogChannelId() {
+        return trans;
+      }
+    };
+    String step =
+      LoggingRegistry.getInstance().registerLoggingSource(
+        new SimpleLoggingObject( "indexStep", LoggingObjectType.STEP, parent ) );
+    String other =
+      LoggingRegistry.getInstance().registerLoggingSource(
+        new SimpleLoggingObject( "indexOther", LoggingObjectType.TRANS, null ) );
+    String general =
+      LoggingRegistry.getInstance().registerLoggingSource(
+        new SimpleLoggingObject( "indexGeneral", LoggingObjectType.GENERAL, null ) );
+
+    append( buff, trans, "trans 1" );
+    int start = buff.getLastBufferLineNr() - 1;
+    append( buff, other, "other 1" );
+    append( buff, step, "step 1" );
+    append( buff, general, "general 1" );
+    append( buff, trans, "trans 2" );
+    int last = buff.getLastBufferLineNr();
+
+    Assert.assertEquals( Arrays.asList( "trans 1", "step 1", "trans 2" ),
+      messages( buff.getLogBufferFromTo( trans, false, start, last ) ) );
+    Assert.assertEquals( Arrays.asList( "trans 1", "step 1", "general 1", "trans 2" ),
+      messages( buff.getLogBufferFromTo( trans, true, start, last ) ) );
+    Assert.assertEquals( Arrays.asList( "step 1", "trans 2" ),
+      messages( buff.getLogBufferFromTo( trans, false, start + 2, last ) ) );
+    Assert.assertEquals( Arrays.asList( "trans 1", "other 1", "step 1", "general 1", "trans 2" ),
+      messages( buff.getLogBufferFromTo( (List<String>) null, false, start, last ) ) );
+
+    buff.removeChannelFromBuffer( step );
+    Assert.assertEquals( 4, buff.getNrLines() );
+    Assert.assertEquals( Arrays.asList( "trans 1", "trans 2" ),
+      messages( buff.getLogBufferFromTo( trans, false, start, last ) ) );
+
+    buff.removeGeneralMessages();
+    Assert.assertEquals( 3, buff.getNrLines() );
+    Assert.assertEquals( Arrays.asList( "trans 1", "trans 2" ),
+      messages( buff.getLogBufferFromTo( trans, true, start, last ) ) );
+
+    // Trimming the buffer also trims the channels
+    //
+    buff.setMaxNrLines( 2 );
+    append( buff, other, "other 2" );
+    Assert.assertEquals( 2, buff.getNrLines() );
+    Assert.assertEquals( Arrays.asList( "trans 2" ),
+      messages( buff.getLogBufferFromTo( trans, false, start, buff.getLastBufferLineNr() ) ) );
+  }
+
+  private static void append( LoggingBuffer buff, String logChannelId, String message ) {
+    buff.addLogggingEvent( new KettleLoggingEvent(
+      new LogMessage( message, logChannelId, LogLevel.BASIC ), System.currentTimeMillis(), LogLevel.BASIC ) );
+  }
+
+  private static List<String> messages( List<KettleLoggingEvent> events ) {
+    String[] messages = new String[events.size()];
+    for ( int i = 0; i < messages.length; i++ ) {
+      messages[i] = ( (LogMessage) events.get( i ).getMessage() ).getMessage();
+    }
+    return Arrays.asList( messages );
+  }
 }
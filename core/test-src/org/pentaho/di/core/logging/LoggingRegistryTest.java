@@ -24,6 +24,9 @@ package org.pentaho.di.core.logging;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 public class LoggingRegistryTest {
@@ -48,4 +51,28 @@ public class LoggingRegistryTest {
     assertEquals( logChanelId, LOG_CHANEL_ID_CHILD );
   }
 
+  @Test
+  public void childrenLookupFollowsRegistrations() {
+    LoggingRegistry loggingRegistry = LoggingRegistry.getInstance();
+
+    final String parentId =
+      loggingRegistry.registerLoggingSource( new SimpleLoggingObject( "cachedParent", LoggingObjectType.JOB, null ) );
+    LoggingObjectInterface parent = new SimpleLoggingObject( "cachedParent", LoggingObjectType.JOB, null ) {
+      @Override
+      public String getLogChannelId() {
+        return parentId;
+      }
+    };
+    assertEquals( Arrays.asList( parentId ), loggingRegistry.getLogChannelChildren( parentId ) );
+
+    String childId =
+      loggingRegistry.registerLoggingSource( new SimpleLoggingObject( "cachedChild", LoggingObjectType.TRANS, parent ) );
+    List<String> children = loggingRegistry.getLogChannelChildren( parentId );
+    assertEquals( Arrays.asList( childId, parentId ), children );
+
+    // Callers get their own copy
+    children.clear();
+    assertEquals( Arrays.asList( childId, parentId ), loggingRegistry.getLogChannelChildren( parentId ) );
+  }
+
 }
@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleMemoryException;
+
+public class MemoryManagerTest {
+
+  @Test
+  public void testUnlimited() throws Exception {
+    MemoryManager manager = new MemoryManager( "test", 0L, MemoryManager.OverflowPolicy.FAIL, null );
+    MemoryReservation reservation = manager.createReservation( "step.0", true );
+    assertTrue( reservation.tryReserve( Long.MAX_VALUE / 2 ) );
+    assertTrue( reservation.reserve( 100L ) );
+    assertEquals( Long.MAX_VALUE / 2 + 100L, manager.getUsed() );
+    reservation.releaseAll();
+    assertEquals( 0L, manager.getUsed() );
+    assertEquals( Long.MAX_VALUE / 2 + 100L, manager.getPeak() );
+  }
+
+  @Test
+  public void testSpill() {
+    MemoryManager manager = new MemoryManager( "test", 1000L, MemoryManager.OverflowPolicy.FAIL, null );
+    MemoryReservation sort = manager.createReservation( "sort.0", true );
+    MemoryReservation other = manager.createReservation( "other.0", true );
+
+    assertTrue( sort.tryReserve( 600L ) );
+    assertFalse( other.tryReserve( 600L ) );
+    assertEquals( 0L, other.getReserved() );
+    assertTrue( other.tryReserve( 400L ) );
+    assertEquals( 1000L, manager.getUsed() );
+
+    sort.release( 100L );
+    assertEquals( 500L, sort.getReserved() );
+    assertTrue( other.tryReserve( 100L ) );
+
+    sort.releaseAll();
+    other.releaseAll();
+    assertEquals( 0L, manager.getUsed() );
+  }
+
+  @Test
+  public void testOverflowPolicy() throws Exception {
+    MemoryManager failing = new MemoryManager( "test", 1000L, MemoryManager.OverflowPolicy.FAIL, null );
+    MemoryReservation reservation = failing.createReservation( "step.0", false );
+    assertTrue( reservation.reserve( 1000L ) );
+    try {
+      reservation.reserve( 1L );
+      fail( "Expected the memory budget to be exhausted" );
+    } catch ( KettleMemoryException e ) {
+      // expected
+    }
+    assertEquals( 1000L, failing.getUsed() );
+
+    MemoryManager warning = new MemoryManager( "test", 1000L, MemoryManager.OverflowPolicy.WARN, null );
+    reservation = warning.createReservation( "step.0", false );
+    assertTrue( reservation.reserve( 1000L ) );
+    assertFalse( reservation.reserve( 500L ) );
+    assertEquals( 1500L, warning.getUsed() );
+    assertEquals( 1500L, reservation.getReserved() );
+  }
+
+  @Test
+  public void testParent() {
+    MemoryManager jvm = new MemoryManager( "JVM", 1000L, MemoryManager.OverflowPolicy.FAIL, null );
+    MemoryManager trans1 = new MemoryManager( "trans1", 800L, MemoryManager.OverflowPolicy.FAIL, jvm );
+    MemoryManager trans2 = new MemoryManager( "trans2", 800L, MemoryManager.OverflowPolicy.FAIL, jvm );
+
+    MemoryReservation r1 = trans1.createReservation( "step.0", true );
+    MemoryReservation r2 = trans2.createReservation( "step.0", true );
+
+    assertTrue( r1.tryReserve( 700L ) );
+    assertFalse( r2.tryReserve( 400L ) ); // fits in trans2 but not in the JVM
+    assertEquals( 0L, trans2.getUsed() );
+    assertTrue( r2.tryReserve( 300L ) );
+    assertEquals( 1000L, jvm.getUsed() );
+
+    r1.releaseAll();
+    assertEquals( 300L, jvm.getUsed() );
+  }
+}
@@ -0,0 +1,97 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.vfs2.FileObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.vfs.KettleVFS;
+
+public class JarFileCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    JarFileCache.getInstance().clear();
+  }
+
+  @Test
+  public void testDamagedJarFile() throws Exception {
+    File damaged = folder.newFile( "damaged.jar" );
+    FileOutputStream damagedOut = new FileOutputStream( damaged );
+    damagedOut.write( "not a jar file".getBytes() );
+    damagedOut.close();
+
+    // A jar file with this test class in it, it carries the JUnit Test annotation
+    //
+    File plugin = folder.newFile( "plugin.jar" );
+    String className = JarFileCacheTest.class.getName().replace( '.', '/' ) + ".class";
+    JarOutputStream pluginOut = new JarOutputStream( new FileOutputStream( plugin ) );
+    pluginOut.putNextEntry( new JarEntry( className ) );
+    InputStream classIn = JarFileCacheTest.class.getClassLoader().getResourceAsStream( className );
+    byte[] buffer = new byte[4096];
+    int n;
+    while ( ( n = classIn.read( buffer ) ) > 0 ) {
+      pluginOut.write( buffer, 0, n );
+    }
+    classIn.close();
+    pluginOut.close();
+
+    FileObject damagedObject = KettleVFS.getFileObject( damaged.getPath() );
+    FileObject pluginObject = KettleVFS.getFileObject( plugin.getPath() );
+    JarFileCache cache = JarFileCache.getInstance();
+    cache.scanArchives( new FileObject[] { damagedObject, pluginObject } );
+
+    assertTrue( cache.getAnnotationIndex( damagedObject ).isEmpty() );
+    assertEquals( Collections.singleton( JarFileCacheTest.class.getName() ),
+      cache.getAnnotationIndex( pluginObject ).get( Test.class.getName() ) );
+  }
+
+  @Test
+  public void testFoldersListedOnce() throws Exception {
+    folder.newFile( "one.jar" );
+    JarFileCache cache = JarFileCache.getInstance();
+    FileObject[] jarFiles = cache.getFileObjects( new PluginFolder( folder.getRoot().getPath(), false, true ) );
+    assertEquals( 1, jarFiles.length );
+
+    // Another plugin type, same folder
+    //
+    folder.newFile( "two.jar" );
+    assertTrue( jarFiles == cache.getFileObjects( new PluginFolder( folder.getRoot().getPath(), false, true ) ) );
+    assertEquals( 2, cache.getFileObjects( new PluginFolder( folder.getRoot().getPath(), false, true, true ) ).length );
+  }
+}
@@ -0,0 +1,116 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarFileIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    File jar = folder.newFile( "plugin.jar" );
+    URL url = jar.toURI().toURL();
+    Map<String, Set<String>> annotations = new HashMap<String, Set<String>>();
+    annotations.put( "org.pentaho.di.core.annotations.Step", new HashSet<String>( Arrays.asList( "a.One", "a.Two" ) ) );
+    annotations.put( "org.pentaho.di.core.annotations.JobEntry", Collections.singleton( "a.Three" ) );
+
+    File file = new File( folder.getRoot(), "index/plugin-index.dat" );
+    JarFileIndex index = new JarFileIndex( file );
+    index.load();
+    assertNull( index.get( url, 10L, 20L ) );
+    index.put( url, 10L, 20L, annotations );
+    index.save();
+    assertTrue( file.isFile() );
+
+    JarFileIndex loaded = new JarFileIndex( file );
+    loaded.load();
+    assertEquals( annotations, loaded.get( url, 10L, 20L ) );
+
+    // A jar file that changed size or modification time is scanned again
+    //
+    assertNull( loaded.get( url, 11L, 20L ) );
+    assertNull( loaded.get( url, 10L, 21L ) );
+  }
+
+  @Test
+  public void testRemovedJarFiles() throws Exception {
+    File jar = folder.newFile( "plugin.jar" );
+    File removed = folder.newFile( "removed.jar" );
+    Map<String, Set<String>> annotations = new HashMap<String, Set<String>>();
+
+    File file = new File( folder.getRoot(), "plugin-index.dat" );
+    JarFileIndex index = new JarFileIndex( file );
+    index.put( jar.toURI().toURL(), 1L, 1L, annotations );
+    index.put( removed.toURI().toURL(), 1L, 1L, annotations );
+    index.save();
+
+    // Entries that are not used are kept as long as the jar file is there
+    //
+    assertTrue( removed.delete() );
+    JarFileIndex loaded = new JarFileIndex( file );
+    loaded.load();
+    assertEquals( 2, loaded.size() );
+    loaded.save();
+    assertEquals( 1, loaded.size() );
+
+    loaded.load();
+    assertEquals( 1, loaded.size() );
+    assertEquals( annotations, loaded.get( jar.toURI().toURL(), 1L, 1L ) );
+  }
+
+  @Test
+  public void testDamagedIndex() throws Exception {
+    File file = folder.newFile( "plugin-index.dat" );
+    JarFileIndex index = new JarFileIndex( file );
+    index.put( new URL( "file:/nowhere.jar" ), 1L, 1L, new HashMap<String, Set<String>>() );
+    index.save();
+
+    // Cut the file short
+    //
+    RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+    raf.setLength( raf.length() - 3 );
+    raf.close();
+
+    index.load();
+    assertEquals( 0, index.size() );
+  }
+}
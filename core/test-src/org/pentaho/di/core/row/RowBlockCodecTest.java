@@ -0,0 +1,167 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class RowBlockCodecTest {
+
+  private static final String[] STRINGS = { "", "a", "repeated", "caf\u00e9", "\u65e5\u672c" };
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "binary" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+
+    Random random = new Random( 5 );
+    List<Object[]> rows = new ArrayList<Object[]>();
+    long id = 1000000L;
+    for ( int i = 0; i < RowBlockCodec.BLOCK_ROWS * 2 + 11; i++ ) {
+      id += random.nextInt( 3 );
+      Timestamp timestamp = new Timestamp( random.nextInt() );
+      timestamp.setNanos( random.nextInt( 1000000000 ) );
+      Object[] row = new Object[] {
+        STRINGS[random.nextInt( STRINGS.length )] + ( random.nextInt( 4 ) == 0 ? random.nextInt( 100 ) : "" ),
+        random.nextInt( 10 ) == 0 ? random.nextLong() : id, random.nextGaussian(),
+        new Date( 1450000000000L + id * 1000 ),
+        new BigDecimal( random.nextGaussian() ).setScale( random.nextInt( 20 ), BigDecimal.ROUND_HALF_UP ),
+        random.nextBoolean(), new byte[] { (byte) i, 0, -1 }, timestamp };
+      for ( int j = 0; j < row.length; j++ ) {
+        if ( random.nextInt( 6 ) == 0 ) {
+          row[j] = null;
+        }
+      }
+      rows.add( row );
+    }
+
+    // Flush a partial block in the middle, the way a remote step does when it runs out of rows
+    //
+    ByteArrayOutputStream[] bytes = new ByteArrayOutputStream[2];
+    for ( int c = 0; c < 2; c++ ) {
+      boolean compressing = c == 1;
+      bytes[c] = new ByteArrayOutputStream();
+      DataOutputStream outputStream = new DataOutputStream( bytes[c] );
+      RowBlockCodec writer = new RowBlockCodec( rowMeta, compressing );
+      writer.writeHeader( outputStream );
+      for ( int i = 0; i < rows.size(); i++ ) {
+        writer.addRow( outputStream, rows.get( i ) );
+        if ( i == 100 ) {
+          writer.flush( outputStream );
+        }
+      }
+      writer.flush( outputStream );
+      outputStream.close();
+
+      DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( bytes[c].toByteArray() ) );
+      RowBlockCodec reader = new RowBlockCodec( rowMeta, false );
+      reader.readHeader( inputStream );
+      for ( Object[] row : rows ) {
+        Object[] read = reader.readRow( inputStream );
+        assertEquals( row.length, read.length );
+        for ( int j = 0; j < row.length; j++ ) {
+          if ( row[j] instanceof byte[] ) {
+            assertArrayEquals( (byte[]) row[j], (byte[]) read[j] );
+          } else {
+            assertEquals( row[j], read[j] );
+          }
+        }
+      }
+      try {
+        reader.readRow( inputStream );
+        fail( "The end of the stream should be reported" );
+      } catch ( KettleEOFException e ) {
+        // expected
+      }
+    }
+    assertTrue( bytes[1].size() < bytes[0].size() );
+  }
+
+  @Test
+  public void testEmptyFlush() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    RowBlockCodec writer = new RowBlockCodec( rowMeta, true );
+    writer.writeHeader( outputStream );
+    int headerSize = bytes.size();
+    writer.flush( outputStream );
+    assertEquals( headerSize, bytes.size() );
+
+    writer.addRow( outputStream, new Object[] { 1L } );
+    assertEquals( 1, writer.getNrRows() );
+    assertEquals( headerSize, bytes.size() );
+    writer.flush( outputStream );
+    assertEquals( 0, writer.getNrRows() );
+    assertTrue( bytes.size() > headerSize );
+  }
+
+  @Test
+  public void testWrongHeader() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new RowCodec( rowMeta ).writeHeader( new DataOutputStream( bytes ) );
+
+    try {
+      new RowBlockCodec( rowMeta, false ).readHeader( new DataInputStream( new ByteArrayInputStream( bytes
+        .toByteArray() ) ) );
+      fail( "Rows written by the row codec should be refused" );
+    } catch ( KettleFileException e ) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class RowCodecTest {
+
+  private static final String[] STRINGS = { "", "a", "repeated", "caf\u00e9", "\u65e5\u672c",
+    "a rather long string that is too long to be put in the dictionary of the codec" };
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "binary" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+    ValueMetaInterface lazy = new ValueMetaString( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    lazy.setStorageMetadata( new ValueMetaString( "lazy" ) );
+    rowMeta.addValueMeta( lazy );
+    ValueMetaInterface indexed = new ValueMetaString( "indexed" );
+    indexed.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
+    indexed.setIndex( STRINGS );
+    rowMeta.addValueMeta( indexed );
+
+    Random random = new Random( 3 );
+    List<Object[]> rows = new ArrayList<Object[]>();
+    for ( int i = 0; i < RowCodec.BLOCK_ROWS * 3 + 7; i++ ) {
+      Timestamp timestamp = new Timestamp( random.nextInt() );
+      timestamp.setNanos( random.nextInt( 1000000000 ) );
+      Object[] row = new Object[] {
+        STRINGS[random.nextInt( STRINGS.length )] + ( random.nextInt( 3 ) == 0 ? random.nextInt( 5000 ) : "" ),
+        random.nextLong() >> random.nextInt( 64 ), random.nextGaussian(), new Date( random.nextLong() >> 20 ),
+        new BigDecimal( random.nextGaussian() ).setScale( random.nextInt( 40 ) - 10, BigDecimal.ROUND_HALF_UP ),
+        random.nextBoolean(), new byte[] { (byte) i, 0, -1 }, timestamp, STRINGS[i % STRINGS.length].getBytes( "UTF-8" ),
+        random.nextInt( STRINGS.length ) };
+      for ( int j = 0; j < row.length; j++ ) {
+        if ( random.nextInt( 6 ) == 0 ) {
+          row[j] = null;
+        }
+      }
+      rows.add( row );
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    RowCodec writer = new RowCodec( rowMeta );
+    writer.writeHeader( outputStream );
+    for ( Object[] row : rows ) {
+      writer.writeRow( outputStream, row );
+    }
+    outputStream.close();
+
+    DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    RowCodec reader = new RowCodec( rowMeta );
+    reader.readHeader( inputStream );
+    for ( Object[] row : rows ) {
+      Object[] read = reader.readRow( inputStream );
+      assertEquals( row.length, read.length );
+      for ( int j = 0; j < row.length; j++ ) {
+        if ( row[j] instanceof byte[] ) {
+          assertArrayEquals( (byte[]) row[j], (byte[]) read[j] );
+        } else {
+          assertEquals( row[j], read[j] );
+        }
+      }
+    }
+    try {
+      reader.readRow( inputStream );
+      fail( "The end of the stream should be reported" );
+    } catch ( KettleEOFException e ) {
+      // expected
+    }
+
+    // The same rows take less space than with the row metadata
+    //
+    ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+    DataOutputStream legacyStream = new DataOutputStream( legacy );
+    for ( Object[] row : rows ) {
+      rowMeta.writeData( legacyStream, row );
+    }
+    assertTrue( bytes.size() < legacy.size() );
+  }
+
+  @Test
+  public void testEmptyRows() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    RowCodec writer = new RowCodec( rowMeta );
+    writer.writeRow( outputStream, new Object[0] );
+    writer.writeRow( outputStream, new Object[0] );
+
+    DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    RowCodec reader = new RowCodec( rowMeta );
+    assertEquals( 0, reader.readRow( inputStream ).length );
+    assertEquals( 0, reader.readRow( inputStream ).length );
+    try {
+      reader.readRow( inputStream );
+      fail( "The end of the stream should be reported" );
+    } catch ( KettleEOFException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testWrongHeader() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    rowMeta.writeData( outputStream, new Object[] { 1L } );
+
+    try {
+      new RowCodec( rowMeta ).readHeader( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+      fail( "Rows written by the row metadata should be refused" );
+    } catch ( KettleFileException e ) {
+      // expected
+    }
+  }
+}
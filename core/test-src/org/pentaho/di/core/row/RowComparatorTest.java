@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class RowComparatorTest {
+
+  private static final String[] STRINGS = { null, "", "a", "A", "b", "abc", "ABC", " a" };
+
+  @Test
+  public void testSameResultsAsRowMeta() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+    ValueMetaInterface trimmed = new ValueMetaString( "trimmed" );
+    trimmed.setTrimType( ValueMetaInterface.TRIM_TYPE_BOTH );
+    rowMeta.addValueMeta( trimmed );
+
+    Random random = new Random( 7 );
+    Object[][] rows = new Object[300][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[i] = new Object[] {
+        STRINGS[random.nextInt( STRINGS.length )], random.nextInt( 5 ) == 0 ? null : (long) random.nextInt( 3 ) - 1,
+        random.nextInt( 5 ) == 0 ? null : random.nextInt( 3 ) / 2.0, random.nextInt( 5 ) == 0 ? null : new Date(
+          random.nextInt( 3 ) ), random.nextInt( 5 ) == 0 ? null : new BigDecimal( random.nextInt( 3 ) ),
+        random.nextInt( 5 ) == 0 ? null : random.nextBoolean(), null, STRINGS[random.nextInt( STRINGS.length )] };
+    }
+
+    int[][] keys = { { 0 }, { 1, 2 }, { 3, 4, 5 }, { 5, 0, 7 }, { 7, 1 }, { 6, 2, 0 } };
+    for ( int[] key : keys ) {
+      for ( int variant = 0; variant < 4; variant++ ) {
+        for ( int fieldnr : key ) {
+          rowMeta.getValueMeta( fieldnr ).setSortedDescending( ( variant & 1 ) != 0 );
+          rowMeta.getValueMeta( fieldnr ).setCaseInsensitive( ( variant & 2 ) != 0 );
+        }
+        RowComparator comparator = RowComparator.create( rowMeta, key );
+        for ( Object[] one : rows ) {
+          Object[] two = rows[random.nextInt( rows.length )];
+          assertEquals( Integer.signum( rowMeta.compare( one, two, key ) ), Integer.signum( comparator.compare( one,
+            two ) ) );
+        }
+      }
+    }
+
+    RowComparator all = RowComparator.create( rowMeta );
+    for ( Object[] one : rows ) {
+      Object[] two = rows[random.nextInt( rows.length )];
+      assertEquals( Integer.signum( rowMeta.compare( one, two ) ), Integer.signum( all.compare( one, two ) ) );
+      assertTrue( all.equals( one, one ) );
+    }
+  }
+
+  @Test
+  public void testDifferentLayouts() throws Exception {
+    RowMetaInterface rowMeta1 = new RowMeta();
+    rowMeta1.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta1.addValueMeta( new ValueMetaString( "name" ) );
+    RowMetaInterface rowMeta2 = new RowMeta();
+    rowMeta2.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta2.addValueMeta( new ValueMetaString( "id" ) );
+
+    // The id is a string in the second rows, that comparison goes through a conversion
+    //
+    RowComparator comparator = RowComparator.create( rowMeta1, new int[] { 1, 0 }, rowMeta2, new int[] { 0, 1 } );
+    assertEquals( 0, comparator.compare( new Object[] { 5L, "x" }, new Object[] { "x", "5" } ) );
+    assertTrue( comparator.compare( new Object[] { 5L, "x" }, new Object[] { "x", "6" } ) < 0 );
+    assertTrue( comparator.compare( new Object[] { 5L, "y" }, new Object[] { "x", "6" } ) > 0 );
+  }
+}
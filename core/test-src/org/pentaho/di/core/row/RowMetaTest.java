@@ -33,6 +33,7 @@ import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -405,4 +406,20 @@ public class RowMetaTest {
 
   }
 
+  @Test
+  public void testGetEstimatedRowSize() throws KettleValueException {
+    Object[] row = new Object[] { "abcdefghij", 1L, new Date() };
+    long size = rowMeta.getEstimatedRowSize( row );
+    assertTrue( size > 0 );
+
+    // A longer string weighs more, a null value only takes the reference in the row array
+    assertTrue( rowMeta.getEstimatedRowSize( new Object[] { "abcdefghijabcdefghij", 1L, new Date() } ) > size );
+    assertTrue( rowMeta.getEstimatedRowSize( new Object[] { null, 1L, new Date() } ) < size );
+    assertEquals( 0L, rowMeta.getEstimatedRowSize( null ) );
+
+    // Estimate without data uses the type and length
+    string.setLength( 1000 );
+    assertTrue( rowMeta.getEstimatedRowSize() > 2000 );
+  }
+
 }
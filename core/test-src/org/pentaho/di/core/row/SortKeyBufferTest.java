@@ -0,0 +1,119 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class SortKeyBufferTest {
+
+  private static final String[] STRINGS = { null, "", "a", "A", "b", "ab", "abc", "ABC", "a\u0000", "a\u0000b",
+    "\u00e9", "\u0100", " a" };
+
+  private static final double[] NUMBERS = { Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 1E-300, 2.5,
+    Double.MAX_VALUE, Double.NaN };
+
+  @Test
+  public void testSameOrderAsComparator() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+
+    Random random = new Random( 11 );
+    Object[][] rows = new Object[2000][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[i] = new Object[] {
+        STRINGS[random.nextInt( STRINGS.length )],
+        random.nextInt( 5 ) == 0 ? null : random.nextBoolean() ? (long) random.nextInt( 5 ) - 2 : random.nextLong(),
+        random.nextInt( 5 ) == 0 ? null : NUMBERS[random.nextInt( NUMBERS.length )],
+        random.nextInt( 5 ) == 0 ? null : new Date( random.nextInt( 5 ) - 2 ),
+        random.nextInt( 5 ) == 0 ? null : random.nextBoolean() };
+    }
+
+    int[][] keys = { { 0 }, { 1 }, { 2 }, { 3, 4 }, { 0, 1, 2 }, { 4, 0, 3 } };
+    for ( int[] key : keys ) {
+      for ( int variant = 0; variant < 4; variant++ ) {
+        for ( int fieldnr : key ) {
+          rowMeta.getValueMeta( fieldnr ).setSortedDescending( ( variant & 1 ) != 0 );
+          rowMeta.getValueMeta( fieldnr ).setCaseInsensitive( ( variant & 2 ) != 0 );
+        }
+        RowComparator comparator = RowComparator.create( rowMeta, key );
+        SortKeyBuffer buffer = SortKeyBuffer.create( rowMeta, key );
+        assertNotNull( buffer );
+
+        for ( Object[] one : rows ) {
+          Object[] two = rows[random.nextInt( rows.length )];
+          assertEquals( Integer.signum( comparator.compare( one, two ) ), Integer.signum( SortKeyBuffer.compare(
+            buffer.encode( one ), buffer.encode( two ) ) ) );
+        }
+
+        // The radix sort is stable, equal keys stay in the order of the rows
+        //
+        for ( Object[] row : rows ) {
+          buffer.add( row );
+        }
+        int[] order = buffer.sort();
+        assertEquals( rows.length, order.length );
+        for ( int i = 1; i < order.length; i++ ) {
+          int cmp = comparator.compare( rows[order[i - 1]], rows[order[i]] );
+          assertEquals( true, cmp < 0 || cmp == 0 && order[i - 1] < order[i] );
+        }
+        buffer.clear();
+        assertEquals( 0, buffer.size() );
+      }
+    }
+  }
+
+  @Test
+  public void testUnsupportedKeys() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    ValueMetaInterface trimmed = new ValueMetaString( "trimmed" );
+    trimmed.setTrimType( ValueMetaInterface.TRIM_TYPE_BOTH );
+    rowMeta.addValueMeta( trimmed );
+    ValueMetaInterface binary = new ValueMetaString( "binary" );
+    binary.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    rowMeta.addValueMeta( binary );
+
+    assertNotNull( SortKeyBuffer.create( rowMeta, new int[] { 0 } ) );
+    assertNull( SortKeyBuffer.create( rowMeta, new int[] { 0, 1 } ) );
+    assertNull( SortKeyBuffer.create( rowMeta, new int[] { 2 } ) );
+    assertNull( SortKeyBuffer.create( rowMeta, new int[] { 3 } ) );
+  }
+}
@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.timestamp.SimpleTimestampFormat;
+
+public class ConversionFormatsTest {
+
+  private static final String[] DATE_MASKS = {
+    "yyyy-MM-dd", "yyyyMMdd", "yyyy/MM/dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss", "dd.MM.yyyy", "HH:mm" };
+
+  private static final String[] DATE_STRINGS = {
+    "2016-03-05", "2016-3-5", "20160305", "201603051", "2016/03/05 13:45:07.012", "2016-02-30", "2016-13-01",
+    "2016-03-05 24:00:00", "2016-03-27 02:30:00", "2016-10-30 02:30:00", "1918-03-25T07:40:03.012+03:00",
+    "05.03.2016", "5.3.2016", "23:59", "0999-01-01", "2016-03-05x", " 2016-03-05", "2016-03-0" };
+
+  @Test
+  public void testDatesLikeSimpleDateFormat() {
+    for ( String zone : new String[] { "Europe/Amsterdam", "America/Sao_Paulo", "UTC", "Asia/Kolkata" } ) {
+      for ( String mask : DATE_MASKS ) {
+        for ( boolean lenient : new boolean[] { false, true } ) {
+          SimpleDateFormat format = new SimpleDateFormat( mask, Locale.US );
+          format.setTimeZone( TimeZone.getTimeZone( zone ) );
+          format.setLenient( lenient );
+          ConversionFormats.DateConversion conversion = new ConversionFormats.DateConversion( format );
+          assertTrue( conversion.isThreadSafe() );
+
+          for ( String string : DATE_STRINGS ) {
+            Date fast = conversion.fastParse( string );
+            if ( fast != null ) {
+              ParsePosition position = new ParsePosition( 0 );
+              assertEquals( zone + " " + mask + " " + string, format.parse( string, position ), fast );
+            }
+          }
+
+          Random random = new Random( 42 );
+          for ( int i = 0; i < 2000; i++ ) {
+            Date date = new Date( ( random.nextLong() >> 20 ) );
+            assertEquals( zone + " " + mask + " " + date.getTime(), format.format( date ), conversion.format( date ) );
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDateFastPathOnlyForSimpleMasks() {
+    SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd", Locale.US );
+    format.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+    assertEquals( new Date( 1457136000000L ), new ConversionFormats.DateConversion( format ).fastParse( "2016-03-05" ) );
+
+    for ( String mask : new String[] { "yyyy-MMM-dd", "yy-MM-dd", "yyyy-MM-dd'T'HH", "EEE yyyy-MM-dd" } ) {
+      format = new SimpleDateFormat( mask, Locale.US );
+      assertNull( mask, new ConversionFormats.DateConversion( format ).fastParse( format.format( new Date() ) ) );
+    }
+
+    // Thai dates use the Buddhist calendar
+    //
+    format = new SimpleDateFormat( "yyyy-MM-dd", new Locale( "th", "TH" ) );
+    assertNull( new ConversionFormats.DateConversion( format ).fastParse( "2016-03-05" ) );
+
+    assertFalse( new ConversionFormats.DateConversion( new SimpleTimestampFormat( "yyyy-MM-dd" ) ).isThreadSafe() );
+  }
+
+  @Test
+  public void testNumbersLikeDecimalFormat() throws Exception {
+    String[] strings = {
+      "0", "-0", "123", "-123", "123.45", "-123.45", "1.", ".5", "-.5", "5.0", "-0.0", "007", "1,234", "1.2.3",
+      "12345678901234567", "123456789012345678901", "1E5", "+5", "-", ".", "12a", "0.1", "99999999.99999999" };
+    for ( String mask : new String[] { "#.#", "#", "0.00", "#,##0.###", "#;(#)", "%" } ) {
+      for ( char decimal : new char[] { '.', ',' } ) {
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols( Locale.US );
+        symbols.setDecimalSeparator( decimal );
+        symbols.setGroupingSeparator( decimal == '.' ? ',' : '.' );
+        DecimalFormat format = new DecimalFormat( mask, symbols );
+        ConversionFormats.NumberConversion conversion = new ConversionFormats.NumberConversion( format );
+        assertTrue( conversion.isThreadSafe() );
+
+        for ( String string : strings ) {
+          Number fast = conversion.fastParse( string );
+          if ( fast != null ) {
+            ParsePosition position = new ParsePosition( 0 );
+            Number expected = format.parse( string, position );
+            assertNotNull( mask + " " + string, expected );
+            assertEquals( mask + " " + string, string.length(), position.getIndex() );
+            assertEquals( mask + " " + string, expected, fast );
+          }
+        }
+      }
+    }
+    assertNull( new ConversionFormats.NumberConversion( new DecimalFormat( "#;(#)" ) ).fastParse( "5" ) );
+    assertEquals( -123L, new ConversionFormats.NumberConversion( new DecimalFormat( "#.#" ) ).fastParse( "-123" ) );
+  }
+
+  @Test
+  public void testConcurrentConversions() throws Exception {
+    final ValueMetaBase dateMeta = new ValueMetaBase( "date", ValueMetaInterface.TYPE_DATE );
+    dateMeta.setConversionMask( "dd/MM/yyyy HH:mm" );
+    dateMeta.setDateFormatTimeZone( TimeZone.getTimeZone( "UTC" ) );
+    final ValueMetaBase numberMeta = new ValueMetaBase( "number", ValueMetaInterface.TYPE_NUMBER );
+    numberMeta.setConversionMask( "#,##0.00" );
+    numberMeta.setDecimalSymbol( "." );
+    numberMeta.setGroupingSymbol( "," );
+
+    final AtomicInteger failures = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool( 4 );
+    Future<?>[] futures = new Future<?>[4];
+    for ( int t = 0; t < futures.length; t++ ) {
+      final int seed = t;
+      futures[t] = executor.submit( new Runnable() {
+        @Override
+        public void run() {
+          Random random = new Random( seed );
+          try {
+            for ( int i = 0; i < 5000; i++ ) {
+              Date date = new Date( ( random.nextLong() >>> 24 ) / 60000L * 60000L );
+              if ( !date.equals( dateMeta.convertStringToDate( dateMeta.convertDateToString( date ) ) ) ) {
+                failures.incrementAndGet();
+              }
+              double number = random.nextInt( 100000000 ) / 100.0;
+              if ( number != numberMeta.convertStringToNumber( numberMeta.convertNumberToString( number ) ) ) {
+                failures.incrementAndGet();
+              }
+            }
+          } catch ( Exception e ) {
+            failures.incrementAndGet();
+          }
+        }
+      } );
+    }
+    for ( Future<?> future : futures ) {
+      future.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination( 1, TimeUnit.MINUTES );
+    assertEquals( 0, failures.get() );
+  }
+}
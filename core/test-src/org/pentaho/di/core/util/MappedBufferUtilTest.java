@@ -0,0 +1,60 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+public class MappedBufferUtilTest {
+
+  @Test
+  public void testUnmapNull() {
+    assertFalse( MappedBufferUtil.unmap( null ) );
+  }
+
+  @Test
+  public void testUnmap() throws Exception {
+    File file = File.createTempFile( "MappedBufferUtilTest", ".txt" );
+    file.deleteOnExit();
+    RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+    try {
+      raf.write( new byte[] { 1, 2, 3, 4 } );
+      FileChannel fc = raf.getChannel();
+      MappedByteBuffer buffer = fc.map( FileChannel.MapMode.READ_ONLY, 0, 4 );
+      assertEquals( 3, buffer.get( 2 ) );
+
+      // Whether it works depends on the JVM, but it never fails
+      //
+      assertEquals( MappedBufferUtil.isUnmapSupported(), MappedBufferUtil.unmap( buffer ) );
+    } finally {
+      raf.close();
+    }
+  }
+}
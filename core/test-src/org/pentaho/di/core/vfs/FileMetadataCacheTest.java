@@ -0,0 +1,161 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.vfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileType;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.variables.Variables;
+
+public class FileMetadataCacheTest {
+
+  @Test
+  public void testMetadataIsKept() throws Exception {
+    FileObject file = file( "file:///data/in.txt", FileType.FILE );
+    FileObject folder = file( "file:///data", FileType.FOLDER, file );
+    FileMetadataCache cache = new FileMetadataCache( 60000L, 100 );
+
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( cache.exists( folder ) );
+      assertEquals( FileType.FOLDER, cache.getType( folder ) );
+      assertEquals( 1, cache.getChildren( folder ).length );
+      assertSame( file, cache.getChildren( folder )[0] );
+    }
+    verify( folder, times( 1 ) ).getType();
+    verify( folder, times( 1 ) ).getChildren();
+
+    // Invalidating a file forgets the listing of its folder too
+    //
+    when( file.getParent() ).thenReturn( folder );
+    cache.invalidate( file );
+    cache.getChildren( folder );
+    verify( folder, times( 2 ) ).getChildren();
+
+    cache.clear();
+    assertEquals( 0, cache.size() );
+  }
+
+  @Test
+  public void testDisabledAndExpiredCache() throws Exception {
+    FileObject file = file( "file:///data/missing.txt", FileType.IMAGINARY );
+    FileMetadataCache disabled = FileMetadataCache.getCache( new Variables() );
+    assertFalse( disabled.isEnabled() );
+    assertFalse( disabled.exists( file ) );
+    assertFalse( disabled.exists( file ) );
+    verify( file, times( 2 ) ).getType();
+
+    FileMetadataCache expiring = new FileMetadataCache( 1L, 100 );
+    expiring.getType( file );
+    Thread.sleep( 10 );
+    expiring.getType( file );
+    verify( file, times( 4 ) ).getType();
+  }
+
+  @Test
+  public void testSizeIsBounded() throws Exception {
+    FileMetadataCache cache = new FileMetadataCache( 60000L, 10 );
+    for ( int i = 0; i < 25; i++ ) {
+      cache.getType( file( "file:///data/" + i, FileType.FILE ) );
+    }
+    assertEquals( 10, cache.size() );
+  }
+
+  @Test
+  public void testFindFilesAndScope() throws Exception {
+    FileObject a = file( "file:///data/sub/a.txt", FileType.FILE );
+    FileObject sub = file( "file:///data/sub", FileType.FOLDER, a );
+    FileObject b = file( "file:///data/b.csv", FileType.FILE );
+    FileObject base = file( "file:///data", FileType.FOLDER, sub, b );
+
+    final FileMetadataCache cache = new FileMetadataCache( 60000L, 100 );
+    FileSelector selector = new FileSelector() {
+      @Override
+      public boolean includeFile( FileSelectInfo info ) throws Exception {
+        return cache.getType( info.getFile() ) == FileType.FILE;
+      }
+
+      @Override
+      public boolean traverseDescendents( FileSelectInfo info ) throws Exception {
+        return true;
+      }
+    };
+    List<FileObject> expected = new ArrayList<FileObject>();
+    expected.add( a );
+    expected.add( b );
+    assertEquals( expected, cache.findFiles( base, selector ) );
+    assertEquals( expected, cache.findFiles( base, selector ) );
+    verify( base, times( 1 ) ).getChildren();
+    verify( a, times( 1 ) ).getType();
+
+    // A variable space owning a cache shares it
+    //
+    Variables space = new ScopedVariables( cache );
+    space.setVariable( Const.KETTLE_VFS_METADATA_CACHE_TTL, "0" );
+    assertSame( cache, FileMetadataCache.getCache( space ) );
+    assertFalse( FileMetadataCache.create( space ).isEnabled() );
+
+    // The cache is opt-in
+    //
+    assertFalse( FileMetadataCache.create( new Variables() ).isEnabled() );
+  }
+
+  private static FileObject file( String uri, FileType type, FileObject... children ) throws Exception {
+    FileName name = mock( FileName.class );
+    when( name.getURI() ).thenReturn( uri );
+    FileObject file = mock( FileObject.class );
+    when( file.getName() ).thenReturn( name );
+    when( file.getType() ).thenReturn( type );
+    when( file.getChildren() ).thenReturn( children );
+    return file;
+  }
+
+  private static class ScopedVariables extends Variables implements HasFileMetadataCache {
+    private final FileMetadataCache cache;
+
+    ScopedVariables( FileMetadataCache cache ) {
+      this.cache = cache;
+    }
+
+    @Override
+    public FileMetadataCache getFileMetadataCache() {
+      return cache;
+    }
+  }
+}
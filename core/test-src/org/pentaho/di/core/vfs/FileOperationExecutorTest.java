@@ -0,0 +1,167 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.vfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.Selectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileOperationExecutorTest {
+
+  private File root;
+
+  @Before
+  public void setUp() throws Exception {
+    root = File.createTempFile( "file-operations", "" );
+    root.delete();
+    File source = new File( root, "source" );
+    for ( int i = 0; i < 3; i++ ) {
+      File folder = new File( source, "folder" + i );
+      new File( folder, "empty" ).mkdirs();
+      for ( int j = 0; j < 20; j++ ) {
+        write( new File( folder, "file" + j + ( j % 2 == 0 ? ".txt" : ".csv" ) ), "content " + i + "/" + j );
+      }
+    }
+    write( new File( source, "top.txt" ), "top" );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    KettleVFS.getFileObject( root.getAbsolutePath() ).delete( Selectors.SELECT_ALL );
+  }
+
+  @Test
+  public void testFindFilesInSameOrder() throws Exception {
+    FileObject source = KettleVFS.getFileObject( new File( root, "source" ).getAbsolutePath() );
+    for ( boolean depthwise : new boolean[] { false, true } ) {
+      List<FileObject> expected = new ArrayList<FileObject>();
+      source.findFiles( Selectors.SELECT_ALL, depthwise, expected );
+
+      FileOperationExecutor executor = new FileOperationExecutor( 4, null );
+      try {
+        assertEquals( names( expected ), names( executor.findFiles( source, Selectors.SELECT_ALL, depthwise ) ) );
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testCopyAndDelete() throws Exception {
+    FileObject source = KettleVFS.getFileObject( new File( root, "source" ).getAbsolutePath() );
+    FileObject target = KettleVFS.getFileObject( new File( root, "target" ).getAbsolutePath() );
+
+    FileOperationExecutor executor = new FileOperationExecutor( 4, null );
+    try {
+      assertEquals( 67, executor.copyFrom( target, source, Selectors.EXCLUDE_SELF ) );
+      assertEquals( 61, executor.getProcessed() );
+      assertEquals( 0, executor.getFailed() );
+      assertEquals( "content 2/13", new String( readAll( target.resolveFile( "folder2/file13.csv" ) ), "UTF-8" ) );
+
+      // Delete the text files only, the folders aren't empty afterwards
+      //
+      int deleted = executor.delete( target, new FileSelector() {
+        @Override
+        public boolean includeFile( FileSelectInfo info ) throws Exception {
+          return info.getDepth() > 0 && info.getFile().getName().getBaseName().endsWith( ".txt" );
+        }
+
+        @Override
+        public boolean traverseDescendents( FileSelectInfo info ) {
+          return true;
+        }
+      } );
+      assertEquals( 31, deleted );
+      assertFalse( target.resolveFile( "folder1/file2.txt" ).exists() );
+      assertTrue( target.resolveFile( "folder1/file3.csv" ).exists() );
+
+      // Folders are only removed once their files are gone
+      //
+      assertEquals( 36, executor.delete( target, Selectors.EXCLUDE_SELF ) );
+      assertEquals( 0, target.getChildren().length );
+      assertEquals( FileType.FOLDER, target.getType() );
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSingleThreadRunsInOrder() throws Exception {
+    final List<String> processed = new ArrayList<String>();
+    FileOperationExecutor executor = new FileOperationExecutor( 1, null );
+    FileObject source = KettleVFS.getFileObject( new File( root, "source" ).getAbsolutePath() );
+    List<FileObject> files = executor.findFiles( source, Selectors.SELECT_FILES, false );
+    for ( FileObject file : files ) {
+      executor.execute( file, new FileOperationExecutor.FileOperation() {
+        @Override
+        public boolean process( FileObject file ) throws Exception {
+          processed.add( file.getName().getBaseName() );
+          return !file.getName().getBaseName().equals( "top.txt" );
+        }
+      } );
+    }
+    executor.shutdown();
+    assertEquals( names( files ), processed );
+    assertEquals( 61, executor.getProcessed() );
+    assertEquals( 1, executor.getFailed() );
+  }
+
+  private static List<String> names( List<FileObject> files ) {
+    String[] names = new String[files.size()];
+    for ( int i = 0; i < names.length; i++ ) {
+      names[i] = files.get( i ).getName().getBaseName();
+    }
+    return Arrays.asList( names );
+  }
+
+  private static byte[] readAll( FileObject file ) throws IOException {
+    return org.apache.commons.vfs2.FileUtil.getContent( file );
+  }
+
+  private static void write( File file, String content ) throws IOException {
+    file.getParentFile().mkdirs();
+    FileOutputStream out = new FileOutputStream( file );
+    try {
+      out.write( content.getBytes( "UTF-8" ) );
+    } finally {
+      out.close();
+    }
+  }
+}
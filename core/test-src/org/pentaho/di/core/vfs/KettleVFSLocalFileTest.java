@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.vfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.Selectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KettleVFSLocalFileTest {
+
+  private File root;
+
+  @Before
+  public void setUp() throws Exception {
+    root = File.createTempFile( "kettle-vfs", "" );
+    root.delete();
+    root.mkdirs();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    KettleVFS.getFileObject( root.getAbsolutePath() ).delete( Selectors.SELECT_ALL );
+    KettleVFS.getFileObject( "ram:///kettle-vfs" ).delete( Selectors.SELECT_ALL );
+  }
+
+  @Test
+  public void testChannels() throws Exception {
+    FileObject local = KettleVFS.getFileObject( new File( root, "local.txt" ).getAbsolutePath() );
+    assertNotNull( KettleVFS.getLocalFile( local ) );
+    assertNull( KettleVFS.getLocalFile( KettleVFS.getFileObject( "ram:///kettle-vfs/file.txt" ) ) );
+    assertNull( KettleVFS.getReadChannel( KettleVFS.getFileObject( "ram:///kettle-vfs/file.txt" ) ) );
+
+    assertFalse( local.exists() );
+    FileChannel out = KettleVFS.getWriteChannel( local, false );
+    out.write( ByteBuffer.wrap( "0123456789".getBytes( "UTF-8" ) ) );
+    out.close();
+    assertTrue( local.exists() );
+
+    FileChannel in = KettleVFS.getReadChannel( local );
+    ByteBuffer buffer = ByteBuffer.allocate( 3 );
+    in.read( buffer, 4 );
+    in.close();
+    assertEquals( "456", new String( buffer.array(), "UTF-8" ) );
+
+    OutputStream append = KettleVFS.getUnbufferedOutputStream( local, true );
+    append.write( "abc".getBytes( "UTF-8" ) );
+    append.close();
+    assertEquals( "0123456789abc", read( local ) );
+  }
+
+  @Test
+  public void testCopyContent() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for ( int i = 0; i < 100000; i++ ) {
+      content.append( i ).append( '\n' );
+    }
+    FileObject source = KettleVFS.getFileObject( new File( root, "source.txt" ).getAbsolutePath() );
+    OutputStream out = KettleVFS.getOutputStream( source, false );
+    out.write( content.toString().getBytes( "UTF-8" ) );
+    out.close();
+
+    // local to local, local to another file system and back to a local file in a new folder
+    //
+    FileObject copy = KettleVFS.getFileObject( new File( root, "copy.txt" ).getAbsolutePath() );
+    FileObject ram = KettleVFS.getFileObject( "ram:///kettle-vfs/copy.txt" );
+    FileObject back = KettleVFS.getFileObject( new File( root, "sub/back.txt" ).getAbsolutePath() );
+    KettleVFS.copyContent( source, copy );
+    KettleVFS.copyContent( copy, ram );
+    KettleVFS.copyContent( ram, back );
+
+    assertEquals( content.toString(), read( copy ) );
+    assertEquals( content.toString(), read( ram ) );
+    assertEquals( content.toString(), read( back ) );
+    assertTrue( back.exists() );
+  }
+
+  private static String read( FileObject file ) throws Exception {
+    InputStream in = KettleVFS.getUnbufferedInputStream( file );
+    try {
+      StringBuilder content = new StringBuilder();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ( ( n = in.read( buffer ) ) > 0 ) {
+        content.append( new String( buffer, 0, n, "UTF-8" ) );
+      }
+      return content.toString();
+    } finally {
+      in.close();
+    }
+  }
+}
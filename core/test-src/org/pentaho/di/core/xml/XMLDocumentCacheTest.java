@@ -0,0 +1,114 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.vfs2.FileObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.w3c.dom.Document;
+
+public class XMLDocumentCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testChangedFileIsParsedAgain() throws Exception {
+    File file = folder.newFile( "test.ktr" );
+    write( file, "<transformation><info><name>one</name></info></transformation>" );
+    XMLDocumentCache cache = new XMLDocumentCache( 10 );
+
+    Document first = cache.loadXMLFile( KettleVFS.getFileObject( file.getAbsolutePath() ) );
+    Document second = cache.loadXMLFile( KettleVFS.getFileObject( file.getAbsolutePath() ) );
+    assertNotSame( first, second );
+    assertEquals( "one", name( second ) );
+    assertEquals( 1, cache.getMisses() );
+    assertEquals( 1, cache.getHits() );
+
+    // Changes to a copy don't end up in the cache
+    //
+    XMLHandler.getSubNode( second, "transformation", "info" ).getFirstChild().setTextContent( "changed" );
+    assertEquals( "one", name( cache.loadXMLFile( KettleVFS.getFileObject( file.getAbsolutePath() ) ) ) );
+
+    write( file, "<transformation><info><name>two</name></info></transformation>" );
+    file.setLastModified( file.lastModified() + 2000 );
+    assertEquals( "two", name( cache.loadXMLFile( KettleVFS.getFileObject( file.getAbsolutePath() ) ) ) );
+    assertEquals( 2, cache.getMisses() );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws Exception {
+    XMLDocumentCache cache = new XMLDocumentCache( 2 );
+    FileObject[] files = new FileObject[3];
+    for ( int i = 0; i < files.length; i++ ) {
+      File file = folder.newFile( "test" + i + ".ktr" );
+      write( file, "<transformation><info><name>" + i + "</name></info></transformation>" );
+      files[i] = KettleVFS.getFileObject( file.getAbsolutePath() );
+    }
+    cache.loadXMLFile( files[0] );
+    cache.loadXMLFile( files[1] );
+    cache.loadXMLFile( files[0] );
+    cache.loadXMLFile( files[2] );
+    assertEquals( 2, cache.size() );
+    assertEquals( 1, cache.getEvictions() );
+
+    cache.loadXMLFile( files[0] );
+    assertEquals( 2, cache.getHits() );
+    cache.loadXMLFile( files[1] );
+    assertEquals( 4, cache.getMisses() );
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    File file = folder.newFile( "test.ktr" );
+    write( file, "<transformation/>" );
+    XMLDocumentCache cache = new XMLDocumentCache( 0 );
+    cache.loadXMLFile( KettleVFS.getFileObject( file.getAbsolutePath() ) );
+    cache.loadXMLFile( KettleVFS.getFileObject( file.getAbsolutePath() ) );
+    assertEquals( 0, cache.size() );
+    assertEquals( 0, cache.getHits() );
+  }
+
+  private static String name( Document document ) {
+    return XMLHandler.getTagValue( XMLHandler.getSubNode( document, "transformation", "info" ), "name" );
+  }
+
+  private static void write( File file, String xml ) throws Exception {
+    OutputStream outputStream = new FileOutputStream( file );
+    try {
+      outputStream.write( xml.getBytes( "UTF-8" ) );
+    } finally {
+      outputStream.close();
+    }
+  }
+}
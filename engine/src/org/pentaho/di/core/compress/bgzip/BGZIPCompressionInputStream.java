@@ -0,0 +1,39 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.bgzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.gzip.GZIPCompressionInputStream;
+
+/**
+ * Block gzip files are multi-member gzip files, the standard gzip input stream reads them from start to end.
+ */
+public class BGZIPCompressionInputStream extends GZIPCompressionInputStream {
+
+  public BGZIPCompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( in, provider );
+  }
+}
@@ -0,0 +1,384 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.bgzip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads multi-member gzip data, like the block gzip (BGZF) files written by {@link BlockGzipOutputStream}, member by
+ * member while keeping track of where each member starts in the compressed data.<br>
+ * <br>
+ * This allows a file to be split over several readers: every reader looks up the first member that starts in its part
+ * of the compressed file with {@link #seekMemberStart(InputStream, long, long)} and decompresses from there. The
+ * uncompressed position where the first member of the next part starts is available through
+ * {@link #getEndPosition()} as soon as the reader gets there, so a reader can finish the line it is on and stop.
+ */
+public class BlockGzipInputStream extends InputStream {
+
+  /**
+   * The number of compressed bytes that need to decompress correctly for a possible member start to be accepted in
+   * case the member is larger than that.
+   */
+  public static final int VALIDATION_SIZE = 256 * 1024;
+
+  private static final int ID1 = 0x1f;
+  private static final int ID2 = 0x8b;
+  private static final int CM_DEFLATE = 8;
+
+  private static final int FHCRC = 0x02;
+  private static final int FEXTRA = 0x04;
+  private static final int FNAME = 0x08;
+  private static final int FCOMMENT = 0x10;
+  private static final int FRESERVED = 0xe0;
+
+  private final InputStream in;
+  private final long end;
+  private final Inflater inflater = new Inflater( true );
+  private final CRC32 crc = new CRC32();
+  private final byte[] buffer;
+  private int bufferPosition;
+  private int bufferLength;
+  private long bufferOffset;
+
+  private long position;
+  private long endPosition = Long.MAX_VALUE;
+  private long memberStart;
+  private long memberSize;
+  private int members;
+  private boolean inMember;
+  private boolean finished;
+
+  /**
+   * @param in
+   *          the compressed data, positioned at the start of a member
+   * @param start
+   *          the offset of the start of the member in the compressed data
+   * @param end
+   *          the offset in the compressed data where the next part starts
+   * @param bufferSize
+   *          the size of the buffer for the compressed data
+   */
+  public BlockGzipInputStream( InputStream in, long start, long end, int bufferSize ) {
+    this.in = in;
+    this.end = end;
+    this.buffer = new byte[bufferSize];
+    this.bufferOffset = start;
+  }
+
+  /**
+   * @return the number of uncompressed bytes read so far
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * @return the uncompressed position of the first member that starts at or after the end offset or
+   *         {@link Long#MAX_VALUE} if that member was not reached yet.
+   */
+  public long getEndPosition() {
+    return endPosition;
+  }
+
+  /**
+   * @return the number of members that were read completely
+   */
+  public int getMembers() {
+    return members;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    int n;
+    do {
+      n = read( b, 0, 1 );
+    } while ( n == 0 );
+    return n < 0 ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return 0;
+    }
+    try {
+      while ( !finished ) {
+        if ( !inMember && !startMember() ) {
+          finished = true;
+          break;
+        }
+        int n = inflater.inflate( b, off, len );
+        if ( n > 0 ) {
+          crc.update( b, off, n );
+          position += n;
+          memberSize += n;
+          if ( inflater.finished() ) {
+            // Read the next header right away so that the end position is known before its data is returned
+            //
+            finishMember();
+            finished = !startMember();
+          }
+          return n;
+        }
+        if ( inflater.finished() ) {
+          finishMember();
+        } else if ( inflater.needsInput() ) {
+          if ( !fill() ) {
+            throw new EOFException( "Unexpected end of the gzip data" );
+          }
+          inflater.setInput( buffer, bufferPosition, bufferLength - bufferPosition );
+          bufferPosition = bufferLength;
+        } else if ( inflater.needsDictionary() ) {
+          throw new ZipException( "Unsupported preset dictionary in gzip data" );
+        }
+      }
+      return -1;
+    } catch ( DataFormatException e ) {
+      String message = e.getMessage();
+      throw new ZipException( message != null ? message : "Invalid deflate data" );
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    in.close();
+  }
+
+  /**
+   * Read the header of the next member.
+   *
+   * @return false if there are no more members
+   */
+  private boolean startMember() throws IOException {
+    if ( inMember ) {
+      return true;
+    }
+    long offset = bufferOffset + bufferPosition;
+    int id1 = readCompressedByte();
+    if ( id1 < 0 ) {
+      return false;
+    }
+    if ( id1 != ID1 || readUnsignedByte() != ID2 || readUnsignedByte() != CM_DEFLATE ) {
+      throw new ZipException( "Not in GZIP format at offset " + offset );
+    }
+    int flags = readUnsignedByte();
+    if ( ( flags & FRESERVED ) != 0 ) {
+      throw new ZipException( "Unsupported gzip flags at offset " + offset );
+    }
+    skipBytes( 6 ); // modification time, extra flags, operating system
+    if ( ( flags & FEXTRA ) != 0 ) {
+      skipBytes( readUnsignedByte() | readUnsignedByte() << 8 );
+    }
+    if ( ( flags & FNAME ) != 0 ) {
+      skipString();
+    }
+    if ( ( flags & FCOMMENT ) != 0 ) {
+      skipString();
+    }
+    if ( ( flags & FHCRC ) != 0 ) {
+      skipBytes( 2 );
+    }
+
+    memberStart = offset;
+    if ( memberStart >= end && endPosition == Long.MAX_VALUE ) {
+      endPosition = position;
+    }
+    memberSize = 0;
+    crc.reset();
+    inflater.reset();
+    if ( bufferPosition < bufferLength ) {
+      inflater.setInput( buffer, bufferPosition, bufferLength - bufferPosition );
+      bufferPosition = bufferLength;
+    }
+    inMember = true;
+    return true;
+  }
+
+  /**
+   * Give the bytes the inflater didn't use back to the buffer and check the trailer of the member.
+   */
+  private void finishMember() throws IOException {
+    bufferPosition = bufferLength - inflater.getRemaining();
+    long expectedCrc = readInt() & 0xffffffffL;
+    long expectedSize = readInt() & 0xffffffffL;
+    if ( expectedCrc != crc.getValue() || expectedSize != ( memberSize & 0xffffffffL ) ) {
+      throw new ZipException( "Corrupt gzip member at offset " + memberStart );
+    }
+    members++;
+    inMember = false;
+  }
+
+  private boolean fill() throws IOException {
+    bufferOffset += bufferLength;
+    bufferPosition = 0;
+    bufferLength = 0;
+    int n;
+    do {
+      n = in.read( buffer, 0, buffer.length );
+    } while ( n == 0 );
+    if ( n < 0 ) {
+      return false;
+    }
+    bufferLength = n;
+    return true;
+  }
+
+  private int readCompressedByte() throws IOException {
+    if ( bufferPosition >= bufferLength && !fill() ) {
+      return -1;
+    }
+    return buffer[bufferPosition++] & 0xff;
+  }
+
+  private int readUnsignedByte() throws IOException {
+    int b = readCompressedByte();
+    if ( b < 0 ) {
+      throw new EOFException( "Unexpected end of the gzip data" );
+    }
+    return b;
+  }
+
+  private int readInt() throws IOException {
+    return readUnsignedByte() | readUnsignedByte() << 8 | readUnsignedByte() << 16 | readUnsignedByte() << 24;
+  }
+
+  private void skipBytes( int n ) throws IOException {
+    for ( int i = 0; i < n; i++ ) {
+      readUnsignedByte();
+    }
+  }
+
+  private void skipString() throws IOException {
+    while ( readUnsignedByte() != 0 ) {
+      // skip until the terminating zero
+    }
+  }
+
+  /**
+   * Look for the first member that starts at or after the given position.<br>
+   * Every candidate header is verified by decompressing the member, or its first {@link #VALIDATION_SIZE} bytes for
+   * larger members, so that compressed data that happens to look like a header is skipped.
+   *
+   * @param in
+   *          the compressed data positioned at the given offset, it has to support mark and reset.
+   * @param position
+   *          the offset of the input stream in the compressed data
+   * @param limit
+   *          the offset to stop looking at
+   * @return the offset of the member start, the input stream is positioned there, or -1 if no member starts between
+   *         position and limit
+   * @throws IOException
+   *           in case the data can't be read
+   */
+  public static long seekMemberStart( InputStream in, long position, long limit ) throws IOException {
+    if ( !in.markSupported() ) {
+      throw new IOException( "Looking for a gzip member start requires an input stream that supports mark/reset" );
+    }
+    long offset = position;
+    while ( offset < limit ) {
+      in.mark( VALIDATION_SIZE + 1 );
+      int b = in.read();
+      if ( b < 0 ) {
+        return -1;
+      }
+      if ( b == ID1 ) {
+        in.reset();
+        boolean valid = isMemberStart( in );
+        in.reset();
+        if ( valid ) {
+          return offset;
+        }
+        in.read();
+      }
+      offset++;
+    }
+    return -1;
+  }
+
+  private static boolean isMemberStart( InputStream in ) throws IOException {
+    BoundedInputStream bounded = new BoundedInputStream( in, VALIDATION_SIZE );
+    BlockGzipInputStream candidate = new BlockGzipInputStream( bounded, 0L, Long.MAX_VALUE, 4096 );
+    byte[] scratch = new byte[8192];
+    try {
+      while ( candidate.getMembers() == 0 ) {
+        if ( candidate.read( scratch, 0, scratch.length ) < 0 ) {
+          return false;
+        }
+      }
+      return true;
+    } catch ( ZipException e ) {
+      return false;
+    } catch ( EOFException e ) {
+      // Everything we looked at decompressed fine
+      //
+      return bounded.isLimitReached();
+    } finally {
+      candidate.inflater.end();
+    }
+  }
+
+  /**
+   * Reads at most a number of bytes from a stream without closing or otherwise touching it.
+   */
+  private static class BoundedInputStream extends InputStream {
+    private final InputStream in;
+    private long remaining;
+    private boolean limitReached;
+
+    BoundedInputStream( InputStream in, long limit ) {
+      this.in = in;
+      this.remaining = limit;
+    }
+
+    boolean isLimitReached() {
+      return limitReached;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read( b, 0, 1 ) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+      if ( remaining <= 0 ) {
+        limitReached = true;
+        return -1;
+      }
+      int n = in.read( b, off, (int) Math.min( len, remaining ) );
+      if ( n > 0 ) {
+        remaining -= n;
+      }
+      return n;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.bgzip;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes block gzip (BGZF) data: a series of independent gzip members of at most 64KB each, followed by an empty end
+ * of file member. Every member carries its own compressed size in a "BC" extra field.<br>
+ * <br>
+ * Since every member can be decompressed on its own, readers can split the file on member boundaries and decompress
+ * the parts in parallel. Standard gzip readers simply see a multi-member gzip file.
+ */
+public class BlockGzipOutputStream extends FilterOutputStream {
+
+  /**
+   * The maximum number of uncompressed bytes in a member, leaving room for the worst case expansion of deflate.
+   */
+  public static final int MAX_BLOCK_SIZE = 0xff00;
+
+  /**
+   * The maximum size of a compressed member, header and trailer included.
+   */
+  public static final int MAX_MEMBER_SIZE = 0x10000;
+
+  static final int HEADER_SIZE = 18;
+  static final int TRAILER_SIZE = 8;
+
+  /**
+   * The empty member that marks the end of a BGZF file.
+   */
+  static final byte[] EOF_MEMBER = new byte[] {
+    0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, 0x06, 0x00, 0x42, 0x43, 0x02, 0x00,
+    0x1b, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00 };
+
+  private final byte[] block = new byte[MAX_BLOCK_SIZE];
+  private final byte[] member = new byte[MAX_MEMBER_SIZE];
+  private final Deflater deflater;
+  private final Deflater storer;
+  private final CRC32 crc = new CRC32();
+  private int blockLength;
+  private boolean closed;
+
+  public BlockGzipOutputStream( OutputStream out ) {
+    this( out, Deflater.DEFAULT_COMPRESSION );
+  }
+
+  public BlockGzipOutputStream( OutputStream out, int level ) {
+    super( out );
+    deflater = new Deflater( level, true );
+    storer = new Deflater( Deflater.NO_COMPRESSION, true );
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    if ( blockLength == block.length ) {
+      writeMember();
+    }
+    block[blockLength++] = (byte) b;
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    while ( len > 0 ) {
+      if ( blockLength == block.length ) {
+        writeMember();
+      }
+      int n = Math.min( len, block.length - blockLength );
+      System.arraycopy( b, off, block, blockLength, n );
+      blockLength += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Writes the pending data as a complete member so that everything written so far can be read back.
+   */
+  @Override
+  public void flush() throws IOException {
+    if ( blockLength > 0 ) {
+      writeMember();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    try {
+      if ( blockLength > 0 ) {
+        writeMember();
+      }
+      out.write( EOF_MEMBER );
+      out.flush();
+    } finally {
+      deflater.end();
+      storer.end();
+      out.close();
+    }
+  }
+
+  private void writeMember() throws IOException {
+    int compressedLength = deflate( deflater );
+    if ( compressedLength < 0 ) {
+      // Incompressible data: stored blocks always fit
+      //
+      compressedLength = deflate( storer );
+    }
+
+    int memberLength = HEADER_SIZE + compressedLength + TRAILER_SIZE;
+    writeHeader( memberLength );
+
+    crc.reset();
+    crc.update( block, 0, blockLength );
+    int offset = HEADER_SIZE + compressedLength;
+    writeInt( offset, (int) crc.getValue() );
+    writeInt( offset + 4, blockLength );
+
+    out.write( member, 0, memberLength );
+    blockLength = 0;
+  }
+
+  /**
+   * @return the length of the deflated block or -1 if it doesn't fit in a member
+   */
+  private int deflate( Deflater def ) {
+    def.reset();
+    def.setInput( block, 0, blockLength );
+    def.finish();
+    int capacity = MAX_MEMBER_SIZE - HEADER_SIZE - TRAILER_SIZE;
+    int length = 0;
+    while ( !def.finished() && length < capacity ) {
+      length += def.deflate( member, HEADER_SIZE + length, capacity - length );
+    }
+    return def.finished() ? length : -1;
+  }
+
+  private void writeHeader( int memberLength ) {
+    member[0] = 0x1f;
+    member[1] = (byte) 0x8b;
+    member[2] = 0x08; // deflate
+    member[3] = 0x04; // FEXTRA
+    writeInt( 4, 0 ); // no modification time
+    member[8] = 0x00;
+    member[9] = (byte) 0xff; // unknown OS
+    member[10] = 0x06; // extra field length
+    member[11] = 0x00;
+    member[12] = 'B';
+    member[13] = 'C';
+    member[14] = 0x02; // sub field length
+    member[15] = 0x00;
+    member[16] = (byte) ( memberLength - 1 );
+    member[17] = (byte) ( ( memberLength - 1 ) >> 8 );
+  }
+
+  private void writeInt( int offset, int value ) {
+    member[offset] = (byte) value;
+    member[offset + 1] = (byte) ( value >> 8 );
+    member[offset + 2] = (byte) ( value >> 16 );
+    member[offset + 3] = (byte) ( value >> 24 );
+  }
+}
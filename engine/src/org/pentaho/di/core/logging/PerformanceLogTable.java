@@ -58,7 +58,9 @@ public class PerformanceLogTable extends BaseLogTable implements Cloneable, LogT
       "STEPNAME" ), STEP_COPY( "STEP_COPY" ), LINES_READ( "LINES_READ" ), LINES_WRITTEN( "LINES_WRITTEN" ),
       LINES_UPDATED( "LINES_UPDATED" ), LINES_INPUT( "LINES_INPUT" ), LINES_OUTPUT( "LINES_OUTPUT" ),
       LINES_REJECTED( "LINES_REJECTED" ), ERRORS( "ERRORS" ), INPUT_BUFFER_ROWS( "INPUT_BUFFER_ROWS" ),
-      OUTPUT_BUFFER_ROWS( "OUTPUT_BUFFER_ROWS" );
+      OUTPUT_BUFFER_ROWS( "OUTPUT_BUFFER_ROWS" ), PROCESSING_TIME( "PROCESSING_TIME" ), INPUT_WAIT_TIME(
+      "INPUT_WAIT_TIME" ), OUTPUT_WAIT_TIME( "OUTPUT_WAIT_TIME" ), LATENCY_MEDIAN( "LATENCY_MEDIAN" ), LATENCY_99(
+      "LATENCY_99" ), LATENCY_MAX( "LATENCY_MAX" );
 
     private String id;
 
@@ -159,6 +161,12 @@ public class PerformanceLogTable extends BaseLogTable implements Cloneable, LogT
     table.fields.add( new LogTableField( ID.ERRORS.id, true, false, "ERRORS", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.Errors" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.Errors" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
     table.fields.add( new LogTableField( ID.INPUT_BUFFER_ROWS.id, true, false, "INPUT_BUFFER_ROWS", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.InputBufferRows" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.InputBufferRows" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
     table.fields.add( new LogTableField( ID.OUTPUT_BUFFER_ROWS.id, true, false, "OUTPUT_BUFFER_ROWS", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.OutputBufferRows" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.OutputBufferRows" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
+    table.fields.add( new LogTableField( ID.PROCESSING_TIME.id, false, false, "PROCESSING_TIME", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.ProcessingTime" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.ProcessingTime" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
+    table.fields.add( new LogTableField( ID.INPUT_WAIT_TIME.id, false, false, "INPUT_WAIT_TIME", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.InputWaitTime" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.InputWaitTime" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
+    table.fields.add( new LogTableField( ID.OUTPUT_WAIT_TIME.id, false, false, "OUTPUT_WAIT_TIME", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.OutputWaitTime" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.OutputWaitTime" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
+    table.fields.add( new LogTableField( ID.LATENCY_MEDIAN.id, false, false, "LATENCY_MEDIAN", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.LatencyMedian" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.LatencyMedian" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
+    table.fields.add( new LogTableField( ID.LATENCY_99.id, false, false, "LATENCY_99", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.Latency99" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.Latency99" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
+    table.fields.add( new LogTableField( ID.LATENCY_MAX.id, false, false, "LATENCY_MAX", BaseMessages.getString( PKG, "PerformanceLogTable.FieldName.LatencyMax" ), BaseMessages.getString( PKG, "PerformanceLogTable.FieldDescription.LatencyMax" ), ValueMetaInterface.TYPE_INTEGER, 18 ) );
 
     table.findField( ID.ID_BATCH.id ).setKey( true );
     table.findField( ID.LOGDATE.id ).setLogDateField( true );
@@ -254,6 +262,24 @@ public class PerformanceLogTable extends BaseLogTable implements Cloneable, LogT
               case OUTPUT_BUFFER_ROWS:
                 value = new Long( snapShot.getOutputBufferSize() );
                 break;
+              case PROCESSING_TIME:
+                value = snapShot.isTimed() ? new Long( snapShot.getProcessingTime() ) : null;
+                break;
+              case INPUT_WAIT_TIME:
+                value = snapShot.isTimed() ? new Long( snapShot.getInputWaitTime() ) : null;
+                break;
+              case OUTPUT_WAIT_TIME:
+                value = snapShot.isTimed() ? new Long( snapShot.getOutputWaitTime() ) : null;
+                break;
+              case LATENCY_MEDIAN:
+                value = snapShot.isTimed() ? new Long( snapShot.getLatencyMedian() ) : null;
+                break;
+              case LATENCY_99:
+                value = snapShot.isTimed() ? new Long( snapShot.getLatency99() ) : null;
+                break;
+              case LATENCY_MAX:
+                value = snapShot.isTimed() ? new Long( snapShot.getLatencyMax() ) : null;
+                break;
               default:
                 break;
             }
@@ -24,8 +24,10 @@
 package org.pentaho.di.job;
 
 import java.net.URLEncoder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -34,10 +36,14 @@ import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -213,6 +219,12 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
 
   private int maxJobEntriesLogged;
 
+  private boolean iterativeExecution;
+
+  private static final int DEFAULT_JOB_ENTRY_PARALLEL_THREADS = 32;
+
+  private static ExecutorService parallelExecutor;
+
   private JobEntryCopy startJobEntryCopy;
   private Result startJobEntryResult;
 
@@ -277,6 +289,7 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
     batchId = -1;
     passedBatchId = -1;
     maxJobEntriesLogged = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_MAX_JOB_ENTRIES_LOGGED ), 1000 );
+    iterativeExecution = "Y".equalsIgnoreCase( EnvUtil.getSystemProperty( Const.KETTLE_ITERATIVE_JOB_EXECUTION ) );
 
     result = null;
     startJobEntryCopy = null;
@@ -542,7 +555,7 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
         JobEntrySpecial jes = (JobEntrySpecial) startpoint.getEntry();
         while ( ( jes.isRepeat() || isFirst ) && !isStopped() ) {
           isFirst = false;
-          res = execute( 0, null, startpoint, null, BaseMessages.getString( PKG, "Job.Reason.Started" ) );
+          res = executeFrom( 0, null, startpoint, BaseMessages.getString( PKG, "Job.Reason.Started" ) );
 
           //
           // if (iteration > 0 && (iteration % 500) == 0) {
@@ -556,7 +569,7 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
             new JobEntryResult( res, jes.getLogChannelId(), BaseMessages.getString( PKG, "Job.Comment.JobFinished" ),
                 BaseMessages.getString( PKG, "Job.Reason.Finished" ), null, 0, null );
       } else {
-        res = execute( 0, res, startpoint, null, BaseMessages.getString( PKG, "Job.Reason.Started" ) );
+        res = executeFrom( 0, res, startpoint, BaseMessages.getString( PKG, "Job.Reason.Started" ) );
         jerEnd =
             new JobEntryResult( res, startpoint.getEntry().getLogChannel().getLogChannelId(), BaseMessages.getString(
                 PKG, "Job.Comment.JobFinished" ), BaseMessages.getString( PKG, "Job.Reason.Finished" ), null, 0, null );
@@ -605,7 +618,7 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
       throw new KettleJobException( BaseMessages.getString( PKG, "Job.Log.CounldNotFindStartingPoint" ) );
     }
 
-    Result res = execute( nr, result, startpoint, null, BaseMessages.getString( PKG, "Job.Reason.StartOfJobentry" ) );
+    Result res = executeFrom( nr, result, startpoint, BaseMessages.getString( PKG, "Job.Reason.StartOfJobentry" ) );
 
     active.set( false );
 
@@ -638,6 +651,18 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
     }
   }
 
+  /**
+   * Execute a job entry starting from the given start point, recursively or iteratively depending on the
+   * KETTLE_ITERATIVE_JOB_EXECUTION setting.
+   */
+  private Result executeFrom( int nr, Result prev_result, JobEntryCopy startpoint, String reason )
+    throws KettleException {
+    if ( iterativeExecution ) {
+      return executeIteratively( nr, prev_result, startpoint, reason );
+    }
+    return execute( nr, prev_result, startpoint, null, reason );
+  }
+
   /**
    * Execute a job entry recursively and move to the next job entry automatically.<br>
    * Uses a back-tracking algorithm.<br>
@@ -660,6 +685,263 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
       return res;
     }
 
+    JobEntryExecution execution = executeEntry( nr, prev_result, jobEntryCopy, reason );
+    final Result newResult = execution.newResult;
+    Result prevResult = execution.prevResult;
+
+    // Try all next job entries.
+    //
+    // Keep track of all the threads we fired in case of parallel execution...
+    // Keep track of the results of these executions too.
+    //
+    final List<Thread> threads = new ArrayList<Thread>();
+    // next 2 lists is being modified concurrently so must be synchronized for this case.
+    final Queue<Result> threadResults = new ConcurrentLinkedQueue<Result>();
+    final Queue<KettleException> threadExceptions = new ConcurrentLinkedQueue<KettleException>();
+    final List<JobEntryCopy> threadEntries = new ArrayList<JobEntryCopy>();
+
+    // Launch only those where the hop indicates true or false
+    //
+    int nrNext = jobMeta.findNrNextJobEntries( jobEntryCopy );
+    for ( int i = 0; i < nrNext && !isStopped(); i++ ) {
+      // The next entry is...
+      final JobEntryCopy nextEntry = jobMeta.findNextJobEntry( jobEntryCopy, i );
+
+      // See if we need to execute this...
+      final String nextComment = followHop( jobEntryCopy, nextEntry, newResult );
+      if ( nextComment != null ) {
+        // Now execute!
+        //
+        // if (we launch in parallel, fire the execution off in a new thread...
+        //
+        if ( jobEntryCopy.isLaunchingInParallel() ) {
+          threadEntries.add( nextEntry );
+
+          Runnable runnable = new Runnable() {
+            public void run() {
+              try {
+                Result threadResult = execute( nr + 1, newResult, nextEntry, jobEntryCopy, nextComment );
+                threadResults.add( threadResult );
+              } catch ( Throwable e ) {
+                log.logError( Const.getStackTracker( e ) );
+                threadExceptions.add( new KettleException( BaseMessages.getString( PKG, "Job.Log.UnexpectedError",
+                    nextEntry.toString() ), e ) );
+                Result threadResult = new Result();
+                threadResult.setResult( false );
+                threadResult.setNrErrors( 1L );
+                threadResults.add( threadResult );
+              }
+            }
+          };
+          Thread thread = new Thread( runnable );
+          threads.add( thread );
+          thread.start();
+          if ( log.isBasic() ) {
+            log.logBasic( BaseMessages.getString( PKG, "Job.Log.LaunchedJobEntryInParallel", nextEntry.getName() ) );
+          }
+        } else {
+          try {
+            // Same as before: blocks until it's done
+            //
+            res = execute( nr + 1, newResult, nextEntry, jobEntryCopy, nextComment );
+          } catch ( Throwable e ) {
+            log.logError( Const.getStackTracker( e ) );
+            throw new KettleException( BaseMessages.getString( PKG, "Job.Log.UnexpectedError", nextEntry.toString() ),
+                e );
+          }
+          if ( log.isBasic() ) {
+            log.logBasic( BaseMessages.getString( PKG, "Job.Log.FinishedJobEntry", nextEntry.getName(), res.getResult()
+                + "" ) );
+          }
+        }
+      }
+    }
+
+    // OK, if we run in parallel, we need to wait for all the job entries to
+    // finish...
+    //
+    if ( jobEntryCopy.isLaunchingInParallel() ) {
+      for ( int i = 0; i < threads.size(); i++ ) {
+        Thread thread = threads.get( i );
+        JobEntryCopy nextEntry = threadEntries.get( i );
+
+        try {
+          thread.join();
+        } catch ( InterruptedException e ) {
+          log.logError( jobMeta.toString(), BaseMessages.getString( PKG,
+              "Job.Log.UnexpectedErrorWhileWaitingForJobEntry", nextEntry.getName() ) );
+          threadExceptions.add( new KettleException( BaseMessages.getString( PKG,
+              "Job.Log.UnexpectedErrorWhileWaitingForJobEntry", nextEntry.getName() ), e ) );
+        }
+      }
+      // if(log.isBasic()) log.logBasic(BaseMessages.getString(PKG,
+      // "Job.Log.FinishedJobEntry",startpoint.getName(),res.getResult()+""));
+    }
+
+    return finishEntry( res, prevResult, threadResults, threadExceptions );
+  }
+
+  /**
+   * Execute a job entry iteratively and move to the next job entries automatically.<br>
+   * <br>
+   * This follows the same hops as {@link #execute(int, Result, JobEntryCopy, JobEntryCopy, String)} but keeps the
+   * entries that still have hops to follow on an explicit stack instead of the call stack. When the hop to follow is
+   * the last one of a sequential entry, nothing is left to do for that entry so it isn't kept at all: a job that loops
+   * back to an earlier entry runs in constant memory instead of running out of stack. Parallel branches are executed on
+   * a pool of at most KETTLE_JOB_ENTRY_PARALLEL_THREADS threads shared by all jobs, when the pool is exhausted the
+   * branch is executed by the launching thread.
+   *
+   * @param nr
+   *          the number of the job entry execution
+   * @param prev_result
+   *          the result of the previous job entry or null
+   * @param startpoint
+   *          the job entry to start from
+   * @param reason
+   *          the reason to execute the start point
+   * @return the result of the last job entry executed
+   * @throws KettleException
+   */
+  private Result executeIteratively( int nr, Result prev_result, JobEntryCopy startpoint, String reason )
+    throws KettleException {
+    Deque<JobEntryExecution> stack = new ArrayDeque<JobEntryExecution>();
+    // The entry after the start point that is executing, errors after the start point are reported for it
+    JobEntryCopy branch = null;
+    try {
+      JobEntryExecution root = startEntry( nr, prev_result, startpoint, reason );
+      JobEntryExecution current = root;
+      while ( true ) {
+        // Look for the next hop to follow, parallel branches are launched right away
+        //
+        JobEntryCopy nextEntry = null;
+        String nextComment = null;
+        while ( nextEntry == null && current.nextHop < current.nrNext && !isStopped() ) {
+          JobEntryCopy candidate = jobMeta.findNextJobEntry( current.jobEntryCopy, current.nextHop++ );
+          String comment = followHop( current.jobEntryCopy, candidate, current.newResult );
+          if ( comment != null ) {
+            if ( current.jobEntryCopy.isLaunchingInParallel() ) {
+              launchInParallel( current, candidate, comment );
+            } else {
+              nextEntry = candidate;
+              nextComment = comment;
+            }
+          }
+        }
+
+        if ( nextEntry != null ) {
+          if ( current.nextHop < current.nrNext ) {
+            current.nextEntry = nextEntry;
+            stack.push( current );
+          }
+          // else: the result of the next entry is the result of this one, no need to come back here
+          if ( current == root ) {
+            branch = nextEntry;
+          }
+          current = startEntry( current.nr + 1, current.newResult, nextEntry, nextComment );
+          continue;
+        }
+
+        Result res = finishEntry( current );
+        if ( stack.isEmpty() ) {
+          return res;
+        }
+        current = stack.pop();
+        current.res = res;
+        if ( current == root ) {
+          branch = null;
+        }
+        if ( log.isBasic() ) {
+          log.logBasic( BaseMessages.getString( PKG, "Job.Log.FinishedJobEntry", current.nextEntry.getName(), res
+              .getResult()
+              + "" ) );
+        }
+      }
+    } catch ( Throwable e ) {
+      // Errors of the start point are thrown as they are, errors of the entries after it are wrapped once
+      //
+      if ( branch == null ) {
+        throw e;
+      }
+      log.logError( Const.getStackTracker( e ) );
+      throw new KettleException( BaseMessages.getString( PKG, "Job.Log.UnexpectedError", branch.toString() ), e );
+    }
+  }
+
+  /**
+   * Check if the job is stopped and execute the job entry if not.
+   */
+  private JobEntryExecution startEntry( int nr, Result prev_result, JobEntryCopy jobEntryCopy, String reason )
+    throws KettleException {
+    if ( stopped.get() ) {
+      JobEntryExecution execution = new JobEntryExecution( nr, jobEntryCopy );
+      execution.res = new Result( nr );
+      execution.res.stopped = true;
+      return execution;
+    }
+    JobEntryExecution execution = executeEntry( nr, prev_result, jobEntryCopy, reason );
+    execution.nrNext = jobMeta.findNrNextJobEntries( jobEntryCopy );
+    return execution;
+  }
+
+  /**
+   * Launch the execution of the next job entry of a parallel job entry on the parallel execution pool.
+   */
+  private void launchInParallel( final JobEntryExecution execution, final JobEntryCopy nextEntry,
+    final String nextComment ) {
+    Runnable runnable = new Runnable() {
+      public void run() {
+        try {
+          Result threadResult = executeIteratively( execution.nr + 1, execution.newResult, nextEntry, nextComment );
+          execution.threadResults.add( threadResult );
+        } catch ( Throwable e ) {
+          log.logError( Const.getStackTracker( e ) );
+          execution.threadExceptions.add( new KettleException( BaseMessages.getString( PKG,
+              "Job.Log.UnexpectedError", nextEntry.toString() ), e ) );
+          Result threadResult = new Result();
+          threadResult.setResult( false );
+          threadResult.setNrErrors( 1L );
+          execution.threadResults.add( threadResult );
+        }
+      }
+    };
+    execution.threadEntries.add( nextEntry );
+    execution.futures.add( getParallelExecutor().submit( runnable ) );
+    if ( log.isBasic() ) {
+      log.logBasic( BaseMessages.getString( PKG, "Job.Log.LaunchedJobEntryInParallel", nextEntry.getName() ) );
+    }
+  }
+
+  /**
+   * Wait for the parallel branches of an iteratively executed job entry and calculate its result.
+   */
+  private Result finishEntry( JobEntryExecution execution ) throws KettleException {
+    for ( int i = 0; i < execution.futures.size(); i++ ) {
+      JobEntryCopy nextEntry = execution.threadEntries.get( i );
+      try {
+        execution.futures.get( i ).get();
+      } catch ( InterruptedException e ) {
+        log.logError( jobMeta.toString(), BaseMessages.getString( PKG,
+            "Job.Log.UnexpectedErrorWhileWaitingForJobEntry", nextEntry.getName() ) );
+        execution.threadExceptions.add( new KettleException( BaseMessages.getString( PKG,
+            "Job.Log.UnexpectedErrorWhileWaitingForJobEntry", nextEntry.getName() ), e ) );
+      } catch ( ExecutionException e ) {
+        // The branches catch everything themselves
+        execution.threadExceptions.add( new KettleException( BaseMessages.getString( PKG, "Job.Log.UnexpectedError",
+            nextEntry.toString() ), e.getCause() ) );
+      }
+    }
+    return finishEntry( execution.res, execution.prevResult, execution.threadResults, execution.threadExceptions );
+  }
+
+  /**
+   * Execute a single job entry, without following any of its hops.
+   *
+   * @return the execution holding the result passed to the job entry and the result of the job entry
+   */
+  private JobEntryExecution executeEntry( int nr, Result prev_result, JobEntryCopy jobEntryCopy, String reason )
+    throws KettleException {
+    JobEntryExecution execution = new JobEntryExecution( nr, jobEntryCopy );
+
     // if we didn't have a previous result, create one, otherwise, copy the content...
     //
     final Result newResult;
@@ -776,126 +1058,60 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
     extension = new JobExecutionExtension( this, prevResult, jobEntryCopy, extension.executeEntry );
     ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.JobAfterJobEntryExecution.id, extension );
 
-    // Try all next job entries.
-    //
-    // Keep track of all the threads we fired in case of parallel execution...
-    // Keep track of the results of these executions too.
-    //
-    final List<Thread> threads = new ArrayList<Thread>();
-    // next 2 lists is being modified concurrently so must be synchronized for this case.
-    final Queue<Result> threadResults = new ConcurrentLinkedQueue<Result>();
-    final Queue<KettleException> threadExceptions = new ConcurrentLinkedQueue<KettleException>();
-    final List<JobEntryCopy> threadEntries = new ArrayList<JobEntryCopy>();
-
-    // Launch only those where the hop indicates true or false
-    //
-    int nrNext = jobMeta.findNrNextJobEntries( jobEntryCopy );
-    for ( int i = 0; i < nrNext && !isStopped(); i++ ) {
-      // The next entry is...
-      final JobEntryCopy nextEntry = jobMeta.findNextJobEntry( jobEntryCopy, i );
+    execution.prevResult = prevResult;
+    execution.newResult = newResult;
+    return execution;
+  }
 
-      // See if we need to execute this...
-      final JobHopMeta hi = jobMeta.findJobHop( jobEntryCopy, nextEntry );
+  /**
+   * See if the hop from a job entry to the next one needs to be followed given the result of the job entry.
+   *
+   * @return the comment for the execution of the next job entry or null if the hop isn't followed
+   */
+  private String followHop( JobEntryCopy jobEntryCopy, JobEntryCopy nextEntry, Result newResult ) {
+    JobHopMeta hi = jobMeta.findJobHop( jobEntryCopy, nextEntry );
 
-      // The next comment...
-      final String nextComment;
-      if ( hi.isUnconditional() ) {
-        nextComment = BaseMessages.getString( PKG, "Job.Comment.FollowedUnconditional" );
+    // The next comment...
+    final String nextComment;
+    if ( hi.isUnconditional() ) {
+      nextComment = BaseMessages.getString( PKG, "Job.Comment.FollowedUnconditional" );
+    } else {
+      if ( newResult.getResult() ) {
+        nextComment = BaseMessages.getString( PKG, "Job.Comment.FollowedSuccess" );
       } else {
-        if ( newResult.getResult() ) {
-          nextComment = BaseMessages.getString( PKG, "Job.Comment.FollowedSuccess" );
-        } else {
-          nextComment = BaseMessages.getString( PKG, "Job.Comment.FollowedFailure" );
-        }
-      }
-
-      //
-      // If the link is unconditional, execute the next job entry (entries).
-      // If the start point was an evaluation and the link color is correct:
-      // green or red, execute the next job entry...
-      //
-      if ( hi.isUnconditional() || ( jobEntryCopy.evaluates() && ( !( hi.getEvaluation() ^ newResult
-          .getResult() ) ) ) ) {
-        // Start this next step!
-        if ( log.isBasic() ) {
-          log.logBasic( BaseMessages.getString( PKG, "Job.Log.StartingEntry", nextEntry.getName() ) );
-        }
-
-        // Pass along the previous result, perhaps the next job can use it...
-        // However, set the number of errors back to 0 (if it should be reset)
-        // When an evaluation is executed the errors e.g. should not be reset.
-        if ( nextEntry.resetErrorsBeforeExecution() ) {
-          newResult.setNrErrors( 0 );
-        }
-
-        // Now execute!
-        //
-        // if (we launch in parallel, fire the execution off in a new thread...
-        //
-        if ( jobEntryCopy.isLaunchingInParallel() ) {
-          threadEntries.add( nextEntry );
-
-          Runnable runnable = new Runnable() {
-            public void run() {
-              try {
-                Result threadResult = execute( nr + 1, newResult, nextEntry, jobEntryCopy, nextComment );
-                threadResults.add( threadResult );
-              } catch ( Throwable e ) {
-                log.logError( Const.getStackTracker( e ) );
-                threadExceptions.add( new KettleException( BaseMessages.getString( PKG, "Job.Log.UnexpectedError",
-                    nextEntry.toString() ), e ) );
-                Result threadResult = new Result();
-                threadResult.setResult( false );
-                threadResult.setNrErrors( 1L );
-                threadResults.add( threadResult );
-              }
-            }
-          };
-          Thread thread = new Thread( runnable );
-          threads.add( thread );
-          thread.start();
-          if ( log.isBasic() ) {
-            log.logBasic( BaseMessages.getString( PKG, "Job.Log.LaunchedJobEntryInParallel", nextEntry.getName() ) );
-          }
-        } else {
-          try {
-            // Same as before: blocks until it's done
-            //
-            res = execute( nr + 1, newResult, nextEntry, jobEntryCopy, nextComment );
-          } catch ( Throwable e ) {
-            log.logError( Const.getStackTracker( e ) );
-            throw new KettleException( BaseMessages.getString( PKG, "Job.Log.UnexpectedError", nextEntry.toString() ),
-                e );
-          }
-          if ( log.isBasic() ) {
-            log.logBasic( BaseMessages.getString( PKG, "Job.Log.FinishedJobEntry", nextEntry.getName(), res.getResult()
-                + "" ) );
-          }
-        }
+        nextComment = BaseMessages.getString( PKG, "Job.Comment.FollowedFailure" );
       }
     }
 
-    // OK, if we run in parallel, we need to wait for all the job entries to
-    // finish...
     //
-    if ( jobEntryCopy.isLaunchingInParallel() ) {
-      for ( int i = 0; i < threads.size(); i++ ) {
-        Thread thread = threads.get( i );
-        JobEntryCopy nextEntry = threadEntries.get( i );
+    // If the link is unconditional, execute the next job entry (entries).
+    // If the start point was an evaluation and the link color is correct:
+    // green or red, execute the next job entry...
+    //
+    if ( hi.isUnconditional() || ( jobEntryCopy.evaluates() && ( !( hi.getEvaluation() ^ newResult
+        .getResult() ) ) ) ) {
+      // Start this next step!
+      if ( log.isBasic() ) {
+        log.logBasic( BaseMessages.getString( PKG, "Job.Log.StartingEntry", nextEntry.getName() ) );
+      }
 
-        try {
-          thread.join();
-        } catch ( InterruptedException e ) {
-          log.logError( jobMeta.toString(), BaseMessages.getString( PKG,
-              "Job.Log.UnexpectedErrorWhileWaitingForJobEntry", nextEntry.getName() ) );
-          threadExceptions.add( new KettleException( BaseMessages.getString( PKG,
-              "Job.Log.UnexpectedErrorWhileWaitingForJobEntry", nextEntry.getName() ), e ) );
-        }
+      // Pass along the previous result, perhaps the next job can use it...
+      // However, set the number of errors back to 0 (if it should be reset)
+      // When an evaluation is executed the errors e.g. should not be reset.
+      if ( nextEntry.resetErrorsBeforeExecution() ) {
+        newResult.setNrErrors( 0 );
       }
-      // if(log.isBasic()) log.logBasic(BaseMessages.getString(PKG,
-      // "Job.Log.FinishedJobEntry",startpoint.getName(),res.getResult()+""));
+      return nextComment;
     }
+    return null;
+  }
 
+  /**
+   * Calculate the result of a job entry from the result of the last job entry executed after it and the results of
+   * its parallel branches.
+   */
+  private Result finishEntry( Result res, Result prevResult, Queue<Result> threadResults,
+    Queue<KettleException> threadExceptions ) throws KettleException {
     // Perhaps we don't have next steps??
     // In this case, return the previous result.
     if ( res == null ) {
@@ -934,6 +1150,61 @@ public class Job extends Thread implements VariableSpace, NamedParams, HasLogCha
     return res;
   }
 
+  /**
+   * The shared pool on which the parallel branches of iteratively executed jobs run.
+   */
+  private static synchronized ExecutorService getParallelExecutor() {
+    if ( parallelExecutor == null ) {
+      int maxThreads =
+          Math.max( 1, Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_JOB_ENTRY_PARALLEL_THREADS ),
+              DEFAULT_JOB_ENTRY_PARALLEL_THREADS ) );
+      final AtomicInteger threadNr = new AtomicInteger( 1 );
+      parallelExecutor =
+          new ThreadPoolExecutor( 0, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+              new ThreadFactory() {
+                @Override
+                public Thread newThread( Runnable r ) {
+                  Thread thread = Executors.defaultThreadFactory().newThread( r );
+                  thread.setDaemon( true );
+                  thread.setName( "Job entry parallel thread " + threadNr.getAndIncrement() );
+                  return thread;
+                }
+              }, new ThreadPoolExecutor.CallerRunsPolicy() );
+    }
+    return parallelExecutor;
+  }
+
+  /**
+   * The state of a job entry executed by {@link Job#executeIteratively(int, Result, JobEntryCopy, String)}: its
+   * results and the hops that still need to be followed.
+   */
+  private static class JobEntryExecution {
+    final int nr;
+    final JobEntryCopy jobEntryCopy;
+
+    /** The result passed to the job entry */
+    Result prevResult;
+    /** The result of the job entry */
+    Result newResult;
+    /** The result of the last job entry executed after this one */
+    Result res;
+
+    int nrNext;
+    int nextHop;
+    /** The job entry after this one that is currently executing */
+    JobEntryCopy nextEntry;
+
+    final Queue<Result> threadResults = new ConcurrentLinkedQueue<Result>();
+    final Queue<KettleException> threadExceptions = new ConcurrentLinkedQueue<KettleException>();
+    final List<JobEntryCopy> threadEntries = new ArrayList<JobEntryCopy>();
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+    JobEntryExecution( int nr, JobEntryCopy jobEntryCopy ) {
+      this.nr = nr;
+      this.jobEntryCopy = jobEntryCopy;
+    }
+  }
+
   /**
    * Wait until this job has finished.
    */
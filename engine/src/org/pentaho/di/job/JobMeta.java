@@ -70,6 +70,7 @@ import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.util.StringUtil;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.core.xml.XMLDocumentCache;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.core.xml.XMLInterface;
 import org.pentaho.di.i18n.BaseMessages;
@@ -725,7 +726,7 @@ public class JobMeta extends AbstractMeta
     this.metaStore = metaStore;
     try {
       // OK, try to load using the VFS stuff...
-      Document doc = XMLHandler.loadXMLFile( KettleVFS.getFileObject( fname, this ) );
+      Document doc = XMLDocumentCache.getInstance().loadXMLFile( KettleVFS.getFileObject( fname, this ) );
       if ( doc != null ) {
         // The jobnode
         Node jobnode = XMLHandler.getSubNode( doc, XML_TAG );
@@ -988,10 +989,9 @@ public class JobMeta extends AbstractMeta
       //
       // Read the database connections
       //
-      int nr = XMLHandler.countNodes( jobnode, "connection" );
-      Set<String> privateDatabases = new HashSet<String>( nr );
-      for ( int i = 0; i < nr; i++ ) {
-        Node dbnode = XMLHandler.getSubNodeByNr( jobnode, "connection", i );
+      List<Node> dbnodes = XMLHandler.getNodes( jobnode, "connection" );
+      Set<String> privateDatabases = new HashSet<String>( dbnodes.size() );
+      for ( Node dbnode : dbnodes ) {
         DatabaseMeta dbcon = new DatabaseMeta( dbnode );
         dbcon.shareVariablesWith( this );
         if ( !dbcon.isShared() ) {
@@ -1019,9 +1019,7 @@ public class JobMeta extends AbstractMeta
       // Read the slave servers...
       //
       Node slaveServersNode = XMLHandler.getSubNode( jobnode, XML_TAG_SLAVESERVERS );
-      int nrSlaveServers = XMLHandler.countNodes( slaveServersNode, SlaveServer.XML_TAG );
-      for ( int i = 0; i < nrSlaveServers; i++ ) {
-        Node slaveServerNode = XMLHandler.getSubNodeByNr( slaveServersNode, SlaveServer.XML_TAG, i );
+      for ( Node slaveServerNode : XMLHandler.getNodes( slaveServersNode, SlaveServer.XML_TAG ) ) {
         SlaveServer slaveServer = new SlaveServer( slaveServerNode );
         slaveServer.shareVariablesWith( this );
 
@@ -1078,9 +1076,7 @@ public class JobMeta extends AbstractMeta
        * read the job entries...
        */
       Node entriesnode = XMLHandler.getSubNode( jobnode, "entries" );
-      int tr = XMLHandler.countNodes( entriesnode, "entry" );
-      for ( int i = 0; i < tr; i++ ) {
-        Node entrynode = XMLHandler.getSubNodeByNr( entriesnode, "entry", i );
+      for ( Node entrynode : XMLHandler.getNodes( entriesnode, "entry" ) ) {
         // System.out.println("Reading entry:\n"+entrynode);
 
         JobEntryCopy je = new JobEntryCopy( entrynode, databases, slaveServers, rep, metaStore );
@@ -1120,18 +1116,14 @@ public class JobMeta extends AbstractMeta
       }
 
       Node hopsnode = XMLHandler.getSubNode( jobnode, "hops" );
-      int ho = XMLHandler.countNodes( hopsnode, "hop" );
-      for ( int i = 0; i < ho; i++ ) {
-        Node hopnode = XMLHandler.getSubNodeByNr( hopsnode, "hop", i );
+      for ( Node hopnode : XMLHandler.getNodes( hopsnode, "hop" ) ) {
         JobHopMeta hi = new JobHopMeta( hopnode, this );
         jobhops.add( hi );
       }
 
       // Read the notes...
       Node notepadsnode = XMLHandler.getSubNode( jobnode, "notepads" );
-      int nrnotes = XMLHandler.countNodes( notepadsnode, "notepad" );
-      for ( int i = 0; i < nrnotes; i++ ) {
-        Node notepadnode = XMLHandler.getSubNodeByNr( notepadsnode, "notepad", i );
+      for ( Node notepadnode : XMLHandler.getNodes( notepadsnode, "notepad" ) ) {
         NotePadMeta ni = new NotePadMeta( notepadnode );
         notes.add( ni );
       }
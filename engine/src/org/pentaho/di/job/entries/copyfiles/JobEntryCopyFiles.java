@@ -53,6 +53,7 @@ import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.FileOperationExecutor;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -407,11 +408,15 @@ public class JobEntryCopyFiles extends JobEntryBase implements Cloneable, JobEnt
   }
 
   private boolean ProcessFileFolder( String sourcefilefoldername, String destinationfilefoldername, String wildcard,
-      Job parentJob, Result result ) {
+      final Job parentJob, Result result ) {
     boolean entrystatus = false;
     FileObject sourcefilefolder = null;
     FileObject destinationfilefolder = null;
 
+    // The files are selected, copied and removed by KETTLE_FILE_OPERATION_THREADS threads
+    //
+    FileOperationExecutor executor = new FileOperationExecutor( FileOperationExecutor.getThreads( this ), log );
+
     // Clear list files to remove after copy process
     // This list is also added to result files name
     list_files_remove.clear();
@@ -476,7 +481,7 @@ public class JobEntryCopyFiles extends JobEntryBase implements Cloneable, JobEnt
               TextFileSelector textFileSelector =
                 new TextFileSelector( sourcefilefolder, destinationfilefolder, realWildcard, parentJob );
               try {
-                destinationfilefolder.copyFrom( sourcefilefolder, textFileSelector );
+                executor.copyFrom( destinationfilefolder, sourcefilefolder, textFileSelector );
               } finally {
                 textFileSelector.shutdown();
               }
@@ -489,7 +494,7 @@ public class JobEntryCopyFiles extends JobEntryBase implements Cloneable, JobEnt
               FileObject removeFile;
 
               for ( Iterator<String> iter = list_files_remove.iterator(); iter.hasNext() && !parentJob.isStopped(); ) {
-                String fileremoventry = iter.next();
+                final String fileremoventry = iter.next();
                 removeFile = null; // re=null each iteration
                 // Try to get the file relative to the existing connection
                 if ( fileremoventry.startsWith( sourceFilefoldername ) ) {
@@ -503,22 +508,29 @@ public class JobEntryCopyFiles extends JobEntryBase implements Cloneable, JobEnt
                   removeFile = KettleVFS.getFileObject( fileremoventry, this );
                 }
 
-                // Remove ONLY Files
-                if ( removeFile.getType() == FileType.FILE ) {
-                  boolean deletefile = removeFile.delete();
-                  logBasic( " ------ " );
-                  if ( !deletefile ) {
-                    logError( "      "
-                      + BaseMessages.getString(
-                        PKG, "JobCopyFiles.Error.Exception.CanRemoveFileFolder", fileremoventry ) );
-                  } else {
-                    if ( isDetailed() ) {
-                      logDetailed( "      "
-                        + BaseMessages.getString( PKG, "JobCopyFiles.Log.FileFolderRemoved", fileremoventry ) );
+                executor.execute( removeFile, new FileOperationExecutor.FileOperation() {
+                  public boolean process( FileObject removeFile ) throws Exception {
+                    // Remove ONLY Files
+                    if ( removeFile.getType() != FileType.FILE ) {
+                      return true;
+                    }
+                    boolean deletefile = removeFile.delete();
+                    logBasic( " ------ " );
+                    if ( !deletefile ) {
+                      logError( "      "
+                        + BaseMessages.getString(
+                          PKG, "JobCopyFiles.Error.Exception.CanRemoveFileFolder", fileremoventry ) );
+                    } else {
+                      if ( isDetailed() ) {
+                        logDetailed( "      "
+                          + BaseMessages.getString( PKG, "JobCopyFiles.Log.FileFolderRemoved", fileremoventry ) );
+                      }
                     }
+                    return deletefile;
                   }
-                }
+                } );
               }
+              executor.waitUntilFinished();
             }
 
             // Add files to result files name
@@ -581,6 +593,11 @@ public class JobEntryCopyFiles extends JobEntryBase implements Cloneable, JobEnt
         PKG, "JobCopyFiles.Error.Exception.CopyProcess", realSourceFilefoldername,
         realDestinationFilefoldername, e.getMessage() ), e );
     } finally {
+      try {
+        executor.shutdown();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
       if ( sourcefilefolder != null ) {
         try {
           sourcefilefolder.close();
@@ -925,16 +942,22 @@ public class JobEntryCopyFiles extends JobEntryBase implements Cloneable, JobEnt
         }
 
       }
+      // Files can be selected by several threads at once
+      //
       if ( returncode && remove_source_files ) {
         // add this folder/file to remove files
         // This list will be fetched and all entries files
         // will be removed
-        list_files_remove.add( info.getFile().toString() );
+        synchronized ( list_files_remove ) {
+          list_files_remove.add( info.getFile().toString() );
+        }
       }
 
       if ( returncode && add_result_filesname ) {
         // add this folder/file to result files name
-        list_add_result.add( addFileNameString ); // was a NPE before with the file_name=null above in the finally
+        synchronized ( list_add_result ) {
+          list_add_result.add( addFileNameString ); // was a NPE before with the file_name=null above in the finally
+        }
       }
 
       return returncode;
@@ -49,6 +49,7 @@ import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.FileOperationExecutor;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -296,7 +297,16 @@ public class JobEntryDeleteFiles extends JobEntryBase implements Cloneable, JobE
             logDetailed( BaseMessages.getString( PKG, "JobEntryDeleteFiles.ProcessingFolder", path ) );
           }
 
-          int totalDeleted = fileFolder.delete( new TextFileSelector( fileFolder.toString(), wildcard, parentJob ) );
+          // The files are listed and deleted by KETTLE_FILE_OPERATION_THREADS threads
+          //
+          FileOperationExecutor executor = new FileOperationExecutor( FileOperationExecutor.getThreads( this ), log );
+          int totalDeleted;
+          try {
+            totalDeleted =
+              executor.delete( fileFolder, new TextFileSelector( fileFolder.toString(), wildcard, parentJob ) );
+          } finally {
+            executor.shutdown();
+          }
 
           if ( log.isDetailed() ) {
             logDetailed(
@@ -344,6 +354,7 @@ public class JobEntryDeleteFiles extends JobEntryBase implements Cloneable, JobE
     String fileWildcard = null;
     String sourceFolder = null;
     Job parentjob;
+    Pattern pattern;
 
     public TextFileSelector( String sourcefolderin, String filewildcard, Job parentJob ) {
 
@@ -353,6 +364,7 @@ public class JobEntryDeleteFiles extends JobEntryBase implements Cloneable, JobE
 
       if ( !Const.isEmpty( filewildcard ) ) {
         fileWildcard = filewildcard;
+        pattern = Pattern.compile( fileWildcard );
       }
       parentjob = parentJob;
     }
@@ -368,7 +380,7 @@ public class JobEntryDeleteFiles extends JobEntryBase implements Cloneable, JobE
           if ( !info.getFile().getParent().equals( info.getBaseFolder() ) ) {
             // Not in the Base Folder..Only if include sub folders
             if ( includeSubfolders
-              && ( info.getFile().getType() == FileType.FILE ) && GetFileWildcard( shortFilename, fileWildcard ) ) {
+              && ( info.getFile().getType() == FileType.FILE ) && GetFileWildcard( shortFilename, pattern ) ) {
               if ( log.isDetailed() ) {
                 logDetailed( BaseMessages.getString( PKG, "JobEntryDeleteFiles.DeletingFile", info
                   .getFile().toString() ) );
@@ -377,7 +389,7 @@ public class JobEntryDeleteFiles extends JobEntryBase implements Cloneable, JobE
             }
           } else {
             // In the Base Folder...
-            if ( ( info.getFile().getType() == FileType.FILE ) && GetFileWildcard( shortFilename, fileWildcard ) ) {
+            if ( ( info.getFile().getType() == FileType.FILE ) && GetFileWildcard( shortFilename, pattern ) ) {
               if ( log.isDetailed() ) {
                 logDetailed( BaseMessages.getString( PKG, "JobEntryDeleteFiles.DeletingFile", info
                   .getFile().toString() ) );
@@ -406,14 +418,13 @@ public class JobEntryDeleteFiles extends JobEntryBase implements Cloneable, JobE
   /**********************************************************
    *
    * @param selectedfile
-   * @param wildcard
-   * @return True if the selectedfile matches the wildcard
+   * @param pattern
+   * @return True if the selectedfile matches the wildcard pattern
    **********************************************************/
-  private boolean GetFileWildcard( String selectedfile, String wildcard ) {
+  private boolean GetFileWildcard( String selectedfile, Pattern pattern ) {
     boolean getIt = true;
 
-    if ( !Const.isEmpty( wildcard ) ) {
-      Pattern pattern = Pattern.compile( wildcard );
+    if ( pattern != null ) {
       // First see if the file matches the regular expression!
       Matcher matcher = pattern.matcher( selectedfile );
       getIt = matcher.matches();
@@ -48,6 +48,7 @@ import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.FileOperationExecutor;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -103,12 +104,24 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
   public boolean create_move_to_folder;
   public boolean simulate;
 
-  int NrErrors = 0;
-  int NrSuccess = 0;
-  boolean successConditionBroken = false;
-  boolean successConditionBrokenExit = false;
+  // Updated by the threads moving the files, read by the thread listing them
+  //
+  volatile int NrErrors = 0;
+  volatile int NrSuccess = 0;
+  volatile boolean successConditionBroken = false;
+  volatile boolean successConditionBrokenExit = false;
   int limitFiles = 0;
 
+  private volatile Pattern wildcardPattern;
+
+  // The names of the targets depend on the files already there: files with the same name are moved one at a time
+  //
+  private final Object[] targetLocks = createLocks( 64 );
+
+  // Moving files into a folder that doesn't exist yet creates it, one thread at a time
+  //
+  private final Object folderLock = new Object();
+
   public JobEntryMoveFiles( String n ) {
     super( n, "" );
     simulate = false;
@@ -540,13 +553,17 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
   }
 
   private boolean ProcessFileFolder( String sourcefilefoldername, String destinationfilefoldername,
-    String wildcard, Job parentJob, Result result, String MoveToFolder ) {
+    String wildcard, final Job parentJob, final Result result, String MoveToFolder ) {
     boolean entrystatus = false;
     FileObject sourcefilefolder = null;
     FileObject destinationfilefolder = null;
     FileObject movetofolderfolder = null;
     FileObject Currentfile = null;
 
+    // The files of a folder are moved by KETTLE_FILE_OPERATION_THREADS threads
+    //
+    FileOperationExecutor executor = new FileOperationExecutor( FileOperationExecutor.getThreads( this ), log );
+
     // Get real source, destination file and wildcard
     String realSourceFilefoldername = environmentSubstitute( sourcefilefoldername );
     String realDestinationFilefoldername = environmentSubstitute( destinationfilefoldername );
@@ -662,6 +679,10 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
               } );
 
               if ( fileObjects != null ) {
+                final FileObject sourceFolder = sourcefilefolder;
+                final String destinationFolderName = realDestinationFilefoldername;
+                final String wildcardName = realWildcard;
+                final FileObject moveToFolder = movetofolderfolder;
                 for ( int j = 0; j < fileObjects.length && !parentJob.isStopped(); j++ ) {
                   // Success condition broken?
                   if ( successConditionBroken ) {
@@ -670,19 +691,38 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
                         + NrErrors ) );
                       successConditionBrokenExit = true;
                     }
+                    executor.waitUntilFinished();
                     return false;
                   }
                   // Fetch files in list one after one ...
                   Currentfile = fileObjects[j];
 
-                  if ( !MoveOneFile(
-                    Currentfile, sourcefilefolder, realDestinationFilefoldername, realWildcard, parentJob,
-                    result, movetofolderfolder ) ) {
-                    // Update Errors
-                    updateErrors();
+                  // A folder is moved with everything in it: the files before it have to be moved first
+                  //
+                  if ( Currentfile.getType() == FileType.FOLDER ) {
+                    executor.waitUntilFinished();
+                    if ( !MoveOneFile(
+                      Currentfile, sourcefilefolder, realDestinationFilefoldername, realWildcard, parentJob,
+                      result, movetofolderfolder ) ) {
+                      // Update Errors
+                      updateErrors();
+                    }
+                  } else {
+                    executor.execute( Currentfile, new FileOperationExecutor.FileOperation() {
+                      public boolean process( FileObject file ) throws Exception {
+                        if ( !MoveOneFile(
+                          file, sourceFolder, destinationFolderName, wildcardName, parentJob, result,
+                          moveToFolder ) ) {
+                          // Update Errors
+                          updateErrors();
+                          return false;
+                        }
+                        return true;
+                      }
+                    } );
                   }
-
                 }
+                executor.waitUntilFinished();
               }
             }
 
@@ -700,6 +740,11 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
       logError( BaseMessages.getString( PKG, "JobMoveFiles.Error.Exception.MoveProcess", realSourceFilefoldername
         .toString(), destinationfilefolder.toString(), e.getMessage() ) );
     } finally {
+      try {
+        executor.shutdown();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
       if ( sourcefilefolder != null ) {
         try {
           sourcefilefolder.close();
@@ -732,15 +777,45 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
     return entrystatus;
   }
 
+  private static Object[] createLocks( int nrLocks ) {
+    Object[] locks = new Object[nrLocks];
+    for ( int i = 0; i < nrLocks; i++ ) {
+      locks[i] = new Object();
+    }
+    return locks;
+  }
+
   private boolean MoveFile( String shortfilename, FileObject sourcefilename, FileObject destinationfilename,
     FileObject movetofolderfolder, Job parentJob, Result result ) {
+    // The destination, unique and move-to names are all derived from the short filename
+    //
+    synchronized ( targetLocks[( shortfilename.hashCode() & Integer.MAX_VALUE ) % targetLocks.length] ) {
+      return MoveFileToTarget( shortfilename, sourcefilename, destinationfilename, movetofolderfolder, parentJob,
+        result );
+    }
+  }
+
+  private void moveTo( FileObject sourcefilename, FileObject destinationfilename ) throws IOException {
+    FileObject parent = destinationfilename.getParent();
+    if ( parent != null ) {
+      synchronized ( folderLock ) {
+        if ( !parent.exists() ) {
+          parent.createFolder();
+        }
+      }
+    }
+    sourcefilename.moveTo( destinationfilename );
+  }
+
+  private boolean MoveFileToTarget( String shortfilename, FileObject sourcefilename, FileObject destinationfilename,
+    FileObject movetofolderfolder, Job parentJob, Result result ) {
 
     FileObject destinationfile = null;
     boolean retval = false;
     try {
       if ( !destinationfilename.exists() ) {
         if ( !simulate ) {
-          sourcefilename.moveTo( destinationfilename );
+          moveTo( sourcefilename, destinationfilename );
         }
         if ( log.isDetailed() ) {
           logDetailed( BaseMessages.getString( PKG, "JobMoveFiles.Log.FileMoved", sourcefilename
@@ -761,7 +836,7 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
         }
         if ( iffileexists.equals( "overwrite_file" ) ) {
           if ( !simulate ) {
-            sourcefilename.moveTo( destinationfilename );
+            moveTo( sourcefilename, destinationfilename );
           }
           if ( log.isDetailed() ) {
             logDetailed( BaseMessages.getString( PKG, "JobMoveFiles.Log.FileOverwrite", destinationfilename
@@ -791,9 +866,16 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
           String movetofilenamefull =
             destinationfilename.getParent().toString() + Const.FILE_SEPARATOR + short_filename;
           destinationfile = KettleVFS.getFileObject( movetofilenamefull, this );
+          // The previous file with the same name may have been moved within the same millisecond
+          while ( destinationfile.exists() ) {
+            destinationfile.close();
+            short_filename = getMoveDestinationFilename( shortfilename, "ddMMyyyy_HHmmssSSS" );
+            movetofilenamefull = destinationfilename.getParent().toString() + Const.FILE_SEPARATOR + short_filename;
+            destinationfile = KettleVFS.getFileObject( movetofilenamefull, this );
+          }
 
           if ( !simulate ) {
-            sourcefilename.moveTo( destinationfile );
+            moveTo( sourcefilename, destinationfile );
           }
           if ( log.isDetailed() ) {
             logDetailed( BaseMessages.getString( PKG, "JobMoveFiles.Log.FileMoved", sourcefilename
@@ -832,7 +914,7 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
           destinationfile = KettleVFS.getFileObject( movetofilenamefull, this );
           if ( !destinationfile.exists() ) {
             if ( !simulate ) {
-              sourcefilename.moveTo( destinationfile );
+              moveTo( sourcefilename, destinationfile );
             }
             if ( log.isDetailed() ) {
               logDetailed( BaseMessages.getString( PKG, "JobMoveFiles.Log.FileMoved", sourcefilename
@@ -847,7 +929,7 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
           } else {
             if ( ifmovedfileexists.equals( "overwrite_file" ) ) {
               if ( !simulate ) {
-                sourcefilename.moveTo( destinationfile );
+                moveTo( sourcefilename, destinationfile );
               }
               if ( log.isDetailed() ) {
                 logDetailed( BaseMessages.getString( PKG, "JobMoveFiles.Log.FileOverwrite", destinationfile
@@ -863,17 +945,19 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
               retval = true;
             } else if ( ifmovedfileexists.equals( "unique_name" ) ) {
               SimpleDateFormat daf = new SimpleDateFormat();
-              Date now = new Date();
               daf.applyPattern( "ddMMyyyy_HHmmssSSS" );
-              String dt = daf.format( now );
-              short_filename += "_" + dt;
-
-              String destinationfilenamefull =
-                movetofolderfolder.toString() + Const.FILE_SEPARATOR + short_filename;
-              destinationfile = KettleVFS.getFileObject( destinationfilenamefull, this );
+              String movedShortFilename = short_filename;
+              do {
+                destinationfile.close();
+                // The previous file with the same name may have been moved within the same millisecond
+                short_filename = movedShortFilename + "_" + daf.format( new Date() );
+                String destinationfilenamefull =
+                  movetofolderfolder.toString() + Const.FILE_SEPARATOR + short_filename;
+                destinationfile = KettleVFS.getFileObject( destinationfilenamefull, this );
+              } while ( destinationfile.exists() );
 
               if ( !simulate ) {
-                sourcefilename.moveTo( destinationfile );
+                moveTo( sourcefilename, destinationfile );
               }
               if ( log.isDetailed() ) {
                 logDetailed( BaseMessages.getString( PKG, "JobMoveFiles.Log.FileMoved", destinationfile
@@ -1006,7 +1090,7 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
     return entrystatus;
   }
 
-  private void updateErrors() {
+  private synchronized void updateErrors() {
     NrErrors++;
     if ( checkIfSuccessConditionBroken() ) {
       // Success condition was broken
@@ -1023,7 +1107,7 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
     return retval;
   }
 
-  private void updateSuccess() {
+  private synchronized void updateSuccess() {
     NrSuccess++;
   }
 
@@ -1032,7 +1116,10 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
       ResultFile resultFile =
         new ResultFile( ResultFile.FILE_TYPE_GENERAL, KettleVFS.getFileObject( fileaddentry, this ), parentJob
           .getJobname(), toString() );
-      result.getResultFiles().put( resultFile.getFile().toString(), resultFile );
+      // The files are moved by several threads
+      synchronized ( result ) {
+        result.getResultFiles().put( resultFile.getFile().toString(), resultFile );
+      }
 
       if ( log.isDebug() ) {
         logDebug( " ------ " );
@@ -1098,7 +1185,13 @@ public class JobEntryMoveFiles extends JobEntryBase implements Cloneable, JobEnt
     boolean getIt = true;
 
     if ( !Const.isEmpty( wildcard ) ) {
-      pattern = Pattern.compile( wildcard );
+      // The same wildcard is matched against every file of a folder, only compile it once
+      //
+      pattern = wildcardPattern;
+      if ( pattern == null || !pattern.pattern().equals( wildcard ) ) {
+        pattern = Pattern.compile( wildcard );
+        wildcardPattern = pattern;
+      }
       // First see if the file matches the regular expression!
       if ( pattern != null ) {
         Matcher matcher = pattern.matcher( selectedfile );
@@ -33,6 +33,7 @@ import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ObjectLocationSpecificationMethod;
 import org.pentaho.di.core.Result;
+import org.pentaho.di.core.ResultRowList;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.SQLStatement;
@@ -73,6 +74,7 @@ import org.pentaho.di.resource.ResourceReference;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransExecutionConfiguration;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransMetaCache;
 import org.pentaho.di.trans.cluster.TransSplitter;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.www.SlaveServerTransStatus;
@@ -703,7 +705,7 @@ public class JobEntryTrans extends JobEntryBase implements Cloneable, JobEntryIn
 
     RowMetaAndData resultRow = null;
     boolean first = true;
-    List<RowMetaAndData> rows = new ArrayList<RowMetaAndData>( result.getRows() );
+    List<RowMetaAndData> rows = ResultRowList.copyOf( result.getRows() );
 
     while ( ( first && !execPerRow )
       || ( execPerRow && rows != null && iteration < rows.size() && result.getNrErrors() == 0 )
@@ -756,7 +758,7 @@ public class JobEntryTrans extends JobEntryBase implements Cloneable, JobEntryIn
         }
 
         if ( clearResultRows ) {
-          previousResult.setRows( new ArrayList<RowMetaAndData>() );
+          previousResult.setRows( new ResultRowList() );
         }
 
         if ( clearResultFiles ) {
@@ -1158,6 +1160,10 @@ public class JobEntryTrans extends JobEntryBase implements Cloneable, JobEntryIn
       iteration++;
     }
 
+    // Release the copy of the input rows, removing the rows spilled to disk that no other list uses
+    //
+    rows.clear();
+
     if ( setLogfile ) {
       if ( logChannelFileWriter != null ) {
         logChannelFileWriter.stopLogging();
@@ -1234,7 +1240,7 @@ public class JobEntryTrans extends JobEntryBase implements Cloneable, JobEntryIn
           }
           if ( transMeta == null ) {
             logBasic( "Loading transformation from XML file [" + realFilename + "]" );
-            transMeta = new TransMeta( realFilename, metaStore, null, true, this, null );
+            transMeta = TransMetaCache.getInstance().loadTransMeta( realFilename, metaStore, null, true, this );
           }
           break;
         case REPOSITORY_BY_NAME:
@@ -1257,12 +1263,15 @@ public class JobEntryTrans extends JobEntryBase implements Cloneable, JobEntryIn
           } else {
             // rep is null, let's try loading by filename
             try {
-              transMeta = new TransMeta( realDirectory + "/" + transname, metaStore, null, true, this, null );
+              transMeta =
+                TransMetaCache.getInstance().loadTransMeta( realDirectory + "/" + transname, metaStore, null, true,
+                  this );
             } catch ( KettleException ke ) {
               try {
                 // add .ktr extension and try again
-                transMeta = new TransMeta( realDirectory + "/" + transname + "." + Const.STRING_TRANS_DEFAULT_EXT,
-                    metaStore, null, true, this, null );
+                transMeta = TransMetaCache.getInstance().loadTransMeta(
+                    realDirectory + "/" + transname + "." + Const.STRING_TRANS_DEFAULT_EXT, metaStore, null, true,
+                    this );
               } catch ( KettleException ke2 ) {
                 throw new KettleException( BaseMessages.getString( PKG, "JobTrans.Exception.NoRepDefined" ), ke2 );
               }
@@ -455,7 +455,8 @@ public class JobEntryZipFile extends JobEntryBase implements Cloneable, JobEntry
 
             // Prepare Zip File
             buffer = new byte[18024];
-            dest = KettleVFS.getOutputStream( localrealZipfilename, false );
+            // The zip stream is buffered here, a local zip file is written without the VFS buffer
+            dest = KettleVFS.getUnbufferedOutputStream( localrealZipfilename, false );
             buff = new BufferedOutputStreamWithCloseDetection( dest );
             out = new ZipOutputStream( buff );
 
@@ -555,8 +556,8 @@ public class JobEntryZipFile extends JobEntryBase implements Cloneable, JobEntry
                     + localSourceFilename + BaseMessages.getString( PKG, "JobZipFiles.Add_FilesToZip3.Label" ) );
                 }
 
-                // Associate a file input stream for the current file
-                InputStream in = KettleVFS.getInputStream( file );
+                // Associate a file input stream for the current file, it's read in large blocks
+                InputStream in = KettleVFS.getUnbufferedInputStream( file );
 
                 // Add ZIP entry to output stream.
                 //
@@ -50,6 +50,7 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.row.ValueMetaAndData;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.core.xml.XMLDocumentCache;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.core.xml.XMLInterface;
 import org.pentaho.di.job.JobMeta;
@@ -902,7 +903,7 @@ public class KettleFileRepository extends AbstractRepository {
       //
       String filename = calcDirectoryName( null ) + id.getId();
       FileObject fileObject = KettleVFS.getFileObject( filename );
-      Document document = XMLHandler.loadXMLFile( fileObject );
+      Document document = XMLDocumentCache.getInstance().loadXMLFile( fileObject );
       Node node = XMLHandler.getSubNode( document, tag );
 
       return node;
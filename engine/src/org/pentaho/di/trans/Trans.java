@@ -57,6 +57,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.cluster.SlaveServer;
+import org.pentaho.di.core.AdaptiveRowSet;
 import org.pentaho.di.core.BlockingBatchingRowSet;
 import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.Const;
@@ -66,6 +67,7 @@ import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
+import org.pentaho.di.core.ResultRowList;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
@@ -99,6 +101,7 @@ import org.pentaho.di.core.logging.MetricsRegistry;
 import org.pentaho.di.core.logging.PerformanceLogTable;
 import org.pentaho.di.core.logging.StepLogTable;
 import org.pentaho.di.core.logging.TransLogTable;
+import org.pentaho.di.core.memory.MemoryManager;
 import org.pentaho.di.core.metrics.MetricsDuration;
 import org.pentaho.di.core.metrics.MetricsSnapshotInterface;
 import org.pentaho.di.core.metrics.MetricsUtil;
@@ -111,6 +114,8 @@ import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.vfs.FileMetadataCache;
+import org.pentaho.di.core.vfs.HasFileMetadataCache;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -124,6 +129,7 @@ import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.resource.ResourceUtil;
 import org.pentaho.di.resource.TopLevelResource;
 import org.pentaho.di.trans.cluster.TransSplitter;
+import org.pentaho.di.trans.performance.AdaptiveRowSetManager;
 import org.pentaho.di.trans.performance.StepPerformanceSnapShot;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
@@ -157,7 +163,7 @@ import org.pentaho.metastore.api.IMetaStore;
  *
  */
 public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface, LoggingObjectInterface,
-    ExecutorInterface, ExtensionDataInterface {
+    ExecutorInterface, ExtensionDataInterface, HasFileMetadataCache {
 
   /** The package name, used for internationalization of messages. */
   private static Class<?> PKG = Trans.class; // for i18n purposes, needed by Translator2!!
@@ -333,6 +339,18 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
   /** The step performance snapshot timer. */
   private Timer stepPerformanceSnapShotTimer;
 
+  /** The manager of the adaptive row sets, null if adaptive row sets are not used. */
+  private AdaptiveRowSetManager adaptiveRowSetManager;
+
+  /** The timer adjusting the capacities of the adaptive row sets. */
+  private Timer adaptiveRowSetTimer;
+
+  /** Keeps track of the memory used by the rows kept in memory by the steps. */
+  private MemoryManager memoryManager;
+
+  /** Keeps the metadata of the files listed by the steps, null if the transformation wasn't prepared yet. */
+  private FileMetadataCache fileMetadataCache;
+
   /** A list of listeners attached to the transformation. */
   private List<TransListener> transListeners;
 
@@ -433,7 +451,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     activeSubtransformations = new HashMap<String, Trans>();
     activeSubjobs = new HashMap<String, Job>();
 
-    resultRows = new ArrayList<RowMetaAndData>();
+    resultRows = new ResultRowList();
     resultFiles = new ArrayList<ResultFile>();
     counters = new Hashtable<String, Counter>();
 
@@ -701,6 +719,26 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     steps = new ArrayList<StepMetaDataCombi>();
     rowsets = new ArrayList<RowSet>();
 
+    long memoryLimitMb = Const.toLong( getVariable( Const.KETTLE_TRANS_MEMORY_LIMIT_MB ), 0L );
+    memoryManager =
+        new MemoryManager( getName(), memoryLimitMb * 1024 * 1024, MemoryManager.OverflowPolicy.getPolicy(
+            getVariable( Const.KETTLE_MEMORY_OVERFLOW_POLICY ) ), MemoryManager.getGlobalInstance() );
+
+    // Every execution starts with a fresh view on the files
+    //
+    fileMetadataCache = FileMetadataCache.create( this );
+
+    if ( transMeta.getTransformationType() == TransMeta.TransformationType.Normal
+        && "Y".equalsIgnoreCase( getVariable( Const.KETTLE_ADAPTIVE_ROWSET, "N" ) ) ) {
+      int minSize = Const.toInt( getVariable( Const.KETTLE_ADAPTIVE_ROWSET_MIN_SIZE ), Const.ADAPTIVE_ROWSET_MIN_SIZE );
+      int maxSize = Const.toInt( getVariable( Const.KETTLE_ADAPTIVE_ROWSET_MAX_SIZE ), Const.ADAPTIVE_ROWSET_MAX_SIZE );
+      long memoryMb =
+          Const.toLong( getVariable( Const.KETTLE_ADAPTIVE_ROWSET_MEMORY_MB ), Const.ADAPTIVE_ROWSET_MEMORY_MB );
+      adaptiveRowSetManager = new AdaptiveRowSetManager( minSize, maxSize, memoryMb * 1024 * 1024 );
+    } else {
+      adaptiveRowSetManager = null;
+    }
+
     List<StepMeta> hopsteps = transMeta.getTransHopSteps( false );
 
     if ( log.isDetailed() ) {
@@ -791,7 +829,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 //
                 Boolean batchingRowSet =
                     ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
-                if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
+                if ( adaptiveRowSetManager != null ) {
+                  rowSet = createAdaptiveRowSet();
+                } else if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
@@ -840,7 +880,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // distribution...
           for ( int s = 0; s < thisCopies; s++ ) {
             for ( int t = 0; t < nextCopies; t++ ) {
-              BlockingRowSet rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              RowSet rowSet =
+                  adaptiveRowSetManager != null ? createAdaptiveRowSet() : new BlockingRowSet( transMeta
+                      .getSizeRowset() );
               rowSet.setThreadNameFromToCopy( thisStep.getName(), s, nextStep.getName(), t );
               rowsets.add( rowSet );
               if ( log.isDetailed() ) {
@@ -1276,6 +1318,21 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       stepPerformanceSnapShotTimer.schedule( timerTask, 100, transMeta.getStepPerformanceCapturingDelay() );
     }
 
+    if ( adaptiveRowSetManager != null && adaptiveRowSetManager.nrRowSets() > 0 ) {
+      int interval =
+          Const.toInt( getVariable( Const.KETTLE_ADAPTIVE_ROWSET_INTERVAL ), Const.ADAPTIVE_ROWSET_INTERVAL );
+      adaptiveRowSetTimer = new Timer( "adaptiveRowSet Timer: " + transMeta.getName(), true );
+      TimerTask timerTask = new TimerTask() {
+        @Override
+        public void run() {
+          if ( !isFinished() ) {
+            adaptiveRowSetManager.adjust();
+          }
+        }
+      };
+      adaptiveRowSetTimer.schedule( timerTask, interval, interval );
+    }
+
     // Now start a thread to monitor the running transformation...
     //
     setFinished( false );
@@ -1303,6 +1360,14 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           stepPerformanceSnapShotTimer.cancel();
         }
 
+        // Stop adjusting the row sets and report the hops that were the bottleneck.
+        //
+        if ( adaptiveRowSetTimer != null ) {
+          adaptiveRowSetTimer.cancel();
+          adaptiveRowSetTimer = null;
+          logRowSetBottlenecks();
+        }
+
         setFinished( true );
         running = false; // no longer running
 
@@ -1530,6 +1595,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         }
         // Make the difference...
         //
+        snapShot.setTimingStatistics( step.getTimingStatistics() );
         snapShot.diff( previous, step.rowsetInputSize(), step.rowsetOutputSize() );
         synchronized ( stepPerformanceSnapShots ) {
           snapShotList.add( snapShot );
@@ -1656,6 +1722,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
   private void setFinished( boolean newValue ) {
     finished.set( newValue );
+    if ( newValue && fileMetadataCache != null ) {
+      fileMetadataCache.clear();
+    }
   }
 
   public boolean isFinishedOrStopped() {
@@ -1780,6 +1849,60 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     return sid.step.getProcessed();
   }
 
+  /**
+   * Creates a new adaptive row set with the configured row set size as initial capacity and registers it with the
+   * adaptive row set manager.
+   *
+   * @return the new row set
+   */
+  private RowSet createAdaptiveRowSet() {
+    AdaptiveRowSet rowSet = new AdaptiveRowSet( transMeta.getSizeRowset() );
+    adaptiveRowSetManager.addRowSet( rowSet );
+    return rowSet;
+  }
+
+  /**
+   * Logs the hops on which the producing step had to wait the most on the consuming step.
+   */
+  private void logRowSetBottlenecks() {
+    List<AdaptiveRowSetManager.HopStatus> bottlenecks = adaptiveRowSetManager.getBottlenecks();
+    for ( int i = 0; i < bottlenecks.size() && i < 5; i++ ) {
+      AdaptiveRowSetManager.HopStatus hop = bottlenecks.get( i );
+      if ( hop.getBottleneckRatio() < AdaptiveRowSetManager.BLOCKED_RATIO ) {
+        break;
+      }
+      log.logBasic( BaseMessages.getString( PKG, "Trans.Log.RowSetBottleneck", hop.toString() ) );
+    }
+  }
+
+  /**
+   * Gets the memory manager the steps of this transformation reserve the memory for their rows from.
+   *
+   * @return the memory manager, null if the transformation wasn't prepared for execution yet
+   */
+  public MemoryManager getMemoryManager() {
+    return memoryManager;
+  }
+
+  /**
+   * Gets the cache of the existence, type, size, modification time and children of the files the steps list.
+   *
+   * @return the file metadata cache, null if the transformation wasn't prepared for execution yet
+   */
+  @Override
+  public FileMetadataCache getFileMetadataCache() {
+    return fileMetadataCache;
+  }
+
+  /**
+   * Gets the manager of the adaptive row sets.
+   *
+   * @return the adaptive row set manager or null if the transformation doesn't use adaptive row sets
+   */
+  public AdaptiveRowSetManager getAdaptiveRowSetManager() {
+    return adaptiveRowSetManager;
+  }
+
   /**
    * Finds the RowSet with the specified name.
    *
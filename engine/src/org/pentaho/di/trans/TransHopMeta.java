@@ -23,6 +23,7 @@
 package org.pentaho.di.trans;
 
 import java.util.List;
+import java.util.Map;
 
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleXMLException;
@@ -90,6 +91,32 @@ public class TransHopMeta implements Cloneable, XMLInterface, Comparable<TransHo
     }
   }
 
+  /**
+   * Load a hop, looking up the steps in a map of the steps by name.
+   *
+   * @param hopnode
+   *          the hop node
+   * @param stepsByName
+   *          the steps by name, the map needs to be case insensitive like {@link StepMeta#findStep(List, String)}
+   * @throws KettleXMLException
+   *           in case the hop can't be loaded
+   */
+  public TransHopMeta( Node hopnode, Map<String, StepMeta> stepsByName ) throws KettleXMLException {
+    try {
+      from_step = searchStep( stepsByName, XMLHandler.getTagValue( hopnode, "from" ) );
+      to_step = searchStep( stepsByName, XMLHandler.getTagValue( hopnode, "to" ) );
+      String en = XMLHandler.getTagValue( hopnode, "enabled" );
+
+      if ( en == null ) {
+        enabled = true;
+      } else {
+        enabled = en.equalsIgnoreCase( "Y" );
+      }
+    } catch ( Exception e ) {
+      throw new KettleXMLException( BaseMessages.getString( PKG, "TransHopMeta.Exception.UnableToLoadHopInfo" ), e );
+    }
+  }
+
   public void setFromStep( StepMeta from ) {
     from_step = from;
   }
@@ -116,6 +143,10 @@ public class TransHopMeta implements Cloneable, XMLInterface, Comparable<TransHo
     return null;
   }
 
+  private StepMeta searchStep( Map<String, StepMeta> stepsByName, String name ) {
+    return name == null ? null : stepsByName.get( name );
+  }
+
   public Object clone() {
     try {
       Object retval = super.clone();
@@ -35,6 +35,7 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.vfs2.FileName;
@@ -57,6 +58,7 @@ import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.attributes.AttributesUtil;
+import org.pentaho.di.core.attributes.metastore.EmbeddedMetaStore;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
@@ -90,7 +92,9 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.undo.TransAction;
 import org.pentaho.di.core.util.StringUtil;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.core.xml.XMLDocumentCache;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.core.xml.XMLInterface;
 import org.pentaho.di.i18n.BaseMessages;
@@ -669,6 +673,128 @@ public class TransMeta extends AbstractMeta
     }
   }
 
+  /**
+   * Creates an independent copy of this transformation that can be executed while this instance stays untouched, for
+   * instance because it is kept in the {@link TransMetaCache}. On top of {@link #realClone(boolean)} this gives the
+   * copy its own variables, counters, result lists and caches, and re-links hops, error handling, info/target step
+   * references, partitioning, clustering and log tables to the copied objects instead of the originals.
+   *
+   * @param parentVariableSpace
+   *          the variable space to initialize the variables of the copy from, the same as when loading the file
+   * @param setInternalVariables
+   *          true if you want to set the internal variables based on this transformation information
+   * @return the executable copy of this transformation
+   * @throws KettleException
+   *           in case the copy could not be created
+   */
+  TransMeta cloneForExecution( VariableSpace parentVariableSpace, boolean setInternalVariables )
+    throws KettleException {
+    TransMeta copy = (TransMeta) realClone( false );
+    if ( copy == null ) {
+      throw new KettleException( BaseMessages.getString( PKG, "TransMeta.Exception.ErrorReadingTransformation" ) );
+    }
+
+    copy.variables = new Variables();
+    copy.counters = new Hashtable<String, Counter>();
+    copy.resultRows = new ArrayList<RowMetaAndData>();
+    copy.resultFiles = new ArrayList<ResultFile>();
+    copy.previousResult = null;
+    copy.stepsFieldsCache = new HashMap<String, RowMetaInterface>();
+    copy.loopCache = new HashMap<String, Boolean>();
+    copy.undo = new ArrayList<TransAction>();
+    copy.undo_position = -1;
+    copy.nameChangedListeners = null;
+    copy.filenameChangedListeners = null;
+    copy.contentChangedListeners = null;
+    if ( attributesMap != null ) {
+      copy.attributesMap = new HashMap<String, Map<String, String>>();
+      for ( Map.Entry<String, Map<String, String>> group : attributesMap.entrySet() ) {
+        copy.attributesMap.put( group.getKey(), new HashMap<String, String>( group.getValue() ) );
+      }
+    }
+    copy.embeddedMetaStore = new EmbeddedMetaStore( copy );
+    if ( privateDatabases != null ) {
+      copy.privateDatabases = new HashSet<String>( privateDatabases );
+    }
+
+    for ( DatabaseMeta databaseMeta : copy.databases ) {
+      databaseMeta.shareVariablesWith( copy );
+    }
+    for ( SlaveServer slaveServer : copy.slaveServers ) {
+      slaveServer.shareVariablesWith( copy );
+    }
+    for ( ClusterSchema clusterSchema : copy.clusterSchemas ) {
+      List<SlaveServer> clusterSlaves = new ArrayList<SlaveServer>();
+      for ( SlaveServer slaveServer : clusterSchema.getSlaveServers() ) {
+        SlaveServer copied = copy.findSlaveServer( slaveServer.getName() );
+        clusterSlaves.add( copied != null ? copied : slaveServer );
+      }
+      clusterSchema.setSlaveServers( clusterSlaves );
+      clusterSchema.shareVariablesWith( copy );
+    }
+
+    // The cloned hops still point to the steps of this transformation
+    //
+    for ( TransHopMeta hop : copy.hops ) {
+      hop.setFromStep( copy.findStep( hop.getFromStep().getName() ) );
+      hop.setToStep( copy.findStep( hop.getToStep().getName() ) );
+    }
+
+    for ( int i = 0; i < nrSteps(); i++ ) {
+      StepErrorMeta stepErrorMeta = getStep( i ).getStepErrorMeta();
+      StepMeta copiedStep = copy.getStep( i );
+      if ( stepErrorMeta != null ) {
+        Node errorNode =
+            XMLHandler.getSubNode( XMLHandler.loadXMLString( stepErrorMeta.getXML() ), StepErrorMeta.XML_TAG );
+        copiedStep.setStepErrorMeta( new StepErrorMeta( copy, errorNode, copy.steps ) );
+      }
+    }
+
+    for ( StepMeta stepMeta : copy.steps ) {
+      StepMetaInterface sii = stepMeta.getStepMetaInterface();
+      if ( sii != null ) {
+        sii.searchInfoAndTargetSteps( copy.steps );
+      }
+      if ( stepMeta.getStepPartitioningMeta() != null ) {
+        stepMeta.getStepPartitioningMeta().setPartitionSchemaAfterLoading( copy.partitionSchemas );
+      }
+      if ( stepMeta.getTargetStepPartitioningMeta() != null ) {
+        stepMeta.getTargetStepPartitioningMeta().setPartitionSchemaAfterLoading( copy.partitionSchemas );
+      }
+      stepMeta.setClusterSchemaAfterLoading( copy.clusterSchemas );
+    }
+
+    // The log tables reference this transformation as variable space and database holder, rebuild them for the copy
+    //
+    copy.transLogTable = TransLogTable.getDefault( copy, copy, copy.steps );
+    copy.transLogTable.loadXML( getLogTableNode( transLogTable.getXML(), TransLogTable.XML_TAG ),
+        copy.databases, copy.steps );
+    copy.performanceLogTable = PerformanceLogTable.getDefault( copy, copy );
+    copy.performanceLogTable.loadXML( getLogTableNode( performanceLogTable.getXML(), PerformanceLogTable.XML_TAG ),
+        copy.databases, copy.steps );
+    copy.channelLogTable = ChannelLogTable.getDefault( copy, copy );
+    copy.channelLogTable.loadXML( getLogTableNode( channelLogTable.getXML(), ChannelLogTable.XML_TAG ),
+        copy.databases, copy.steps );
+    copy.stepLogTable = StepLogTable.getDefault( copy, copy );
+    copy.stepLogTable.loadXML( getLogTableNode( stepLogTable.getXML(), StepLogTable.XML_TAG ),
+        copy.databases, copy.steps );
+    copy.metricsLogTable = MetricsLogTable.getDefault( copy, copy );
+    copy.metricsLogTable.loadXML( getLogTableNode( metricsLogTable.getXML(), MetricsLogTable.XML_TAG ),
+        copy.databases, copy.steps );
+
+    copy.initializeVariablesFrom( parentVariableSpace );
+    if ( setInternalVariables ) {
+      copy.setInternalKettleVariables();
+    }
+    copy.clearChanged();
+
+    return copy;
+  }
+
+  private static Node getLogTableNode( String xml, String tag ) throws KettleException {
+    return XMLHandler.getSubNode( XMLHandler.loadXMLString( xml ), tag );
+  }
+
   /**
    * Clears the transformation's meta-data, including the lists of databases, steps, hops, notes, dependencies,
    * partition schemas, slave servers, and cluster schemas. Logging information and timeouts are reset to defaults, and
@@ -2720,7 +2846,7 @@ public class TransMeta extends AbstractMeta
     // OK, try to load using the VFS stuff...
     Document doc = null;
     try {
-      doc = XMLHandler.loadXMLFile( KettleVFS.getFileObject( fname, parentVariableSpace ) );
+      doc = XMLDocumentCache.getInstance().loadXMLFile( KettleVFS.getFileObject( fname, parentVariableSpace ) );
     } catch ( KettleFileException e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "TransMeta.Exception.ErrorOpeningOrValidatingTheXMLFile", fname ), e );
@@ -2943,7 +3069,10 @@ public class TransMeta extends AbstractMeta
         importFromMetaStore();
 
         // Handle connections
-        int n = XMLHandler.countNodes( transnode, DatabaseMeta.XML_TAG );
+        // The child nodes are collected in a single pass over the children instead of looking them up by number
+        //
+        List<Node> connectionNodes = XMLHandler.getNodes( transnode, DatabaseMeta.XML_TAG );
+        int n = connectionNodes.size();
         Set<String> privateTransformationDatabases = new HashSet<String>( n );
         if ( log.isDebug() ) {
           log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.WeHaveConnections", String.valueOf( n ) ) );
@@ -2952,7 +3081,7 @@ public class TransMeta extends AbstractMeta
           if ( log.isDebug() ) {
             log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.LookingAtConnection" ) + i );
           }
-          Node nodecon = XMLHandler.getSubNodeByNr( transnode, DatabaseMeta.XML_TAG, i );
+          Node nodecon = connectionNodes.get( i );
 
           DatabaseMeta dbcon = new DatabaseMeta( nodecon );
           dbcon.shareVariablesWith( this );
@@ -2979,21 +3108,30 @@ public class TransMeta extends AbstractMeta
 
         // Read the notes...
         Node notepadsnode = XMLHandler.getSubNode( transnode, XML_TAG_NOTEPADS );
-        int nrnotes = XMLHandler.countNodes( notepadsnode, NotePadMeta.XML_TAG );
-        for ( int i = 0; i < nrnotes; i++ ) {
-          Node notepadnode = XMLHandler.getSubNodeByNr( notepadsnode, NotePadMeta.XML_TAG, i );
+        for ( Node notepadnode : XMLHandler.getNodes( notepadsnode, NotePadMeta.XML_TAG ) ) {
           NotePadMeta ni = new NotePadMeta( notepadnode );
           notes.add( ni );
         }
 
         // Handle Steps
-        int s = XMLHandler.countNodes( transnode, StepMeta.XML_TAG );
+        List<Node> stepNodes = XMLHandler.getNodes( transnode, StepMeta.XML_TAG );
+        int s = stepNodes.size();
 
         if ( log.isDebug() ) {
           log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.ReadingSteps" ) + s + " steps..." );
         }
+
+        // The steps by name (case insensitive, like findStep()) for the lookups of the steps and the hops below.
+        // Searching the list for every step and hop makes loading large transformations quadratic.
+        //
+        Map<String, StepMeta> stepsByName = new TreeMap<String, StepMeta>( String.CASE_INSENSITIVE_ORDER );
+        for ( StepMeta stepMeta : steps ) {
+          if ( !stepsByName.containsKey( stepMeta.getName() ) ) {
+            stepsByName.put( stepMeta.getName(), stepMeta );
+          }
+        }
         for ( int i = 0; i < s; i++ ) {
-          Node stepnode = XMLHandler.getSubNodeByNr( transnode, StepMeta.XML_TAG, i );
+          Node stepnode = stepNodes.get( i );
 
           if ( log.isDebug() ) {
             log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.LookingAtStep" ) + i );
@@ -3009,7 +3147,7 @@ public class TransMeta extends AbstractMeta
           // If so, then we will keep the shared version, not this one.
           // The stored XML is only for backup purposes.
           //
-          StepMeta check = findStep( stepMeta.getName() );
+          StepMeta check = stepMeta.getName() == null ? null : stepsByName.get( stepMeta.getName() );
           if ( check != null ) {
             if ( !check.isShared() ) {
               // Don't overwrite shared objects
@@ -3021,15 +3159,16 @@ public class TransMeta extends AbstractMeta
             }
           } else {
             addStep( stepMeta ); // simply add it.
+            if ( stepMeta.getName() != null ) {
+              stepsByName.put( stepMeta.getName(), stepMeta );
+            }
           }
         }
 
         // Read the error handling code of the steps...
         //
         Node errorHandlingNode = XMLHandler.getSubNode( transnode, XML_TAG_STEP_ERROR_HANDLING );
-        int nrErrorHandlers = XMLHandler.countNodes( errorHandlingNode, StepErrorMeta.XML_TAG );
-        for ( int i = 0; i < nrErrorHandlers; i++ ) {
-          Node stepErrorMetaNode = XMLHandler.getSubNodeByNr( errorHandlingNode, StepErrorMeta.XML_TAG, i );
+        for ( Node stepErrorMetaNode : XMLHandler.getNodes( errorHandlingNode, StepErrorMeta.XML_TAG ) ) {
           StepErrorMeta stepErrorMeta = new StepErrorMeta( this, stepErrorMetaNode, steps );
           if ( stepErrorMeta.getSourceStep() != null ) {
             stepErrorMeta.getSourceStep().setStepErrorMeta( stepErrorMeta ); // a bit of a trick, I know.
@@ -3049,7 +3188,8 @@ public class TransMeta extends AbstractMeta
         // Handle Hops
         //
         Node ordernode = XMLHandler.getSubNode( transnode, XML_TAG_ORDER );
-        n = XMLHandler.countNodes( ordernode, TransHopMeta.XML_TAG );
+        List<Node> hopNodes = XMLHandler.getNodes( ordernode, TransHopMeta.XML_TAG );
+        n = hopNodes.size();
 
         if ( log.isDebug() ) {
           log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.WeHaveHops" ) + n + " hops..." );
@@ -3058,9 +3198,9 @@ public class TransMeta extends AbstractMeta
           if ( log.isDebug() ) {
             log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.LookingAtHop" ) + i );
           }
-          Node hopnode = XMLHandler.getSubNodeByNr( ordernode, TransHopMeta.XML_TAG, i );
+          Node hopnode = hopNodes.get( i );
 
-          TransHopMeta hopinf = new TransHopMeta( hopnode, steps );
+          TransHopMeta hopinf = new TransHopMeta( hopnode, stepsByName );
           addTransHop( hopinf );
         }
 
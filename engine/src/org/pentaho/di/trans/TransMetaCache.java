@@ -0,0 +1,281 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleMissingPluginsException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.gui.OverwritePrompter;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.StringUtil;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.shared.SharedObjects;
+import org.pentaho.metastore.api.IMetaStore;
+
+/**
+ * Singleton that keeps the transformations loaded from files by job entries and sub-transformation steps.<br>
+ * <br>
+ * A job that runs the same transformation thousands of times would otherwise parse the file, look up the step plugins
+ * and load the metadata of every step every time. A loaded transformation is kept per file and every caller gets its
+ * own copy (see {@link TransMeta#cloneForExecution(VariableSpace, boolean)}) as long as the size and the modification
+ * time of the file and of its shared objects file stay the same.<br>
+ * <br>
+ * Transformations that are loaded through a repository, that use variables in the name of their shared objects file or
+ * that are stored on a file system without modification times (HTTP for example) are always loaded from scratch. The
+ * number of transformations is limited by {@link Const#KETTLE_TRANS_META_CACHE_SIZE}, the least recently used one is
+ * dropped first.<br>
+ * <br>
+ * The cache is disabled by default: the copies share whatever the clone() of a step's metadata doesn't copy, and they
+ * don't fire the TransformationMetaLoaded extension point. The document cache still avoids re-parsing the files.
+ */
+public class TransMetaCache {
+  private static Class<?> PKG = TransMeta.class; // for i18n purposes, needed by Translator2!!
+
+  public static final int DEFAULT_MAX_SIZE = 0;
+
+  private static TransMetaCache cache;
+
+  private final int maxSize;
+
+  private final Map<String, CachedTransMeta> entries;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  private static class CachedTransMeta {
+    private final IMetaStore metaStore;
+    private final long size;
+    private final long lastModified;
+    private final String sharedObjectsFile;
+    private final long sharedObjectsSize;
+    private final long sharedObjectsLastModified;
+    private final TransMeta transMeta;
+
+    CachedTransMeta( IMetaStore metaStore, long size, long lastModified, String sharedObjectsFile,
+      long sharedObjectsSize, long sharedObjectsLastModified, TransMeta transMeta ) {
+      this.metaStore = metaStore;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.sharedObjectsFile = sharedObjectsFile;
+      this.sharedObjectsSize = sharedObjectsSize;
+      this.sharedObjectsLastModified = sharedObjectsLastModified;
+      this.transMeta = transMeta;
+    }
+  }
+
+  TransMetaCache( int maxSize ) {
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<String, CachedTransMeta>( 16, 0.75f, true ) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String, CachedTransMeta> eldest ) {
+        if ( size() > TransMetaCache.this.maxSize ) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public static final synchronized TransMetaCache getInstance() {
+    if ( cache != null ) {
+      return cache;
+    }
+
+    cache =
+      new TransMetaCache( Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_TRANS_META_CACHE_SIZE ),
+        DEFAULT_MAX_SIZE ) );
+    return cache;
+  }
+
+  /**
+   * Loads a transformation from a file, the same way as
+   * {@link TransMeta#TransMeta(String, IMetaStore, Repository, boolean, VariableSpace, OverwritePrompter)} without a
+   * prompter, re-using the transformation if the file didn't change since it was loaded.
+   *
+   * @param fname
+   *          The filename
+   * @param metaStore
+   *          the metadata store to reference (or null if there is none)
+   * @param rep
+   *          The repository to load the default set of connections from, null if no repository is available
+   * @param setInternalVariables
+   *          true if you want to set the internal variables based on this transformation information
+   * @param parentVariableSpace
+   *          the parent variable space to use during TransMeta construction
+   * @return a transformation the caller can use and change as it sees fit
+   * @throws KettleXMLException
+   *           if any errors occur during parsing of the specified file
+   * @throws KettleMissingPluginsException
+   *           in case missing plugins were found (details are in the exception in that case)
+   */
+  public TransMeta loadTransMeta( String fname, IMetaStore metaStore, Repository rep, boolean setInternalVariables,
+    VariableSpace parentVariableSpace ) throws KettleXMLException, KettleMissingPluginsException {
+    if ( maxSize <= 0 || rep != null ) {
+      return new TransMeta( fname, metaStore, rep, setInternalVariables, parentVariableSpace, null );
+    }
+
+    String key;
+    long size;
+    long lastModified;
+    try {
+      FileObject fileObject = KettleVFS.getFileObject( fname, parentVariableSpace );
+      key = fname + "|" + fileObject.getName().getURI() + "|" + setInternalVariables;
+      FileContent content = fileObject.getContent();
+      size = content.getSize();
+      lastModified = content.getLastModifiedTime();
+    } catch ( KettleFileException e ) {
+      return new TransMeta( fname, metaStore, null, setInternalVariables, parentVariableSpace, null );
+    } catch ( FileSystemException e ) {
+      return new TransMeta( fname, metaStore, null, setInternalVariables, parentVariableSpace, null );
+    }
+    if ( lastModified <= 0 ) {
+      return new TransMeta( fname, metaStore, null, setInternalVariables, parentVariableSpace, null );
+    }
+
+    CachedTransMeta entry;
+    synchronized ( this ) {
+      entry = entries.get( key );
+      if ( entry != null && ( entry.metaStore != metaStore || entry.size != size || entry.lastModified != lastModified
+        || !isSharedObjectsFileUnchanged( entry ) ) ) {
+        entries.remove( key );
+        entry = null;
+      }
+      if ( entry != null ) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    if ( entry != null ) {
+      return copy( entry.transMeta, parentVariableSpace, setInternalVariables );
+    }
+
+    TransMeta transMeta = new TransMeta( fname, metaStore, null, setInternalVariables, parentVariableSpace, null );
+    String sharedObjectsFile = transMeta.getSharedObjectsFile();
+    List<String> usedVariables = new ArrayList<String>();
+    StringUtil.getUsedVariables( sharedObjectsFile, usedVariables, true );
+    if ( !usedVariables.isEmpty() ) {
+      return transMeta;
+    }
+    String sharedObjectsFilename = SharedObjects.createFilename( sharedObjectsFile );
+    long[] sharedObjectsState = getFileState( sharedObjectsFilename );
+    synchronized ( this ) {
+      entries.put( key, new CachedTransMeta( metaStore, size, lastModified, sharedObjectsFile, sharedObjectsState[0],
+        sharedObjectsState[1], transMeta ) );
+    }
+    return copy( transMeta, parentVariableSpace, setInternalVariables );
+  }
+
+  private static boolean isSharedObjectsFileUnchanged( CachedTransMeta entry ) {
+    long[] state = getFileState( SharedObjects.createFilename( entry.sharedObjectsFile ) );
+    return state[0] == entry.sharedObjectsSize && state[1] == entry.sharedObjectsLastModified;
+  }
+
+  /**
+   * @return the size and the modification time of the file, -1 for a file that doesn't exist or can't be read
+   */
+  private static long[] getFileState( String filename ) {
+    try {
+      FileObject fileObject = KettleVFS.getFileObject( filename );
+      if ( !fileObject.exists() ) {
+        return new long[] { -1L, -1L };
+      }
+      FileContent content = fileObject.getContent();
+      return new long[] { content.getSize(), content.getLastModifiedTime() };
+    } catch ( Exception e ) {
+      return new long[] { -1L, -1L };
+    }
+  }
+
+  /**
+   * The cached transformation is only read while it's copied, but the steps aren't written with concurrent readers in
+   * mind, so the copies are made one at a time.
+   */
+  private static TransMeta copy( TransMeta transMeta, VariableSpace parentVariableSpace,
+    boolean setInternalVariables ) throws KettleXMLException {
+    synchronized ( transMeta ) {
+      try {
+        return transMeta.cloneForExecution( parentVariableSpace, setInternalVariables );
+      } catch ( KettleException e ) {
+        throw new KettleXMLException( BaseMessages.getString( PKG, "TransMeta.Exception.ErrorReadingTransformation" ),
+          e );
+      }
+    }
+  }
+
+  /**
+   * @return the number of transformations that were re-used
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of files that were loaded
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of transformations dropped because the cache was full
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the number of transformations in the cache
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Clears the cache and the statistics
+   */
+  public synchronized void clear() {
+    entries.clear();
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+}
@@ -0,0 +1,284 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.pentaho.di.core.AdaptiveRowSet;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Periodically looks at the counters of all {@link AdaptiveRowSet}s of a transformation and grows or shrinks their
+ * capacities within a memory budget:
+ * <ul>
+ * <li>When both the producer and the consumer of a hop wait on each other, the flow is bursty and a larger buffer helps
+ * to smooth it out: the capacity is doubled.</li>
+ * <li>When only the producer waits on a full buffer, the consuming step is the bottleneck. A larger buffer doesn't help
+ * throughput, it only holds more rows in memory: the capacity is halved.</li>
+ * <li>When only the consumer waits on an empty buffer, the producing step is the bottleneck and the buffer is hardly
+ * used: the capacity is halved.</li>
+ * </ul>
+ * The accumulated wait times are also used to report which hops are the bottleneck of the transformation.
+ */
+public class AdaptiveRowSetManager {
+
+  /** The fraction of an interval a step needs to wait on a row set before we consider it blocked. */
+  public static final double BLOCKED_RATIO = 0.05;
+
+  /** The fraction of an interval a step needs to wait on a row set before we consider the other side a bottleneck. */
+  public static final double BOTTLENECK_RATIO = 0.50;
+
+  private final List<HopStatus> hops;
+  private final int minCapacity;
+  private final int maxCapacity;
+  private final long memoryBudget;
+
+  private long lastAdjustNanos;
+
+  /**
+   * @param minCapacity
+   *          the minimum number of rows in a row set
+   * @param maxCapacity
+   *          the maximum number of rows in a row set
+   * @param memoryBudget
+   *          the maximum number of bytes all managed row sets together are allowed to hold, 0 means no limit
+   */
+  public AdaptiveRowSetManager( int minCapacity, int maxCapacity, long memoryBudget ) {
+    this.hops = new ArrayList<HopStatus>();
+    this.minCapacity = Math.max( 1, minCapacity );
+    this.maxCapacity = Math.max( this.minCapacity, maxCapacity );
+    this.memoryBudget = memoryBudget;
+    this.lastAdjustNanos = System.nanoTime();
+  }
+
+  public synchronized void addRowSet( AdaptiveRowSet rowSet ) {
+    hops.add( new HopStatus( rowSet ) );
+  }
+
+  /**
+   * @return the number of row sets managed
+   */
+  public synchronized int nrRowSets() {
+    return hops.size();
+  }
+
+  /**
+   * Look at what happened on every hop since the last call and adjust the capacities of the row sets accordingly.
+   */
+  public synchronized void adjust() {
+    long now = System.nanoTime();
+    adjust( now - lastAdjustNanos );
+    lastAdjustNanos = now;
+  }
+
+  /**
+   * Adjust the capacities of the row sets, considering that the given time elapsed since the last adjustment.
+   *
+   * @param intervalNanos
+   *          the elapsed time in nanoseconds
+   */
+  synchronized void adjust( long intervalNanos ) {
+    if ( intervalNanos <= 0 ) {
+      return;
+    }
+
+    long totalBytes = 0L;
+    for ( HopStatus hop : hops ) {
+      hop.sample( intervalNanos );
+      hop.desiredCapacity = calculateDesiredCapacity( hop );
+      totalBytes += hop.desiredCapacity * hop.estimatedRowSize;
+    }
+
+    // Respect the memory budget: scale all buffers down proportionally if needed.
+    //
+    if ( memoryBudget > 0 && totalBytes > memoryBudget ) {
+      double factor = (double) memoryBudget / totalBytes;
+      for ( HopStatus hop : hops ) {
+        hop.desiredCapacity = Math.max( minCapacity, (int) ( hop.desiredCapacity * factor ) );
+      }
+    }
+
+    for ( HopStatus hop : hops ) {
+      if ( hop.desiredCapacity != hop.rowSet.getCapacity() ) {
+        hop.rowSet.setCapacity( hop.desiredCapacity );
+      }
+    }
+  }
+
+  private int calculateDesiredCapacity( HopStatus hop ) {
+    int capacity = hop.rowSet.getCapacity();
+    boolean producerBlocked = hop.lastPutBlockedRatio > BLOCKED_RATIO;
+    boolean consumerBlocked = hop.lastGetBlockedRatio > BLOCKED_RATIO;
+
+    if ( producerBlocked && consumerBlocked ) {
+      capacity = capacity > maxCapacity / 2 ? maxCapacity : capacity * 2;
+    } else if ( hop.lastPutBlockedRatio > BOTTLENECK_RATIO || hop.lastGetBlockedRatio > BOTTLENECK_RATIO ) {
+      capacity = capacity / 2;
+    }
+    return Math.min( maxCapacity, Math.max( minCapacity, capacity ) );
+  }
+
+  /**
+   * @return the total number of bytes estimated to be held by the managed row sets if they were full.
+   */
+  public synchronized long getEstimatedMemoryUsage() {
+    long total = 0L;
+    for ( HopStatus hop : hops ) {
+      total += hop.rowSet.getCapacity() * hop.estimatedRowSize;
+    }
+    return total;
+  }
+
+  /**
+   * @return the status of all hops, the worst bottleneck first.
+   */
+  public synchronized List<HopStatus> getBottlenecks() {
+    List<HopStatus> list = new ArrayList<HopStatus>( hops );
+    Collections.sort( list, new Comparator<HopStatus>() {
+      @Override
+      public int compare( HopStatus o1, HopStatus o2 ) {
+        return Double.compare( o2.getBottleneckRatio(), o1.getBottleneckRatio() );
+      }
+    } );
+    return list;
+  }
+
+  /**
+   * Estimate the number of bytes a row of the given layout occupies on the heap.
+   *
+   * @param rowMeta
+   *          the row metadata, can be null if no rows passed yet
+   * @return the estimated size in bytes
+   */
+  static long estimateRowSize( RowMetaInterface rowMeta ) {
+    if ( rowMeta == null ) {
+      return 0L;
+    }
+    return rowMeta.getEstimatedRowSize();
+  }
+
+  /**
+   * The observed state of a single hop (row set).
+   */
+  public static class HopStatus {
+    private final AdaptiveRowSet rowSet;
+
+    private AdaptiveRowSet.Statistics previous;
+    private long estimatedRowSize;
+    private int desiredCapacity;
+
+    private double lastPutBlockedRatio;
+    private double lastGetBlockedRatio;
+    private long lastRows;
+    private long lastIntervalNanos;
+    private long totalNanos;
+
+    HopStatus( AdaptiveRowSet rowSet ) {
+      this.rowSet = rowSet;
+      this.previous = rowSet.getStatistics();
+      this.desiredCapacity = rowSet.getCapacity();
+    }
+
+    void sample( long intervalNanos ) {
+      AdaptiveRowSet.Statistics current = rowSet.getStatistics();
+      lastPutBlockedRatio = ratio( current.getPutWaitNanos() - previous.getPutWaitNanos(), intervalNanos );
+      lastGetBlockedRatio = ratio( current.getGetWaitNanos() - previous.getGetWaitNanos(), intervalNanos );
+      lastRows = current.getRowsRead() - previous.getRowsRead();
+      lastIntervalNanos = intervalNanos;
+      totalNanos += intervalNanos;
+      previous = current;
+
+      if ( rowSet.getRowMeta() != null ) {
+        estimatedRowSize = estimateRowSize( rowSet.getRowMeta() );
+      }
+    }
+
+    private static double ratio( long waitNanos, long intervalNanos ) {
+      return Math.min( 1.0, (double) waitNanos / intervalNanos );
+    }
+
+    /**
+     * @return the row set of this hop
+     */
+    public AdaptiveRowSet getRowSet() {
+      return rowSet;
+    }
+
+    /**
+     * @return the name of the hop
+     */
+    public String getName() {
+      return rowSet.getName();
+    }
+
+    /**
+     * @return the number of rows per second that passed this hop during the last interval
+     */
+    public double getRowsPerSecond() {
+      return lastIntervalNanos > 0 ? lastRows * 1000000000.0 / lastIntervalNanos : 0.0;
+    }
+
+    /**
+     * @return the fraction of the total time the producer had to wait because the buffer was full
+     */
+    public double getTotalPutBlockedRatio() {
+      return totalNanos > 0 ? Math.min( 1.0, (double) previous.getPutWaitNanos() / totalNanos ) : 0.0;
+    }
+
+    /**
+     * @return the fraction of the total time the consumer had to wait because the buffer was empty
+     */
+    public double getTotalGetBlockedRatio() {
+      return totalNanos > 0 ? Math.min( 1.0, (double) previous.getGetWaitNanos() / totalNanos ) : 0.0;
+    }
+
+    /**
+     * A hop where the producer is always waiting on the consumer is where the rows pile up: the destination step is
+     * slowing down the transformation.
+     *
+     * @return the fraction of time the producer of this hop was blocked on a full buffer while the consumer was not
+     *         waiting
+     */
+    public double getBottleneckRatio() {
+      return Math.max( 0.0, getTotalPutBlockedRatio() - getTotalGetBlockedRatio() );
+    }
+
+    /**
+     * @return the estimated size of a row on this hop in bytes
+     */
+    public long getEstimatedRowSize() {
+      return estimatedRowSize;
+    }
+
+    @Override
+    public String toString() {
+      return String.format( "%s : capacity=%d, rows/s=%.0f, producer blocked=%.0f%%, consumer blocked=%.0f%%",
+        getName(), rowSet.getCapacity(), getRowsPerSecond(), getTotalPutBlockedRatio() * 100,
+        getTotalGetBlockedRatio() * 100 );
+    }
+  }
+}
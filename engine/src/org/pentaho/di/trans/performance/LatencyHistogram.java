@@ -0,0 +1,174 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.performance;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds with a fixed relative precision, in the spirit of HdrHistogram.<br>
+ * <br>
+ * Values below 16 get a bucket of their own. Above that, every power of 2 is split into 16 equally sized buckets so a
+ * recorded value is known within 1/16th (6.25%) of its size. Durations up to 2^40 ns (about 18 minutes) are kept
+ * apart, longer ones end up in the last bucket. Recording a value only increments an element of an
+ * {@link AtomicLongArray}: it doesn't allocate, doesn't lock and can be done by several threads at once while other
+ * threads read the histogram.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+
+  /** The number of buckets in a histogram */
+  public static final int BUCKET_COUNT = ( MAX_EXPONENT - SUB_BUCKET_BITS + 2 ) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts;
+
+  public LatencyHistogram() {
+    counts = new AtomicLongArray( BUCKET_COUNT );
+  }
+
+  private LatencyHistogram( long[] counts ) {
+    this.counts = new AtomicLongArray( counts );
+  }
+
+  /**
+   * Record a duration.
+   *
+   * @param nanos
+   *          the duration in nanoseconds, negative values are counted as 0
+   */
+  public void record( long nanos ) {
+    counts.incrementAndGet( getBucket( nanos ) );
+  }
+
+  /**
+   * @return the total number of recorded values
+   */
+  public long getCount() {
+    long count = 0L;
+    for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+      count += counts.get( i );
+    }
+    return count;
+  }
+
+  /**
+   * Get the value below which the given percentage of the recorded values fall.
+   *
+   * @param percentile
+   *          the percentile, between 0 and 100
+   * @return the highest value of the bucket holding the percentile in nanoseconds or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile( double percentile ) {
+    long[] snapshot = getCounts();
+    long total = 0L;
+    for ( long count : snapshot ) {
+      total += count;
+    }
+    if ( total == 0L ) {
+      return 0L;
+    }
+    long target = Math.max( 1L, (long) Math.ceil( Math.min( percentile, 100.0 ) / 100.0 * total ) );
+    long seen = 0L;
+    for ( int i = 0; i < snapshot.length; i++ ) {
+      seen += snapshot[i];
+      if ( seen >= target ) {
+        return getHighestValue( i );
+      }
+    }
+    return getHighestValue( snapshot.length - 1 );
+  }
+
+  /**
+   * @return the highest value of the highest bucket holding a value in nanoseconds or 0 if nothing was recorded
+   */
+  public long getMaxValue() {
+    for ( int i = BUCKET_COUNT - 1; i >= 0; i-- ) {
+      if ( counts.get( i ) > 0L ) {
+        return getHighestValue( i );
+      }
+    }
+    return 0L;
+  }
+
+  /**
+   * @return a copy of this histogram that doesn't change anymore when values are recorded in this one
+   */
+  public LatencyHistogram copy() {
+    return new LatencyHistogram( getCounts() );
+  }
+
+  /**
+   * Calculate the values recorded since an earlier copy of this histogram was taken.
+   *
+   * @param previous
+   *          the earlier copy or null
+   * @return a new histogram with the counts of this one minus the counts of the previous one
+   */
+  public LatencyHistogram subtract( LatencyHistogram previous ) {
+    long[] difference = getCounts();
+    if ( previous != null ) {
+      for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+        difference[i] = Math.max( 0L, difference[i] - previous.counts.get( i ) );
+      }
+    }
+    return new LatencyHistogram( difference );
+  }
+
+  private long[] getCounts() {
+    long[] snapshot = new long[BUCKET_COUNT];
+    for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+      snapshot[i] = counts.get( i );
+    }
+    return snapshot;
+  }
+
+  static int getBucket( long nanos ) {
+    if ( nanos < SUB_BUCKET_COUNT ) {
+      return nanos < 0L ? 0 : (int) nanos;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros( nanos );
+    if ( exponent > MAX_EXPONENT ) {
+      return BUCKET_COUNT - 1;
+    }
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ( shift << SUB_BUCKET_BITS ) + (int) ( nanos >>> shift );
+  }
+
+  static long getLowestValue( int bucket ) {
+    if ( bucket < SUB_BUCKET_COUNT ) {
+      return bucket;
+    }
+    int shift = ( bucket >>> SUB_BUCKET_BITS ) - 1;
+    return (long) ( SUB_BUCKET_COUNT + ( bucket & ( SUB_BUCKET_COUNT - 1 ) ) ) << shift;
+  }
+
+  static long getHighestValue( int bucket ) {
+    if ( bucket < SUB_BUCKET_COUNT ) {
+      return bucket;
+    }
+    int shift = ( bucket >>> SUB_BUCKET_BITS ) - 1;
+    return getLowestValue( bucket ) + ( 1L << shift ) - 1L;
+  }
+}
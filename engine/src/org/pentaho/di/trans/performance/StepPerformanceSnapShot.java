@@ -52,6 +52,19 @@ public class StepPerformanceSnapShot {
   private long inputBufferSize;
   private long outputBufferSize;
 
+  private boolean timed;
+  private long totalProcessingNanos;
+  private long totalInputWaitNanos;
+  private long totalOutputWaitNanos;
+  private LatencyHistogram totalLatencies;
+
+  private long processingTime;
+  private long inputWaitTime;
+  private long outputWaitTime;
+  private long latencyMedian;
+  private long latency99;
+  private long latencyMax;
+
   /**
    * @param date
    * @param stepName
@@ -82,10 +95,31 @@ public class StepPerformanceSnapShot {
     this.totalErrors = totalErrors;
   }
 
+  /**
+   * Take a copy of the timing statistics of the step. Call this before {@link #diff(StepPerformanceSnapShot, long,
+   * long)}.
+   *
+   * @param timingStatistics
+   *          the timing statistics of the step or null if the timing of the step isn't measured
+   */
+  public void setTimingStatistics( StepTimingStatistics timingStatistics ) {
+    timed = timingStatistics != null;
+    if ( timed ) {
+      totalProcessingNanos = timingStatistics.getProcessingNanos();
+      totalInputWaitNanos = timingStatistics.getInputWaitNanos();
+      totalOutputWaitNanos = timingStatistics.getOutputWaitNanos();
+      totalLatencies = timingStatistics.getLatencies().copy();
+    }
+  }
+
   public void diff( StepPerformanceSnapShot previous, long inputBufferSize, long outputBufferSize ) {
     this.inputBufferSize = inputBufferSize;
     this.outputBufferSize = outputBufferSize;
 
+    if ( timed ) {
+      diffTiming( previous != null && previous.timed ? previous : null );
+    }
+
     if ( previous == null ) {
       timeDifference = 0;
       linesRead = totalLinesRead;
@@ -107,6 +141,28 @@ public class StepPerformanceSnapShot {
     }
   }
 
+  private void diffTiming( StepPerformanceSnapShot previous ) {
+    LatencyHistogram latencies;
+    if ( previous == null ) {
+      processingTime = totalProcessingNanos / 1000000L;
+      inputWaitTime = totalInputWaitNanos / 1000000L;
+      outputWaitTime = totalOutputWaitNanos / 1000000L;
+      latencies = totalLatencies;
+    } else {
+      processingTime = ( totalProcessingNanos - previous.totalProcessingNanos ) / 1000000L;
+      inputWaitTime = ( totalInputWaitNanos - previous.totalInputWaitNanos ) / 1000000L;
+      outputWaitTime = ( totalOutputWaitNanos - previous.totalOutputWaitNanos ) / 1000000L;
+      latencies = totalLatencies.subtract( previous.totalLatencies );
+
+      // Only the last snapshot of a step needs its histogram to calculate the next interval
+      //
+      previous.totalLatencies = null;
+    }
+    latencyMedian = latencies.getValueAtPercentile( 50.0 );
+    latency99 = latencies.getValueAtPercentile( 99.0 );
+    latencyMax = latencies.getMaxValue();
+  }
+
   /**
    * @return the date
    */
@@ -452,4 +508,53 @@ public class StepPerformanceSnapShot {
     this.transName = transName;
   }
 
+  /**
+   * @return true if the timing of the step was measured
+   */
+  public boolean isTimed() {
+    return timed;
+  }
+
+  /**
+   * @return the time in ms the step spent in processRow() during the interval
+   */
+  public long getProcessingTime() {
+    return processingTime;
+  }
+
+  /**
+   * @return the time in ms the step waited for input rows during the interval
+   */
+  public long getInputWaitTime() {
+    return inputWaitTime;
+  }
+
+  /**
+   * @return the time in ms the step waited to hand over output rows during the interval
+   */
+  public long getOutputWaitTime() {
+    return outputWaitTime;
+  }
+
+  /**
+   * @return the median duration in ns of the processRow() calls during the interval
+   */
+  public long getLatencyMedian() {
+    return latencyMedian;
+  }
+
+  /**
+   * @return the 99th percentile of the duration in ns of the processRow() calls during the interval
+   */
+  public long getLatency99() {
+    return latency99;
+  }
+
+  /**
+   * @return the maximum duration in ns of the processRow() calls during the interval
+   */
+  public long getLatencyMax() {
+    return latencyMax;
+  }
+
 }
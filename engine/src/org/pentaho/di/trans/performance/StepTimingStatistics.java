@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.performance;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of where the time of a step copy goes: the time spent in processRow(), the time spent getting rows from
+ * the input buffers and the time spent handing rows to the output buffers. Getting or putting a row only takes a few
+ * hundred nanoseconds, so those times are made up of waiting on empty input buffers and full output buffers. The
+ * duration of every processRow() call is also kept in a {@link LatencyHistogram}.<br>
+ * <br>
+ * The wait times are part of the processRow() time. What remains is the time the step is actually busy: in a
+ * transformation that doesn't go as fast as it should, the step with the highest busy time is the bottleneck. Its
+ * previous steps wait on a full output buffer and its next steps wait on an empty input buffer.<br>
+ * <br>
+ * All counters are updated without locking so they can be read while the step is running.
+ */
+public class StepTimingStatistics {
+
+  private final AtomicLong processingNanos;
+  private final AtomicLong inputWaitNanos;
+  private final AtomicLong outputWaitNanos;
+  private final LatencyHistogram latencies;
+
+  public StepTimingStatistics() {
+    processingNanos = new AtomicLong();
+    inputWaitNanos = new AtomicLong();
+    outputWaitNanos = new AtomicLong();
+    latencies = new LatencyHistogram();
+  }
+
+  /**
+   * Record the duration of a processRow() call.
+   *
+   * @param nanos
+   *          the duration in nanoseconds
+   */
+  public void recordProcessRow( long nanos ) {
+    processingNanos.addAndGet( nanos );
+    latencies.record( nanos );
+  }
+
+  /**
+   * @param nanos
+   *          the time in nanoseconds spent waiting for an input row
+   */
+  public void addInputWaitNanos( long nanos ) {
+    inputWaitNanos.addAndGet( nanos );
+  }
+
+  /**
+   * @param nanos
+   *          the time in nanoseconds spent waiting to put a row in an output row set
+   */
+  public void addOutputWaitNanos( long nanos ) {
+    outputWaitNanos.addAndGet( nanos );
+  }
+
+  /**
+   * @return the total time in nanoseconds spent in processRow()
+   */
+  public long getProcessingNanos() {
+    return processingNanos.get();
+  }
+
+  /**
+   * @return the total time in nanoseconds spent waiting for input rows
+   */
+  public long getInputWaitNanos() {
+    return inputWaitNanos.get();
+  }
+
+  /**
+   * @return the total time in nanoseconds spent waiting to hand over output rows
+   */
+  public long getOutputWaitNanos() {
+    return outputWaitNanos.get();
+  }
+
+  /**
+   * @return the time in nanoseconds spent in processRow() without waiting on the input or output buffers
+   */
+  public long getBusyNanos() {
+    return Math.max( 0L, getProcessingNanos() - getInputWaitNanos() - getOutputWaitNanos() );
+  }
+
+  /**
+   * @return the number of processRow() calls
+   */
+  public long getProcessRowCount() {
+    return latencies.getCount();
+  }
+
+  /**
+   * @return the live histogram of the processRow() durations, use {@link LatencyHistogram#copy()} to take a snapshot
+   */
+  public LatencyHistogram getLatencies() {
+    return latencies;
+  }
+}
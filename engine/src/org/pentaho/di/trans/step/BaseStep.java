@@ -56,6 +56,8 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingObjectType;
+import org.pentaho.di.core.memory.MemoryManager;
+import org.pentaho.di.core.memory.MemoryReservation;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -65,6 +67,8 @@ import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.vfs.FileMetadataCache;
+import org.pentaho.di.core.vfs.HasFileMetadataCache;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.partition.PartitionSchema;
 import org.pentaho.di.repository.ObjectId;
@@ -76,6 +80,7 @@ import org.pentaho.di.trans.SlaveStepCopyPartitionDistribution;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.cluster.TransSplitter;
+import org.pentaho.di.trans.performance.StepTimingStatistics;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
 import org.pentaho.di.trans.steps.mapping.Mapping;
 import org.pentaho.di.trans.steps.mappinginput.MappingInput;
@@ -142,7 +147,8 @@ import org.pentaho.metastore.api.IMetaStore;
  * deallocation.
  * </ul>
  */
-public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInterface, ExtensionDataInterface {
+public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInterface, ExtensionDataInterface,
+  HasFileMetadataCache {
   private static Class<?> PKG = BaseStep.class; // for i18n purposes, needed by Translator2!!
 
   private VariableSpace variables = new Variables();
@@ -336,6 +342,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private RowSet[] partitionNrRowSetList;
 
+  /** The time spent in processRow() and on the row sets, null if the timing isn't measured */
+  private StepTimingStatistics timingStatistics;
+
   /** A list of server sockets that need to be closed during transformation cleanup. */
   private List<ServerSocket> serverSockets;
 
@@ -511,6 +520,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     stepListeners = Collections.synchronizedList( new ArrayList<StepListener>() );
 
+    if ( ( transMeta != null && transMeta.isCapturingStepPerformanceSnapShots() )
+      || "Y".equalsIgnoreCase( trans.getVariable( Const.KETTLE_STEP_TIMING ) ) ) {
+      timingStatistics = new StepTimingStatistics();
+    }
+
     dispatch();
 
     upperBufferBoundary = (int) ( transMeta.getSizeRowset() * 0.99 );
@@ -780,7 +794,10 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       try {
 
         socketRepository.releaseSocket( serverSocket.getLocalPort() );
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.ReleasedServerSocketOnPort", serverSocket.getLocalPort() ) );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.ReleasedServerSocketOnPort", serverSocket
+            .getLocalPort() ) );
+        }
       } catch ( IOException e ) {
         logError( "Cleanup: Unable to release server socket (" + serverSocket.getLocalPort() + ")", e );
       }
@@ -1201,6 +1218,55 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     return trans;
   }
 
+  /**
+   * @return the file metadata cache of the transformation, shared by all the steps
+   */
+  @Override
+  public FileMetadataCache getFileMetadataCache() {
+    return trans != null ? trans.getFileMetadataCache() : null;
+  }
+
+  /**
+   * @return the time spent processing rows and waiting on the row sets or null if the timing isn't measured
+   */
+  @Override
+  public StepTimingStatistics getTimingStatistics() {
+    return timingStatistics;
+  }
+
+  private long startTiming() {
+    return timingStatistics != null ? System.nanoTime() : 0L;
+  }
+
+  private void stopInputWaitTiming( long start ) {
+    if ( timingStatistics != null ) {
+      timingStatistics.addInputWaitNanos( System.nanoTime() - start );
+    }
+  }
+
+  private void stopOutputWaitTiming( long start ) {
+    if ( timingStatistics != null ) {
+      timingStatistics.addOutputWaitNanos( System.nanoTime() - start );
+    }
+  }
+
+  /**
+   * Creates a reservation for the memory this step copy needs to keep rows in memory. The reservation is taken from the
+   * memory manager of the transformation. Make sure to release it in dispose().
+   *
+   * @param spillable
+   *          true if the step is able to write rows to disk when the memory budget is exhausted
+   * @return a new memory reservation
+   */
+  public MemoryReservation createMemoryReservation( boolean spillable ) {
+    MemoryManager memoryManager = trans != null ? trans.getMemoryManager() : null;
+    if ( memoryManager == null ) {
+      // Not running in a prepared transformation: only account for the memory
+      memoryManager = new MemoryManager( stepname, 0L, MemoryManager.OverflowPolicy.WARN, null );
+    }
+    return memoryManager.createReservation( stepname + "." + stepcopy, spillable );
+  }
+
   /**
    * putRow is used to copy a row, to the alternate rowset(s) This should get priority over everything else!
    * (synchronized) If distribute is true, a row is copied only once to the output rowsets, otherwise copies are sent to
@@ -1403,7 +1469,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       }
 
       if ( selectedRowSet == null ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.TargetRowsetIsNotAvailable", partitionNr ) );
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "BaseStep.TargetRowsetIsNotAvailable", partitionNr ) );
+        }
       } else {
         // Wait
         putRowToRowSet( selectedRowSet, rowMeta, row );
@@ -1430,7 +1498,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         selectedRowSet = outputRowSets.get( partitionNr + i * partCount );
 
         if ( selectedRowSet == null ) {
-          logBasic( BaseMessages.getString( PKG, "BaseStep.TargetRowsetIsNotAvailable", partitionNr ) );
+          if ( log.isBasic() ) {
+            logBasic( BaseMessages.getString( PKG, "BaseStep.TargetRowsetIsNotAvailable", partitionNr ) );
+          }
         } else {
 
           // Wait
@@ -1541,11 +1611,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       toBeSent = metaFromRs;
     }
 
+    long start = startTiming();
     while ( !rs.putRow( toBeSent, row ) ) {
       if ( isStopped() ) {
-        return;
+        break;
       }
     }
+    stopOutputWaitTiming( start );
   }
 
   /**
@@ -1600,11 +1672,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Don't distribute or anything, only go to this rowset!
     //
+    long start = startTiming();
     while ( !rowSet.putRow( rowMeta, row ) ) {
       if ( isStopped() ) {
         break;
       }
     }
+    stopOutputWaitTiming( start );
     incrementLinesWritten();
   }
 
@@ -1663,11 +1737,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
 
     if ( errorRowSet != null ) {
+      long start = startTiming();
       while ( !errorRowSet.putRow( errorRowMeta, errorRowData ) ) {
         if ( isStopped() ) {
           break;
         }
       }
+      stopOutputWaitTiming( start );
       incrementLinesRejected();
     }
 
@@ -1848,6 +1924,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     // rowset, then switch to another etc.
     // We can use timeouts to switch from one to another...
     //
+    long waitStart = startTiming();
     while ( row == null && !isStopped() ) {
       // Get a row from the input in row set ...
       // Timeout immediately if nothing is there to read.
@@ -1868,6 +1945,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
           if ( row == null ) {
             inputRowSets.remove( currentInputRowSetNr );
             if ( inputRowSets.isEmpty() ) {
+              stopInputWaitTiming( waitStart );
               return null; // We're completely done.
             }
           } else {
@@ -1879,6 +1957,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       }
     }
 
+    stopInputWaitTiming( waitStart );
+
     // This rowSet is perhaps no longer giving back rows?
     //
     while ( row == null && !stopped.get() ) {
@@ -2154,6 +2234,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Grab a row... If nothing received after a timeout, try again.
     //
+    long waitStart = startTiming();
     rowData = rowSet.getRow();
     while ( rowData == null && !rowSet.isDone() && !stopped.get() ) {
       rowData = rowSet.getRow();
@@ -2174,6 +2255,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       //
       rowData = rowSet.getRow();
     }
+    stopInputWaitTiming( waitStart );
 
     if ( stopped.get() ) {
       if ( log.isDebug() ) {
@@ -3272,11 +3354,12 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       long lw = getLinesWritten();
       long lu = getLinesUpdated();
       long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
+      boolean processed = li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0;
+      if ( processed && log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
           .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
           .valueOf( errors + lj ) ) );
-      } else {
+      } else if ( !processed && log.isDetailed() ) {
         logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
           .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
           .valueOf( errors + lj ) ) );
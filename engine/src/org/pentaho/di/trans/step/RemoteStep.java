@@ -36,9 +36,8 @@ import java.net.SocketTimeoutException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
@@ -50,6 +49,7 @@ import org.pentaho.di.core.encryption.CertificateGenEncryptUtil;
 import org.pentaho.di.core.exception.KettleEOFException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowBlockCodec;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.xml.XMLHandler;
@@ -71,6 +71,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
   private static final long TIMEOUT_IN_SECONDS = 30;
 
+  /** A partial block of rows is sent when no more rows arrived this long after the last block was sent */
+  private static final long PARTIAL_BLOCK_INTERVAL_MS = 200;
+
   /** The target or source slave server with which we're exchanging data */
   private String targetSlaveServerName;
 
@@ -110,12 +113,8 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
   private CipherInputStream cipherInputStream;
   private CipherOutputStream cipherOutputStream;
 
-  private GZIPOutputStream gzipOutputStream;
-
   private String sourceSlaveServerName;
 
-  private GZIPInputStream gzipInputStream;
-
   private BufferedInputStream bufferedInputStream;
 
   protected BufferedOutputStream bufferedOutputStream;
@@ -351,12 +350,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           // Create the output stream...
           OutputStream socketOut = socket.getOutputStream();
 
-          if ( compressingStreams ) {
-            gzipOutputStream = new GZIPOutputStream( socketOut, 50000 );
-            bufferedOutputStream = new BufferedOutputStream( gzipOutputStream, bufferSize );
-          } else {
-            bufferedOutputStream = new BufferedOutputStream( socketOut, bufferSize );
-          }
+          bufferedOutputStream = new BufferedOutputStream( socketOut, bufferSize );
           socketOut = bufferedOutputStream;
           if ( encryptingStreams && key != null ) {
             byte[] transKey = baseStep.getTransMeta().getKey();
@@ -388,8 +382,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
           // get a row of data...
           Object[] rowData = baseStep.getRowFrom( rowSet );
+          RowBlockCodec codec = null;
+          long lastSent = System.currentTimeMillis();
           if ( rowData != null ) {
             rowSet.getRowMeta().writeMeta( outputStream );
+            codec = new RowBlockCodec( rowSet.getRowMeta(), compressingStreams );
+            codec.writeHeader( outputStream );
           }
 
           // Send that row to the remote step
@@ -399,23 +397,49 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             baseStep.decrementLinesRead();
             baseStep.decrementLinesWritten();
 
-            // Write the row to the remote step via the output stream....
+            // Add the row to the block of rows for the remote step, the block is written when it's full
             //
-            rowSet.getRowMeta().writeData( outputStream, rowData );
+            codec.addRow( outputStream, rowData );
             baseStep.incrementLinesOutput();
 
             if ( baseStep.log.isDebug() ) {
               baseStep.logDebug( "Sent row to port " + port + " : " + rowSet.getRowMeta().getString( rowData ) );
             }
-            rowData = baseStep.getRowFrom( rowSet );
+
+            // Full blocks are sent right away. The rows of a partial block don't wait for more rows for long, but a
+            // slow trickle of rows doesn't end up in a lot of tiny blocks either.
+            //
+            if ( codec.getNrRows() == 0 ) {
+              lastSent = System.currentTimeMillis();
+            }
+            rowData = null;
+            while ( rowData == null && codec.getNrRows() > 0 && !rowSet.isDone() && !baseStep.isStopped() ) {
+              long wait = lastSent + PARTIAL_BLOCK_INTERVAL_MS - System.currentTimeMillis();
+              if ( wait > 0 ) {
+                rowData = rowSet.getRowWait( wait, TimeUnit.MILLISECONDS );
+              } else {
+                rowData = rowSet.getRowImmediate();
+              }
+              if ( rowData == null && System.currentTimeMillis() - lastSent >= PARTIAL_BLOCK_INTERVAL_MS ) {
+                // Nothing came in time, send what we have
+                //
+                codec.flush( outputStream );
+                outputStream.flush();
+                lastSent = System.currentTimeMillis();
+              }
+            }
+            if ( rowData != null ) {
+              // Count it like getRowFrom() does, it's decremented again above
+              baseStep.incrementLinesRead();
+            } else {
+              rowData = baseStep.getRowFrom( rowSet );
+            }
           }
 
-          if ( compressingStreams ) {
-            outputStream.flush();
-            gzipOutputStream.finish();
-          } else {
-            outputStream.flush();
+          if ( codec != null ) {
+            codec.flush( outputStream );
           }
+          outputStream.flush();
 
         } catch ( Exception e ) {
           baseStep.logError( "Error writing to remote step", e );
@@ -439,9 +463,6 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
                 cipherOutputStream.close();
               }
               bufferedOutputStream.close();
-              if ( gzipOutputStream != null ) {
-                gzipOutputStream.close();
-              }
             }
           } catch ( Exception e ) {
             baseStep.logError( "Error shutting down output streams on the server socket of remote step", e );
@@ -450,7 +471,6 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           }
           outputStream = null;
           bufferedOutputStream = null;
-          gzipOutputStream = null;
           cipherOutputStream = null;
 
           //
@@ -491,10 +511,6 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           bufferedInputStream.close();
           bufferedInputStream = null;
         }
-        if ( gzipInputStream != null ) {
-          gzipInputStream.close();
-          gzipInputStream = null;
-        }
         if ( cipherInputStream != null ) {
           cipherInputStream.close();
           cipherInputStream = null;
@@ -503,10 +519,6 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           inputStream.close();
           inputStream = null;
         }
-        if ( gzipOutputStream != null ) {
-          gzipOutputStream.close();
-          gzipOutputStream = null;
-        }
         if ( bufferedOutputStream != null ) {
           bufferedOutputStream.close();
           bufferedOutputStream = null;
@@ -525,12 +537,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     }
   }
 
-  private Object[] getRowOfData( RowMetaInterface rowMeta ) throws KettleFileException {
+  private Object[] getRowOfData( RowBlockCodec codec ) throws KettleFileException {
     Object[] rowData = null;
 
     while ( !baseStep.isStopped() && rowData == null ) {
       try {
-        rowData = rowMeta.readData( inputStream );
+        rowData = codec.readRow( inputStream );
       } catch ( SocketTimeoutException e ) {
         rowData = null; // try again.
       }
@@ -578,12 +590,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
         connected = true;
 
         InputStream socketStream = socket.getInputStream();
-        if ( compressingStreams ) {
-          gzipInputStream = new GZIPInputStream( socketStream );
-          bufferedInputStream = new BufferedInputStream( gzipInputStream, bufferSize );
-        } else {
-          bufferedInputStream = new BufferedInputStream( socketStream, bufferSize );
-        }
+        bufferedInputStream = new BufferedInputStream( socketStream, bufferSize );
         socketStream = bufferedInputStream;
 
         if ( encryptingStreams && key != null ) {
@@ -681,9 +688,22 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             throw new KettleEOFException(); // leave now.
           }
 
+          // The rows follow in blocks, compressed or not as the writer decides
+          //
+          RowBlockCodec codec = new RowBlockCodec( rowMeta, compressingStreams );
+          boolean header = false;
+          while ( !baseStep.isStopped() && !header ) {
+            try {
+              codec.readHeader( inputStream );
+              header = true;
+            } catch ( SocketTimeoutException e ) {
+              header = false;
+            }
+          }
+
           // And a first row of data...
           //
-          Object[] rowData = getRowOfData( rowMeta );
+          Object[] rowData = getRowOfData( codec );
 
           // Now get the data itself, row by row...
           //
@@ -697,7 +717,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
             baseStep.putRowTo( rowMeta, rowData, rowSet );
             baseStep.decrementLinesWritten();
-            rowData = getRowOfData( rowMeta );
+            rowData = getRowOfData( codec );
           }
         } catch ( KettleEOFException e ) {
           // Nothing, we're simply done reading...
@@ -759,14 +779,6 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             }
           }
           bufferedInputStream = null;
-          if ( gzipInputStream != null ) {
-            try {
-              gzipInputStream.close();
-            } catch ( Exception e ) {
-              baseStep.logError( "Error closing input stream on socket connection to remote step", e );
-            }
-          }
-          gzipInputStream = null;
           baseStep.logDetailed( "Closed connection to server socket to read rows from remote step on server "
             + realHostname + " port " + portNumber + " - Local port=" + socket.getLocalPort() );
         }
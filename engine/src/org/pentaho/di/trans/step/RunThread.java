@@ -25,12 +25,14 @@ package org.pentaho.di.trans.step;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingRegistry;
 import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.performance.StepTimingStatistics;
 
 public class RunThread implements Runnable {
 
@@ -41,12 +43,14 @@ public class RunThread implements Runnable {
   private StepMetaInterface meta;
   private StepDataInterface data;
   private LogChannelInterface log;
+  private StepTimingStatistics timingStatistics;
 
   public RunThread( StepMetaDataCombi combi ) {
     this.step = combi.step;
     this.meta = combi.meta;
     this.data = combi.data;
     this.log = step.getLogChannel();
+    this.timingStatistics = step.getTimingStatistics();
   }
 
   public void run() {
@@ -59,7 +63,7 @@ public class RunThread implements Runnable {
       }
 
       // Wait
-      while ( step.processRow( meta, data ) ) {
+      while ( processRow() ) {
         if ( step.isStopped() ) {
           break;
         }
@@ -122,4 +126,16 @@ public class RunThread implements Runnable {
       }
     }
   }
+
+  private boolean processRow() throws KettleException {
+    if ( timingStatistics == null ) {
+      return step.processRow( meta, data );
+    }
+    long start = System.nanoTime();
+    try {
+      return step.processRow( meta, data );
+    } finally {
+      timingStatistics.recordProcessRow( System.nanoTime() - start );
+    }
+  }
 }
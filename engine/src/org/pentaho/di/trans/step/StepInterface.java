@@ -35,6 +35,7 @@ import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.performance.StepTimingStatistics;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
 import org.pentaho.metastore.api.IMetaStore;
 
@@ -449,4 +450,12 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   public void setCurrentInputRowSetNr( int index );
 
+  /**
+   * @return the time spent processing rows and waiting on the input and output buffers or null if the timing of this
+   *         step isn't measured
+   */
+  public default StepTimingStatistics getTimingStatistics() {
+    return null;
+  }
+
 }
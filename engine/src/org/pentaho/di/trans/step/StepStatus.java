@@ -38,6 +38,8 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.trans.performance.LatencyHistogram;
+import org.pentaho.di.trans.performance.StepTimingStatistics;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
@@ -61,6 +63,14 @@ public class StepStatus {
   private boolean stopped;
   private boolean paused;
 
+  private boolean timed;
+  private long processingTime;
+  private long inputWaitTime;
+  private long outputWaitTime;
+  private long latencyMedian;
+  private long latency99;
+  private long latencyMax;
+
   private RowMetaInterface sampleRowMeta;
   private List<Object[]> sampleRows;
 
@@ -103,6 +113,18 @@ public class StepStatus {
       baseStep.isRunning() ? "   " + baseStep.rowsetInputSize() + "/" + baseStep.rowsetOutputSize() : "-";
     this.stopped = baseStep.isStopped();
     this.paused = baseStep.isPaused();
+
+    StepTimingStatistics timingStatistics = baseStep.getTimingStatistics();
+    if ( timingStatistics != null ) {
+      LatencyHistogram latencies = timingStatistics.getLatencies().copy();
+      this.timed = true;
+      this.processingTime = timingStatistics.getProcessingNanos() / 1000000L;
+      this.inputWaitTime = timingStatistics.getInputWaitNanos() / 1000000L;
+      this.outputWaitTime = timingStatistics.getOutputWaitNanos() / 1000000L;
+      this.latencyMedian = latencies.getValueAtPercentile( 50.0 );
+      this.latency99 = latencies.getValueAtPercentile( 99.0 );
+      this.latencyMax = latencies.getMaxValue();
+    }
   }
 
   public String getHTMLTableRow( boolean urlInStepname ) {
@@ -136,6 +158,14 @@ public class StepStatus {
       xml.append( XMLHandler.addTagValue( "priority", priority, false ) );
       xml.append( XMLHandler.addTagValue( "stopped", stopped, false ) );
       xml.append( XMLHandler.addTagValue( "paused", paused, false ) );
+      if ( timed ) {
+        xml.append( XMLHandler.addTagValue( "processingTime", processingTime, false ) );
+        xml.append( XMLHandler.addTagValue( "inputWaitTime", inputWaitTime, false ) );
+        xml.append( XMLHandler.addTagValue( "outputWaitTime", outputWaitTime, false ) );
+        xml.append( XMLHandler.addTagValue( "latencyMedian", latencyMedian, false ) );
+        xml.append( XMLHandler.addTagValue( "latency99", latency99, false ) );
+        xml.append( XMLHandler.addTagValue( "latencyMax", latencyMax, false ) );
+      }
 
       if ( sampleRowMeta != null ) {
         xml.append( XMLHandler.openTag( "samples" ) );
@@ -177,6 +207,15 @@ public class StepStatus {
     priority = XMLHandler.getTagValue( node, "priority" );
     stopped = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "stopped" ) );
     paused = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "paused" ) );
+    timed = XMLHandler.getTagValue( node, "processingTime" ) != null;
+    if ( timed ) {
+      processingTime = Const.toLong( XMLHandler.getTagValue( node, "processingTime" ), 0L );
+      inputWaitTime = Const.toLong( XMLHandler.getTagValue( node, "inputWaitTime" ), 0L );
+      outputWaitTime = Const.toLong( XMLHandler.getTagValue( node, "outputWaitTime" ), 0L );
+      latencyMedian = Const.toLong( XMLHandler.getTagValue( node, "latencyMedian" ), 0L );
+      latency99 = Const.toLong( XMLHandler.getTagValue( node, "latency99" ), 0L );
+      latencyMax = Const.toLong( XMLHandler.getTagValue( node, "latencyMax" ), 0L );
+    }
 
     Node samplesNode = XMLHandler.getSubNode( node, "samples" );
     if ( samplesNode != null ) {
@@ -499,4 +538,109 @@ public class StepStatus {
     this.sampleRows = sampleRows;
   }
 
+  /**
+   * @return true if the timing of the step is measured
+   */
+  public boolean isTimed() {
+    return timed;
+  }
+
+  /**
+   * @param timed
+   *          true if the timing of the step is measured
+   */
+  public void setTimed( boolean timed ) {
+    this.timed = timed;
+  }
+
+  /**
+   * @return the time in ms spent in processRow()
+   */
+  public long getProcessingTime() {
+    return processingTime;
+  }
+
+  /**
+   * @param processingTime
+   *          the time in ms spent in processRow()
+   */
+  public void setProcessingTime( long processingTime ) {
+    this.processingTime = processingTime;
+  }
+
+  /**
+   * @return the time in ms spent waiting for input rows
+   */
+  public long getInputWaitTime() {
+    return inputWaitTime;
+  }
+
+  /**
+   * @param inputWaitTime
+   *          the time in ms spent waiting for input rows
+   */
+  public void setInputWaitTime( long inputWaitTime ) {
+    this.inputWaitTime = inputWaitTime;
+  }
+
+  /**
+   * @return the time in ms spent waiting to hand over output rows
+   */
+  public long getOutputWaitTime() {
+    return outputWaitTime;
+  }
+
+  /**
+   * @param outputWaitTime
+   *          the time in ms spent waiting to hand over output rows
+   */
+  public void setOutputWaitTime( long outputWaitTime ) {
+    this.outputWaitTime = outputWaitTime;
+  }
+
+  /**
+   * @return the median duration in ns of processRow()
+   */
+  public long getLatencyMedian() {
+    return latencyMedian;
+  }
+
+  /**
+   * @param latencyMedian
+   *          the median duration in ns of processRow()
+   */
+  public void setLatencyMedian( long latencyMedian ) {
+    this.latencyMedian = latencyMedian;
+  }
+
+  /**
+   * @return the 99th percentile of the duration in ns of processRow()
+   */
+  public long getLatency99() {
+    return latency99;
+  }
+
+  /**
+   * @param latency99
+   *          the 99th percentile of the duration in ns of processRow()
+   */
+  public void setLatency99( long latency99 ) {
+    this.latency99 = latency99;
+  }
+
+  /**
+   * @return the maximum duration in ns of processRow()
+   */
+  public long getLatencyMax() {
+    return latencyMax;
+  }
+
+  /**
+   * @param latencyMax
+   *          the maximum duration in ns of processRow()
+   */
+  public void setLatencyMax( long latencyMax ) {
+    this.latencyMax = latencyMax;
+  }
+
 }
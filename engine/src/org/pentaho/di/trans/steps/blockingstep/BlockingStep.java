@@ -38,6 +38,7 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowCodec;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
@@ -66,12 +67,17 @@ public class BlockingStep extends BaseStep implements StepInterface {
   }
 
   private boolean addBuffer( RowMetaInterface rowMeta, Object[] r ) {
+    boolean memoryBudgetExhausted = false;
     if ( r != null ) {
       data.buffer.add( r ); // Save row
+      if ( data.memoryReservation != null ) {
+        memoryBudgetExhausted = !data.memoryReservation.tryReserve( rowMeta.getEstimatedRowSize( r ) );
+      }
     }
 
     // Time to write to disk: buffer in core is full!
     if ( data.buffer.size() == meta.getCacheSize() // Buffer is full: dump to disk
+      || memoryBudgetExhausted && data.buffer.size() >= data.minSpillSize // Memory budget exhausted: dump to disk
       || ( data.files.size() > 0 && r == null && data.buffer.size() > 0 ) // No more records: join from disk
     ) {
       // Then write them to disk...
@@ -97,9 +103,10 @@ public class BlockingStep extends BaseStep implements StepInterface {
         // How many records do we have?
         dos.writeInt( data.buffer.size() );
 
+        RowCodec codec = new RowCodec( rowMeta );
         for ( p = 0; p < data.buffer.size(); p++ ) {
           // Just write the data, nothing else
-          rowMeta.writeData( dos, data.buffer.get( p ) );
+          codec.writeRow( dos, data.buffer.get( p ) );
         }
         // Close temp-file
         dos.close(); // close data stream
@@ -113,6 +120,9 @@ public class BlockingStep extends BaseStep implements StepInterface {
       }
 
       data.buffer.clear();
+      if ( data.memoryReservation != null ) {
+        data.memoryReservation.releaseAll();
+      }
     }
 
     return true;
@@ -145,6 +155,7 @@ public class BlockingStep extends BaseStep implements StepInterface {
           di = new DataInputStream( fi );
         }
         data.dis.add( di );
+        data.codec = new RowCodec( data.outputRowMeta );
 
         // How long is the buffer?
         int buffersize = di.readInt();
@@ -157,7 +168,7 @@ public class BlockingStep extends BaseStep implements StepInterface {
 
         if ( buffersize > 0 ) {
           // Read a row from temp-file
-          data.rowbuffer.add( data.outputRowMeta.readData( di ) );
+          data.rowbuffer.add( data.codec.readRow( di ) );
         }
       } catch ( Exception e ) {
         logError( BaseMessages.getString( PKG, "BlockingStepMeta.ErrorReadingFile" ) + e.toString() );
@@ -187,7 +198,7 @@ public class BlockingStep extends BaseStep implements StepInterface {
         GZIPInputStream gzfi = ( meta.getCompress() ) ? data.gzis.get( 0 ) : null;
 
         try {
-          data.rowbuffer.add( 0, data.outputRowMeta.readData( di ) );
+          data.rowbuffer.add( 0, data.codec.readRow( di ) );
         } catch ( SocketTimeoutException e ) {
           logError( BaseMessages.getString( PKG, "System.Log.UnexpectedError" ) + " : " + e.toString() );
           logError( Const.getStackTracker( e ) );
@@ -238,6 +249,9 @@ public class BlockingStep extends BaseStep implements StepInterface {
         logError( e.getLocalizedMessage(), e );
       }
     }
+    if ( data.memoryReservation != null ) {
+      data.memoryReservation.releaseAll();
+    }
     super.dispose( smi, sdi );
   }
 
@@ -246,7 +260,9 @@ public class BlockingStep extends BaseStep implements StepInterface {
     data = (BlockingStepData) sdi;
 
     if ( super.init( smi, sdi ) ) {
-      // Add init code here.
+      data.memoryReservation = createMemoryReservation( true );
+      // Don't write a temporary file per row when another step holds the memory budget
+      data.minSpillSize = Math.min( BlockingStepData.MIN_SPILL_SIZE, meta.getCacheSize() );
       return true;
     }
     return false;
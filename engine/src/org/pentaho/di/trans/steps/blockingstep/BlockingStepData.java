@@ -29,11 +29,16 @@ import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.memory.MemoryReservation;
+import org.pentaho.di.core.row.RowCodec;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 public class BlockingStepData extends BaseStepData implements StepDataInterface {
+
+  /** The default minimum number of rows to write to a temporary file when the memory budget is exhausted */
+  public static final int MIN_SPILL_SIZE = 5000;
   public List<FileObject> files;
   public List<Object[]> buffer;
   public List<InputStream> fis;
@@ -41,11 +46,20 @@ public class BlockingStepData extends BaseStepData implements StepDataInterface
   public List<DataInputStream> dis;
   public List<Object[]> rowbuffer;
 
+  /** Reads the rows of the temporary file that is open */
+  public RowCodec codec;
+
   public RowMetaInterface outputRowMeta;
 
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
 
+  /** The memory reserved for the rows in the buffer */
+  public MemoryReservation memoryReservation;
+
+  /** The minimum number of rows to write to a temporary file when the memory budget is exhausted */
+  public int minSpillSize;
+
   public BlockingStepData() {
     super();
 
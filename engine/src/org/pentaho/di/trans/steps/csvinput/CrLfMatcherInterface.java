@@ -22,8 +22,32 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public interface CrLfMatcherInterface {
   public boolean isReturn( byte[] source, int location );
 
   public boolean isLineFeed( byte[] source, int location );
+
+  /**
+   * The same for a memory mapped file. By default the bytes around the location are copied and handed to
+   * {@link #isReturn(byte[], int)}, the standard matchers look at the buffer directly.
+   */
+  public default boolean isReturn( ByteBuffer source, int location ) {
+    if ( location >= 1 ) {
+      return isReturn( new byte[] { source.get( location - 1 ), source.get( location ) }, 1 );
+    }
+    return isReturn( new byte[] { source.get( location ) }, 0 );
+  }
+
+  /**
+   * The same for a memory mapped file. By default the bytes around the location are copied and handed to
+   * {@link #isLineFeed(byte[], int)}, the standard matchers look at the buffer directly.
+   */
+  public default boolean isLineFeed( ByteBuffer source, int location ) {
+    if ( location >= 1 ) {
+      return isLineFeed( new byte[] { source.get( location - 1 ), source.get( location ) }, 1 );
+    }
+    return isLineFeed( new byte[] { source.get( location ) }, 0 );
+  }
 }
@@ -23,7 +23,6 @@
 package org.pentaho.di.trans.steps.csvinput;
 
 import org.apache.commons.vfs2.FileObject;
-import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.exception.KettleConversionException;
@@ -45,7 +44,6 @@ import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.textfileinput.EncodingType;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
@@ -296,14 +294,6 @@ public class CsvInput extends BaseStep implements StepInterface {
       logError( "Error closing file channel", e );
     }
 
-    try {
-      if ( data.fis != null ) {
-        data.fis.close();
-      }
-    } catch ( Exception e ) {
-      logError( "Error closing file input stream", e );
-    }
-
     super.dispose( smi, sdi );
   }
 
@@ -321,7 +311,8 @@ public class CsvInput extends BaseStep implements StepInterface {
       // Open the next one...
       //
       FileObject fileObject = KettleVFS.getFileObject( data.filenames[ data.filenr ], getTransMeta() );
-      if ( !( fileObject instanceof LocalFile ) ) {
+      data.fc = KettleVFS.getReadChannel( fileObject );
+      if ( data.fc == null ) {
         // We can only use NIO on local files at the moment, so that's what we limit ourselves to.
         //
         throw new KettleException( BaseMessages.getString( PKG, "CsvInput.Log.OnlyLocalFilesAreSupported" ) );
@@ -331,9 +322,9 @@ public class CsvInput extends BaseStep implements StepInterface {
         data.binaryFilename = data.filenames[ data.filenr ].getBytes();
       }
 
-      data.fis = new FileInputStream( KettleVFS.getFilename( fileObject ) );
-      data.fc = data.fis.getChannel();
-      data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+      if ( !data.memoryMapped ) {
+        data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+      }
 
       // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
       //
@@ -711,6 +702,7 @@ public class CsvInput extends BaseStep implements StepInterface {
       // PDI-10242 see if a variable is used as encoding value
       String realEncoding = environmentSubstitute( meta.getEncoding() );
       data.preferredBufferSize = Integer.parseInt( environmentSubstitute( meta.getBufferSize() ) );
+      data.memoryMapped = meta.isMemoryMapped();
 
       // If the step doesn't have any previous steps, we just get the filename.
       // Otherwise, we'll grab the list of file names later...
@@ -22,14 +22,15 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.List;
 
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.MappedBufferUtil;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.steps.textfileinput.EncodingType;
@@ -39,6 +40,11 @@ import org.pentaho.di.trans.steps.textfileinput.EncodingType;
  * @since 24-jan-2005
  */
 public class CsvInputData extends BaseStepData implements StepDataInterface {
+  /**
+   * The minimum size of the regions of the file that are mapped in memory at once in memory mapped mode.
+   */
+  public static final int MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
   public FileChannel fc;
   public ByteBuffer bb;
   public RowMetaInterface convertRowMeta;
@@ -49,6 +55,13 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
   private int endBuffer;
   private int bufferSize;
 
+  /** In memory mapped mode the current window of the file: the buffer pointers index into it instead of byteBuffer */
+  private MappedByteBuffer mappedBuffer;
+  /** The position in the file of the first byte of the mapped window */
+  private long mappedPosition;
+  /** The minimum size of a mapped window, only changed by unit tests */
+  int mappedWindowSize = MAPPED_WINDOW_SIZE;
+
   public byte[] delimiter;
   public byte[] enclosure;
 
@@ -57,7 +70,6 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
   public int filenr;
   public int startFilenr;
   public byte[] binaryFilename;
-  public FileInputStream fis;
 
   public boolean isAddingRowNumber;
   public long rowNumber;
@@ -74,6 +86,7 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
   public long totalBytesRead;
 
   public boolean parallel;
+  public boolean memoryMapped;
   public int filenameFieldIndex;
   public int rownumFieldIndex;
   public EncodingType encodingType;
@@ -151,6 +164,62 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     return n;
   }
 
+  /**
+   * Map the next window of the file in memory mode and scan it in place, nothing is copied into the byte array.<br>
+   * The first window of a file starts at the position of the file channel. Every next window starts at the beginning
+   * of the field that is being scanned so that field is always in one window. A window is at least
+   * {@link #MAPPED_WINDOW_SIZE} bytes, or the size of the current field plus the preferred buffer size if that is
+   * larger.
+   *
+   * @return the number of new bytes that can be scanned or -1 if the end of the file was reached
+   */
+  private int mapNextWindow() throws IOException {
+    long start;
+    if ( mappedBuffer == null ) {
+      start = fc.position();
+      startBuffer = 0;
+      endBuffer = 0;
+      bufferSize = 0;
+    } else {
+      start = mappedPosition + startBuffer;
+    }
+    int scanned = endBuffer - startBuffer;
+    long size = Math.min( fc.size() - start, Math.max( mappedWindowSize, (long) scanned + preferredBufferSize ) );
+    size = Math.min( size, Integer.MAX_VALUE );
+    if ( size <= scanned ) {
+      return -1;
+    }
+
+    releaseMappedBuffer();
+    mappedBuffer = fc.map( FileChannel.MapMode.READ_ONLY, start, size );
+    mappedPosition = start;
+    startBuffer = 0;
+    endBuffer = scanned;
+    bufferSize = (int) size;
+
+    return bufferSize - endBuffer;
+  }
+
+  /**
+   * Unmap the current window right away instead of waiting for the garbage collector to do it. Nothing may refer to
+   * the window afterwards: the fields are always copied out of it.
+   */
+  private void releaseMappedBuffer() {
+    MappedByteBuffer buffer = mappedBuffer;
+    mappedBuffer = null;
+    MappedBufferUtil.unmap( buffer );
+  }
+
+  /**
+   * A window has no slack at the end like the byte array does: past the end of the window nothing is found.
+   */
+  private byte byteAt( int index ) {
+    if ( mappedBuffer != null ) {
+      return index < bufferSize ? mappedBuffer.get( index ) : 0;
+    }
+    return byteBuffer[index];
+  }
+
   private void resizeByteBuffer( int newSize ) {
     ByteBuffer newBuffer = ByteBuffer.allocateDirect( newSize ); // Increase by 50%
     newBuffer.position( 0 );
@@ -168,6 +237,10 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
    */
   boolean resizeBufferIfNeeded() throws IOException {
     if ( endOfBuffer() ) {
+      if ( memoryMapped ) {
+        return mapNextWindow() < 0;
+      }
+
       // Oops, we need to read more data...
       // Better resize this before we read other things in it...
       //
@@ -251,7 +324,7 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
       length -= enclosure.length;
 
       // Lets get rid of the delimiter, if it is still in the range and spaces between it and the enclosure.
-      while ( ( byteBuffer[fieldStart + length] == 32 ) || ( byteBuffer[fieldStart + length] == delimiter[0] ) ) {
+      while ( ( byteAt( fieldStart + length ) == 32 ) || ( byteAt( fieldStart + length ) == delimiter[0] ) ) {
         length -= 1;
       }
 
@@ -267,19 +340,22 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     }
 
     byte[] field = new byte[length];
-    System.arraycopy( byteBuffer, fieldStart, field, 0, length );
+    if ( mappedBuffer != null ) {
+      mappedBuffer.position( fieldStart );
+      mappedBuffer.get( field, 0, length );
+    } else {
+      System.arraycopy( byteBuffer, fieldStart, field, 0, length );
+    }
 
     return field;
   }
 
   void closeFile() throws KettleException {
+    releaseMappedBuffer();
     try {
       if ( fc != null ) {
         fc.close();
       }
-      if ( fis != null ) {
-        fis.close();
-      }
     } catch ( IOException e ) {
       throw new KettleException( "Unable to close file channel for file '" + filenames[filenr - 1], e );
     }
@@ -298,14 +374,24 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
   }
 
   boolean newLineFound() {
+    if ( mappedBuffer != null ) {
+      return !endOfBuffer()
+        && ( crLfMatcher.isReturn( mappedBuffer, endBuffer ) || crLfMatcher.isLineFeed( mappedBuffer, endBuffer ) );
+    }
     return crLfMatcher.isReturn( byteBuffer, endBuffer ) || crLfMatcher.isLineFeed( byteBuffer, endBuffer );
   }
 
   boolean delimiterFound() {
+    if ( mappedBuffer != null ) {
+      return !endOfBuffer() && delimiterMatcher.matchesPattern( mappedBuffer, endBuffer, delimiter );
+    }
     return delimiterMatcher.matchesPattern( byteBuffer, endBuffer, delimiter );
   }
 
   boolean enclosureFound() {
+    if ( mappedBuffer != null ) {
+      return !endOfBuffer() && enclosureMatcher.matchesPattern( mappedBuffer, endBuffer, enclosure );
+    }
     return enclosureMatcher.matchesPattern( byteBuffer, endBuffer, enclosure );
   }
 
@@ -98,6 +98,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
 
   private boolean runningInParallel;
 
+  private boolean memoryMapped;
+
   private String encoding;
 
   private boolean newlinePossibleInFields;
@@ -146,6 +148,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
         "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, getXmlCode( "LAZY_CONVERSION" ) ) );
       isaddresult = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, getXmlCode( "ADD_FILENAME_RESULT" ) ) );
       runningInParallel = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, getXmlCode( "PARALLEL" ) ) );
+      memoryMapped = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, getXmlCode( "MEMORY_MAPPED" ) ) );
       String nlp = XMLHandler.getTagValue( stepnode, getXmlCode( "NEWLINE_POSSIBLE" ) );
       if ( Const.isEmpty( nlp ) ) {
         if ( runningInParallel ) {
@@ -205,6 +208,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       .append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "LAZY_CONVERSION" ), lazyConversionActive ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "ADD_FILENAME_RESULT" ), isaddresult ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "PARALLEL" ), runningInParallel ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "MEMORY_MAPPED" ), memoryMapped ) );
     retval.append( "    " ).append(
       XMLHandler.addTagValue( getXmlCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "ENCODING" ), encoding ) );
@@ -252,6 +256,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       lazyConversionActive = rep.getStepAttributeBoolean( id_step, getRepCode( "LAZY_CONVERSION" ) );
       isaddresult = rep.getStepAttributeBoolean( id_step, getRepCode( "ADD_FILENAME_RESULT" ) );
       runningInParallel = rep.getStepAttributeBoolean( id_step, getRepCode( "PARALLEL" ) );
+      memoryMapped = rep.getStepAttributeBoolean( id_step, getRepCode( "MEMORY_MAPPED" ) );
       newlinePossibleInFields =
         rep.getStepAttributeBoolean( id_step, 0, getRepCode( "NEWLINE_POSSIBLE" ), !runningInParallel );
       encoding = rep.getStepAttributeString( id_step, getRepCode( "ENCODING" ) );
@@ -295,6 +300,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "LAZY_CONVERSION" ), lazyConversionActive );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "ADD_FILENAME_RESULT" ), isaddresult );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "PARALLEL" ), runningInParallel );
+      rep.saveStepAttribute( id_transformation, id_step, getRepCode( "MEMORY_MAPPED" ), memoryMapped );
       rep
         .saveStepAttribute(
           id_transformation, id_step, getRepCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields );
@@ -676,6 +682,21 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
     this.runningInParallel = runningInParallel;
   }
 
+  /**
+   * @return true if the files are read through memory mapped regions instead of through the NIO buffer
+   */
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  /**
+   * @param memoryMapped
+   *          true to read the files through memory mapped regions instead of through the NIO buffer
+   */
+  public void setMemoryMapped( boolean memoryMapped ) {
+    this.memoryMapped = memoryMapped;
+  }
+
   /**
    * @return the encoding
    */
@@ -766,6 +787,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
           lazyConversionActive = (Boolean) entry.getValue();
         } else if ( attr.getKey().equals( "PARALLEL" ) ) {
           runningInParallel = (Boolean) entry.getValue();
+        } else if ( attr.getKey().equals( "MEMORY_MAPPED" ) ) {
+          memoryMapped = (Boolean) entry.getValue();
         } else if ( attr.getKey().equals( "NEWLINE_POSSIBLE" ) ) {
           newlinePossibleInFields = (Boolean) entry.getValue();
         } else if ( attr.getKey().equals( "ADD_FILENAME_RESULT" ) ) {
@@ -22,10 +22,17 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public class EmptyPatternMatcher implements PatternMatcherInterface {
 
   public boolean matchesPattern( byte[] source, int location, byte[] pattern ) {
     return false;
   }
 
+  @Override
+  public boolean matchesPattern( ByteBuffer source, int location, byte[] pattern ) {
+    return false;
+  }
+
 }
@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public class MultiByteBigCrLfMatcher implements CrLfMatcherInterface {
 
   @Override
@@ -42,4 +44,22 @@ public class MultiByteBigCrLfMatcher implements CrLfMatcherInterface {
     }
   }
 
+  @Override
+  public boolean isLineFeed( ByteBuffer source, int location ) {
+    if ( location >= 1 ) {
+      return source.get( location - 1 ) == 0 && source.get( location ) == 0x0a;
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean isReturn( ByteBuffer source, int location ) {
+    if ( location >= 1 ) {
+      return source.get( location - 1 ) == 0 && source.get( location ) == 0x0d;
+    } else {
+      return false;
+    }
+  }
+
 }
@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public class MultiByteLittleCrLfMatcher implements CrLfMatcherInterface {
 
   @Override
@@ -42,4 +44,22 @@ public class MultiByteLittleCrLfMatcher implements CrLfMatcherInterface {
     }
   }
 
+  @Override
+  public boolean isReturn( ByteBuffer source, int location ) {
+    if ( location >= 1 ) {
+      return source.get( location - 1 ) == 0x0d && source.get( location ) == 0x00;
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean isLineFeed( ByteBuffer source, int location ) {
+    if ( location >= 1 ) {
+      return source.get( location - 1 ) == 0x0a && source.get( location ) == 0x00;
+    } else {
+      return false;
+    }
+  }
+
 }
@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public class MultiBytePatternMatcher implements PatternMatcherInterface {
 
   public boolean matchesPattern( byte[] source, int location, byte[] pattern ) {
@@ -38,4 +40,19 @@ public class MultiBytePatternMatcher implements PatternMatcherInterface {
     }
   }
 
+  @Override
+  public boolean matchesPattern( ByteBuffer source, int location, byte[] pattern ) {
+    if ( location >= pattern.length - 1 ) {
+      int start = location - pattern.length + 1;
+      for ( int i = 0; i < pattern.length; i++ ) {
+        if ( source.get( start + i ) != pattern[i] ) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return false;
+    }
+  }
+
 }
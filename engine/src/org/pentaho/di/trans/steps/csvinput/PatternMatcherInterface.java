@@ -22,6 +22,21 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public interface PatternMatcherInterface {
   public boolean matchesPattern( byte[] source, int location, byte[] pattern );
+
+  /**
+   * The same for a memory mapped file. By default the bytes the pattern can match are copied and handed to
+   * {@link #matchesPattern(byte[], int, byte[])}, the standard matchers look at the buffer directly.
+   */
+  public default boolean matchesPattern( ByteBuffer source, int location, byte[] pattern ) {
+    int start = Math.max( 0, location - Math.max( 0, pattern.length - 1 ) );
+    byte[] bytes = new byte[location - start + 1];
+    for ( int i = 0; i < bytes.length; i++ ) {
+      bytes[i] = source.get( start + i );
+    }
+    return matchesPattern( bytes, location - start, pattern );
+  }
 }
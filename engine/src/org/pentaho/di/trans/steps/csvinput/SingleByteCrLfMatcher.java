@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public class SingleByteCrLfMatcher implements CrLfMatcherInterface {
 
   @Override
@@ -34,4 +36,14 @@ public class SingleByteCrLfMatcher implements CrLfMatcherInterface {
     return source[location] == '\r';
   }
 
+  @Override
+  public boolean isReturn( ByteBuffer source, int location ) {
+    return source.get( location ) == '\n';
+  }
+
+  @Override
+  public boolean isLineFeed( ByteBuffer source, int location ) {
+    return source.get( location ) == '\r';
+  }
+
 }
@@ -22,10 +22,17 @@
 
 package org.pentaho.di.trans.steps.csvinput;
 
+import java.nio.ByteBuffer;
+
 public class SingleBytePatternMatcher implements PatternMatcherInterface {
 
   public boolean matchesPattern( byte[] source, int location, byte[] pattern ) {
     return source[location] == pattern[0];
   }
 
+  @Override
+  public boolean matchesPattern( ByteBuffer source, int location, byte[] pattern ) {
+    return source.get( location ) == pattern[0];
+  }
+
 }
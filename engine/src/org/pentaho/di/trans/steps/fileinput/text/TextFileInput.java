@@ -22,9 +22,14 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.playlist.FilePlayListAll;
 import org.pentaho.di.core.playlist.FilePlayListReplay;
 import org.pentaho.di.i18n.BaseMessages;
@@ -45,6 +50,11 @@ import org.pentaho.di.trans.steps.fileinput.IBaseFileInputReader;
 public class TextFileInput extends BaseFileInputStep<TextFileInputMeta, TextFileInputData> implements StepInterface {
   private static Class<?> PKG = TextFileInputMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /**
+   * Running in parallel, a file is only split in byte ranges if every step copy gets at least this number of bytes.
+   */
+  public static final long PARALLEL_MIN_SPLIT_SIZE = 1024 * 1024;
+
   public TextFileInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -90,6 +100,77 @@ public class TextFileInput extends BaseFileInputStep<TextFileInputMeta, TextFile
     return true;
   }
 
+  @Override
+  protected void prepareToRowProcessing() throws KettleException {
+    super.prepareToRowProcessing();
+
+    // File names coming from a previous step are already spread over the copies
+    //
+    if ( meta.content.runningInParallel && getUniqueStepCountAcrossSlaves() > 1
+        && !meta.inputFiles.acceptingFilenames ) {
+      divideFiles();
+    }
+  }
+
+  /**
+   * Keep the files, or the parts of the files, this step copy has to read.
+   */
+  private void divideFiles() throws KettleException {
+    List<FileObject> files = data.files.getFiles();
+    long[] sizes = new long[files.size()];
+    boolean[] splittable = new boolean[files.size()];
+    boolean canSplit = canSplitFiles();
+    try {
+      for ( int i = 0; i < files.size(); i++ ) {
+        FileObject file = files.get( i );
+        if ( file.getType().hasContent() ) {
+          sizes[i] = file.getContent().getSize();
+          splittable[i] = canSplit;
+        }
+      }
+    } catch ( FileSystemException e ) {
+      throw new KettleException(
+          BaseMessages.getString( PKG, "TextFileInput.Exception.ErrorPreparingParallelRun" ), e );
+    }
+
+    long[][] ranges =
+        TextFileInputUtils.divideFiles( sizes, splittable, PARALLEL_MIN_SPLIT_SIZE, getUniqueStepNrAcrossSlaves(),
+            getUniqueStepCountAcrossSlaves() );
+
+    List<FileObject> assigned = new ArrayList<FileObject>();
+    data.fileRanges = new ArrayList<long[]>();
+    int nrSplit = 0;
+    for ( int i = 0; i < ranges.length; i++ ) {
+      if ( ranges[i] != null ) {
+        assigned.add( files.get( i ) );
+        data.fileRanges.add( ranges[i] );
+        if ( ranges[i][1] >= 0 ) {
+          nrSplit++;
+        }
+      }
+    }
+    files.clear();
+    files.addAll( assigned );
+
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TextFileInput.Log.ParallelFilesDivided", String.valueOf( assigned
+          .size() ), String.valueOf( sizes.length ), String.valueOf( nrSplit ) ) );
+    }
+  }
+
+  /**
+   * A file can only be split in byte ranges if the line feed is a single byte that can be found without decoding and
+   * if the lines don't depend on the lines around them or their position in the file.
+   */
+  private boolean canSplitFiles() {
+    String compression = meta.content.fileCompression;
+    return ( Const.isEmpty( compression ) || "None".equalsIgnoreCase( compression ) )
+        && EncodingType.guessEncodingType( meta.getEncoding() ) == EncodingType.SINGLE && !meta.content.footer
+        && !meta.content.lineWrapped && !meta.content.layoutPaged && !meta.content.rowNumberByFile
+        && meta.errorHandling.lineNumberFilesDestinationDirectory == null
+        && data.filePlayList instanceof FilePlayListAll;
+  }
+
   public boolean isWaitingForData() {
     return true;
   }
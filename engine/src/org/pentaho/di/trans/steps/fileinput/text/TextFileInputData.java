@@ -71,6 +71,12 @@ public class TextFileInputData extends BaseFileInputStepData {
 
   public EncodingType encodingType;
 
+  /**
+   * Running in parallel: the byte range (start and end) to read of each of the files in the list, null to read the
+   * complete file.
+   */
+  public List<long[]> fileRanges;
+
   public TextFileInputData() {
     // linked list is better, as usually .remove(0) is applied to this list
     lineBuffer = new LinkedList<TextFileLine>();
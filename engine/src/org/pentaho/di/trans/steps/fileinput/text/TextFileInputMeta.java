@@ -151,6 +151,10 @@ public class TextFileInputMeta extends
     @Injection( name = "NO_EMPTY_LINES" )
     public boolean noEmptyLines;
 
+    /** Flag indicating that the files are divided over the step copies running in parallel */
+    @Injection( name = "RUNNING_IN_PARALLEL" )
+    public boolean runningInParallel;
+
     /** Flag indicating that we should include the filename in the output */
     @Injection( name = "INCLUDE_FILENAME" )
     public boolean includeFilename;
@@ -287,6 +291,7 @@ public class TextFileInputMeta extends
 
       String nempty = XMLHandler.getTagValue( stepnode, "noempty" );
       content.noEmptyLines = YES.equalsIgnoreCase( nempty ) || nempty == null;
+      content.runningInParallel = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "parallel" ) );
       content.includeFilename = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "include" ) );
       content.filenameField = XMLHandler.getTagValue( stepnode, "include_field" );
       content.includeRowNumber = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "rownum" ) );
@@ -490,6 +495,7 @@ public class TextFileInputMeta extends
     content.nrLinesDocHeader = 0;
     content.fileCompression = "None";
     content.noEmptyLines = true;
+    content.runningInParallel = false;
     content.fileFormat = "DOS";
     content.fileType = "CSV";
     content.includeFilename = false;
@@ -705,6 +711,7 @@ public class TextFileInputMeta extends
     retval.append( "    " ).append( XMLHandler.addTagValue( "nr_lines_per_page", content.nrLinesPerPage ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "nr_lines_doc_header", content.nrLinesDocHeader ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "noempty", content.noEmptyLines ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "parallel", content.runningInParallel ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "include", content.includeFilename ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "include_field", content.filenameField ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "rownum", content.includeRowNumber ) );
@@ -864,6 +871,7 @@ public class TextFileInputMeta extends
       content.nrLinesPerPage = (int) rep.getStepAttributeInteger( id_step, "nr_lines_per_page" );
       content.nrLinesDocHeader = (int) rep.getStepAttributeInteger( id_step, "nr_lines_doc_header" );
       content.noEmptyLines = rep.getStepAttributeBoolean( id_step, "noempty" );
+      content.runningInParallel = rep.getStepAttributeBoolean( id_step, "parallel" );
 
       content.includeFilename = rep.getStepAttributeBoolean( id_step, "include" );
       content.filenameField = rep.getStepAttributeString( id_step, "include_field" );
@@ -1003,6 +1011,7 @@ public class TextFileInputMeta extends
       rep.saveStepAttribute( id_transformation, id_step, "nr_lines_doc_header", content.nrLinesDocHeader );
 
       rep.saveStepAttribute( id_transformation, id_step, "noempty", content.noEmptyLines );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel", content.runningInParallel );
 
       rep.saveStepAttribute( id_transformation, id_step, "include", content.includeFilename );
       rep.saveStepAttribute( id_transformation, id_step, "include_field", content.filenameField );
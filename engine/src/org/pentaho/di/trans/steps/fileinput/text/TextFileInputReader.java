@@ -23,6 +23,9 @@
 package org.pentaho.di.trans.steps.fileinput.text;
 
 import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 
 import org.apache.commons.vfs2.FileObject;
@@ -55,10 +58,15 @@ public class TextFileInputReader implements IBaseFileInputReader {
 
   private final InputStreamReader isr;
 
+  private final TextFileLineReader lineReader;
+
   protected long lineInFile;
 
   private boolean first;
 
+  /** The header lines are only present when reading from the start of the file */
+  private boolean header;
+
   protected long lineNumberInFile;
 
   public TextFileInputReader( IBaseFileInputStepControl step, TextFileInputMeta meta, TextFileInputData data,
@@ -75,7 +83,8 @@ public class TextFileInputReader implements IBaseFileInputReader {
       log.logDetailed( "This is a compressed file being handled by the " + provider.getName() + " provider" );
     }
 
-    in = provider.createInputStream( KettleVFS.getInputStream( file ) );
+    header = meta.content.header;
+    in = provider.createInputStream( getInputStream( file ) );
 
     in.nextEntry();
 
@@ -93,12 +102,39 @@ public class TextFileInputReader implements IBaseFileInputReader {
 
     String encoding = isr.getEncoding();
     data.encodingType = EncodingType.guessEncodingType( encoding );
+    lineReader = new TextFileLineReader( isr, data.encodingType, data.fileFormatType );
 
     readInitial();
   }
 
+  /**
+   * Open the file. When running in parallel only the lines starting in the byte range of this step copy are read.
+   */
+  private InputStream getInputStream( FileObject file ) throws Exception {
+    InputStream stream = KettleVFS.getInputStream( file );
+    long[] range = data.fileRanges == null ? null : data.fileRanges.get( data.currentFileIndex );
+    if ( range == null || range[1] < 0 ) {
+      return stream;
+    }
+
+    long end;
+    InputStream endStream = KettleVFS.getInputStream( file );
+    try {
+      end = TextFileInputUtils.getLineStart( endStream, range[1] );
+    } finally {
+      BaseStep.closeQuietly( endStream );
+    }
+    long start = TextFileInputUtils.getLineStart( stream, range[0] );
+    header &= start == 0;
+
+    if ( log.isDetailed() ) {
+      log.logDetailed( "Reading bytes " + start + " to " + end + " of file " + file.getName().getFriendlyURI() );
+    }
+    return new RangeInputStream( stream, Math.max( end - start, 0L ) );
+  }
+
   protected void readInitial() throws Exception {
-    data.doneWithHeader = !meta.content.header;
+    data.doneWithHeader = !header;
     // /////////////////////////////////////////////////////////////////////////////
     // Read the first lines...
 
@@ -111,7 +147,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
      * OK, read a number of lines in the buffer: The header rows The nr rows in the page : optional The footer rows
      */
     int bufferSize = 1;
-    bufferSize += meta.content.header ? meta.content.nrHeaderLines : 0;
+    bufferSize += header ? meta.content.nrHeaderLines : 0;
     bufferSize +=
         meta.content.layoutPaged ? meta.content.nrLinesPerPage * ( Math.max( 0, meta.content.nrWraps ) + 1 ) : Math.max(
             0, meta.content.nrWraps ); // it helps when we have wrapped input w/o header
@@ -122,16 +158,13 @@ public class TextFileInputReader implements IBaseFileInputReader {
     if ( meta.content.layoutPaged ) {
       for ( int i = 0; i < meta.content.nrLinesDocHeader; i++ ) {
         // Just skip these...
-        TextFileInputUtils.getLine( log, isr, data.encodingType, data.fileFormatType, data.lineStringBuilder ); // header
-                                                                                                                // and
-        // footer: not
-        // wrapped
+        lineReader.readLine( data.lineStringBuilder ); // header and footer: not wrapped
         lineNumberInFile++;
       }
     }
 
     for ( int i = 0; i < bufferSize && !data.doneReading; i++ ) {
-      boolean wasNotFiltered = tryToReadLine( !meta.content.header || i >= meta.content.nrHeaderLines );
+      boolean wasNotFiltered = tryToReadLine( !header || i >= meta.content.nrHeaderLines );
       if ( !wasNotFiltered ) {
         // grab another line, this one got filtered
         bufferSize++;
@@ -417,7 +450,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
 
   protected boolean tryToReadLine( boolean applyFilter ) throws KettleFileException {
     String line;
-    line = TextFileInputUtils.getLine( log, isr, data.encodingType, data.fileFormatType, data.lineStringBuilder );
+    line = lineReader.readLine( data.lineStringBuilder );
     if ( line != null ) {
       // when there is no header, check the filter for the first line
       if ( applyFilter ) {
@@ -470,4 +503,57 @@ public class TextFileInputReader implements IBaseFileInputReader {
     return filterOK;
   }
 
+
+  /**
+   * Reads no more than the given number of bytes of the wrapped stream.
+   */
+  private static class RangeInputStream extends FilterInputStream {
+    private long remaining;
+
+    RangeInputStream( InputStream in, long length ) {
+      super( in );
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if ( remaining <= 0 ) {
+        return -1;
+      }
+      int b = super.read();
+      if ( b >= 0 ) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+      if ( remaining <= 0 ) {
+        return -1;
+      }
+      int read = super.read( b, off, (int) Math.min( len, remaining ) );
+      if ( read > 0 ) {
+        remaining -= read;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException {
+      long skipped = super.skip( Math.min( n, remaining ) );
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min( super.available(), remaining );
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
 }
@@ -22,8 +22,12 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
@@ -567,7 +571,7 @@ public class TextFileInputUtils {
 
           // Is the field beginning with an enclosure?
           // "aa;aa";123;"aaa-aaa";000;...
-          if ( len_encl > 0 && line.substring( from, from + len_encl ).equalsIgnoreCase( enclosure ) ) {
+          if ( len_encl > 0 && regionEquals( line, from, len_encl, enclosure, true ) ) {
             if ( log.isRowLevel() ) {
               log.logRowlevel( BaseMessages.getString( PKG, "TextFileInput.Log.ConvertLineToRowTitle" ), BaseMessages
                   .getString( PKG, "TextFileInput.Log.Encloruse", line.substring( from, from + len_encl ) ) );
@@ -576,18 +580,16 @@ public class TextFileInputUtils {
             int p = from + len_encl;
 
             boolean is_enclosure =
-                len_encl > 0 && p + len_encl < length && line.substring( p, p + len_encl ).equalsIgnoreCase(
-                    enclosure );
+                len_encl > 0 && p + len_encl < length && regionEquals( line, p, len_encl, enclosure, true );
             boolean is_escape =
-                len_esc > 0 && p + len_esc < length && line.substring( p, p + len_esc ).equalsIgnoreCase(
-                    inf.content.escapeCharacter );
+                len_esc > 0 && p + len_esc < length && regionEquals( line, p, len_esc, inf.content.escapeCharacter,
+                    true );
 
             boolean enclosure_after = false;
 
             // Is it really an enclosure? See if it's not repeated twice or escaped!
             if ( ( is_enclosure || is_escape ) && p < length - 1 ) {
-              String strnext = line.substring( p + len_encl, p + 2 * len_encl );
-              if ( strnext.equalsIgnoreCase( enclosure ) ) {
+              if ( regionEquals( line, p + len_encl, len_encl, enclosure, true ) ) {
                 p++;
                 enclosure_after = true;
                 dencl = true;
@@ -604,16 +606,15 @@ public class TextFileInputUtils {
               p++;
               enclosure_after = false;
               is_enclosure =
-                  len_encl > 0 && p + len_encl < length && line.substring( p, p + len_encl ).equals( enclosure );
+                  len_encl > 0 && p + len_encl < length && regionEquals( line, p, len_encl, enclosure, false );
               is_escape =
-                  len_esc > 0 && p + len_esc < length && line.substring( p, p + len_esc ).equals(
-                      inf.content.escapeCharacter );
+                  len_esc > 0 && p + len_esc < length && regionEquals( line, p, len_esc, inf.content.escapeCharacter,
+                      false );
 
               // Is it really an enclosure? See if it's not repeated twice or escaped!
               if ( ( is_enclosure || is_escape ) && p < length - 1 ) {
 
-                String strnext = line.substring( p + len_encl, p + 2 * len_encl );
-                if ( strnext.equals( enclosure ) ) {
+                if ( regionEquals( line, p + len_encl, len_encl, enclosure, false ) ) {
                   p++;
                   enclosure_after = true;
                   dencl = true;
@@ -646,9 +647,7 @@ public class TextFileInputUtils {
 
               // See if this position is preceded by an escape character.
               if ( len_esc > 0 && next - len_esc > 0 ) {
-                String before = line.substring( next - len_esc, next );
-
-                if ( inf.content.escapeCharacter.equals( before ) ) {
+                if ( regionEquals( line, next - len_esc, len_esc, inf.content.escapeCharacter, false ) ) {
                   // take the next separator, this one is escaped...
                   startpoint = next + 1;
                   // tries++;
@@ -681,10 +680,11 @@ public class TextFileInputUtils {
 
           if ( dencl && Const.isEmpty( inf.content.escapeCharacter ) ) {
             StringBuilder sbpol = new StringBuilder( pol );
-            int idx = sbpol.indexOf( enclosure + enclosure );
+            String doubleEnclosure = enclosure + enclosure;
+            int idx = sbpol.indexOf( doubleEnclosure );
             while ( idx >= 0 ) {
               sbpol.delete( idx, idx + enclosure.length() );
-              idx = sbpol.indexOf( enclosure + enclosure );
+              idx = sbpol.indexOf( doubleEnclosure );
             }
             pol = sbpol.toString();
           }
@@ -758,4 +758,104 @@ public class TextFileInputUtils {
 
     return strings;
   }
+
+  /**
+   * Compare a region of the line with a string without creating a substring for it.
+   *
+   * @return true if the region of the given length starting at offset is equal to other
+   */
+  static boolean regionEquals( String line, int offset, int length, String other, boolean ignoreCase ) {
+    return other != null && other.length() == length && line.regionMatches( ignoreCase, offset, other, 0, length );
+  }
+
+  /**
+   * Divide the files over the step copies running in parallel. Every copy calculates the same plan so there is no need
+   * to coordinate. Files that can be split are divided in equal byte ranges over all the copies, provided each copy
+   * gets at least minSplitSize bytes. The other files are read completely by one copy: largest file first, to the copy
+   * with the least bytes to read so far.
+   *
+   * @param sizes
+   *          the size of each of the files
+   * @param splittable
+   *          flags the files that can be split in byte ranges
+   * @param minSplitSize
+   *          the minimum number of bytes per copy for a file to be split
+   * @param stepNr
+   *          the unique number of this step copy
+   * @param nrSteps
+   *          the number of step copies
+   * @return for each file the byte range (start and end) this copy reads, {0, -1} to read the complete file or null if
+   *         the file is read by another copy
+   */
+  public static long[][] divideFiles( final long[] sizes, boolean[] splittable, long minSplitSize, int stepNr,
+    int nrSteps ) {
+    long[][] ranges = new long[sizes.length][];
+    List<Integer> wholeFiles = new ArrayList<Integer>();
+    for ( int i = 0; i < sizes.length; i++ ) {
+      if ( splittable[i] && sizes[i] >= minSplitSize * nrSteps ) {
+        ranges[i] = new long[] { sizes[i] * stepNr / nrSteps, sizes[i] * ( stepNr + 1 ) / nrSteps };
+      } else {
+        wholeFiles.add( i );
+      }
+    }
+
+    Integer[] order = wholeFiles.toArray( new Integer[wholeFiles.size()] );
+    Arrays.sort( order, new Comparator<Integer>() {
+      @Override
+      public int compare( Integer one, Integer two ) {
+        int cmp = Long.compare( sizes[two], sizes[one] );
+        return cmp != 0 ? cmp : one.compareTo( two );
+      }
+    } );
+    long[] load = new long[nrSteps];
+    for ( int i : order ) {
+      int copy = 0;
+      for ( int c = 1; c < nrSteps; c++ ) {
+        if ( load[c] < load[copy] ) {
+          copy = c;
+        }
+      }
+      load[copy] += Math.max( sizes[i], 1L );
+      if ( copy == stepNr ) {
+        ranges[i] = new long[] { 0L, -1L };
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Find the start of the first line at or after a byte position: the position itself if it follows a line feed,
+   * otherwise the position right after the next line feed or the end of the stream. The line feed is a single byte in
+   * all the encodings where a file can be split, so a line end split in the middle of a CR/LF pair is not an issue.
+   *
+   * @param in
+   *          the stream at position 0, left positioned at the returned line start
+   * @param position
+   *          the byte position to start looking from
+   * @return the position of the line start
+   */
+  public static long getLineStart( InputStream in, long position ) throws IOException {
+    if ( position <= 0 ) {
+      return 0L;
+    }
+    long offset = 0L;
+    while ( offset < position - 1 ) {
+      long skipped = in.skip( position - 1 - offset );
+      if ( skipped <= 0 ) {
+        if ( in.read() < 0 ) {
+          return offset;
+        }
+        skipped = 1;
+      }
+      offset += skipped;
+    }
+    int b;
+    while ( ( b = in.read() ) >= 0 ) {
+      offset++;
+      if ( b == '\n' ) {
+        break;
+      }
+    }
+    return offset;
+  }
 }
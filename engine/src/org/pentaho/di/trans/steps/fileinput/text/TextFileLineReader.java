@@ -0,0 +1,178 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Reads the lines of a text file in blocks of characters.<br>
+ * <br>
+ * {@link TextFileInputUtils#getLine(org.pentaho.di.core.logging.LogChannelInterface, java.io.InputStreamReader,
+ * EncodingType, int, StringBuilder)} asks the reader for one character at a time, which goes through the locking and
+ * decoding machinery of the reader for every single character. This reader decodes a complete block at once, scans the
+ * block for the line ends and copies the characters in between in one go. The DOS, UNIX and mixed file format rules are
+ * the same as the ones of getLine().
+ */
+public class TextFileLineReader {
+  private static Class<?> PKG = TextFileLineReader.class; // for i18n purposes, needed by Translator2!!
+
+  public static final int DEFAULT_BLOCK_SIZE = 8192;
+
+  private final Reader reader;
+  private final EncodingType encodingType;
+  private final int formatNr;
+  private final char[] block;
+
+  private int position;
+  private int limit;
+
+  public TextFileLineReader( Reader reader, EncodingType encodingType, int formatNr ) {
+    this( reader, encodingType, formatNr, DEFAULT_BLOCK_SIZE );
+  }
+
+  public TextFileLineReader( Reader reader, EncodingType encodingType, int formatNr, int blockSize ) {
+    this.reader = reader;
+    this.encodingType = encodingType;
+    this.formatNr = formatNr;
+    this.block = new char[blockSize];
+  }
+
+  /**
+   * Read the next line.
+   *
+   * @param line
+   *          the builder to re-use for the line
+   * @return the line without the line end or null if the end of the file was reached
+   * @throws KettleFileException
+   *           in case a DOS line end is incomplete or the file can't be read
+   */
+  public String readLine( StringBuilder line ) throws KettleFileException {
+    line.setLength( 0 );
+    try {
+      switch ( formatNr ) {
+        case TextFileInputMeta.FILE_FORMAT_DOS:
+          return readDosLine( line );
+        case TextFileInputMeta.FILE_FORMAT_UNIX:
+          return readUnixLine( line );
+        case TextFileInputMeta.FILE_FORMAT_MIXED:
+          return readMixedLine( line );
+        default:
+          return null;
+      }
+    } catch ( IOException e ) {
+      if ( line.length() == 0 ) {
+        throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.Error.ExceptionReadingLine", e
+            .toString() ), e );
+      }
+      return line.toString();
+    }
+  }
+
+  private String readDosLine( StringBuilder line ) throws IOException, KettleFileException {
+    while ( fill() ) {
+      int start = position;
+      while ( position < limit ) {
+        char c = block[position];
+        if ( encodingType.isReturn( c ) || encodingType.isLinefeed( c ) ) {
+          line.append( block, start, position - start );
+          position++;
+          // The line end takes 2 characters, make sure the second one is there too
+          //
+          if ( !fill() || !encodingType.isReturn( block[position] ) && !encodingType.isLinefeed( block[position] ) ) {
+            throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.SingleLineFound" ) );
+          }
+          position++;
+          return line.toString();
+        }
+        position++;
+      }
+      line.append( block, start, position - start );
+    }
+    return endOfFile( line );
+  }
+
+  private String readUnixLine( StringBuilder line ) throws IOException {
+    while ( fill() ) {
+      int start = position;
+      while ( position < limit ) {
+        char c = block[position];
+        if ( encodingType.isLinefeed( c ) || encodingType.isReturn( c ) ) {
+          line.append( block, start, position - start );
+          position++;
+          return line.toString();
+        }
+        position++;
+      }
+      line.append( block, start, position - start );
+    }
+    return endOfFile( line );
+  }
+
+  private String readMixedLine( StringBuilder line ) throws IOException {
+    // in mixed mode we suppose the LF is the last char and CR is ignored
+    //
+    while ( fill() ) {
+      int start = position;
+      while ( position < limit ) {
+        char c = block[position];
+        if ( encodingType.isLinefeed( c ) ) {
+          line.append( block, start, position - start );
+          position++;
+          return line.toString();
+        } else if ( encodingType.isReturn( c ) ) {
+          line.append( block, start, position - start );
+          start = position + 1;
+        }
+        position++;
+      }
+      line.append( block, start, position - start );
+    }
+    return endOfFile( line );
+  }
+
+  private String endOfFile( StringBuilder line ) {
+    return line.length() > 0 ? line.toString() : null;
+  }
+
+  /**
+   * Make sure there is at least one character available in the block.
+   *
+   * @return false if the end of the file was reached
+   */
+  private boolean fill() throws IOException {
+    if ( position < limit ) {
+      return true;
+    }
+    int read;
+    do {
+      read = reader.read( block, 0, block.length );
+    } while ( read == 0 );
+    position = 0;
+    limit = Math.max( read, 0 );
+    return read > 0;
+  }
+}
@@ -58,6 +58,7 @@ import org.pentaho.di.resource.ResourceReference;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.TransMetaCache;
 import org.pentaho.di.trans.step.BaseStepMeta;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepIOMeta;
@@ -634,7 +635,7 @@ public class MappingMeta extends BaseStepMeta implements StepMetaInterface, HasR
           //
           // Don't set internal variables: they belong to the parent thread!
           // PDI-3064 do not share with parent variable space
-          mappingTransMeta = new TransMeta( realFilename, metaStore, rep, true, null, null );
+          mappingTransMeta = TransMetaCache.getInstance().loadTransMeta( realFilename, metaStore, rep, true, null );
           mappingTransMeta.getLogChannel().logDetailed(
             "Loading Mapping from repository",
             "Mapping transformation was loaded from XML file [" + realFilename + "]" );
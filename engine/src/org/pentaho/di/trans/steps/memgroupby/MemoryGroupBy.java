@@ -60,6 +60,12 @@ import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
 public class MemoryGroupBy extends BaseStep implements StepInterface {
   private static Class<?> PKG = MemoryGroupByMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The estimated size of a Double added to the list of a median or percentile aggregate. */
+  private static final long ESTIMATED_LIST_ELEMENT_SIZE = 24L;
+
+  /** The estimated size of an entry in the set of a count distinct aggregate, without the value itself. */
+  private static final long ESTIMATED_SET_ENTRY_SIZE = 40L;
+
   private MemoryGroupByMeta meta;
 
   private MemoryGroupByData data;
@@ -256,11 +262,19 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       aggregate = new Aggregate();
       newAggregate( r, aggregate );
 
+      // Account for it before storing it: group key + aggregates + hash map entry
+      //
+      reserveMemory( data.groupMeta.getEstimatedRowSize( groupData ) + data.aggMeta.getEstimatedRowSize() + 64 );
+
       // Store it in the map!
       //
       data.map.put( entry, aggregate );
     }
 
+    // The memory the aggregates that collect values grow by
+    //
+    long growth = 0L;
+
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
       Object subj = r[data.subjectnrs[i]];
       ValueMetaInterface subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[i] );
@@ -281,6 +295,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
           if ( !subjMeta.isNull( subj ) ) {
             ( (List<Double>) aggregate.agg[i] ).add( subjMeta.getNumber( subj ) );
+            growth += ESTIMATED_LIST_ELEMENT_SIZE;
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
@@ -312,6 +327,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
             Object obj = subjMeta.convertToNormalStorageType( subj );
             if ( !aggregate.distinctObjs[i].contains( obj ) ) {
               aggregate.distinctObjs[i].add( obj );
+              growth += ESTIMATED_SET_ENTRY_SIZE + subjMeta.getEstimatedSize( subj );
             }
           }
           aggregate.counts[i] = aggregate.distinctObjs[i].size();
@@ -360,10 +376,12 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
           if ( !( subj == null ) ) {
             StringBuilder sb = (StringBuilder) value;
+            int length = sb.length();
             if ( sb.length() > 0 ) {
               sb.append( ", " );
             }
             sb.append( subjMeta.getString( subj ) );
+            growth += 2L * ( sb.length() - length );
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
@@ -373,16 +391,22 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
               separator = environmentSubstitute( meta.getValueField()[i] );
             }
             StringBuilder sb = (StringBuilder) value;
+            int length = sb.length();
             if ( sb.length() > 0 ) {
               sb.append( separator );
             }
             sb.append( subjMeta.getString( subj ) );
+            growth += 2L * ( sb.length() - length );
           }
           break;
         default:
           break;
       }
     }
+
+    if ( growth > 0 ) {
+      reserveMemory( growth );
+    }
   }
 
   /**
@@ -549,6 +573,21 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
   }
 
+  /**
+   * Account for the memory a new group or a growing aggregate occupies in the memory budget of the transformation. All
+   * of it is released when the groups are cleared.
+   */
+  private void reserveMemory( long size ) throws KettleException {
+    if ( data.memoryReservation == null ) {
+      return;
+    }
+    if ( !data.memoryReservation.reserve( size ) && !data.memoryBudgetWarned ) {
+      logBasic( BaseMessages.getString( PKG, "MemoryGroupBy.Log.MemoryBudgetExceeded", data.memoryReservation
+        .getManager().toString() ) );
+      data.memoryBudgetWarned = true;
+    }
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (MemoryGroupByMeta) smi;
@@ -556,6 +595,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+      data.memoryReservation = createMemoryReservation( false );
       return true;
     }
     return false;
@@ -576,6 +616,9 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     // Clear the complete cache...
     //
     data.map.clear();
+    if ( data.memoryReservation != null ) {
+      data.memoryReservation.releaseAll();
+    }
 
     data.newBatch = true;
   }
@@ -25,6 +25,7 @@ package org.pentaho.di.trans.steps.memgroupby;
 import java.util.HashMap;
 
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.memory.MemoryReservation;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -99,6 +100,9 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  public MemoryReservation memoryReservation;
+  public boolean memoryBudgetWarned;
+
   public MemoryGroupByData() {
     super();
 
@@ -113,5 +117,8 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
    */
   public void clear() {
     map = new HashMap<MemoryGroupByData.HashEntry, Aggregate>();
+    if ( memoryReservation != null ) {
+      memoryReservation.releaseAll();
+    }
   }
 }
@@ -28,6 +28,7 @@ import java.util.List;
 
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -143,6 +144,16 @@ public class MergeJoin extends BaseStep implements StepInterface {
         }
       }
 
+      if ( data.keyNrs1 != null ) {
+        data.oneComparator = RowComparator.create( data.oneMeta, data.keyNrs1 );
+      }
+      if ( data.keyNrs2 != null ) {
+        data.twoComparator = RowComparator.create( data.twoMeta, data.keyNrs2 );
+      }
+      if ( data.keyNrs1 != null && data.keyNrs2 != null ) {
+        data.comparator = RowComparator.create( data.oneMeta, data.keyNrs1, data.twoMeta, data.keyNrs2 );
+      }
+
       // Calculate one_dummy... defaults to null
       data.one_dummy = RowDataUtil.allocateRowData( data.oneMeta.size() + data.twoMeta.size() );
 
@@ -182,7 +193,7 @@ public class MergeJoin extends BaseStep implements StepInterface {
       if ( data.two == null ) {
         compare = 1;
       } else {
-        int cmp = data.oneMeta.compare( data.one, data.twoMeta, data.two, data.keyNrs1, data.keyNrs2 );
+        int cmp = data.comparator.compare( data.one, data.two );
         compare = cmp > 0 ? 1 : cmp < 0 ? -1 : 0;
       }
     }
@@ -198,12 +209,8 @@ public class MergeJoin extends BaseStep implements StepInterface {
         data.one_next = getRowFrom( data.oneRowSet );
         data.two_next = getRowFrom( data.twoRowSet );
 
-        int compare1 =
-          ( data.one_next == null ) ? -1 : data.oneMeta.compare(
-            data.one, data.one_next, data.keyNrs1, data.keyNrs1 );
-        int compare2 =
-          ( data.two_next == null ) ? -1 : data.twoMeta.compare(
-            data.two, data.two_next, data.keyNrs2, data.keyNrs2 );
+        int compare1 = ( data.one_next == null ) ? -1 : data.oneComparator.compare( data.one, data.one_next );
+        int compare2 = ( data.two_next == null ) ? -1 : data.twoComparator.compare( data.two, data.two_next );
         if ( compare1 == 0 || compare2 == 0 ) { // Duplicate keys
 
           if ( data.ones == null ) {
@@ -223,8 +230,7 @@ public class MergeJoin extends BaseStep implements StepInterface {
             data.ones.add( data.one_next );
             for ( ; !isStopped(); ) {
               data.one_next = getRowFrom( data.oneRowSet );
-              if ( 0 != ( ( data.one_next == null ) ? -1 : data.oneMeta.compare(
-                data.one, data.one_next, data.keyNrs1, data.keyNrs1 ) ) ) {
+              if ( 0 != ( ( data.one_next == null ) ? -1 : data.oneComparator.compare( data.one, data.one_next ) ) ) {
                 break;
               }
               data.ones.add( data.one_next );
@@ -239,8 +245,7 @@ public class MergeJoin extends BaseStep implements StepInterface {
             data.twos.add( data.two_next );
             for ( ; !isStopped(); ) {
               data.two_next = getRowFrom( data.twoRowSet );
-              if ( 0 != ( ( data.two_next == null ) ? -1 : data.twoMeta.compare(
-                data.two, data.two_next, data.keyNrs2, data.keyNrs2 ) ) ) {
+              if ( 0 != ( ( data.two_next == null ) ? -1 : data.twoComparator.compare( data.two, data.two_next ) ) ) {
                 break;
               }
               data.twos.add( data.two_next );
@@ -25,6 +25,7 @@ package org.pentaho.di.trans.steps.mergejoin;
 import java.util.List;
 
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -45,6 +46,7 @@ public class MergeJoinData extends BaseStepData implements StepDataInterface {
   public boolean one_optional, two_optional;
   public int[] keyNrs1;
   public int[] keyNrs2;
+  public RowComparator oneComparator, twoComparator, comparator;
 
   public RowSet oneRowSet;
   public RowSet twoRowSet;
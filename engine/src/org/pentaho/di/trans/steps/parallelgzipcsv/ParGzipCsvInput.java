@@ -22,7 +22,9 @@
 
 package org.pentaho.di.trans.steps.parallelgzipcsv;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
@@ -30,6 +32,7 @@ import java.util.zip.GZIPInputStream;
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.compress.bgzip.BlockGzipInputStream;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.row.RowDataUtil;
@@ -82,6 +85,7 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
       // AND if we have more than one step copy running...
       //
       data.parallel = meta.isRunningInParallel() && data.totalNumberOfSteps > 1;
+      data.blockGzipped = data.parallel && meta.isBlockGzipped();
 
       // The conversion logic for when the lazy conversion is turned of is simple:
       // Pretend it's a lazy conversion object anyway and get the native type during conversion.
@@ -163,7 +167,7 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
 
   private boolean skipToNextBlock() throws KettleException {
 
-    if ( data.eofReached ) {
+    if ( data.eofReached || data.blockGzipped ) {
       return true; // next file please!
     }
     // Reset the bytes read in the current block of data
@@ -286,20 +290,27 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
         data.binaryFilename = data.filenames[data.filenr].getBytes();
       }
 
-      data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
-
       clearBuffer();
       data.fileReadPosition = 0L;
       data.blockNr = 0;
       data.eofReached = false;
 
+      if ( !data.blockGzipped ) {
+        data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      }
+
       // Skip to the next file...
       //
       data.filenr++;
 
       // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
       //
-      if ( data.parallel ) {
+      if ( data.blockGzipped ) {
+        if ( !openFilePart( fileObject ) ) {
+          data.eofReached = true;
+          return false;
+        }
+      } else if ( data.parallel ) {
         // Calculate the first block of data to read from the file
         // If the buffer size is 500, we read 0-499 for the first file,
         // 500-999 for the second, 1000-1499 for the third, etc.
@@ -391,6 +402,51 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Every step copy reads the gzip members that start in its own part of the compressed file. The first line is
+   * skipped by all but the first copy since the previous copy reads the line it is on until the end.
+   *
+   * @return false if no member starts in the part of this step copy
+   */
+  private boolean openFilePart( FileObject fileObject ) throws IOException, KettleException {
+    long size = fileObject.getContent().getSize();
+    long start = size * data.stepNumber / data.totalNumberOfSteps;
+    long end = size * ( data.stepNumber + 1 ) / data.totalNumberOfSteps;
+    String filename = data.filenames[data.filenr - 1];
+
+    InputStream in = new BufferedInputStream( data.fis, data.bufferSize );
+    long skipped = 0L;
+    while ( skipped < start ) {
+      long n = in.skip( start - skipped );
+      if ( n <= 0 ) {
+        break;
+      }
+      skipped += n;
+    }
+
+    long memberStart = start == 0 ? 0L : BlockGzipInputStream.seekMemberStart( in, skipped, end );
+    if ( skipped < start || memberStart < 0 ) {
+      logBasic( BaseMessages.getString( PKG, "ParGzipCsvInput.Log.NoMemberInPart", filename, Long.toString( start ),
+        Long.toString( end ) ) );
+      return false;
+    }
+    logBasic( BaseMessages.getString( PKG, "ParGzipCsvInput.Log.ReadingMembers", filename, Long
+      .toString( memberStart ), Long.toString( end ) ) );
+
+    data.gzis = new BlockGzipInputStream( in, memberStart, end, data.bufferSize );
+    data.blockSize = Long.MAX_VALUE;
+    data.totalBytesRead = 0L;
+
+    if ( memberStart > 0 ) {
+      // Skip the first row until the next CR
+      //
+      readOneRow( false );
+    } else if ( meta.isHeaderPresent() ) {
+      readOneRow( false );
+    }
+    return true;
+  }
+
   private void clearBuffer() {
     data.startBuffer = 0;
     data.endBuffer = 0;
@@ -434,7 +490,7 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
     // Since we always skip the first row after skipping a block that would mean we drop rows here and there.
     // So keep this > (larger than)
     //
-    if ( data.totalBytesRead > data.blockSize ) {
+    if ( data.totalBytesRead > data.blockSize || data.isPastBlockEnd() ) {
       // skip to the next block or file by returning null
       //
       return null;
@@ -24,8 +24,8 @@ package org.pentaho.di.trans.steps.parallelgzipcsv;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
 
+import org.pentaho.di.core.compress.bgzip.BlockGzipInputStream;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -53,9 +53,14 @@ public class ParGzipCsvInputData extends BaseStepData implements StepDataInterfa
   public int totalNumberOfSteps;
 
   public boolean parallel;
+
+  /**
+   * True if the files are split over the step copies on gzip member boundaries.
+   */
+  public boolean blockGzipped;
   public int filenameFieldIndex;
   public int rownumFieldIndex;
-  public GZIPInputStream gzis;
+  public InputStream gzis;
   public int bufferSize;
   public byte[] delimiter;
   public byte[] enclosure;
@@ -106,6 +111,21 @@ public class ParGzipCsvInputData extends BaseStepData implements StepDataInterfa
     return result;
   }
 
+  /**
+   * @return the position in the uncompressed data of the end buffer pointer
+   */
+  public long getReadPosition() {
+    return fileReadPosition - maxBuffer + endBuffer;
+  }
+
+  /**
+   * @return true if the line starting at the end buffer pointer belongs to the next step copy because it starts past
+   *         the first gzip member of the part of the file of that step copy.
+   */
+  public boolean isPastBlockEnd() {
+    return blockGzipped && getReadPosition() > ( (BlockGzipInputStream) gzis ).getEndPosition();
+  }
+
   /**
    * Read more data from our current file...
    *
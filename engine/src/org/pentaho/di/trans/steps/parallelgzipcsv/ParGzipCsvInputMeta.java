@@ -95,6 +95,8 @@ public class ParGzipCsvInputMeta extends BaseStepMeta implements StepMetaInterfa
 
   private boolean runningInParallel;
 
+  private boolean blockGzipped;
+
   private String encoding;
 
   public ParGzipCsvInputMeta() {
@@ -138,6 +140,7 @@ public class ParGzipCsvInputMeta extends BaseStepMeta implements StepMetaInterfa
       lazyConversionActive = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "lazy_conversion" ) );
       isaddresult = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "add_filename_result" ) );
       runningInParallel = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "parallel" ) );
+      blockGzipped = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "block_gzipped" ) );
       encoding = XMLHandler.getTagValue( stepnode, "encoding" );
 
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
@@ -183,6 +186,7 @@ public class ParGzipCsvInputMeta extends BaseStepMeta implements StepMetaInterfa
     retval.append( "    " ).append( XMLHandler.addTagValue( "lazy_conversion", lazyConversionActive ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "add_filename_result", isaddresult ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "parallel", runningInParallel ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "block_gzipped", blockGzipped ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "encoding", encoding ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
@@ -221,6 +225,7 @@ public class ParGzipCsvInputMeta extends BaseStepMeta implements StepMetaInterfa
       lazyConversionActive = rep.getStepAttributeBoolean( id_step, "lazy_conversion" );
       isaddresult = rep.getStepAttributeBoolean( id_step, "add_filename_result" );
       runningInParallel = rep.getStepAttributeBoolean( id_step, "parallel" );
+      blockGzipped = rep.getStepAttributeBoolean( id_step, "block_gzipped" );
       encoding = rep.getStepAttributeString( id_step, "encoding" );
 
       int nrfields = rep.countNrStepAttributes( id_step, "field_name" );
@@ -259,6 +264,7 @@ public class ParGzipCsvInputMeta extends BaseStepMeta implements StepMetaInterfa
       rep.saveStepAttribute( id_transformation, id_step, "lazy_conversion", lazyConversionActive );
       rep.saveStepAttribute( id_transformation, id_step, "add_filename_result", isaddresult );
       rep.saveStepAttribute( id_transformation, id_step, "parallel", runningInParallel );
+      rep.saveStepAttribute( id_transformation, id_step, "block_gzipped", blockGzipped );
       rep.saveStepAttribute( id_transformation, id_step, "encoding", encoding );
 
       for ( int i = 0; i < inputFields.length; i++ ) {
@@ -634,6 +640,23 @@ public class ParGzipCsvInputMeta extends BaseStepMeta implements StepMetaInterfa
     this.runningInParallel = runningInParallel;
   }
 
+  /**
+   * @return true if the files are multi-member (block) gzipped so that they can be split over the step copies on
+   *         member boundaries
+   */
+  public boolean isBlockGzipped() {
+    return blockGzipped;
+  }
+
+  /**
+   * @param blockGzipped
+   *          true if the files are multi-member (block) gzipped so that they can be split over the step copies on
+   *          member boundaries
+   */
+  public void setBlockGzipped( boolean blockGzipped ) {
+    this.blockGzipped = blockGzipped;
+  }
+
   /**
    * @return the encoding
    */
@@ -53,7 +53,8 @@ public class ParGzipCsvInputMetaInjection implements StepMetaInjectionInterface
         ValueMetaInterface.TYPE_STRING, "I/O buffer size" ), LAZY_CONVERSION(
         ValueMetaInterface.TYPE_STRING, "Use lazy conversion? (Y/N)" ), ADD_FILES_TO_RESULT(
         ValueMetaInterface.TYPE_STRING, "Add files to result? (Y/N)" ), RUN_IN_PARALLEL(
-        ValueMetaInterface.TYPE_STRING, "Run in parallel? (Y/N)" ), ENCODING(
+        ValueMetaInterface.TYPE_STRING, "Run in parallel? (Y/N)" ), BLOCK_GZIPPED(
+        ValueMetaInterface.TYPE_STRING, "Split block gzipped files over the step copies? (Y/N)" ), ENCODING(
         ValueMetaInterface.TYPE_STRING, "The file encoding" ),
 
       FIELDS( ValueMetaInterface.TYPE_NONE, "The fields" ), FIELD( ValueMetaInterface.TYPE_NONE, "One field" ),
@@ -112,7 +113,7 @@ public class ParGzipCsvInputMetaInjection implements StepMetaInjectionInterface
       new Entry[] {
         Entry.FILENAME, Entry.FILENAME_FIELD, Entry.INCLUDING_FILENAMES, Entry.ROW_NUMBER_FIELD,
         Entry.HEADER_PRESENT, Entry.DELIMITER, Entry.ENCLOSURE, Entry.BUFFER_SIZE, Entry.LAZY_CONVERSION,
-        Entry.ADD_FILES_TO_RESULT, Entry.RUN_IN_PARALLEL, Entry.ENCODING, };
+        Entry.ADD_FILES_TO_RESULT, Entry.RUN_IN_PARALLEL, Entry.BLOCK_GZIPPED, Entry.ENCODING, };
     for ( Entry topEntry : topEntries ) {
       all.add( new StepInjectionMetaEntry( topEntry.name(), topEntry.getValueType(), topEntry.getDescription() ) );
     }
@@ -254,6 +255,9 @@ public class ParGzipCsvInputMetaInjection implements StepMetaInjectionInterface
         case RUN_IN_PARALLEL:
           meta.setRunningInParallel( "Y".equalsIgnoreCase( lookValue ) );
           break;
+        case BLOCK_GZIPPED:
+          meta.setBlockGzipped( "Y".equalsIgnoreCase( lookValue ) );
+          break;
         case ENCODING:
           meta.setEncoding( lookValue );
           break;
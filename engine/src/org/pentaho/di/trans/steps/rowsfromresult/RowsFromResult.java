@@ -53,16 +53,26 @@ public class RowsFromResult extends BaseStep implements StepInterface {
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
-    Result previousResult = getTrans().getPreviousResult();
-    if ( previousResult == null || getLinesRead() >= previousResult.getRows().size() ) {
+    data = (RowsFromResultData) sdi;
+
+    if ( first ) {
+      first = false;
+
+      // Every step copy streams the rows with an iterator of its own, spilled result rows are read from disk
+      //
+      Result previousResult = getTrans().getPreviousResult();
+      if ( previousResult != null && previousResult.getRows() != null ) {
+        data.rows = previousResult.getRows().iterator();
+      }
+    }
+    if ( data.rows == null || !data.rows.hasNext() ) {
+      data.rows = null;
       setOutputDone();
       return false;
     }
-    RowMetaAndData row = previousResult.getRows().get( (int) getLinesRead() );
+    RowMetaAndData row = data.rows.next();
     incrementLinesRead();
 
-    data = (RowsFromResultData) sdi;
-
     // We don't get the meta-data from the previous steps (there aren't any) but from the previous transformation or job
     //
     data.outputRowMeta = row.getRowMeta();
@@ -22,6 +22,9 @@
 
 package org.pentaho.di.trans.steps.rowsfromresult;
 
+import java.util.Iterator;
+
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -32,6 +35,7 @@ import org.pentaho.di.trans.step.StepDataInterface;
  */
 public class RowsFromResultData extends BaseStepData implements StepDataInterface {
   public RowMetaInterface outputRowMeta;
+  public Iterator<RowMetaAndData> rows;
 
   public RowsFromResultData() {
     super();
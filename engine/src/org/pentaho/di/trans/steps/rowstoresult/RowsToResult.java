@@ -59,6 +59,8 @@ public class RowsToResult extends BaseStep implements StepInterface {
     if ( r == null ) { // no more input to be expected...
 
       getTrans().getResultRows().addAll( data.rows );
+      // The result rows of the transformation keep their own reference to the rows spilled to disk
+      data.rows.clear();
 
       setOutputDone();
       return false;
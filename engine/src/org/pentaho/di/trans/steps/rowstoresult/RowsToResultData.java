@@ -22,9 +22,9 @@
 
 package org.pentaho.di.trans.steps.rowstoresult;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import org.pentaho.di.core.ResultRowList;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -41,7 +41,7 @@ public class RowsToResultData extends BaseStepData implements StepDataInterface
   public RowsToResultData() {
     super();
 
-    rows = new ArrayList<RowMetaAndData>();
+    rows = new ResultRowList();
   }
 
 }
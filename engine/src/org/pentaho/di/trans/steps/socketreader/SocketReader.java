@@ -34,6 +34,7 @@ import java.util.zip.GZIPOutputStream;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleEOFException;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowCodec;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -137,9 +138,11 @@ public class SocketReader extends BaseStep implements StepInterface {
         }
 
         data.rowMeta = new RowMeta( data.inputStream ); // This is the metadata
+        data.codec = new RowCodec( data.rowMeta );
+        data.codec.readHeader( data.inputStream );
         first = false;
       }
-      r = data.rowMeta.readData( data.inputStream );
+      r = data.codec.readRow( data.inputStream );
 
       incrementLinesInput();
 
@@ -29,6 +29,7 @@ import java.util.zip.GZIPOutputStream;
 
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowCodec;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -112,9 +113,11 @@ public class SocketWriter extends BaseStep implements StepInterface {
     try {
       if ( first ) {
         getInputRowMeta().writeMeta( data.outputStream );
+        data.codec = new RowCodec( getInputRowMeta() );
+        data.codec.writeHeader( data.outputStream );
         first = false;
       }
-      getInputRowMeta().writeData( data.outputStream, r );
+      data.codec.writeRow( data.outputStream, r );
       incrementLinesOutput();
 
       // flush every X rows
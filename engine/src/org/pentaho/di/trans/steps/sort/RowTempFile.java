@@ -29,6 +29,9 @@ public class RowTempFile {
   public Object[] row;
   public int fileNumber;
 
+  /** The normalized sort key of the row, null if the rows are compared field by field */
+  public byte[] key;
+
   public RowTempFile( Object[] row, int fileNumber ) {
     this.row = row;
     this.fileNumber = fileNumber;
@@ -43,7 +43,10 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowCodec;
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.SortKeyBuffer;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
@@ -87,6 +90,12 @@ public class SortRows extends BaseStep implements StepInterface {
     // Save row
     data.buffer.add( r );
 
+    // Account for the memory of the row, dump to disk if the memory budget of the transformation is exhausted
+    //
+    if ( data.memoryReservation != null ) {
+      data.memoryBudgetExhausted = !data.memoryReservation.tryReserve( rowMeta.getEstimatedRowSize( r ) );
+    }
+
     // Check the free memory every 1000 rows...
     //
     data.freeCounter++;
@@ -106,7 +115,11 @@ public class SortRows extends BaseStep implements StepInterface {
     }
 
     // Buffer is full: sort & dump to disk
+    // When the memory budget is exhausted we only dump reasonably sized chunks: another step might hold the budget and
+    // we don't want to end up with a temporary file per row.
+    //
     boolean doSort = data.buffer.size() == data.sortSize;
+    doSort |= data.memoryBudgetExhausted && data.buffer.size() >= data.minSortSize;
     doSort |=
         data.freeMemoryPctLimit > 0 && data.freeMemoryPct < data.freeMemoryPctLimit
             && data.buffer.size() >= data.minSortSize;
@@ -159,7 +172,7 @@ public class SortRows extends BaseStep implements StepInterface {
         while ( index < data.buffer.size() ) {
           Object[] row = data.buffer.get( index );
           if ( previousRow != null ) {
-            int result = data.outputRowMeta.compare( row, previousRow, data.fieldnrs );
+            int result = data.keyComparator.compare( row, previousRow );
             if ( result == 0 ) {
               duplicates.add( index );
               if ( log.isRowLevel() ) {
@@ -176,6 +189,7 @@ public class SortRows extends BaseStep implements StepInterface {
       // How many records do we have left?
       data.bufferSizes.add( data.buffer.size() - duplicates.size() );
 
+      RowCodec codec = new RowCodec( data.outputRowMeta );
       int duplicatesIndex = 0;
       for ( p = 0; p < data.buffer.size(); p++ ) {
         boolean skip = false;
@@ -186,7 +200,7 @@ public class SortRows extends BaseStep implements StepInterface {
           }
         }
         if ( !skip ) {
-          data.outputRowMeta.writeData( dos, data.buffer.get( p ) );
+          codec.writeRow( dos, data.buffer.get( p ) );
         }
       }
 
@@ -205,6 +219,10 @@ public class SortRows extends BaseStep implements StepInterface {
 
       // Clear the list
       data.buffer.clear();
+      if ( data.memoryReservation != null ) {
+        data.memoryReservation.releaseAll();
+      }
+      data.memoryBudgetExhausted = false;
 
       // Close temp-file
       dos.close(); // close data stream
@@ -264,6 +282,7 @@ public class SortRows extends BaseStep implements StepInterface {
             di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
           }
           data.dis.add( di );
+          data.codecs.add( new RowCodec( data.outputRowMeta ) );
 
           // How long is the buffer?
           int buffersize = data.bufferSizes.get( f );
@@ -274,9 +293,9 @@ public class SortRows extends BaseStep implements StepInterface {
           }
 
           if ( buffersize > 0 ) {
-            Object[] row = data.outputRowMeta.readData( di );
+            Object[] row = data.codecs.get( f ).readRow( di );
             data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
+            data.tempRows.add( createRowTempFile( row, f ) );
           }
         }
 
@@ -323,8 +342,8 @@ public class SortRows extends BaseStep implements StepInterface {
         InputStream fi = data.fis.get( smallest );
 
         try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
+          Object[] row2 = data.codecs.get( smallest ).readRow( di );
+          RowTempFile extra = createRowTempFile( row2, smallest );
 
           int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
           if ( index < 0 ) {
@@ -351,6 +370,7 @@ public class SortRows extends BaseStep implements StepInterface {
           data.files.remove( smallest );
           data.dis.remove( smallest );
           data.fis.remove( smallest );
+          data.codecs.remove( smallest );
 
           if ( gzfi != null ) {
             data.gzis.remove( smallest );
@@ -372,6 +392,17 @@ public class SortRows extends BaseStep implements StepInterface {
     return retval;
   }
 
+  /**
+   * With binary keys the rows read back from the temporary files are merged on their keys as well.
+   */
+  private RowTempFile createRowTempFile( Object[] row, int fileNumber ) throws KettleValueException {
+    RowTempFile rowTempFile = new RowTempFile( row, fileNumber );
+    if ( data.sortKeys != null ) {
+      rowTempFile.key = data.sortKeys.encode( row );
+    }
+    return rowTempFile;
+  }
+
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
 
@@ -418,7 +449,6 @@ public class SortRows extends BaseStep implements StepInterface {
       // Metadata
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields( data.outputRowMeta, getStepname(), null, null, this, repository, metaStore );
-      data.comparator = new RowTemapFileComparator( data.outputRowMeta, data.fieldnrs );
 
       for ( int i = 0; i < fieldNames.length; i++ ) {
         data.fieldnrs[i] = inputRowMeta.indexOfValue( fieldNames[i] );
@@ -437,7 +467,15 @@ public class SortRows extends BaseStep implements StepInterface {
         data.convertKeysToNative[i] = in;
         i++;
       }
-      data.rowComparator = new RowObjectArrayComparator( data.outputRowMeta, data.fieldnrs );
+      data.keyComparator = RowComparator.create( data.outputRowMeta, data.fieldnrs );
+      data.comparator = new RowTemapFileComparator( data.keyComparator );
+      data.rowComparator = new RowObjectArrayComparator( data.keyComparator );
+      if ( meta.isRadixSort() ) {
+        data.sortKeys = SortKeyBuffer.create( data.outputRowMeta, data.fieldnrs );
+        if ( data.sortKeys == null && log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "SortRows.Basic.RadixSortNotPossible" ) );
+        }
+      }
     } // end if first
 
     // it is not first row and it is null
@@ -517,7 +555,7 @@ public class SortRows extends BaseStep implements StepInterface {
           // See if this row is the same as the previous one as far as the keys
           // are concerned.
           // If so, we don't put forward this row.
-          int result = data.outputRowMeta.compare( r, previousRow, data.fieldnrs );
+          int result = data.keyComparator.compare( r, previousRow );
           if ( result != 0 ) {
             putRow( data.outputRowMeta, r ); // copy row to possible alternate
                                              // rowset(s).
@@ -574,6 +612,8 @@ public class SortRows extends BaseStep implements StepInterface {
 
     data.minSortSize = 5000;
 
+    data.memoryReservation = createMemoryReservation( true );
+
     return true;
   }
 
@@ -589,6 +629,9 @@ public class SortRows extends BaseStep implements StepInterface {
     data.buffer.clear();
     data.getBufferIndex = 0;
     data.rowbuffer.clear();
+    if ( data.memoryReservation != null ) {
+      data.memoryReservation.releaseAll();
+    }
 
     // close any open DataInputStream objects
     if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
@@ -620,7 +663,11 @@ public class SortRows extends BaseStep implements StepInterface {
    */
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      if ( data.sortKeys != null ) {
+        radixSort( elements );
+      } else {
+        Collections.sort( elements, data.rowComparator );
+      }
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -633,6 +680,23 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Sort on the binary keys of the rows, in the same order as the comparator.
+   */
+  private void radixSort( List<Object[]> elements ) throws KettleException {
+    data.sortKeys.clear();
+    for ( Object[] row : elements ) {
+      data.sortKeys.add( row );
+    }
+    int[] order = data.sortKeys.sort();
+    data.sortKeys.clear();
+
+    Object[] rows = elements.toArray();
+    for ( int i = 0; i < order.length; i++ ) {
+      elements.set( i, (Object[]) rows[order[i]] );
+    }
+  }
+
   /**
    * Calling this method will alert the step that we finished passing records to the step. Specifically for steps like
    * "Sort Rows" it means that the buffered rows can be sorted and passed on.
@@ -672,24 +736,25 @@ public class SortRows extends BaseStep implements StepInterface {
   }
 
   private class SortRowsComparator {
-    protected RowMetaInterface rowMeta;
-    protected int[] fieldNrs;
+    protected RowComparator keyComparator;
 
-    SortRowsComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      this.rowMeta = rowMeta;
-      this.fieldNrs = fieldNrs;
+    SortRowsComparator( RowComparator keyComparator ) {
+      this.keyComparator = keyComparator;
     }
   }
 
   private class RowTemapFileComparator extends SortRowsComparator implements Comparator<RowTempFile> {
-    RowTemapFileComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
+    RowTemapFileComparator( RowComparator keyComparator ) {
+      super( keyComparator );
     }
 
     @Override
     public int compare( RowTempFile o1, RowTempFile o2 ) {
+      if ( o1.key != null && o2.key != null ) {
+        return SortKeyBuffer.compare( o1.key, o2.key );
+      }
       try {
-        return rowMeta.compare( o1.row, o2.row, fieldNrs );
+        return keyComparator.compare( o1.row, o2.row );
       } catch ( KettleValueException e ) {
         logError( "Error comparing rows: " + e.toString() );
         return 0;
@@ -698,14 +763,14 @@ public class SortRows extends BaseStep implements StepInterface {
   }
 
   private class RowObjectArrayComparator extends SortRowsComparator implements Comparator<Object[]> {
-    RowObjectArrayComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
+    RowObjectArrayComparator( RowComparator keyComparator ) {
+      super( keyComparator );
     }
 
     @Override
     public int compare( Object[] o1, Object[] o2 ) {
       try {
-        return rowMeta.compare( o1, o2, fieldNrs );
+        return keyComparator.compare( o1, o2 );
       } catch ( KettleValueException e ) {
         logError( "Error comparing rows: " + e.toString() );
         return 0;
@@ -30,7 +30,11 @@ import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.memory.MemoryReservation;
+import org.pentaho.di.core.row.RowCodec;
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.SortKeyBuffer;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -46,6 +50,8 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public List<InputStream> fis;
   public List<GZIPInputStream> gzis;
   public List<DataInputStream> dis;
+  /** Reads the rows of the temporary file with the same index in dis */
+  public List<RowCodec> codecs;
   public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
@@ -62,6 +68,10 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
 
   Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
+  RowComparator keyComparator;
+
+  /** The binary keys of the rows in the buffer when sorting with a radix sort, null otherwise */
+  SortKeyBuffer sortKeys;
 
   public int freeCounter;
   public int freeMemoryPct;
@@ -69,6 +79,10 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int freeMemoryPctLimit;
   public int memoryReporting;
 
+  /** The memory reserved for the rows in the buffer */
+  public MemoryReservation memoryReservation;
+  public boolean memoryBudgetExhausted;
+
   /*
    * Group Fields Implementation heroic
    */
@@ -83,6 +97,7 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
     fis = new ArrayList<InputStream>();
     gzis = new ArrayList<GZIPInputStream>();
     dis = new ArrayList<DataInputStream>();
+    codecs = new ArrayList<RowCodec>();
     bufferSizes = new ArrayList<Integer>();
 
     previous = null; // Heroic
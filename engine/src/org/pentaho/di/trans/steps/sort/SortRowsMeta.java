@@ -106,6 +106,10 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface {
   /** The variable to use to set the compressFiles option boolean */
   private String compressFilesVariable;
 
+  /** Sort on normalized binary keys with a radix sort instead of comparing the rows field by field */
+  @Injection( name = "RADIX_SORT" )
+  private boolean radixSort;
+
   public SortRowsMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -205,6 +209,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface {
       compressFiles = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compress" ) );
       compressFilesVariable = XMLHandler.getTagValue( stepnode, "compress_variable" );
       onlyPassingUniqueRows = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "unique_rows" ) );
+      radixSort = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "radix_sort" ) );
 
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
       int nrfields = XMLHandler.countNodes( fields, "field" );
@@ -235,6 +240,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface {
     compressFiles = false;
     compressFilesVariable = null;
     onlyPassingUniqueRows = false;
+    radixSort = false;
 
     int nrfields = 0;
 
@@ -257,6 +263,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface {
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress", compressFiles ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress_variable", compressFilesVariable ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "unique_rows", onlyPassingUniqueRows ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "radix_sort", radixSort ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
     for ( int i = 0; i < fieldName.length; i++ ) {
@@ -283,6 +290,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface {
       compressFilesVariable = rep.getStepAttributeString( id_step, "compress_variable" );
 
       onlyPassingUniqueRows = rep.getStepAttributeBoolean( id_step, "unique_rows" );
+      radixSort = rep.getStepAttributeBoolean( id_step, "radix_sort" );
 
       int nrfields = rep.countNrStepAttributes( id_step, "field_name" );
 
@@ -308,6 +316,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface {
       rep.saveStepAttribute( id_transformation, id_step, "compress", compressFiles );
       rep.saveStepAttribute( id_transformation, id_step, "compress_variable", compressFilesVariable );
       rep.saveStepAttribute( id_transformation, id_step, "unique_rows", onlyPassingUniqueRows );
+      rep.saveStepAttribute( id_transformation, id_step, "radix_sort", radixSort );
 
       for ( int i = 0; i < fieldName.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "field_name", fieldName[i] );
@@ -495,6 +504,21 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface {
     this.compressFilesVariable = compressFilesVariable;
   }
 
+  /**
+   * @return true if the rows are sorted on normalized binary keys with a radix sort
+   */
+  public boolean isRadixSort() {
+    return radixSort;
+  }
+
+  /**
+   * @param radixSort
+   *          true to sort the rows on normalized binary keys with a radix sort
+   */
+  public void setRadixSort( boolean radixSort ) {
+    this.radixSort = radixSort;
+  }
+
   /**
    * @return the caseSensitive
    */
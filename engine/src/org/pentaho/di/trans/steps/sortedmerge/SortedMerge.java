@@ -30,6 +30,7 @@ import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -124,7 +125,12 @@ public class SortedMerge extends BaseStep implements StepInterface {
 
           public int compare( RowSetRow o1, RowSetRow o2 ) {
             try {
-              return o1.getRowMeta().compare( o1.getRowData(), o2.getRowData(), data.fieldIndices );
+              RowComparator rowComparator = data.rowComparators.get( o1.getRowMeta() );
+              if ( rowComparator == null ) {
+                rowComparator = RowComparator.create( o1.getRowMeta(), data.fieldIndices );
+                data.rowComparators.put( o1.getRowMeta(), rowComparator );
+              }
+              return rowComparator.compare( o1.getRowData(), o2.getRowData() );
             } catch ( KettleValueException e ) {
               return 0; // TODO see if we should fire off alarms over here... Perhaps throw a RuntimeException.
             }
@@ -208,8 +214,6 @@ public class SortedMerge extends BaseStep implements StepInterface {
     data = (SortedMergeData) sdi;
 
     if ( super.init( smi, sdi ) ) {
-      // data.rowComparator = new RowComparator();
-
       // Add init code here.
       return true;
     }
@@ -23,8 +23,11 @@
 package org.pentaho.di.trans.steps.sortedmerge;
 
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -36,7 +39,8 @@ import org.pentaho.di.trans.step.StepDataInterface;
  */
 public class SortedMergeData extends BaseStepData implements StepDataInterface {
   public int[] fieldIndices;
-  // public RowComparator rowComparator;
+  /** The key comparators per input row metadata */
+  public Map<RowMetaInterface, RowComparator> rowComparators = new IdentityHashMap<RowMetaInterface, RowComparator>();
   public RowMetaInterface rowMeta;
   public List<RowSetRow> sortedBuffer;
   public Comparator<RowSetRow> comparator;
@@ -213,7 +213,14 @@ public class StreamLookup extends BaseStep implements StepInterface {
         valueData[i] = rowData[valueNrs[i]];
       }
 
+      // Account for the entry before storing it, an entry that replaces another one doesn't take more memory
+      //
+      long size = reserveMemory( keyData, valueData );
+      int cacheSize = getCacheSize();
       addToCache( data.cacheKeyMeta, keyData, data.cacheValueMeta, valueData );
+      if ( getCacheSize() == cacheSize ) {
+        releaseMemory( size );
+      }
 
       rowData = getRowFrom( rowSet );
     }
@@ -221,6 +228,48 @@ public class StreamLookup extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Account for the memory a lookup entry occupies in the memory budget of the transformation.
+   *
+   * @return the number of bytes reserved
+   */
+  private long reserveMemory( Object[] keyData, Object[] valueData ) throws KettleException {
+    if ( data.memoryReservation == null ) {
+      return 0L;
+    }
+    // key + value + map entry
+    long size =
+      data.cacheKeyMeta.getEstimatedRowSize( keyData ) + data.cacheValueMeta.getEstimatedRowSize( valueData ) + 48;
+    if ( !data.memoryReservation.reserve( size ) && !data.memoryBudgetWarned ) {
+      logBasic( BaseMessages.getString( PKG, "StreamLookup.Log.MemoryBudgetExceeded", data.memoryReservation
+        .getManager().toString() ) );
+      data.memoryBudgetWarned = true;
+    }
+    return size;
+  }
+
+  private void releaseMemory( long size ) {
+    if ( data.memoryReservation != null ) {
+      data.memoryReservation.release( size );
+    }
+  }
+
+  /**
+   * @return the number of entries in the lookup cache
+   */
+  private int getCacheSize() {
+    if ( meta.isMemoryPreservationActive() ) {
+      if ( meta.isUsingSortedList() ) {
+        return data.list.size();
+      }
+      if ( meta.isUsingIntegerPair() ) {
+        return data.longIndex.getSize();
+      }
+      return data.hashIndex == null ? 0 : data.hashIndex.getSize();
+    }
+    return data.look.size();
+  }
+
   private Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     // See if we need to stop.
     if ( isStopped() ) {
@@ -466,6 +515,7 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.readLookupValues = true;
+      data.memoryReservation = createMemoryReservation( false );
 
       return true;
     }
@@ -480,6 +530,9 @@ public class StreamLookup extends BaseStep implements StepInterface {
     data.list = null;
     data.hashIndex = null;
     data.longIndex = null;
+    if ( data.memoryReservation != null ) {
+      data.memoryReservation.releaseAll();
+    }
 
     super.dispose( smi, sdi );
   }
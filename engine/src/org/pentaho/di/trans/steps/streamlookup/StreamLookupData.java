@@ -32,6 +32,7 @@ import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
+import org.pentaho.di.core.memory.MemoryReservation;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -90,6 +91,10 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
 
   public StreamInterface infoStream;
 
+  /** The memory reserved for the lookup data */
+  public MemoryReservation memoryReservation;
+  public boolean memoryBudgetWarned;
+
   public StreamLookupData() {
     super();
     look = new HashMap<RowMetaAndData, Object[]>();
@@ -0,0 +1,275 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compresses and writes the encoded rows of Text File Output on a separate thread.<br>
+ * <br>
+ * The step thread fills blocks of bytes through the output streams created with
+ * {@link #createOutputStream(OutputStream)}. Full blocks are handed over to the writer thread through a bounded queue.
+ * The writer thread pushes them through the compression stream to the file and closes the files of finished splits.
+ * That way formatting on one side and compression and I/O on the other side run on different cores. The bounded queue
+ * limits the memory used and makes the step thread wait when the writer can't keep up.<br>
+ * <br>
+ * The first error of the writer thread is thrown on the step thread at the next block that is handed over.
+ */
+public class AsyncBlockWriter implements Runnable {
+
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+  public static final int DEFAULT_QUEUE_SIZE = 16;
+
+  private final BlockingQueue<Task> queue;
+  private final BlockingQueue<byte[]> freeBlocks;
+  private final int blockSize;
+  private final Thread thread;
+  private volatile IOException error;
+  private boolean finished;
+
+  public AsyncBlockWriter( String name ) {
+    this( name, DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_SIZE );
+  }
+
+  public AsyncBlockWriter( String name, int blockSize, int queueSize ) {
+    this.blockSize = blockSize;
+    this.queue = new ArrayBlockingQueue<Task>( queueSize );
+    this.freeBlocks = new ArrayBlockingQueue<byte[]>( queueSize + 1 );
+    this.thread = new Thread( this, name );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  /**
+   * @param target
+   *          the stream that is written to on the writer thread, typically the compression stream of a file
+   * @return the stream to write to on the step thread. Flushing it hands the pending data over without waiting,
+   *         closing it has the target closed on the writer thread.
+   */
+  public OutputStream createOutputStream( OutputStream target ) {
+    return new BlockOutputStream( target );
+  }
+
+  /**
+   * Have the given streams closed on the writer thread once everything handed over before is written.
+   */
+  public void close( Closeable... closeables ) throws IOException {
+    put( new Task( null, null, 0, closeables, null, false ), false );
+  }
+
+  /**
+   * Wait until everything handed over so far is written.
+   */
+  public void flush() throws IOException {
+    CountDownLatch done = new CountDownLatch( 1 );
+    put( new Task( null, null, 0, null, done, false ), true );
+    await( done );
+    checkError();
+  }
+
+  /**
+   * Write everything that is left and stop the writer thread.
+   *
+   * @throws IOException
+   *           the first error the writer thread ran into
+   */
+  public void finish() throws IOException {
+    if ( finished ) {
+      return;
+    }
+    CountDownLatch done = new CountDownLatch( 1 );
+    put( new Task( null, null, 0, null, done, true ), false );
+    finished = true;
+    await( done );
+    checkError();
+  }
+
+  public void run() {
+    while ( true ) {
+      Task task;
+      try {
+        task = queue.take();
+      } catch ( InterruptedException e ) {
+        return;
+      }
+      try {
+        if ( task.block != null && error == null ) {
+          task.target.write( task.block, 0, task.length );
+        }
+      } catch ( IOException e ) {
+        error = e;
+      } catch ( RuntimeException e ) {
+        error = new IOException( e );
+      }
+      if ( task.block != null ) {
+        freeBlocks.offer( task.block );
+      }
+      if ( task.closeables != null ) {
+        // Always close, even after an error, to release the files
+        //
+        for ( Closeable closeable : task.closeables ) {
+          try {
+            if ( closeable != null ) {
+              closeable.close();
+            }
+          } catch ( IOException e ) {
+            if ( error == null ) {
+              error = e;
+            }
+          }
+        }
+      }
+      if ( task.done != null ) {
+        task.done.countDown();
+      }
+      if ( task.stop ) {
+        return;
+      }
+    }
+  }
+
+  private void checkError() throws IOException {
+    IOException e = error;
+    if ( e != null ) {
+      throw new IOException( "Error writing to file on the writer thread", e );
+    }
+  }
+
+  /**
+   * @param failOnError
+   *          false for the tasks that still have to run after an error, like closing the files
+   */
+  private void put( Task task, boolean failOnError ) throws IOException {
+    if ( finished ) {
+      throw new IOException( "The writer thread was already stopped" );
+    }
+    if ( failOnError ) {
+      checkError();
+    }
+    try {
+      queue.put( task );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while handing data over to the writer thread" );
+    }
+  }
+
+  private void await( CountDownLatch done ) throws IOException {
+    try {
+      done.await();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for the writer thread" );
+    }
+  }
+
+  private byte[] newBlock() {
+    byte[] block = freeBlocks.poll();
+    return block != null ? block : new byte[blockSize];
+  }
+
+  private static class Task {
+    final OutputStream target;
+    final byte[] block;
+    final int length;
+    final Closeable[] closeables;
+    final CountDownLatch done;
+    final boolean stop;
+
+    Task( OutputStream target, byte[] block, int length, Closeable[] closeables, CountDownLatch done,
+      boolean stop ) {
+      this.target = target;
+      this.block = block;
+      this.length = length;
+      this.closeables = closeables;
+      this.done = done;
+      this.stop = stop;
+    }
+  }
+
+  private class BlockOutputStream extends OutputStream {
+    private final OutputStream target;
+    private byte[] block;
+    private int length;
+    private boolean closed;
+
+    BlockOutputStream( OutputStream target ) {
+      this.target = target;
+      this.block = newBlock();
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+      if ( length == block.length ) {
+        handOver();
+      }
+      block[length++] = (byte) b;
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      while ( len > 0 ) {
+        if ( length == block.length ) {
+          handOver();
+        }
+        int n = Math.min( len, block.length - length );
+        System.arraycopy( b, off, block, length, n );
+        length += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if ( length > 0 ) {
+        handOver();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if ( closed ) {
+        return;
+      }
+      closed = true;
+      try {
+        flush();
+      } finally {
+        AsyncBlockWriter.this.close( target );
+      }
+    }
+
+    private void handOver() throws IOException {
+      put( new Task( target, block, length, null, null, false ), true );
+      block = newBlock();
+      length = 0;
+    }
+  }
+}
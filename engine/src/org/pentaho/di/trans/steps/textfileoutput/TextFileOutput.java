@@ -619,10 +619,14 @@ public class TextFileOutput extends BaseStep implements StepInterface {
           logDetailed( "Opening output stream using provider: " + compressionProvider.getName() );
         }
 
-        if ( checkPreviouslyOpened( filename ) ) {
-          data.fos = getOutputStream( filename, getTransMeta(), true );
+        // Uncompressed output is buffered by the writer below, a local file doesn't need the buffer of VFS too.
+        // Compressors write in small chunks, they keep the buffered VFS stream.
+        //
+        boolean append = checkPreviouslyOpened( filename ) || meta.isFileAppended();
+        if ( FILE_COMPRESSION_TYPE_NONE.equals( compressionType ) ) {
+          data.fos = getUnbufferedOutputStream( filename, getTransMeta(), append );
         } else {
-          data.fos = getOutputStream( filename, getTransMeta(), meta.isFileAppended() );
+          data.fos = getOutputStream( filename, getTransMeta(), append );
         }
 
         data.out = compressionProvider.createOutputStream( data.fos );
@@ -632,7 +636,12 @@ public class TextFileOutput extends BaseStep implements StepInterface {
         // that do not archive entries, they should use the default no-op implementation.
         data.out.addEntry( filename, environmentSubstitute( meta.getExtension() ) );
 
-        if ( !Const.isEmpty( meta.getEncoding() ) ) {
+        if ( data.asyncWriter != null ) {
+          if ( log.isDetailed() ) {
+            logDetailed( "Handing the output over to a separate writer thread" );
+          }
+          data.writer = data.asyncWriter.createOutputStream( data.out );
+        } else if ( !Const.isEmpty( meta.getEncoding() ) ) {
           if ( log.isDetailed() ) {
             logDetailed( "Opening output stream in encoding: " + meta.getEncoding() );
           }
@@ -714,6 +723,13 @@ public class TextFileOutput extends BaseStep implements StepInterface {
         if ( log.isDebug() ) {
           logDebug( "Closing normal file ..." );
         }
+        if ( data.asyncWriter != null ) {
+          // The writer thread closes the file once it wrote everything, the next split file can be filled meanwhile
+          //
+          data.asyncWriter.close( data.out, data.fos );
+          data.out = null;
+          data.fos = null;
+        }
         if ( data.out != null ) {
           data.out.close();
         }
@@ -745,6 +761,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.splitnr = 0;
+      if ( meta.isAsyncWriter() && !meta.isServletOutput() && !meta.isFileAsCommand() ) {
+        data.asyncWriter = new AsyncBlockWriter( getStepname() + "." + getCopy() + " writer" );
+      }
       // In case user want to create file at first row
       // In that case, DO NOT create file at Init
       if ( !meta.isDoNotOpenNewFileInit() ) {
@@ -852,6 +871,16 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       }
     }
 
+    if ( data.asyncWriter != null ) {
+      try {
+        data.asyncWriter.finish();
+      } catch ( IOException e ) {
+        logError( "Unexpected error writing file", e );
+        setErrors( 1 );
+      }
+      data.asyncWriter = null;
+    }
+
     super.dispose( smi, sdi );
   }
 
@@ -997,4 +1026,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     return KettleVFS.getOutputStream( vfsFilename, space, append );
   }
 
+  protected OutputStream getUnbufferedOutputStream( String vfsFilename, VariableSpace space, boolean append )
+    throws KettleFileException {
+    return KettleVFS.getUnbufferedOutputStream( vfsFilename, space, append );
+  }
+
 }
@@ -69,6 +69,9 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
 
   public OutputStream fos;
 
+  /** Compresses and writes the data on a separate thread, null if the step writes the data itself */
+  public AsyncBlockWriter asyncWriter;
+
   public RowMetaInterface outputRowMeta;
 
   public byte[] binarySeparator;
@@ -31,6 +31,7 @@ import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.CheckResult;
 import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.bgzip.BGZIPCompressionProvider;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -163,6 +164,10 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
   @Injection( name = "FAST_DATA_DUMP" )
   private boolean fastDump;
 
+  /** Flag: compress and write the data on a separate thread */
+  @Injection( name = "ASYNC_WRITER" )
+  private boolean asyncWriter;
+
   /* THE FIELD SPECIFICATIONS ... */
 
   /** The output fields */
@@ -470,6 +475,21 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
     this.fastDump = fastDump;
   }
 
+  /**
+   * @return true if the data is compressed and written to the files on a separate thread
+   */
+  public boolean isAsyncWriter() {
+    return asyncWriter;
+  }
+
+  /**
+   * @param asyncWriter
+   *          true to compress and write the data to the files on a separate thread
+   */
+  public void setAsyncWriter( boolean asyncWriter ) {
+    this.asyncWriter = asyncWriter;
+  }
+
   /**
    * @return Returns the separator.
    */
@@ -747,6 +767,7 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
 
       padded = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "file", "pad" ) );
       fastDump = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "file", "fast_dump" ) );
+      asyncWriter = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "file", "async_writer" ) );
       splitEvery = Const.toInt( XMLHandler.getTagValue( stepnode, "file", "splitevery" ), 0 );
 
       newline = getNewLine( fileFormat );
@@ -824,6 +845,7 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
     timeInFilename = false;
     padded = false;
     fastDump = false;
+    asyncWriter = false;
     addToResultFilenames = true;
     splitEvery = 0;
 
@@ -945,7 +967,8 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
       if ( realextension != null && realextension.length() != 0 ) {
         retval += "." + realextension;
       }
-      if ( meta.getFileCompression().equals( "GZip" ) ) {
+      if ( meta.getFileCompression().equals( "GZip" )
+        || meta.getFileCompression().equals( BGZIPCompressionProvider.NAME ) ) {
         retval += ".gz";
       }
     }
@@ -1021,6 +1044,7 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
     retval.append( "      " ).append( XMLHandler.addTagValue( "add_to_result_filenames", addToResultFilenames ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "pad", padded ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "fast_dump", fastDump ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "async_writer", asyncWriter ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "splitevery", splitEvery ) );
     retval.append( "    </file>" ).append( Const.CR );
 
@@ -1094,6 +1118,7 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
 
       padded = rep.getStepAttributeBoolean( id_step, "file_pad" );
       fastDump = rep.getStepAttributeBoolean( id_step, "file_fast_dump" );
+      asyncWriter = rep.getStepAttributeBoolean( id_step, "file_async_writer" );
 
       newline = getNewLine( fileFormat );
 
@@ -1153,6 +1178,7 @@ public class TextFileOutputMeta extends BaseStepMeta implements StepMetaInterfac
       rep.saveStepAttribute( id_transformation, id_step, "file_add_time", timeInFilename );
       rep.saveStepAttribute( id_transformation, id_step, "file_pad", padded );
       rep.saveStepAttribute( id_transformation, id_step, "file_fast_dump", fastDump );
+      rep.saveStepAttribute( id_transformation, id_step, "file_async_writer", asyncWriter );
       rep.saveStepAttribute( id_transformation, id_step, "fileNameInField", fileNameInField );
       rep.saveStepAttribute( id_transformation, id_step, "fileNameField", fileNameField );
 
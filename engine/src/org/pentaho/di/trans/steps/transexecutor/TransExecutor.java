@@ -22,11 +22,11 @@
 
 package org.pentaho.di.trans.steps.transexecutor;
 
-import java.util.ArrayList;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.Result;
+import org.pentaho.di.core.ResultRowList;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
@@ -229,6 +229,8 @@ public class TransExecutor extends BaseStep implements StepInterface {
     collectExecutionResults( result );
     collectExecutionResultFiles( result );
 
+    // The executor transformation is done, remove its result rows and the rows it spilled to disk
+    executorTrans.getResultRows().clear();
     transExecutorData.groupBuffer.clear();
   }
 
@@ -396,7 +398,7 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
         // Do we have a transformation at all?
         if ( transExecutorData.getExecutorTransMeta() != null ) {
-          transExecutorData.groupBuffer = new ArrayList<RowMetaAndData>();
+          transExecutorData.groupBuffer = new ResultRowList();
 
           // How many rows do we group together for the transformation?
           if ( !Const.isEmpty( meta.getGroupSize() ) ) {
@@ -437,6 +439,9 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     TransExecutorData transExecutorData = getData();
+    if ( transExecutorData.groupBuffer != null ) {
+      transExecutorData.groupBuffer.clear();
+    }
     transExecutorData.groupBuffer = null;
     super.dispose( smi, sdi );
   }
@@ -61,6 +61,7 @@ import org.pentaho.di.resource.ResourceReference;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.TransMetaCache;
 import org.pentaho.di.trans.step.BaseStepMeta;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepIOMeta;
@@ -652,7 +653,8 @@ public class TransExecutorMeta extends BaseStepMeta implements StepMetaInterface
             }
           }
           if ( mappingTransMeta == null ) {
-            mappingTransMeta = new TransMeta( realFilename, metaStore, rep, true, tmpSpace, null );
+            mappingTransMeta =
+                TransMetaCache.getInstance().loadTransMeta( realFilename, metaStore, rep, true, tmpSpace );
             LogChannel.GENERAL.logDetailed( "Loading transformation from repository",
                 "Transformation was loaded from XML file [" + realFilename + "]" );
           }
@@ -689,14 +691,14 @@ public class TransExecutorMeta extends BaseStepMeta implements StepMetaInterface
         } else {
           // rep is null, let's try loading by filename
           try {
-            mappingTransMeta =
-                new TransMeta( realDirectory + "/" + realTransname, metaStore, rep, true, tmpSpace, null );
+            mappingTransMeta = TransMetaCache.getInstance().loadTransMeta( realDirectory + "/" + realTransname,
+                metaStore, rep, true, tmpSpace );
           } catch ( KettleException ke ) {
             try {
               // add .ktr extension and try again
-              mappingTransMeta =
-                  new TransMeta( realDirectory + "/" + realTransname + "." + Const.STRING_TRANS_DEFAULT_EXT, metaStore,
-                      rep, true, tmpSpace, null );
+              mappingTransMeta = TransMetaCache.getInstance().loadTransMeta(
+                  realDirectory + "/" + realTransname + "." + Const.STRING_TRANS_DEFAULT_EXT, metaStore, rep, true,
+                  tmpSpace );
             } catch ( KettleException ke2 ) {
               throw new KettleException( BaseMessages.getString( PKG, "TransExecutorMeta.Exception.UnableToLoadTrans",
                   realTransname ) + realDirectory );
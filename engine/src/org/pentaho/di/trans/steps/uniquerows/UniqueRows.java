@@ -24,6 +24,7 @@ package org.pentaho.di.trans.steps.uniquerows;
 
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
@@ -106,6 +107,13 @@ public class UniqueRows extends BaseStep implements StepInterface {
       if ( data.sendDuplicateRows && !Const.isEmpty( meta.getErrorDescription() ) ) {
         data.realErrorDescription = environmentSubstitute( meta.getErrorDescription() );
       }
+
+      if ( meta.getCompareFields() == null || meta.getCompareFields().length == 0 ) {
+        // Compare the complete row...
+        data.comparator = RowComparator.create( data.outputRowMeta );
+      } else {
+        data.comparator = RowComparator.create( data.outputRowMeta, data.fieldnrs );
+      }
     }
 
     // Emptied in a previous batch in single threading mode.
@@ -114,14 +122,7 @@ public class UniqueRows extends BaseStep implements StepInterface {
       data.previous = data.inputRowMeta.cloneRow( r );
     }
 
-    boolean isEqual = false;
-
-    if ( meta.getCompareFields() == null || meta.getCompareFields().length == 0 ) {
-      // Compare the complete row...
-      isEqual = data.outputRowMeta.compare( r, data.previous ) == 0;
-    } else {
-      isEqual = data.outputRowMeta.compare( r, data.previous, data.fieldnrs ) == 0;
-    }
+    boolean isEqual = data.comparator.equals( r, data.previous );
     if ( !isEqual ) {
       Object[] outputRow = addCounter( data.outputRowMeta, data.previous, data.counter );
       putRow( data.outputRowMeta, outputRow ); // copy row to possible alternate
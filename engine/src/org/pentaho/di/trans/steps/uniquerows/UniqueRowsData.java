@@ -22,6 +22,7 @@
 
 package org.pentaho.di.trans.steps.uniquerows;
 
+import org.pentaho.di.core.row.RowComparator;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -37,6 +38,7 @@ public class UniqueRowsData extends BaseStepData implements StepDataInterface {
   public long counter;
   public Object[] previous;
   public int[] fieldnrs;
+  public RowComparator comparator;
   public String compareFields;
   public String realErrorDescription;
   public boolean sendDuplicateRows;
@@ -47,8 +47,36 @@ public class UniqueRowsByHashSet extends BaseStep implements StepInterface {
     data = (UniqueRowsByHashSetData) stepDataInterface; // create new data object.
   }
 
-  private boolean isUniqueRow( Object[] row ) {
-    return data.seen.add( new RowKey( row, data ) );
+  private boolean isUniqueRow( Object[] row ) throws KettleException {
+    if ( data.seen.add( new RowKey( row, data ) ) ) {
+      reserveMemory( row );
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Account for the memory a new key occupies in the memory budget of the transformation.
+   */
+  private void reserveMemory( Object[] row ) throws KettleException {
+    if ( data.memoryReservation == null ) {
+      return;
+    }
+    long size = 48; // key object + hash set entry
+    if ( data.storeValues ) {
+      if ( data.fieldnrs.length == 0 ) {
+        size += data.inputRowMeta.getEstimatedRowSize( row );
+      } else {
+        for ( int i = 0; i < data.fieldnrs.length; i++ ) {
+          size += 4 + data.inputRowMeta.getValueMeta( data.fieldnrs[i] ).getEstimatedSize( row[data.fieldnrs[i]] );
+        }
+      }
+    }
+    if ( !data.memoryReservation.reserve( size ) && !data.memoryBudgetWarned ) {
+      logBasic( BaseMessages.getString( PKG, "UniqueRowsByHashSet.Log.MemoryBudgetExceeded", data.memoryReservation
+        .getManager().toString() ) );
+      data.memoryBudgetWarned = true;
+    }
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
@@ -122,9 +150,19 @@ public class UniqueRowsByHashSet extends BaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
       // Add init code here.
       data.sendDuplicateRows = getStepMeta().getStepErrorMeta() != null && meta.supportsErrorHandling();
+      data.memoryReservation = createMemoryReservation( false );
       return true;
     }
     return false;
   }
 
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    data = (UniqueRowsByHashSetData) sdi;
+    if ( data.memoryReservation != null ) {
+      data.memoryReservation.releaseAll();
+    }
+    super.dispose( smi, sdi );
+  }
+
 }
@@ -24,6 +24,7 @@ package org.pentaho.di.trans.steps.uniquerowsbyhashset;
 
 import java.util.HashSet;
 
+import org.pentaho.di.core.memory.MemoryReservation;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -39,6 +40,10 @@ public class UniqueRowsByHashSetData extends BaseStepData implements StepDataInt
 
   public HashSet<RowKey> seen = new HashSet<RowKey>();
 
+  /** The memory reserved for the keys in the hash set */
+  public MemoryReservation memoryReservation;
+  public boolean memoryBudgetWarned;
+
   public UniqueRowsByHashSetData() {
     super();
   }
@@ -0,0 +1,418 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.LoggingRegistry;
+
+/**
+ * A concurrent registry of the transformations or jobs running on a Carte server. Objects are indexed by their Carte
+ * object id and by name so that lookups don't need to iterate over all the registered objects.<br>
+ * <br>
+ * Finished or stopped objects are only retained within the configured bounds: an age in minutes, a maximum number of
+ * finished objects and a maximum heap usage percentage. When an object is evicted, its lines are released from the
+ * central log store and its channels are removed from the logging registry. Running objects are never evicted.
+ *
+ * @param <T>
+ *          the type of the registered object (transformation or job)
+ * @param <C>
+ *          the type of its configuration
+ */
+public abstract class CarteObjectRegistry<T, C> {
+
+  private final ConcurrentMap<String, Registration<T, C>> idMap;
+  private final ConcurrentMap<String, Queue<CarteObjectEntry>> nameMap;
+  private final AtomicLong sequence;
+  private final ReentrantLock purgeLock;
+
+  private volatile int objectTimeoutMinutes;
+  private volatile int maxFinishedObjects;
+  private volatile int maxHeapUsagePercent;
+
+  /** The number of registered objects from which put() purges again, so that it doesn't purge on every call */
+  private volatile int nextPurgeSize;
+
+  public CarteObjectRegistry() {
+    idMap = new ConcurrentHashMap<String, Registration<T, C>>();
+    nameMap = new ConcurrentHashMap<String, Queue<CarteObjectEntry>>();
+    sequence = new AtomicLong();
+    purgeLock = new ReentrantLock();
+  }
+
+  /**
+   * @param object
+   *          the registered object
+   * @return true if the object is finished or stopped and can be evicted.
+   */
+  protected abstract boolean isFinished( T object );
+
+  /**
+   * @param object
+   *          the registered object
+   * @return the date of the last log of the object, the moment from which its age is calculated.
+   */
+  protected abstract Date getLogDate( T object );
+
+  /**
+   * @param object
+   *          the registered object
+   * @return the log channel ID of the object
+   */
+  protected abstract String getLogChannelId( T object );
+
+  /**
+   * Register an object under the given entry. If an object with the same ID was registered already, it's replaced.
+   *
+   * @param entry
+   *          the Carte object entry (name and ID)
+   * @param object
+   *          the transformation or job
+   * @param configuration
+   *          its configuration
+   */
+  public void put( CarteObjectEntry entry, T object, C configuration ) {
+    final Registration<T, C> registration =
+      new Registration<T, C>( entry, object, configuration, sequence.incrementAndGet() );
+    Registration<T, C> previous = idMap.put( entry.getId(), registration );
+    if ( previous != null ) {
+      removeFromNameIndex( previous.entry );
+    }
+    nameMap.compute( entry.getName(), ( name, entries ) -> {
+      if ( entries == null ) {
+        entries = new ConcurrentLinkedQueue<CarteObjectEntry>();
+      }
+      entries.add( registration.entry );
+      return entries;
+    } );
+
+    // Don't wait for the purge timer if we're well over the limit of retained objects.
+    //
+    int size = idMap.size();
+    if ( maxFinishedObjects > 0 && size > maxFinishedObjects && size >= nextPurgeSize ) {
+      purge();
+      nextPurgeSize = idMap.size() + Math.max( 1, maxFinishedObjects / 10 );
+    }
+  }
+
+  /**
+   * Remove an object from the registry. The logging lines are left alone, they're the responsibility of the caller.
+   *
+   * @param entry
+   *          the Carte object entry to remove
+   * @return the removed object or null if nothing was registered under the entry's ID
+   */
+  public T remove( CarteObjectEntry entry ) {
+    Registration<T, C> registration = idMap.remove( entry.getId() );
+    if ( registration == null ) {
+      return null;
+    }
+    removeFromNameIndex( registration.entry );
+    return registration.object;
+  }
+
+  private void removeFromNameIndex( final CarteObjectEntry entry ) {
+    nameMap.computeIfPresent( entry.getName(), ( name, entries ) -> {
+      entries.remove( entry );
+      return entries.isEmpty() ? null : entries;
+    } );
+  }
+
+  /**
+   * @param entry
+   *          the Carte object entry
+   * @return the object registered under the name and ID of the entry or null if nothing was found.
+   */
+  public T get( CarteObjectEntry entry ) {
+    Registration<T, C> registration = getRegistration( entry );
+    return registration == null ? null : registration.object;
+  }
+
+  /**
+   * @param id
+   *          the Carte object ID
+   * @return the object registered with the ID or null if nothing was found.
+   */
+  public T get( String id ) {
+    Registration<T, C> registration = id == null ? null : idMap.get( id );
+    return registration == null ? null : registration.object;
+  }
+
+  /**
+   * @param entry
+   *          the Carte object entry
+   * @return the configuration registered under the ID of the entry or null if nothing was found.
+   */
+  public C getConfiguration( CarteObjectEntry entry ) {
+    Registration<T, C> registration = getRegistration( entry );
+    return registration == null ? null : registration.configuration;
+  }
+
+  /**
+   * Replace the configuration of a registered object.
+   *
+   * @param entry
+   *          the Carte object entry
+   * @param configuration
+   *          the new configuration
+   * @return true if an object was registered under the name and ID of the entry
+   */
+  public boolean setConfiguration( CarteObjectEntry entry, C configuration ) {
+    Registration<T, C> registration = getRegistration( entry );
+    if ( registration == null ) {
+      return false;
+    }
+    registration.configuration = configuration;
+    return true;
+  }
+
+  /**
+   * Objects are registered by ID but an entry only matches if the name is the same as well.
+   */
+  private Registration<T, C> getRegistration( CarteObjectEntry entry ) {
+    Registration<T, C> registration = entry.getId() == null ? null : idMap.get( entry.getId() );
+    if ( registration == null || !registration.entry.getName().equals( entry.getName() ) ) {
+      return null;
+    }
+    return registration;
+  }
+
+  /**
+   * @param name
+   *          the name of the transformation or job
+   * @return the entry of the first registered object with the given name that is still around, or null if there is
+   *         none.
+   */
+  public CarteObjectEntry getFirstEntry( String name ) {
+    Queue<CarteObjectEntry> entries = name == null ? null : nameMap.get( name );
+    return entries == null ? null : entries.peek();
+  }
+
+  /**
+   * @return the entries of all the registered objects in registration order.
+   */
+  public List<CarteObjectEntry> getEntries() {
+    List<Registration<T, C>> registrations = new ArrayList<Registration<T, C>>( idMap.values() );
+    Collections.sort( registrations, new Comparator<Registration<T, C>>() {
+      @Override
+      public int compare( Registration<T, C> one, Registration<T, C> two ) {
+        return Long.compare( one.sequence, two.sequence );
+      }
+    } );
+    List<CarteObjectEntry> entries = new ArrayList<CarteObjectEntry>( registrations.size() );
+    for ( Registration<T, C> registration : registrations ) {
+      entries.add( registration.entry );
+    }
+    return entries;
+  }
+
+  /**
+   * @return the number of registered objects
+   */
+  public int size() {
+    return idMap.size();
+  }
+
+  /**
+   * Evict the finished objects that fall outside of the retention bounds, oldest first. When there are more finished
+   * objects than allowed, the oldest are evicted until 90% of the limit is left so that the next registrations don't
+   * need another purge. When the heap usage is over its limit, the oldest are evicted one by one until the usage is
+   * below the limit again, at most a tenth of them per purge: memory that is released only shows after a garbage
+   * collection so the next purge checks again. Only one thread purges at a time, concurrent calls return immediately
+   * without evicting anything.
+   *
+   * @return the entries of the evicted objects
+   */
+  public List<CarteObjectEntry> purge() {
+    List<CarteObjectEntry> evicted = new ArrayList<CarteObjectEntry>();
+    if ( !purgeLock.tryLock() ) {
+      return evicted;
+    }
+    try {
+      // Collect the finished objects, oldest first
+      //
+      List<Registration<T, C>> finished = new ArrayList<Registration<T, C>>();
+      for ( Registration<T, C> registration : idMap.values() ) {
+        if ( isFinished( registration.object ) ) {
+          registration.finishedDate = getFinishedTime( registration );
+          finished.add( registration );
+        }
+      }
+      Collections.sort( finished, new Comparator<Registration<T, C>>() {
+        @Override
+        public int compare( Registration<T, C> one, Registration<T, C> two ) {
+          int cmp = Long.compare( one.finishedDate, two.finishedDate );
+          return cmp != 0 ? cmp : Long.compare( one.sequence, two.sequence );
+        }
+      } );
+
+      int index = 0;
+
+      // Age: everything that finished longer than the time-out ago
+      //
+      if ( objectTimeoutMinutes > 0 ) {
+        long boundary = System.currentTimeMillis() - objectTimeoutMinutes * 60000L;
+        while ( index < finished.size() && finished.get( index ).finishedDate <= boundary ) {
+          evict( finished.get( index++ ), evicted );
+        }
+      }
+
+      // Count: the oldest finished objects above the limit
+      //
+      if ( maxFinishedObjects > 0 && finished.size() - index > maxFinishedObjects ) {
+        int keep = maxFinishedObjects - maxFinishedObjects / 10;
+        while ( finished.size() - index > keep ) {
+          evict( finished.get( index++ ), evicted );
+        }
+      }
+
+      // Memory: evict the oldest finished objects while the heap is filling up
+      //
+      if ( maxHeapUsagePercent > 0 ) {
+        int last = Math.min( finished.size(), index + Math.max( 1, ( finished.size() - index ) / 10 ) );
+        while ( index < last && getHeapUsagePercent() >= maxHeapUsagePercent ) {
+          evict( finished.get( index++ ), evicted );
+        }
+      }
+    } finally {
+      purgeLock.unlock();
+    }
+    return evicted;
+  }
+
+  private long getFinishedTime( Registration<T, C> registration ) {
+    Date logDate = getLogDate( registration.object );
+    if ( logDate != null ) {
+      return logDate.getTime();
+    }
+    // Stopped before it ever logged: start counting from the moment we noticed
+    //
+    return registration.finishedDate > 0 ? registration.finishedDate : System.currentTimeMillis();
+  }
+
+  private void evict( Registration<T, C> registration, List<CarteObjectEntry> evicted ) {
+    // Only evict if nobody replaced or removed it in the mean time
+    //
+    if ( !idMap.remove( registration.entry.getId(), registration ) ) {
+      return;
+    }
+    removeFromNameIndex( registration.entry );
+    release( registration.object );
+    evicted.add( registration.entry );
+  }
+
+  /**
+   * Release the logging resources held by an evicted object: its lines in the central log store and its channels in
+   * the logging registry.
+   *
+   * @param object
+   *          the evicted object
+   */
+  protected void release( T object ) {
+    String logChannelId = getLogChannelId( object );
+    if ( logChannelId != null ) {
+      KettleLogStore.discardLines( logChannelId, false );
+      LoggingRegistry.getInstance().removeIncludingChildren( logChannelId );
+    }
+  }
+
+  /**
+   * @return the percentage of the maximum heap size that is currently in use
+   */
+  protected int getHeapUsagePercent() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = runtime.totalMemory() - runtime.freeMemory();
+    return (int) ( used * 100 / runtime.maxMemory() );
+  }
+
+  /**
+   * @return the age in minutes after which finished objects are evicted, 0 to keep them regardless of age
+   */
+  public int getObjectTimeoutMinutes() {
+    return objectTimeoutMinutes;
+  }
+
+  /**
+   * @param objectTimeoutMinutes
+   *          the age in minutes after which finished objects are evicted, 0 to keep them regardless of age
+   */
+  public void setObjectTimeoutMinutes( int objectTimeoutMinutes ) {
+    this.objectTimeoutMinutes = objectTimeoutMinutes;
+  }
+
+  /**
+   * @return the maximum number of finished objects to retain, 0 for no limit
+   */
+  public int getMaxFinishedObjects() {
+    return maxFinishedObjects;
+  }
+
+  /**
+   * @param maxFinishedObjects
+   *          the maximum number of finished objects to retain, 0 for no limit
+   */
+  public void setMaxFinishedObjects( int maxFinishedObjects ) {
+    this.maxFinishedObjects = maxFinishedObjects;
+  }
+
+  /**
+   * @return the heap usage percentage above which finished objects are evicted, 0 to disable
+   */
+  public int getMaxHeapUsagePercent() {
+    return maxHeapUsagePercent;
+  }
+
+  /**
+   * @param maxHeapUsagePercent
+   *          the heap usage percentage above which finished objects are evicted, 0 to disable
+   */
+  public void setMaxHeapUsagePercent( int maxHeapUsagePercent ) {
+    this.maxHeapUsagePercent = maxHeapUsagePercent;
+  }
+
+  private static class Registration<T, C> {
+    private final CarteObjectEntry entry;
+    private final T object;
+    private volatile C configuration;
+    private final long sequence;
+    private volatile long finishedDate;
+
+    Registration( CarteObjectEntry entry, T object, C configuration, long sequence ) {
+      this.entry = entry;
+      this.object = object;
+      this.configuration = configuration;
+      this.sequence = sequence;
+    }
+  }
+}
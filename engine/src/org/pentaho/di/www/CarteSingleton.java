@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.core.Const;
@@ -38,12 +37,9 @@ import org.pentaho.di.core.logging.LogChannel;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectType;
-import org.pentaho.di.core.logging.LoggingRegistry;
 import org.pentaho.di.core.logging.SimpleLoggingObject;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.i18n.BaseMessages;
-import org.pentaho.di.job.Job;
-import org.pentaho.di.trans.Trans;
 
 public class CarteSingleton {
 
@@ -133,78 +129,48 @@ public class CarteSingleton {
       objectTimeout = 24 * 60; // 1440 : default is a one day time-out
     }
 
-    // If we need to time out finished or idle objects, we should create a timer
+    final int maxObjects;
+    if ( config.getObjectMaxCount() > 0 ) {
+      maxObjects = config.getObjectMaxCount();
+    } else {
+      maxObjects =
+        Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_CARTE_OBJECT_MAX_COUNT ), Const.CARTE_OBJECT_MAX_COUNT );
+    }
+
+    final int maxHeapPercent;
+    if ( config.getObjectMaxHeapPercent() > 0 ) {
+      maxHeapPercent = config.getObjectMaxHeapPercent();
+    } else {
+      maxHeapPercent = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_CARTE_OBJECT_MAX_HEAP_PERCENT ), 0 );
+    }
+
+    transformationMap.getRegistry().setObjectTimeoutMinutes( Math.max( objectTimeout, 0 ) );
+    transformationMap.getRegistry().setMaxFinishedObjects( Math.max( maxObjects, 0 ) );
+    transformationMap.getRegistry().setMaxHeapUsagePercent( Math.max( maxHeapPercent, 0 ) );
+    jobMap.getRegistry().setObjectTimeoutMinutes( Math.max( objectTimeout, 0 ) );
+    jobMap.getRegistry().setMaxFinishedObjects( Math.max( maxObjects, 0 ) );
+    jobMap.getRegistry().setMaxHeapUsagePercent( Math.max( maxHeapPercent, 0 ) );
+
+    // If we need to clean up finished or idle objects, we should create a timer
     // in the background to clean
     //
-    if ( objectTimeout > 0 ) {
+    if ( objectTimeout > 0 || maxObjects > 0 || maxHeapPercent > 0 ) {
 
-      log.logBasic( "Installing timer to purge stale objects after " + objectTimeout + " minutes." );
+      log.logBasic( "Installing timer to purge stale objects after "
+        + objectTimeout + " minutes"
+        + ( maxObjects > 0 ? ", keeping at most " + maxObjects + " finished objects." : "." ) );
 
       Timer timer = new Timer( true );
 
-      final AtomicBoolean busy = new AtomicBoolean( false );
       TimerTask timerTask = new TimerTask() {
         public void run() {
-          if ( !busy.get() ) {
-            busy.set( true );
-
-            try {
-              // Check all transformations...
-              //
-              for ( CarteObjectEntry entry : transformationMap.getTransformationObjects() ) {
-                Trans trans = transformationMap.getTransformation( entry );
-
-                // See if the transformation is finished or stopped.
-                //
-                if ( trans != null && ( trans.isFinished() || trans.isStopped() ) && trans.getLogDate() != null ) {
-                  // check the last log time
-                  //
-                  int diffInMinutes =
-                    (int) Math.floor( ( System.currentTimeMillis() - trans.getLogDate().getTime() ) / 60000 );
-                  if ( diffInMinutes >= objectTimeout ) {
-                    // Let's remove this from the transformation map...
-                    //
-                    transformationMap.removeTransformation( entry );
-
-                    // Remove the logging information from the log registry & central log store
-                    //
-                    LoggingRegistry.getInstance().removeIncludingChildren( trans.getLogChannelId() );
-                    KettleLogStore.discardLines( trans.getLogChannelId(), false );
-
-                    // transformationMap.deallocateServerSocketPorts(entry);
-
-                    log.logMinimal( "Cleaned up transformation "
-                      + entry.getName() + " with id " + entry.getId() + " from " + trans.getLogDate()
-                      + ", diff=" + diffInMinutes );
-                  }
-                }
-              }
-
-              // And the jobs...
-              //
-              for ( CarteObjectEntry entry : jobMap.getJobObjects() ) {
-                Job job = jobMap.getJob( entry );
-
-                // See if the job is finished or stopped.
-                //
-                if ( job != null && ( job.isFinished() || job.isStopped() ) && job.getLogDate() != null ) {
-                  // check the last log time
-                  //
-                  int diffInMinutes =
-                    (int) Math.floor( ( System.currentTimeMillis() - job.getLogDate().getTime() ) / 60000 );
-                  if ( diffInMinutes >= objectTimeout ) {
-                    // Let's remove this from the job map...
-                    //
-                    jobMap.removeJob( entry );
-                    log.logMinimal( "Cleaned up job "
-                      + entry.getName() + " with id " + entry.getId() + " from " + job.getLogDate() );
-                  }
-                }
-              }
-
-            } finally {
-              busy.set( false );
-            }
+          // The registries make sure only one purge runs at a time
+          //
+          for ( CarteObjectEntry entry : transformationMap.purge() ) {
+            log.logMinimal( "Cleaned up transformation " + entry.getName() + " with id " + entry.getId() );
+          }
+          for ( CarteObjectEntry entry : jobMap.purge() ) {
+            log.logMinimal( "Cleaned up job " + entry.getName() + " with id " + entry.getId() );
           }
         }
       };
@@ -0,0 +1,419 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.continuation.Continuation;
+import org.eclipse.jetty.continuation.ContinuationSupport;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.KettleLogLayout;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.KettleLoggingEvent;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepStatus;
+
+/**
+ * Streams the status of a transformation or job as server-sent events. Instead of re-rendering the complete status and
+ * log on every poll, the client keeps a cursor (the last log line number it received) and only gets what changed: the
+ * status when it changes, the step status of steps that changed and the log lines after the cursor.<br>
+ * <br>
+ * Between two updates the request is suspended, so a stream doesn't hold on to a server thread while it waits.
+ */
+public class GetStatusStreamServlet extends BaseHttpServlet implements CartePluginInterface {
+  private static Class<?> PKG = GetStatusStreamServlet.class; // for i18n purposes, needed by Translator2!!
+
+  private static final long serialVersionUID = -4418313434937291428L;
+  public static final String CONTEXT_PATH = "/kettle/statusStream";
+
+  public static final String TYPE_TRANS = "trans";
+  public static final String TYPE_JOB = "job";
+
+  public static final String EVENT_STATUS = "status";
+  public static final String EVENT_STEP = "step";
+  public static final String EVENT_LOG = "log";
+  public static final String EVENT_END = "end";
+
+  public static final int DEFAULT_INTERVAL = 1000;
+  public static final int MIN_INTERVAL = 100;
+
+  private static final String STATE_ATTRIBUTE = GetStatusStreamServlet.class.getName() + ".state";
+
+  /** The number of streams that are following a transformation or job right now */
+  private static final AtomicInteger activeStreams = new AtomicInteger();
+
+  public GetStatusStreamServlet() {
+  }
+
+  public GetStatusStreamServlet( TransformationMap transformationMap, JobMap jobMap ) {
+    super( transformationMap, jobMap );
+  }
+
+  /**
+  <div id="mindtouch">
+      <h1>/kettle/statusStream</h1>
+      <a name="GET"></a>
+      <h2>GET</h2>
+      <p>Streams the status and log of the specified transformation or job as server-sent events
+    (<code>text/event-stream</code>). Only changes are sent: a <code>status</code> event when the status changes,
+    a <code>step</code> event with the step status XML of every step that changed and a <code>log</code> event
+    with the log lines after the cursor. The <code>id</code> of a <code>log</code> event is the last log line number
+    sent, so reconnecting clients resume where they left off through the <code>Last-Event-ID</code> header.
+    An <code>end</code> event is sent when the transformation or job is finished.</p>
+
+      <p><b>Example Request:</b><br />
+      <pre function="syntax.xml">
+      GET /kettle/statusStream/?type=trans&name=dummy-trans&from=120
+      </pre>
+
+      </p>
+      <h3>Parameters</h3>
+      <table class="pentaho-table">
+      <tbody>
+      <tr>
+        <th>name</th>
+        <th>description</th>
+        <th>type</th>
+      </tr>
+      <tr>
+      <td>name</td>
+      <td>Name of the transformation or job.</td>
+      <td>query</td>
+      </tr>
+      <tr>
+      <td>id</td>
+      <td>Carte id of the transformation or job.</td>
+      <td>query, optional</td>
+      </tr>
+      <tr>
+      <td>type</td>
+      <td><code>trans</code> (default) or <code>job</code>.</td>
+      <td>query, optional</td>
+      </tr>
+      <tr>
+      <td>from</td>
+      <td>Log line number cursor: only lines after it are sent. Defaults to the <code>Last-Event-ID</code> header or 0.
+      </td>
+      <td>integer, optional</td>
+      </tr>
+      <tr>
+      <td>interval</td>
+      <td>Milliseconds between two updates, 1000 by default.</td>
+      <td>integer, optional</td>
+      </tr>
+      <tr>
+      <td>follow</td>
+      <td><code>N</code> sends a single update and closes the stream, for clients that poll with a cursor.</td>
+      <td>boolean, optional</td>
+      </tr>
+      </tbody>
+      </table>
+
+    <h3>Response Body</h3>
+
+      <p><b>Example Response:</b></p>
+      <pre function="syntax.xml">
+      event: status
+      data: Running
+
+      event: step
+      data: &lt;stepstatus&gt;&lt;stepname&gt;Dummy&lt;/stepname&gt;...&lt;/stepstatus&gt;
+
+      id: 125
+      event: log
+      data: 2016/01/01 12:00:00 - Dummy.0 - Finished processing (I=0, O=0, R=10, W=10, U=0, E=0)
+
+      </pre>
+
+      <h3>Status Codes</h3>
+      <table class="pentaho-table">
+    <tbody>
+      <tr>
+        <th>code</th>
+        <th>description</th>
+      </tr>
+      <tr>
+        <td>200</td>
+        <td>Request was processed.</td>
+      </tr>
+      <tr>
+        <td>404</td>
+        <td>The transformation or job could not be found.</td>
+      </tr>
+      <tr>
+        <td>503</td>
+        <td>The maximum number of concurrent streams (<code>KETTLE_CARTE_STATUS_STREAM_MAX</code>) was reached.</td>
+      </tr>
+    </tbody>
+  </table>
+  </div>
+    */
+  public void doGet( HttpServletRequest request, HttpServletResponse response ) throws ServletException,
+    IOException {
+    if ( isJettyMode() && !request.getContextPath().startsWith( CONTEXT_PATH ) ) {
+      return;
+    }
+
+    // A stream that is resumed after waiting for the next update keeps its state in the request
+    //
+    StreamState state = (StreamState) request.getAttribute( STATE_ATTRIBUTE );
+    if ( state == null ) {
+      state = startStream( request, response );
+      if ( state == null ) {
+        return;
+      }
+    }
+
+    PrintWriter out = response.getWriter();
+    boolean finished;
+    try {
+      finished = writeChanges( out, state );
+    } catch ( KettleException e ) {
+      endStream( state );
+      throw new ServletException( "Unable to stream the status of '" + state.name + "'", e );
+    }
+    out.flush();
+
+    // checkError() flushes the chunk to the client and tells us if the client went away.
+    //
+    if ( finished || !state.follow || out.checkError() ) {
+      endStream( state );
+      return;
+    }
+
+    // Don't keep a thread busy until the next update: suspend the request, it's dispatched again after the interval.
+    //
+    request.setAttribute( STATE_ATTRIBUTE, state );
+    Continuation continuation = ContinuationSupport.getContinuation( request );
+    continuation.setTimeout( state.interval );
+    continuation.suspend();
+  }
+
+  /**
+   * Look up the transformation or job and send the stream headers.
+   *
+   * @return the state of the new stream or null if a response was already sent
+   */
+  private StreamState startStream( HttpServletRequest request, HttpServletResponse response ) throws IOException {
+    if ( log.isDebug() ) {
+      logDebug( BaseMessages.getString( PKG, "GetStatusStreamServlet.Log.StatusStreamRequested" ) );
+    }
+
+    StreamState state = new StreamState();
+    state.name = request.getParameter( "name" );
+    String id = request.getParameter( "id" );
+    boolean isJob = TYPE_JOB.equalsIgnoreCase( request.getParameter( "type" ) );
+    state.cursor =
+      Const.toInt( request.getParameter( "from" ), Const.toInt( request.getHeader( "Last-Event-ID" ), 0 ) );
+    state.interval = Math.max( Const.toInt( request.getParameter( "interval" ), DEFAULT_INTERVAL ), MIN_INTERVAL );
+    state.follow = !"N".equalsIgnoreCase( request.getParameter( "follow" ) );
+
+    CarteObjectEntry entry;
+    if ( isJob ) {
+      entry =
+        Const.isEmpty( id ) ? getJobMap().getFirstCarteObjectEntry( state.name ) : new CarteObjectEntry(
+          state.name, id );
+      state.job = entry == null ? null : getJobMap().getJob( entry );
+    } else {
+      entry =
+        Const.isEmpty( id ) ? getTransformationMap().getFirstCarteObjectEntry( state.name ) : new CarteObjectEntry(
+          state.name, id );
+      state.trans = entry == null ? null : getTransformationMap().getTransformation( entry );
+    }
+
+    if ( state.trans == null && state.job == null ) {
+      sendError( response, HttpServletResponse.SC_NOT_FOUND, BaseMessages.getString(
+        PKG, "GetStatusStreamServlet.Error.ObjectNotFound", state.name ) );
+      return null;
+    }
+
+    if ( state.follow ) {
+      int maxStreams =
+        Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_CARTE_STATUS_STREAM_MAX ), Const.CARTE_STATUS_STREAM_MAX );
+      if ( activeStreams.incrementAndGet() > maxStreams && maxStreams > 0 ) {
+        activeStreams.decrementAndGet();
+        sendError( response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BaseMessages.getString(
+          PKG, "GetStatusStreamServlet.Error.TooManyStreams", Integer.toString( maxStreams ) ) );
+        return null;
+      }
+      state.counted = true;
+    }
+
+    response.setStatus( HttpServletResponse.SC_OK );
+    response.setContentType( "text/event-stream" );
+    response.setCharacterEncoding( "UTF-8" );
+    response.setHeader( "Cache-Control", "no-cache" );
+
+    state.logChannelId = isJob ? state.job.getLogChannelId() : state.trans.getLogChannelId();
+    state.layout = KettleLogStore.getAppender().getLayout();
+    return state;
+  }
+
+  private void sendError( HttpServletResponse response, int status, String message ) throws IOException {
+    response.setStatus( status );
+    response.setContentType( "text/xml" );
+    response.setCharacterEncoding( Const.XML_ENCODING );
+    response.getWriter().println( new WebResult( WebResult.STRING_ERROR, message ) );
+  }
+
+  private void endStream( StreamState state ) {
+    if ( state.counted ) {
+      state.counted = false;
+      activeStreams.decrementAndGet();
+    }
+  }
+
+  /**
+   * Send everything that changed since the previous update.
+   *
+   * @return true if the transformation or job is finished and the end event was sent
+   */
+  private boolean writeChanges( PrintWriter out, StreamState state ) throws KettleException {
+    Trans trans = state.trans;
+    Job job = state.job;
+
+    // Read the finished flag before collecting the changes so that nothing is lost after the end event.
+    // A stopped transformation or job is only finished when its steps or entries have wound down.
+    //
+    boolean finished =
+      job != null ? job.isFinished() || job.isStopped() && !job.isActive() : trans.isFinished()
+        || trans.isStopped() && !trans.isRunning();
+
+    String status = job != null ? job.getStatus() : trans.getStatus();
+    if ( !status.equals( state.lastStatus ) ) {
+      writeEvent( out, EVENT_STATUS, null, status );
+      state.lastStatus = status;
+    }
+
+    if ( trans != null ) {
+      writeStepChanges( out, trans, state.stepStates );
+    }
+
+    int lastLineNr = KettleLogStore.getLastBufferLineNr();
+    if ( lastLineNr > state.cursor ) {
+      List<KettleLoggingEvent> events =
+        KettleLogStore.getLogBufferFromTo( state.logChannelId, false, state.cursor, lastLineNr );
+      if ( !events.isEmpty() ) {
+        StringBuilder lines = new StringBuilder();
+        for ( KettleLoggingEvent event : events ) {
+          lines.append( state.layout.format( event ) ).append( Const.CR );
+        }
+        writeEvent( out, EVENT_LOG, Integer.toString( lastLineNr ), lines.toString() );
+      }
+      state.cursor = lastLineNr;
+    }
+
+    if ( finished ) {
+      writeEvent( out, EVENT_END, null, status );
+    }
+    return finished;
+  }
+
+  /**
+   * Send the XML status of all the steps that changed since the previous call. The counters of a step are compared
+   * first, the XML is only rendered for the steps that changed.
+   */
+  private void writeStepChanges( PrintWriter out, Trans trans, Map<String, long[]> stepStates )
+    throws KettleException {
+    for ( int i = 0; i < trans.nrSteps(); i++ ) {
+      StepInterface step = trans.getRunThread( i );
+      if ( step.isRunning() || step.getStatus() != StepExecutionStatus.STATUS_EMPTY ) {
+        long[] counters = getStepCounters( step );
+        String key = step.getStepname() + "." + step.getCopy();
+        if ( !Arrays.equals( counters, stepStates.put( key, counters ) ) ) {
+          writeEvent( out, EVENT_STEP, null, new StepStatus( step ).getXML() );
+        }
+      }
+    }
+  }
+
+  static long[] getStepCounters( StepInterface step ) {
+    return new long[] {
+      step.getStatus().ordinal(), step.getLinesRead(), step.getLinesWritten(), step.getLinesInput(),
+      step.getLinesOutput(), step.getLinesUpdated(), step.getLinesRejected(), step.getErrors(),
+      step.isStopped() ? 1 : 0, step.isPaused() ? 1 : 0, };
+  }
+
+  /**
+   * Write a server-sent event. Every line of the data gets its own data field, blank lines are dropped since they
+   * would end the event.
+   */
+  static void writeEvent( PrintWriter out, String event, String id, String data ) {
+    if ( id != null ) {
+      out.print( "id: " + id + "\n" );
+    }
+    out.print( "event: " + event + "\n" );
+    for ( String line : data.split( "\r?\n|\r" ) ) {
+      if ( !Const.isEmpty( line ) ) {
+        out.print( "data: " + line + "\n" );
+      }
+    }
+    out.print( "\n" );
+  }
+
+  /**
+   * The state of a stream between two updates.
+   */
+  private static class StreamState {
+    private String name;
+    private Trans trans;
+    private Job job;
+    private String logChannelId;
+    private KettleLogLayout layout;
+    private int cursor;
+    private int interval;
+    private boolean follow;
+    private boolean counted;
+    private String lastStatus;
+    private final Map<String, long[]> stepStates = new HashMap<String, long[]>();
+  }
+
+  public String toString() {
+    return "Status Stream Handler";
+  }
+
+  public String getService() {
+    return CONTEXT_PATH + " (" + toString() + ")";
+  }
+
+  public String getContextPath() {
+    return CONTEXT_PATH;
+  }
+
+}
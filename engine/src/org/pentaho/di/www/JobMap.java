@@ -22,10 +22,8 @@
 
 package org.pentaho.di.www;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import org.pentaho.di.job.Job;
@@ -40,32 +38,42 @@ import org.pentaho.di.job.JobConfiguration;
  *
  */
 public class JobMap {
-  private final Map<CarteObjectEntry, Job> jobMap;
-  private final Map<CarteObjectEntry, JobConfiguration> configurationMap;
+  private final CarteObjectRegistry<Job, JobConfiguration> registry;
 
   private SlaveServerConfig slaveServerConfig;
 
   public JobMap() {
-    jobMap = new HashMap<>();
-    configurationMap = new HashMap<>();
+    registry = new CarteObjectRegistry<Job, JobConfiguration>() {
+      @Override
+      protected boolean isFinished( Job job ) {
+        return job.isFinished() || job.isStopped();
+      }
+
+      @Override
+      protected Date getLogDate( Job job ) {
+        return job.getLogDate();
+      }
+
+      @Override
+      protected String getLogChannelId( Job job ) {
+        return job.getLogChannelId();
+      }
+    };
   }
 
-  public synchronized void addJob( String jobName, String carteObjectId, Job job, JobConfiguration jobConfiguration ) {
+  public void addJob( String jobName, String carteObjectId, Job job, JobConfiguration jobConfiguration ) {
     CarteObjectEntry entry = new CarteObjectEntry( jobName, carteObjectId );
-    jobMap.put( entry, job );
-    configurationMap.put( entry, jobConfiguration );
+    registry.put( entry, job, jobConfiguration );
   }
 
-  public synchronized void registerJob( Job job, JobConfiguration jobConfiguration ) {
+  public void registerJob( Job job, JobConfiguration jobConfiguration ) {
     job.setContainerObjectId( UUID.randomUUID().toString() );
     CarteObjectEntry entry = new CarteObjectEntry( job.getJobMeta().getName(), job.getContainerObjectId() );
-    jobMap.put( entry, job );
-    configurationMap.put( entry, jobConfiguration );
+    registry.put( entry, job, jobConfiguration );
   }
 
-  public synchronized void replaceJob( CarteObjectEntry entry, Job job, JobConfiguration jobConfiguration ) {
-    jobMap.put( entry, job );
-    configurationMap.put( entry, jobConfiguration );
+  public void replaceJob( CarteObjectEntry entry, Job job, JobConfiguration jobConfiguration ) {
+    registry.put( entry, job, jobConfiguration );
   }
 
   /**
@@ -74,13 +82,9 @@ public class JobMap {
    * @param jobName
    * @return the first transformation with the specified name
    */
-  public synchronized Job getJob( String jobName ) {
-    for ( CarteObjectEntry entry : jobMap.keySet() ) {
-      if ( entry.getName().equals( jobName ) ) {
-        return getJob( entry );
-      }
-    }
-    return null;
+  public Job getJob( String jobName ) {
+    CarteObjectEntry entry = registry.getFirstEntry( jobName );
+    return entry == null ? null : registry.get( entry );
   }
 
   /**
@@ -88,17 +92,13 @@ public class JobMap {
    *          The Carte job object
    * @return the job with the specified entry
    */
-  public synchronized Job getJob( CarteObjectEntry entry ) {
-    return jobMap.get( entry );
+  public Job getJob( CarteObjectEntry entry ) {
+    return registry.get( entry );
   }
 
-  public synchronized JobConfiguration getConfiguration( String jobName ) {
-    for ( CarteObjectEntry entry : configurationMap.keySet() ) {
-      if ( entry.getName().equals( jobName ) ) {
-        return getConfiguration( entry );
-      }
-    }
-    return null;
+  public JobConfiguration getConfiguration( String jobName ) {
+    CarteObjectEntry entry = registry.getFirstEntry( jobName );
+    return entry == null ? null : registry.getConfiguration( entry );
   }
 
   /**
@@ -106,26 +106,36 @@ public class JobMap {
    *          The Carte job object
    * @return the job configuration with the specified entry
    */
-  public synchronized JobConfiguration getConfiguration( CarteObjectEntry entry ) {
-    return configurationMap.get( entry );
+  public JobConfiguration getConfiguration( CarteObjectEntry entry ) {
+    return registry.getConfiguration( entry );
   }
 
-  public synchronized void removeJob( CarteObjectEntry entry ) {
-    jobMap.remove( entry );
-    configurationMap.remove( entry );
+  public void removeJob( CarteObjectEntry entry ) {
+    registry.remove( entry );
   }
 
-  public synchronized List<CarteObjectEntry> getJobObjects() {
-    return new ArrayList<>( jobMap.keySet() );
+  public List<CarteObjectEntry> getJobObjects() {
+    return registry.getEntries();
   }
 
-  public synchronized CarteObjectEntry getFirstCarteObjectEntry( String jobName ) {
-    for ( CarteObjectEntry key : jobMap.keySet() ) {
-      if ( key.getName().equals( jobName ) ) {
-        return key;
-      }
-    }
-    return null;
+  public CarteObjectEntry getFirstCarteObjectEntry( String jobName ) {
+    return registry.getFirstEntry( jobName );
+  }
+
+  /**
+   * Evict the finished and stopped jobs that fall outside of the retention bounds and release their logging lines.
+   *
+   * @return the entries of the evicted jobs
+   */
+  public List<CarteObjectEntry> purge() {
+    return registry.purge();
+  }
+
+  /**
+   * @return the registry holding the jobs, used to set the retention bounds
+   */
+  public CarteObjectRegistry<Job, JobConfiguration> getRegistry() {
+    return registry;
   }
 
   /**
@@ -150,13 +160,8 @@ public class JobMap {
    *          the container/carte object ID
    * @return The job if it's found, null if the ID couldn't be found in the job map.
    */
-  public synchronized Job findJob( String id ) {
-    for ( Job job : jobMap.values() ) {
-      if ( job.getContainerObjectId().equals( id ) ) {
-        return job;
-      }
-    }
-    return null;
+  public Job findJob( String id ) {
+    return registry.get( id );
   }
 
 }
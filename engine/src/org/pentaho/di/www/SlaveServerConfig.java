@@ -82,6 +82,10 @@ public class SlaveServerConfig {
 
   private int objectTimeoutMinutes;
 
+  private int objectMaxCount;
+
+  private int objectMaxHeapPercent;
+
   private String filename;
 
   private List<DatabaseMeta> databases;
@@ -161,6 +165,8 @@ public class SlaveServerConfig {
     XMLHandler.addTagValue( "max_log_lines", maxLogLines );
     XMLHandler.addTagValue( "max_log_timeout_minutes", maxLogTimeoutMinutes );
     XMLHandler.addTagValue( "object_timeout_minutes", objectTimeoutMinutes );
+    XMLHandler.addTagValue( "object_max_count", objectMaxCount );
+    XMLHandler.addTagValue( "object_max_heap_percent", objectMaxHeapPercent );
 
     xml.append( XMLHandler.openTag( XML_TAG_SEQUENCES ) );
     for ( SlaveSequence slaveSequence : slaveSequences ) {
@@ -215,6 +221,8 @@ public class SlaveServerConfig {
     maxLogLines = Const.toInt( XMLHandler.getTagValue( node, "max_log_lines" ), 0 );
     maxLogTimeoutMinutes = Const.toInt( XMLHandler.getTagValue( node, "max_log_timeout_minutes" ), 0 );
     objectTimeoutMinutes = Const.toInt( XMLHandler.getTagValue( node, "object_timeout_minutes" ), 0 );
+    objectMaxCount = Const.toInt( XMLHandler.getTagValue( node, "object_max_count" ), 0 );
+    objectMaxHeapPercent = Const.toInt( XMLHandler.getTagValue( node, "object_max_heap_percent" ), 0 );
 
     // Read sequence information
     //
@@ -506,6 +514,36 @@ public class SlaveServerConfig {
     this.objectTimeoutMinutes = objectTimeoutMinutes;
   }
 
+  /**
+   * @return the maximum number of finished or stopped objects to keep, 0 to use the default
+   */
+  public int getObjectMaxCount() {
+    return objectMaxCount;
+  }
+
+  /**
+   * @param objectMaxCount
+   *          the maximum number of finished or stopped objects to keep, 0 to use the default
+   */
+  public void setObjectMaxCount( int objectMaxCount ) {
+    this.objectMaxCount = objectMaxCount;
+  }
+
+  /**
+   * @return the heap usage percentage above which finished or stopped objects are cleaned up, 0 to use the default
+   */
+  public int getObjectMaxHeapPercent() {
+    return objectMaxHeapPercent;
+  }
+
+  /**
+   * @param objectMaxHeapPercent
+   *          the heap usage percentage above which finished or stopped objects are cleaned up, 0 to use the default
+   */
+  public void setObjectMaxHeapPercent( int objectMaxHeapPercent ) {
+    this.objectMaxHeapPercent = objectMaxHeapPercent;
+  }
+
   /**
    * @return the filename
    */
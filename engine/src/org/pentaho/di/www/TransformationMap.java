@@ -22,11 +22,14 @@
 
 package org.pentaho.di.www;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.pentaho.di.core.Const;
@@ -41,16 +44,29 @@ import org.pentaho.di.trans.TransConfiguration;
  *
  */
 public class TransformationMap {
-  private Map<CarteObjectEntry, Trans> transformationMap;
-  private Map<CarteObjectEntry, TransConfiguration> configurationMap;
+  private final CarteObjectRegistry<Trans, TransConfiguration> registry;
 
   private Map<String, List<SocketPortAllocation>> hostServerSocketPortsMap;
 
   private SlaveServerConfig slaveServerConfig;
 
   public TransformationMap() {
-    transformationMap = new Hashtable<CarteObjectEntry, Trans>();
-    configurationMap = new Hashtable<CarteObjectEntry, TransConfiguration>();
+    registry = new CarteObjectRegistry<Trans, TransConfiguration>() {
+      @Override
+      protected boolean isFinished( Trans trans ) {
+        return trans.isFinished() || trans.isStopped();
+      }
+
+      @Override
+      protected Date getLogDate( Trans trans ) {
+        return trans.getLogDate();
+      }
+
+      @Override
+      protected String getLogChannelId( Trans trans ) {
+        return trans.getLogChannelId();
+      }
+    };
 
     hostServerSocketPortsMap = new Hashtable<String, List<SocketPortAllocation>>();
   }
@@ -67,18 +83,16 @@ public class TransformationMap {
    * @param transConfiguration
    *          the transformation configuration to add
    */
-  public synchronized void addTransformation( String transformationName, String containerObjectId, Trans trans,
+  public void addTransformation( String transformationName, String containerObjectId, Trans trans,
     TransConfiguration transConfiguration ) {
     CarteObjectEntry entry = new CarteObjectEntry( transformationName, containerObjectId );
-    transformationMap.put( entry, trans );
-    configurationMap.put( entry, transConfiguration );
+    registry.put( entry, trans, transConfiguration );
   }
 
-  public synchronized void registerTransformation( Trans trans, TransConfiguration transConfiguration ) {
+  public void registerTransformation( Trans trans, TransConfiguration transConfiguration ) {
     trans.setContainerObjectId( UUID.randomUUID().toString() );
     CarteObjectEntry entry = new CarteObjectEntry( trans.getTransMeta().getName(), trans.getContainerObjectId() );
-    transformationMap.put( entry, trans );
-    configurationMap.put( entry, transConfiguration );
+    registry.put( entry, trans, transConfiguration );
   }
 
   /**
@@ -87,13 +101,9 @@ public class TransformationMap {
    * @param transformationName
    * @return the first transformation with the specified name
    */
-  public synchronized Trans getTransformation( String transformationName ) {
-    for ( CarteObjectEntry entry : transformationMap.keySet() ) {
-      if ( entry.getName().equals( transformationName ) ) {
-        return transformationMap.get( entry );
-      }
-    }
-    return null;
+  public Trans getTransformation( String transformationName ) {
+    CarteObjectEntry entry = registry.getFirstEntry( transformationName );
+    return entry == null ? null : registry.get( entry );
   }
 
   /**
@@ -101,21 +111,17 @@ public class TransformationMap {
    *          The Carte transformation object
    * @return the transformation with the specified entry
    */
-  public synchronized Trans getTransformation( CarteObjectEntry entry ) {
-    return transformationMap.get( entry );
+  public Trans getTransformation( CarteObjectEntry entry ) {
+    return registry.get( entry );
   }
 
   /**
    * @param transformationName
    * @return The first transformation configuration with the specified name
    */
-  public synchronized TransConfiguration getConfiguration( String transformationName ) {
-    for ( CarteObjectEntry entry : configurationMap.keySet() ) {
-      if ( entry.getName().equals( transformationName ) ) {
-        return configurationMap.get( entry );
-      }
-    }
-    return null;
+  public TransConfiguration getConfiguration( String transformationName ) {
+    CarteObjectEntry entry = registry.getFirstEntry( transformationName );
+    return entry == null ? null : registry.getConfiguration( entry );
   }
 
   /**
@@ -123,8 +129,8 @@ public class TransformationMap {
    *          The Carte transformation object
    * @return the transformation configuration with the specified entry
    */
-  public synchronized TransConfiguration getConfiguration( CarteObjectEntry entry ) {
-    return configurationMap.get( entry );
+  public TransConfiguration getConfiguration( CarteObjectEntry entry ) {
+    return registry.getConfiguration( entry );
   }
 
   /**
@@ -132,28 +138,92 @@ public class TransformationMap {
    * @param entry
    *          the Carte object entry
    */
-  public synchronized void removeTransformation( CarteObjectEntry entry ) {
-    transformationMap.remove( entry );
-    configurationMap.remove( entry );
+  public void removeTransformation( CarteObjectEntry entry ) {
+    registry.remove( entry );
   }
 
   public List<CarteObjectEntry> getTransformationObjects() {
-    return new ArrayList<CarteObjectEntry>( transformationMap.keySet() );
+    return registry.getEntries();
   }
 
   /**
-   * @return the configurationMap
+   * Find a transformation using the container/carte object ID.
+   *
+   * @param id
+   *          the container/carte object ID
+   * @return The transformation if it's found, null if the ID couldn't be found in the transformation map.
    */
+  public Trans findTransformation( String id ) {
+    return registry.get( id );
+  }
+
+  /**
+   * Evict the finished and stopped transformations that fall outside of the retention bounds and release their
+   * logging lines.
+   *
+   * @return the entries of the evicted transformations
+   */
+  public List<CarteObjectEntry> purge() {
+    return registry.purge();
+  }
+
+  /**
+   * @return a view of the configurations of the registered transformations
+   * @deprecated the configurations are kept in the registry, use {@link #getConfiguration(CarteObjectEntry)}
+   */
+  @Deprecated
   public Map<CarteObjectEntry, TransConfiguration> getConfigurationMap() {
-    return configurationMap;
+    return new AbstractMap<CarteObjectEntry, TransConfiguration>() {
+      @Override
+      public Set<Map.Entry<CarteObjectEntry, TransConfiguration>> entrySet() {
+        Set<Map.Entry<CarteObjectEntry, TransConfiguration>> entries =
+          new LinkedHashSet<Map.Entry<CarteObjectEntry, TransConfiguration>>();
+        for ( CarteObjectEntry entry : registry.getEntries() ) {
+          entries.add( new SimpleImmutableEntry<CarteObjectEntry, TransConfiguration>( entry, registry
+            .getConfiguration( entry ) ) );
+        }
+        return entries;
+      }
+
+      @Override
+      public TransConfiguration get( Object key ) {
+        return key instanceof CarteObjectEntry ? registry.getConfiguration( (CarteObjectEntry) key ) : null;
+      }
+
+      @Override
+      public boolean containsKey( Object key ) {
+        return key instanceof CarteObjectEntry && registry.get( (CarteObjectEntry) key ) != null;
+      }
+
+      @Override
+      public TransConfiguration put( CarteObjectEntry key, TransConfiguration value ) {
+        TransConfiguration previous = registry.getConfiguration( key );
+        if ( !registry.setConfiguration( key, value ) ) {
+          throw new IllegalArgumentException( "No transformation is registered for " + key );
+        }
+        return previous;
+      }
+    };
   }
 
   /**
    * @param configurationMap
-   *          the configurationMap to set
+   *          the configurations to set for the registered transformations, the other entries are ignored
+   * @deprecated the configurations are kept in the registry, use
+   *             {@link #addTransformation(String, String, Trans, TransConfiguration)}
    */
+  @Deprecated
   public void setConfigurationMap( Map<CarteObjectEntry, TransConfiguration> configurationMap ) {
-    this.configurationMap = configurationMap;
+    for ( Map.Entry<CarteObjectEntry, TransConfiguration> entry : configurationMap.entrySet() ) {
+      registry.setConfiguration( entry.getKey(), entry.getValue() );
+    }
+  }
+
+  /**
+   * @return the registry holding the transformations, used to set the retention bounds
+   */
+  public CarteObjectRegistry<Trans, TransConfiguration> getRegistry() {
+    return registry;
   }
 
   /**
@@ -365,12 +435,7 @@ public class TransformationMap {
   }
 
   public CarteObjectEntry getFirstCarteObjectEntry( String transName ) {
-    for ( CarteObjectEntry key : transformationMap.keySet() ) {
-      if ( key.getName().equals( transName ) ) {
-        return key;
-      }
-    }
-    return null;
+    return registry.getFirstEntry( transName );
   }
 
   /**
@@ -35,6 +35,7 @@ import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.pentaho.di.core.compress.bgzip.BGZIPCompressionProvider;
 import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
 import org.pentaho.di.core.compress.hadoopsnappy.HadoopSnappyCompressionProvider;
 import org.pentaho.di.core.compress.snappy.SnappyCompressionProvider;
@@ -89,6 +90,12 @@ public class CompressionProviderFactoryTest {
     assertEquals( "GZip", provider.getName() );
     assertEquals( "GZIP compression", provider.getDescription() );
 
+    provider = factory.createCompressionProviderInstance( "BGZip" );
+    assertNotNull( provider );
+    assertTrue( provider.getClass().isAssignableFrom( BGZIPCompressionProvider.class ) );
+    assertEquals( "BGZip", provider.getName() );
+    assertEquals( "Block GZIP (BGZF) compression", provider.getDescription() );
+
     provider = factory.createCompressionProviderInstance( "Snappy" );
     assertNotNull( provider );
     assertTrue( provider.getClass().isAssignableFrom( SnappyCompressionProvider.class ) );
@@ -113,6 +120,7 @@ public class CompressionProviderFactoryTest {
         put( "None", false );
         put( "Zip", false );
         put( "GZip", false );
+        put( "BGZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
       }
@@ -144,6 +152,7 @@ public class CompressionProviderFactoryTest {
         put( "None", false );
         put( "Zip", false );
         put( "GZip", false );
+        put( "BGZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
       }
@@ -0,0 +1,178 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.bgzip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class BlockGzipStreamTest {
+
+  @Test
+  public void testReadableAsGzip() throws IOException {
+    byte[] data = createData( 200000, new Random( 1 ) );
+    byte[] compressed = blockGzip( data, 0 );
+
+    assertEquals( new String( data, "UTF-8" ), new String( read( new GZIPInputStream( new ByteArrayInputStream(
+      compressed ) ) ), "UTF-8" ) );
+    assertEquals( new String( data, "UTF-8" ), new String( read( new BlockGzipInputStream( new ByteArrayInputStream(
+      compressed ), 0L, Long.MAX_VALUE, 1000 ) ), "UTF-8" ) );
+  }
+
+  @Test
+  public void testIncompressibleData() throws IOException {
+    byte[] data = new byte[150000];
+    new Random( 2 ).nextBytes( data );
+    byte[] compressed = blockGzip( data, 0 );
+
+    assertArrayEquals( data, read( new GZIPInputStream( new ByteArrayInputStream( compressed ) ) ) );
+  }
+
+  @Test
+  public void testSplitLines() throws IOException {
+    Random random = new Random( 3 );
+    byte[] data = createData( 100000, random );
+    byte[] compressed = blockGzip( data, 997 );
+    String expected = new String( data, "UTF-8" );
+
+    for ( int parts : new int[] { 1, 2, 3, 7, 50 } ) {
+      StringBuilder all = new StringBuilder();
+      for ( int part = 0; part < parts; part++ ) {
+        all.append( readPart( compressed, part, parts ) );
+      }
+      assertEquals( "split in " + parts + " parts", expected, all.toString() );
+    }
+  }
+
+  @Test
+  public void testSeekSkipsFalseHeaders() throws IOException {
+    // A plain gzip member is followed by bytes that look like the start of a gzip header
+    //
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write( new byte[] { 0x1f, (byte) 0x8b, 0x08, 0x00, 0x01, 0x02 } );
+    int realStart = out.size();
+    GZIPOutputStream gzip = new GZIPOutputStream( out );
+    gzip.write( "second member\n".getBytes( "UTF-8" ) );
+    gzip.close();
+
+    InputStream in = new BufferedInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+    assertEquals( realStart, BlockGzipInputStream.seekMemberStart( in, 0L, out.size() ) );
+    assertEquals( "second member\n", new String( read( new BlockGzipInputStream( in, realStart, Long.MAX_VALUE,
+      100 ) ), "UTF-8" ) );
+
+    in = new BufferedInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+    assertEquals( -1L, BlockGzipInputStream.seekMemberStart( in, 0L, realStart ) );
+  }
+
+  /**
+   * Reads the lines of a part of the file the way the Parallel Gzip CSV Input step copies do.
+   */
+  private static String readPart( byte[] compressed, int part, int parts ) throws IOException {
+    long start = (long) compressed.length * part / parts;
+    long end = (long) compressed.length * ( part + 1 ) / parts;
+    InputStream in = new BufferedInputStream( new ByteArrayInputStream( compressed ) );
+    in.skip( start );
+    long memberStart = start == 0 ? 0L : BlockGzipInputStream.seekMemberStart( in, start, end );
+    if ( memberStart < 0 ) {
+      return "";
+    }
+    BlockGzipInputStream gzis = new BlockGzipInputStream( in, memberStart, end, 512 );
+    StringBuilder lines = new StringBuilder();
+    if ( memberStart > 0 ) {
+      readLine( gzis );
+    }
+    while ( gzis.getPosition() <= gzis.getEndPosition() ) {
+      String line = readLine( gzis );
+      if ( line == null ) {
+        break;
+      }
+      lines.append( line );
+    }
+    return lines.toString();
+  }
+
+  private static String readLine( InputStream in ) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ( ( b = in.read() ) >= 0 ) {
+      line.write( b );
+      if ( b == '\n' ) {
+        break;
+      }
+    }
+    return line.size() == 0 ? null : line.toString( "UTF-8" );
+  }
+
+  private static byte[] createData( int lines, Random random ) throws IOException {
+    StringBuilder data = new StringBuilder();
+    for ( int i = 0; i < lines; i++ ) {
+      data.append( i ).append( ';' ).append( Long.toHexString( random.nextLong() ) );
+      for ( int j = random.nextInt( 5 ); j > 0; j-- ) {
+        data.append( ";field" ).append( j );
+      }
+      data.append( '\n' );
+    }
+    return data.toString().getBytes( "UTF-8" );
+  }
+
+  /**
+   * @param flushEvery
+   *          the number of bytes after which a member is forced, 0 to only write full members
+   */
+  private static byte[] blockGzip( byte[] data, int flushEvery ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BlockGzipOutputStream gzip = new BlockGzipOutputStream( out );
+    int offset = 0;
+    while ( offset < data.length ) {
+      int n = flushEvery > 0 ? Math.min( flushEvery, data.length - offset ) : data.length - offset;
+      gzip.write( data, offset, n );
+      if ( flushEvery > 0 ) {
+        gzip.flush();
+      }
+      offset += n;
+    }
+    gzip.close();
+    return out.toByteArray();
+  }
+
+  private static byte[] read( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int n;
+    while ( ( n = in.read( buffer ) ) >= 0 ) {
+      out.write( buffer, 0, n );
+    }
+    in.close();
+    return out.toByteArray();
+  }
+}
@@ -23,19 +23,36 @@
 package org.pentaho.di.job;
 
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.Result;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.logging.BaseLogTable;
 import org.pentaho.di.core.logging.JobEntryLogTable;
 import org.pentaho.di.core.logging.JobLogTable;
+import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LogStatus;
 import org.pentaho.di.core.logging.LogTableField;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.job.entries.special.JobEntrySpecial;
+import org.pentaho.di.job.entry.JobEntryBase;
+import org.pentaho.di.job.entry.JobEntryCopy;
+import org.pentaho.di.job.entry.JobEntryInterface;
 import org.pentaho.di.trans.HasDatabasesInterface;
 
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
@@ -47,6 +64,11 @@ public class JobTest {
   private HasDatabasesInterface hasDatabasesInterface;
 
 
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init();
+  }
+
   @Before
   public void init() {
     mockedDataBase = mock( Database.class );
@@ -94,4 +116,245 @@ public class JobTest {
     table.setFields( new ArrayList<LogTableField>() );
   }
 
+  @Test
+  public void testIterativeExecutionOfSequentialEntries() throws Exception {
+    // START -> A -> B, B fails: its error hop goes to C, its success hop to D
+    //
+    JobMeta jobMeta = new JobMeta();
+    JobEntryCopy start = addStart( jobMeta );
+    CountingJobEntry a = new CountingJobEntry( "A", Integer.MAX_VALUE );
+    CountingJobEntry b = new CountingJobEntry( "B", 0 );
+    CountingJobEntry c = new CountingJobEntry( "C", Integer.MAX_VALUE );
+    CountingJobEntry d = new CountingJobEntry( "D", Integer.MAX_VALUE );
+    JobEntryCopy copyA = addEntry( jobMeta, a );
+    JobEntryCopy copyB = addEntry( jobMeta, b );
+    addHop( jobMeta, start, copyA, true );
+    addHop( jobMeta, copyA, copyB, true );
+    addHop( jobMeta, copyB, addEntry( jobMeta, c ), false );
+    addHop( jobMeta, copyB, addEntry( jobMeta, d ), true );
+
+    Job recursive = execute( jobMeta, false );
+    Job iterative = execute( jobMeta, true );
+
+    assertSameResult( recursive, iterative );
+    assertTrue( iterative.getResult().getResult() );
+    assertEquals( 3, iterative.getResult().getNrLinesWritten() );
+    assertEquals( 1, iterative.getErrors() );
+    assertEquals( 2, a.executions.get() );
+    assertEquals( 2, b.executions.get() );
+    assertEquals( 2, c.executions.get() );
+    assertEquals( 0, d.executions.get() );
+  }
+
+  @Test
+  public void testIterativeExecutionOfLoop() throws Exception {
+    // START -> A -> B -> A as long as A succeeds
+    //
+    JobMeta recursiveMeta = createLoop( 50 );
+    JobMeta iterativeMeta = createLoop( 50 );
+
+    Job recursive = execute( recursiveMeta, false );
+    Job iterative = execute( iterativeMeta, true );
+
+    assertSameResult( recursive, iterative );
+    assertEquals( 50, ( (CountingJobEntry) recursiveMeta.findJobEntry( "A" ).getEntry() ).executions.get() );
+    assertEquals( 50, ( (CountingJobEntry) iterativeMeta.findJobEntry( "A" ).getEntry() ).executions.get() );
+    assertFalse( iterative.getResult().getResult() );
+    assertEquals( 99, iterative.getResult().getNrLinesWritten() );
+    assertEquals( 1, iterative.getErrors() );
+  }
+
+  @Test
+  public void testIterativeExecutionOfLongLoopOnSmallStack() throws Exception {
+    // Executed recursively, every pass through the loop adds to the call stack
+    //
+    final JobMeta jobMeta = createLoop( 5000 );
+    final AtomicReference<Object> outcome = new AtomicReference<Object>();
+    Thread thread = new Thread( null, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          outcome.set( execute( jobMeta, true ) );
+        } catch ( Throwable e ) {
+          outcome.set( e );
+        }
+      }
+    }, "small stack", 256 * 1024 );
+    thread.start();
+    thread.join();
+
+    assertTrue( String.valueOf( outcome.get() ), outcome.get() instanceof Job );
+    Job job = (Job) outcome.get();
+    assertEquals( 5000, ( (CountingJobEntry) jobMeta.findJobEntry( "A" ).getEntry() ).executions.get() );
+    assertEquals( 9999, job.getResult().getNrLinesWritten() );
+    assertEquals( 1, job.getErrors() );
+  }
+
+  @Test
+  public void testIterativeExecutionOfParallelBranches() throws Exception {
+    // START launches A, B and C in parallel, each followed by another entry, B fails
+    //
+    JobMeta jobMeta = new JobMeta();
+    JobEntryCopy start = addStart( jobMeta );
+    start.setLaunchingInParallel( true );
+    CountingJobEntry[] entries = new CountingJobEntry[6];
+    for ( int i = 0; i < 3; i++ ) {
+      entries[i] = new CountingJobEntry( "Branch " + i, i == 1 ? 0 : Integer.MAX_VALUE );
+      entries[i + 3] = new CountingJobEntry( "After branch " + i, Integer.MAX_VALUE );
+      JobEntryCopy branch = addEntry( jobMeta, entries[i] );
+      addHop( jobMeta, start, branch, true );
+      addHop( jobMeta, branch, addEntry( jobMeta, entries[i + 3] ), true );
+    }
+
+    Job recursive = execute( jobMeta, false );
+    Job iterative = execute( jobMeta, true );
+
+    assertSameResult( recursive, iterative );
+    assertFalse( iterative.getResult().getResult() );
+    assertEquals( 1, iterative.getResult().getNrErrors() );
+    assertEquals( 5, iterative.getResult().getNrLinesWritten() );
+    for ( int i = 0; i < 6; i++ ) {
+      assertEquals( entries[i].getName(), i == 4 ? 0 : 2, entries[i].executions.get() );
+    }
+  }
+
+  @Test
+  public void testIterativeExecutionRunsBranchesOnCallerWhenPoolIsFull() throws Exception {
+    // More parallel branches than the pool has threads: the branches on the pool wait until one runs on the caller
+    //
+    int nrBranches = 40;
+    JobMeta jobMeta = new JobMeta();
+    JobEntryCopy start = addStart( jobMeta );
+    start.setLaunchingInParallel( true );
+    BlockingJobEntry entry = new BlockingJobEntry( Thread.currentThread() );
+    for ( int i = 0; i < nrBranches; i++ ) {
+      JobEntryInterface branch = (JobEntryInterface) entry.clone();
+      branch.setName( "Branch " + i );
+      addHop( jobMeta, start, addEntry( jobMeta, branch ), true );
+    }
+
+    Job job = execute( jobMeta, true );
+
+    assertEquals( 0, entry.callerRuns.getCount() );
+    assertEquals( nrBranches, entry.executions.get() );
+    assertEquals( 0, entry.timeouts.get() );
+    assertTrue( job.getResult().getResult() );
+    assertEquals( nrBranches, job.getResult().getNrLinesWritten() );
+    assertEquals( 0, job.getErrors() );
+  }
+
+  private static JobMeta createLoop( int passes ) {
+    JobMeta jobMeta = new JobMeta();
+    JobEntryCopy start = addStart( jobMeta );
+    JobEntryCopy a = addEntry( jobMeta, new CountingJobEntry( "A", passes - 1 ) );
+    JobEntryCopy b = addEntry( jobMeta, new CountingJobEntry( "B", Integer.MAX_VALUE ) );
+    addHop( jobMeta, start, a, true );
+    addHop( jobMeta, a, b, true );
+    addHop( jobMeta, b, a, true );
+    return jobMeta;
+  }
+
+  private static JobEntryCopy addStart( JobMeta jobMeta ) {
+    return addEntry( jobMeta, new JobEntrySpecial( JobMeta.STRING_SPECIAL_START, true, false ) );
+  }
+
+  private static JobEntryCopy addEntry( JobMeta jobMeta, JobEntryInterface entry ) {
+    JobEntryCopy copy = new JobEntryCopy( entry );
+    copy.setDrawn();
+    jobMeta.addJobEntry( copy );
+    return copy;
+  }
+
+  private static void addHop( JobMeta jobMeta, JobEntryCopy from, JobEntryCopy to, boolean evaluation ) {
+    JobHopMeta hop = new JobHopMeta( from, to );
+    hop.setEvaluation( evaluation );
+    jobMeta.addJobHop( hop );
+  }
+
+  private static Job execute( JobMeta jobMeta, boolean iterative ) throws Exception {
+    System.setProperty( Const.KETTLE_ITERATIVE_JOB_EXECUTION, iterative ? "Y" : "N" );
+    try {
+      Job job = new Job( null, jobMeta );
+      job.setLogLevel( LogLevel.ERROR );
+      job.setResult( job.execute( 0, new Result() ) );
+      return job;
+    } finally {
+      System.clearProperty( Const.KETTLE_ITERATIVE_JOB_EXECUTION );
+    }
+  }
+
+  private static void assertSameResult( Job expected, Job actual ) {
+    assertEquals( expected.getResult().getResult(), actual.getResult().getResult() );
+    assertEquals( expected.getResult().getNrErrors(), actual.getResult().getNrErrors() );
+    assertEquals( expected.getResult().getNrLinesWritten(), actual.getResult().getNrLinesWritten() );
+    assertEquals( expected.getErrors(), actual.getErrors() );
+    assertNull( actual.getResult().stopped ? "stopped" : null );
+  }
+
+  /**
+   * Counts its executions and writes a line, it succeeds for the given number of executions and fails after that.
+   */
+  private static class CountingJobEntry extends JobEntryBase implements Cloneable, JobEntryInterface {
+    private final AtomicInteger executions = new AtomicInteger();
+    private final int successes;
+
+    CountingJobEntry( String name, int successes ) {
+      super( name, "" );
+      this.successes = successes;
+    }
+
+    @Override
+    public Result execute( Result previousResult, int nr ) {
+      boolean success = executions.incrementAndGet() <= successes;
+      previousResult.setNrLinesWritten( previousResult.getNrLinesWritten() + 1 );
+      previousResult.setResult( success );
+      previousResult.setNrErrors( success ? 0 : 1 );
+      return previousResult;
+    }
+
+    @Override
+    public boolean evaluates() {
+      return true;
+    }
+
+    @Override
+    public boolean isUnconditional() {
+      return false;
+    }
+  }
+
+  /**
+   * Waits until one of its copies is executed on the given thread.
+   */
+  private static class BlockingJobEntry extends JobEntryBase implements Cloneable, JobEntryInterface {
+    private final Thread caller;
+    private final CountDownLatch callerRuns = new CountDownLatch( 1 );
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+
+    BlockingJobEntry( Thread caller ) {
+      super( "Blocking", "" );
+      this.caller = caller;
+    }
+
+    @Override
+    public Result execute( Result previousResult, int nr ) {
+      executions.incrementAndGet();
+      if ( Thread.currentThread() == caller ) {
+        callerRuns.countDown();
+      } else {
+        try {
+          if ( !callerRuns.await( 10, TimeUnit.SECONDS ) ) {
+            timeouts.incrementAndGet();
+          }
+        } catch ( InterruptedException e ) {
+          timeouts.incrementAndGet();
+        }
+      }
+      previousResult.setNrLinesWritten( previousResult.getNrLinesWritten() + 1 );
+      previousResult.setResult( true );
+      return previousResult;
+    }
+  }
+
 }
@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.w3c.dom.Node;
+
+public class TransHopMetaTest {
+
+  private List<StepMeta> steps;
+  private Map<String, StepMeta> stepsByName;
+
+  @Before
+  public void setUp() {
+    steps = Arrays.asList( new StepMeta( "Input", new DummyTransMeta() ), new StepMeta( "Output",
+      new DummyTransMeta() ) );
+    stepsByName = new TreeMap<String, StepMeta>( String.CASE_INSENSITIVE_ORDER );
+    for ( StepMeta step : steps ) {
+      stepsByName.put( step.getName(), step );
+    }
+  }
+
+  private Node getHopNode( String from, String to, String enabled ) throws Exception {
+    return XMLHandler.loadXMLString( "<hop>" + XMLHandler.addTagValue( "from", from )
+      + XMLHandler.addTagValue( "to", to ) + ( enabled == null ? "" : XMLHandler.addTagValue( "enabled", enabled ) )
+      + "</hop>", TransHopMeta.XML_TAG );
+  }
+
+  @Test
+  public void testLoadWithStepsByName() throws Exception {
+    Node hopNode = getHopNode( "Input", "Output", "N" );
+    TransHopMeta hop = new TransHopMeta( hopNode, stepsByName );
+    TransHopMeta expected = new TransHopMeta( hopNode, steps );
+
+    assertSame( expected.getFromStep(), hop.getFromStep() );
+    assertSame( expected.getToStep(), hop.getToStep() );
+    assertSame( steps.get( 0 ), hop.getFromStep() );
+    assertSame( steps.get( 1 ), hop.getToStep() );
+    assertFalse( hop.isEnabled() );
+  }
+
+  @Test
+  public void testLoadWithStepsByNameIgnoresCase() throws Exception {
+    Node hopNode = getHopNode( "INPUT", "output", "Y" );
+    TransHopMeta hop = new TransHopMeta( hopNode, stepsByName );
+    TransHopMeta expected = new TransHopMeta( hopNode, steps );
+
+    assertSame( steps.get( 0 ), expected.getFromStep() );
+    assertSame( expected.getFromStep(), hop.getFromStep() );
+    assertSame( expected.getToStep(), hop.getToStep() );
+    assertTrue( hop.isEnabled() );
+  }
+
+  @Test
+  public void testLoadWithStepsByNameDefaultsAndUnknownSteps() throws Exception {
+    Node hopNode = getHopNode( "Input", "Unknown", null );
+    TransHopMeta hop = new TransHopMeta( hopNode, stepsByName );
+
+    assertSame( steps.get( 0 ), hop.getFromStep() );
+    assertNull( hop.getToStep() );
+    assertNull( new TransHopMeta( hopNode, steps ).getToStep() );
+    assertTrue( hop.isEnabled() );
+  }
+}
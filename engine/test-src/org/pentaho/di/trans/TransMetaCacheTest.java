@@ -0,0 +1,169 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.trans.step.StepErrorMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.delay.DelayMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+
+public class TransMetaCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Test
+  public void testCopiesAreIndependent() throws Exception {
+    File file = folder.newFile( "test.ktr" );
+    write( file, "one" );
+    TransMetaCache cache = new TransMetaCache( 10 );
+
+    TransMeta first = cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    TransMeta second = cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    assertEquals( 1, cache.getMisses() );
+    assertEquals( 1, cache.getHits() );
+    assertNotSame( first, second );
+    assertNotSame( first.findStep( "A" ), second.findStep( "A" ) );
+    assertEquals( file.getAbsolutePath(), second.getFilename() );
+
+    // The hops of a copy connect the steps of that copy
+    //
+    TransHopMeta hop = second.getTransHop( 0 );
+    assertSame( second.findStep( "A" ), hop.getFromStep() );
+    assertSame( second.findStep( "B" ), hop.getToStep() );
+
+    // Changes to a copy don't end up in the cache
+    //
+    second.setName( "changed" );
+    second.setVariable( "CHANGED", "Y" );
+    TransMeta third = cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    assertEquals( "one", third.getName() );
+    assertEquals( null, third.getVariable( "CHANGED" ) );
+  }
+
+  @Test
+  public void testStepsHopsAndErrorHandlingAreIndependent() throws Exception {
+    File file = folder.newFile( "test.ktr" );
+    write( file, "one" );
+    TransMetaCache cache = new TransMetaCache( 10 );
+
+    TransMeta first = cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    TransMeta second = cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    assertNotSame( first.findStep( "A" ).getStepMetaInterface(), second.findStep( "A" ).getStepMetaInterface() );
+    assertNotSame( first.getTransHop( 0 ), second.getTransHop( 0 ) );
+
+    StepErrorMeta firstError = first.findStep( "A" ).getStepErrorMeta();
+    StepErrorMeta secondError = second.findStep( "A" ).getStepErrorMeta();
+    assertNotSame( firstError, secondError );
+    assertSame( first.findStep( "A" ), firstError.getSourceStep() );
+    assertSame( first.findStep( "B" ), firstError.getTargetStep() );
+    assertSame( second.findStep( "A" ), secondError.getSourceStep() );
+    assertSame( second.findStep( "B" ), secondError.getTargetStep() );
+
+    // Change everything in the first copy: neither the cached transformation nor the second copy see it
+    //
+    ( (DelayMeta) first.findStep( "A" ).getStepMetaInterface() ).setTimeOut( "99" );
+    first.getTransHop( 0 ).setEnabled( false );
+    firstError.setMaxErrors( "5" );
+    first.findStep( "B" ).setCopies( 3 );
+
+    TransMeta third = cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    for ( TransMeta copy : new TransMeta[] { second, third } ) {
+      assertEquals( "7", ( (DelayMeta) copy.findStep( "A" ).getStepMetaInterface() ).getTimeOut() );
+      assertEquals( true, copy.getTransHop( 0 ).isEnabled() );
+      assertEquals( "2", copy.findStep( "A" ).getStepErrorMeta().getMaxErrors() );
+      assertEquals( 1, copy.findStep( "B" ).getCopies() );
+    }
+    assertEquals( 2, cache.getHits() );
+  }
+
+  @Test
+  public void testChangedFileIsLoadedAgain() throws Exception {
+    File file = folder.newFile( "test.ktr" );
+    write( file, "one" );
+    TransMetaCache cache = new TransMetaCache( 10 );
+    assertEquals( "one", cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null ).getName() );
+
+    write( file, "two" );
+    file.setLastModified( file.lastModified() + 2000 );
+    assertEquals( "two", cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null ).getName() );
+    assertEquals( 2, cache.getMisses() );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testDisabledCache() throws Exception {
+    File file = folder.newFile( "test.ktr" );
+    write( file, "one" );
+    TransMetaCache cache = new TransMetaCache( 0 );
+    cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    cache.loadTransMeta( file.getAbsolutePath(), null, null, true, null );
+    assertEquals( 0, cache.getHits() );
+    assertEquals( 0, cache.size() );
+  }
+
+  private static void write( File file, String name ) throws Exception {
+    TransMeta transMeta = new TransMeta();
+    transMeta.setName( name );
+    DelayMeta delayMeta = new DelayMeta();
+    delayMeta.setDefault();
+    delayMeta.setTimeOut( "7" );
+    StepMeta a = new StepMeta( "A", delayMeta );
+    StepMeta b = new StepMeta( "B", new DummyTransMeta() );
+    transMeta.addStep( a );
+    transMeta.addStep( b );
+    transMeta.addTransHop( new TransHopMeta( a, b ) );
+
+    StepErrorMeta errorMeta = new StepErrorMeta( transMeta, a, b );
+    errorMeta.setEnabled( true );
+    errorMeta.setMaxErrors( "2" );
+    a.setStepErrorMeta( errorMeta );
+
+    OutputStream out = new FileOutputStream( file );
+    try {
+      out.write( transMeta.getXML().getBytes( Const.XML_ENCODING ) );
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -37,10 +37,12 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.metastore.DatabaseMetaStoreUtil;
 import org.pentaho.di.repository.ObjectRevision;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectoryInterface;
+import org.pentaho.di.trans.step.StepErrorMeta;
 import org.pentaho.di.trans.step.StepIOMeta;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
@@ -51,6 +53,7 @@ import org.pentaho.di.trans.steps.userdefinedjavaclass.UserDefinedJavaClassDef;
 import org.pentaho.di.trans.steps.userdefinedjavaclass.UserDefinedJavaClassMeta;
 import org.pentaho.metastore.api.IMetaStore;
 import org.pentaho.metastore.stores.memory.MemoryMetaStore;
+import org.w3c.dom.Node;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -361,6 +364,52 @@ public class TransMetaTest {
     assertEquals( ValueMetaInterface.TYPE_STRING, row.getValueMeta( 0 ).getType() );
   }
 
+  @Test
+  public void testLoadXmlLinksHopsAndErrorHandlingToSteps() throws Exception {
+    String filename = getClass().getResource( "hops-and-error-handling.ktr" ).getFile();
+    TransMeta loaded = new TransMeta( filename );
+    assertEquals( 5, loaded.nrSteps() );
+
+    // Compare with the list based lookups of StepMeta.findStep() the hops and error handling were loaded with before
+    //
+    Node transnode = XMLHandler.getSubNode( XMLHandler.loadXMLFile( filename ), TransMeta.XML_TAG );
+    Node ordernode = XMLHandler.getSubNode( transnode, TransMeta.XML_TAG_ORDER );
+    int nrHops = XMLHandler.countNodes( ordernode, TransHopMeta.XML_TAG );
+    assertEquals( 4, nrHops );
+    assertEquals( nrHops, loaded.nrTransHops() );
+    for ( int i = 0; i < nrHops; i++ ) {
+      TransHopMeta expected =
+        new TransHopMeta( XMLHandler.getSubNodeByNr( ordernode, TransHopMeta.XML_TAG, i ), loaded.getSteps() );
+      TransHopMeta hop = loaded.getTransHop( i );
+      assertNotNull( hop.getFromStep() );
+      assertNotNull( hop.getToStep() );
+      assertSame( expected.getFromStep(), hop.getFromStep() );
+      assertSame( expected.getToStep(), hop.getToStep() );
+      assertEquals( expected.isEnabled(), hop.isEnabled() );
+    }
+
+    // The step names of the hops differ in case from the names of the steps
+    //
+    StepMeta selectValues = loaded.findStep( "Select values" );
+    assertSame( selectValues, loaded.getTransHop( 1 ).getFromStep() );
+    assertSame( loaded.findStep( "Output" ), loaded.getTransHop( 1 ).getToStep() );
+    assertSame( selectValues, loaded.getTransHop( 2 ).getFromStep() );
+    assertFalse( loaded.getTransHop( 3 ).isEnabled() );
+    assertEquals( 2, loaded.findNextSteps( selectValues ).size() );
+
+    Node errorHandlingNode = XMLHandler.getSubNode( transnode, TransMeta.XML_TAG_STEP_ERROR_HANDLING );
+    Node errorNode = XMLHandler.getSubNode( errorHandlingNode, StepErrorMeta.XML_TAG );
+    StepErrorMeta expected = new StepErrorMeta( loaded, errorNode, loaded.getSteps() );
+    StepErrorMeta stepErrorMeta = selectValues.getStepErrorMeta();
+    assertNotNull( stepErrorMeta );
+    assertSame( expected.getSourceStep(), stepErrorMeta.getSourceStep() );
+    assertSame( expected.getTargetStep(), stepErrorMeta.getTargetStep() );
+    assertSame( loaded.findStep( "Errors" ), stepErrorMeta.getTargetStep() );
+    assertTrue( stepErrorMeta.isEnabled() );
+    assertEquals( "nr_errors", stepErrorMeta.getNrErrorsValuename() );
+    assertTrue( selectValues.isDoingErrorHandling() );
+  }
+
   private static StepMeta mockStepMeta( String name ) {
     StepMeta meta = mock( StepMeta.class );
     when( meta.getName() ).thenReturn( name );
@@ -0,0 +1,135 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.AdaptiveRowSet;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class AdaptiveRowSetManagerTest {
+
+  private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+  private static AdaptiveRowSet createRowSet( String from, String to, int capacity ) {
+    AdaptiveRowSet rowSet = new AdaptiveRowSet( capacity );
+    rowSet.setThreadNameFromToCopy( from, 0, to, 0 );
+    return rowSet;
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    ValueMetaString name = new ValueMetaString( "name" );
+    name.setLength( 100 );
+    rowMeta.addValueMeta( name );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    return rowMeta;
+  }
+
+  /** Let the producer wait on a full buffer for the given time. */
+  private static void blockProducer( AdaptiveRowSet rowSet, long millis ) {
+    while ( rowSet.putRowWait( createRowMeta(), new Object[] { "x", 1L }, 0, TimeUnit.MILLISECONDS ) ) {
+      // fill it up
+    }
+    rowSet.putRowWait( createRowMeta(), new Object[] { "x", 1L }, millis, TimeUnit.MILLISECONDS );
+  }
+
+  /** Let the consumer wait on an empty buffer for the given time. */
+  private static void blockConsumer( AdaptiveRowSet rowSet, long millis ) {
+    while ( rowSet.getRowImmediate() != null ) {
+      // empty it
+    }
+    rowSet.getRowWait( millis, TimeUnit.MILLISECONDS );
+  }
+
+  @Test
+  public void testGrowWhenBothSidesWait() {
+    AdaptiveRowSetManager manager = new AdaptiveRowSetManager( 2, 16, 0L );
+    AdaptiveRowSet rowSet = createRowSet( "A", "B", 4 );
+    manager.addRowSet( rowSet );
+
+    blockProducer( rowSet, 5 );
+    blockConsumer( rowSet, 5 );
+    manager.adjust( INTERVAL );
+    assertEquals( 8, rowSet.getCapacity() );
+
+    blockProducer( rowSet, 5 );
+    blockConsumer( rowSet, 5 );
+    manager.adjust( INTERVAL );
+    assertEquals( 16, rowSet.getCapacity() );
+
+    // Never beyond the maximum
+    blockProducer( rowSet, 5 );
+    blockConsumer( rowSet, 5 );
+    manager.adjust( INTERVAL );
+    assertEquals( 16, rowSet.getCapacity() );
+  }
+
+  @Test
+  public void testShrinkWhenOneSideIsTheBottleneck() {
+    AdaptiveRowSetManager manager = new AdaptiveRowSetManager( 2, 16, 0L );
+    AdaptiveRowSet slowConsumer = createRowSet( "A", "B", 8 );
+    AdaptiveRowSet slowProducer = createRowSet( "C", "D", 8 );
+    AdaptiveRowSet idle = createRowSet( "E", "F", 8 );
+    manager.addRowSet( slowConsumer );
+    manager.addRowSet( slowProducer );
+    manager.addRowSet( idle );
+
+    blockProducer( slowConsumer, 8 );
+    blockConsumer( slowProducer, 8 );
+    manager.adjust( INTERVAL );
+
+    assertEquals( 4, slowConsumer.getCapacity() );
+    assertEquals( 4, slowProducer.getCapacity() );
+    assertEquals( 8, idle.getCapacity() );
+
+    List<AdaptiveRowSetManager.HopStatus> bottlenecks = manager.getBottlenecks();
+    assertSame( slowConsumer, bottlenecks.get( 0 ).getRowSet() );
+    assertTrue( bottlenecks.get( 0 ).getBottleneckRatio() > AdaptiveRowSetManager.BOTTLENECK_RATIO );
+  }
+
+  @Test
+  public void testMemoryBudget() {
+    AdaptiveRowSet rowSet = createRowSet( "A", "B", 1000 );
+    rowSet.putRow( createRowMeta(), new Object[] { "x", 1L } );
+    long rowSize = AdaptiveRowSetManager.estimateRowSize( createRowMeta() );
+    assertTrue( rowSize > 0 );
+
+    AdaptiveRowSetManager manager = new AdaptiveRowSetManager( 10, 100000, 100L * rowSize );
+    manager.addRowSet( rowSet );
+    manager.adjust( INTERVAL );
+
+    assertEquals( 100, rowSet.getCapacity() );
+    assertEquals( 100L * rowSize, manager.getEstimatedMemoryUsage() );
+  }
+}
@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketBoundaries() {
+    int previous = -1;
+    for ( int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++ ) {
+      long lowest = LatencyHistogram.getLowestValue( bucket );
+      long highest = LatencyHistogram.getHighestValue( bucket );
+      assertEquals( bucket, LatencyHistogram.getBucket( lowest ) );
+      assertEquals( bucket, LatencyHistogram.getBucket( highest ) );
+      assertEquals( bucket, previous + 1 );
+      if ( bucket + 1 < LatencyHistogram.BUCKET_COUNT ) {
+        assertEquals( highest + 1, LatencyHistogram.getLowestValue( bucket + 1 ) );
+      }
+      // 1/16th precision
+      assertTrue( highest - lowest <= lowest / 16 );
+      previous = bucket;
+    }
+    assertEquals( 0, LatencyHistogram.getBucket( -5L ) );
+    assertEquals( LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucket( Long.MAX_VALUE ) );
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals( 0L, histogram.getValueAtPercentile( 50.0 ) );
+    assertEquals( 0L, histogram.getMaxValue() );
+
+    for ( long i = 1; i <= 1000; i++ ) {
+      histogram.record( i * 1000L );
+    }
+    assertEquals( 1000L, histogram.getCount() );
+    assertWithin( 500000L, histogram.getValueAtPercentile( 50.0 ) );
+    assertWithin( 990000L, histogram.getValueAtPercentile( 99.0 ) );
+    assertWithin( 1000000L, histogram.getMaxValue() );
+    assertWithin( 1000L, histogram.getValueAtPercentile( 0.0 ) );
+  }
+
+  @Test
+  public void testCopyAndSubtract() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record( 10L );
+    histogram.record( 1000000L );
+    LatencyHistogram copy = histogram.copy();
+    histogram.record( 20L );
+    histogram.record( 30L );
+
+    assertEquals( 2L, copy.getCount() );
+    LatencyHistogram difference = histogram.subtract( copy );
+    assertEquals( 2L, difference.getCount() );
+    assertWithin( 30L, difference.getMaxValue() );
+    assertEquals( 4L, histogram.subtract( null ).getCount() );
+  }
+
+  @Test
+  public void testSnapShotIntervals() {
+    StepTimingStatistics timing = new StepTimingStatistics();
+    timing.recordProcessRow( 5000000L );
+    timing.addInputWaitNanos( 2000000L );
+    timing.addOutputWaitNanos( 1000000L );
+    assertEquals( 2000000L, timing.getBusyNanos() );
+
+    StepPerformanceSnapShot first = new StepPerformanceSnapShot( 1, 1L, new Date(), "trans", "step", 0, 0, 0, 0, 0, 0,
+      0, 0 );
+    first.setTimingStatistics( timing );
+    first.diff( null, 0, 0 );
+    assertTrue( first.isTimed() );
+    assertEquals( 5L, first.getProcessingTime() );
+    assertEquals( 2L, first.getInputWaitTime() );
+    assertEquals( 1L, first.getOutputWaitTime() );
+    assertWithin( 5000000L, first.getLatencyMax() );
+
+    for ( int i = 0; i < 100; i++ ) {
+      timing.recordProcessRow( 100000L );
+    }
+    StepPerformanceSnapShot second = new StepPerformanceSnapShot( 2, 1L, new Date(), "trans", "step", 0, 0, 0, 0, 0,
+      0, 0, 0 );
+    second.setTimingStatistics( timing );
+    second.diff( first, 0, 0 );
+    assertEquals( 10L, second.getProcessingTime() );
+    assertEquals( 0L, second.getInputWaitTime() );
+    assertWithin( 100000L, second.getLatencyMedian() );
+    assertWithin( 100000L, second.getLatencyMax() );
+
+    StepPerformanceSnapShot untimed = new StepPerformanceSnapShot( 3, 1L, new Date(), "trans", "step", 0, 0, 0, 0, 0,
+      0, 0, 0 );
+    untimed.setTimingStatistics( null );
+    untimed.diff( second, 0, 0 );
+    assertFalse( untimed.isTimed() );
+  }
+
+  private static void assertWithin( long expected, long actual ) {
+    assertTrue( "expected about " + expected + " but got " + actual, actual >= expected
+      && actual <= expected + expected / 16 );
+  }
+}
@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowBlockCodec;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.www.SocketRepository;
+
+public class RemoteStepTest {
+
+  private ServerSocket serverSocket;
+  private Socket socket;
+  private BaseStep baseStep;
+  private RowMetaInterface rowMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    serverSocket = new ServerSocket( 0 );
+
+    SocketRepository socketRepository = mock( SocketRepository.class );
+    when( socketRepository.openServerSocket( anyInt(), anyString() ) ).thenReturn( serverSocket );
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.getName() ).thenReturn( "RemoteStepTest" );
+    when( transMeta.getSizeRowset() ).thenReturn( 100 );
+
+    baseStep = mock( BaseStep.class );
+    baseStep.log = mock( LogChannelInterface.class );
+    when( baseStep.environmentSubstitute( anyString() ) ).thenReturn( "0" );
+    when( baseStep.getSocketRepository() ).thenReturn( socketRepository );
+    when( baseStep.getTransMeta() ).thenReturn( transMeta );
+    when( baseStep.getServerSockets() ).thenReturn( new ArrayList<ServerSocket>() );
+    when( baseStep.getRowFrom( any( RowSet.class ) ) ).thenAnswer( new Answer<Object[]>() {
+      @Override
+      public Object[] answer( InvocationOnMock invocation ) throws Throwable {
+        RowSet rowSet = (RowSet) invocation.getArguments()[0];
+        Object[] row = rowSet.getRow();
+        while ( row == null && !rowSet.isDone() ) {
+          row = rowSet.getRow();
+        }
+        return row != null ? row : rowSet.getRowImmediate();
+      }
+    } );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if ( socket != null ) {
+      socket.close();
+    }
+    serverSocket.close();
+  }
+
+  @Test
+  public void testPartialBlockIsSentWhileInputIsOpen() throws Exception {
+    RemoteStep remoteStep =
+      new RemoteStep( "localhost", "localhost", "0", "source", 0, "target", 0, "master", "slave", 2000, false,
+        rowMeta );
+    remoteStep.openServerSocket( baseStep );
+    BlockingRowSet rowSet = remoteStep.openWriterSocket();
+    for ( long i = 0; i < 3; i++ ) {
+      rowSet.putRow( rowMeta, new Object[] { i, "row " + i } );
+    }
+
+    // The input stays open: the rows may not wait for a full block
+    //
+    socket = new Socket( "localhost", serverSocket.getLocalPort() );
+    socket.setSoTimeout( 10000 );
+    DataInputStream inputStream = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+    RowMetaInterface receivedMeta = new RowMeta( inputStream );
+    assertEquals( 2, receivedMeta.size() );
+    RowBlockCodec codec = new RowBlockCodec( receivedMeta, false );
+    codec.readHeader( inputStream );
+    for ( long i = 0; i < 3; i++ ) {
+      Object[] row = codec.readRow( inputStream );
+      assertEquals( i, row[0] );
+      assertEquals( "row " + i, row[1] );
+    }
+
+    // Rows that arrive later are sent as well, the end of the input ends the stream
+    //
+    rowSet.putRow( rowMeta, new Object[] { 3L, "row 3" } );
+    assertEquals( 3L, codec.readRow( inputStream )[0] );
+    rowSet.setDone();
+    try {
+      codec.readRow( inputStream );
+      fail( "The stream should have ended" );
+    } catch ( KettleEOFException e ) {
+      // expected
+    }
+  }
+}
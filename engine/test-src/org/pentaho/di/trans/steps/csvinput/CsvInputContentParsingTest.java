@@ -63,4 +63,17 @@ public class CsvInputContentParsingTest extends BaseCsvParsingTest {
     check( new Object[][] { { "Field 1", "Field 2", "Field 3" }, { "first", "1", "1.1" }, { "second", "2", "2.2" }, {
         "third", "3", "3.3" } } );
   }
+
+  @Test
+  public void testMemoryMapped() throws Exception {
+    meta.setMemoryMapped( true );
+    meta.setBufferSize( "7" );
+    init( "default.csv" );
+
+    setFields( new TextFileInputField(), new TextFileInputField(), new TextFileInputField() );
+
+    process();
+
+    check( new Object[][] { { "first", "1", "1.1" }, { "second", "2", "2.2" }, { "third", "3", "3.3" } } );
+  }
 }
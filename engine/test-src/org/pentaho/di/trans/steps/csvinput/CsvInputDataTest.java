@@ -24,7 +24,16 @@ package org.pentaho.di.trans.steps.csvinput;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
+import org.pentaho.di.trans.steps.textfileinput.EncodingType;
 
 public class CsvInputDataTest {
   @Test
@@ -66,4 +75,44 @@ public class CsvInputDataTest {
     String result = new String( csvInputData.removeEscapedEnclosures( "345\"\"1\"\"abc".getBytes(), 2 ) );
     assertEquals( "345\"1\"abc", result );
   }
+
+  @Test
+  public void testMemoryMappedWindows() throws Exception {
+    File file = File.createTempFile( "csvInputData", ".csv" );
+    try {
+      Files.write( file.toPath(), "a,b\nlonger than one window\n\nc\nlast".getBytes() );
+
+      CsvInputData csvInputData = new CsvInputData();
+      csvInputData.memoryMapped = true;
+      csvInputData.mappedWindowSize = 6;
+      csvInputData.preferredBufferSize = 4;
+      csvInputData.encodingType = EncodingType.SINGLE;
+      csvInputData.crLfMatcher = new SingleByteCrLfMatcher();
+      csvInputData.filenames = new String[] { file.getPath() };
+      csvInputData.filenr = 1;
+      csvInputData.fc = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+
+      // Every line is scanned in place, a line that doesn't fit in the window is mapped again from its start
+      //
+      List<String> lines = new ArrayList<String>();
+      boolean endOfFile = csvInputData.resizeBufferIfNeeded();
+      while ( !endOfFile ) {
+        if ( csvInputData.newLineFound() ) {
+          lines.add( new String( csvInputData.getField( false, false, false, false ) ) );
+          endOfFile = csvInputData.moveEndBufferPointer();
+          csvInputData.setStartBuffer( csvInputData.getEndBuffer() );
+        } else {
+          endOfFile = csvInputData.moveEndBufferPointer();
+        }
+      }
+      lines.add( new String( csvInputData.getField( false, false, false, true ) ) );
+      assertEquals( Arrays.asList( "a,b", "longer than one window", "", "c", "last" ), lines );
+      assertEquals( file.length(), csvInputData.totalBytesRead );
+
+      csvInputData.closeFile();
+      assertFalse( csvInputData.fc.isOpen() );
+    } finally {
+      file.delete();
+    }
+  }
 }
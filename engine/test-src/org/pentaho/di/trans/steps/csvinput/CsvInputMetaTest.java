@@ -51,7 +51,8 @@ public class CsvInputMetaTest implements InitializerInterface<StepMetaInterface>
     PluginRegistry.init( true );
     List<String> attributes =
         Arrays.asList( "BufferSize", "Delimiter", "Enclosure", "Encoding", "Filename", "FilenameField", "InputFields", "RowNumField",
-            "AddResultFile", "HeaderPresent", "IncludingFilename", "LazyConversionActive", "NewlinePossibleInFields", "RunningInParallel" );
+            "AddResultFile", "HeaderPresent", "IncludingFilename", "LazyConversionActive", "NewlinePossibleInFields", "RunningInParallel",
+            "MemoryMapped" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
@@ -134,6 +134,12 @@ public class TextFileInputMetaNewInjectionTest extends BaseMetadataInjectionTest
       }
     } );
 
+    check( "RUNNING_IN_PARALLEL", new BooleanGetter() {
+      public boolean get() {
+        return meta.content.runningInParallel;
+      }
+    } );
+
     check( "INCLUDE_FILENAME", new BooleanGetter() {
       public boolean get() {
         return meta.content.includeFilename;
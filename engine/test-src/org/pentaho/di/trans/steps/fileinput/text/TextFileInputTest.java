@@ -22,7 +22,9 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 
 import java.io.ByteArrayInputStream;
@@ -30,6 +32,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
@@ -189,6 +192,68 @@ public class TextFileInputTest {
     deleteVfsFile( virtualFile );
   }
 
+  @Test
+  public void readFileInByteRanges() throws Exception {
+    final String virtualFile = createVirtualFile( "parallel.txt", "col1,col2\n", "a,1\n", "bb,2\n", "ccc,3\n" );
+
+    TextFileInputMeta meta = createMetaObject( field( "col1" ), field( "col2" ) );
+    meta.content.header = true;
+    meta.content.nrHeaderLines = 1;
+
+    // The first range ends in the middle of "a,1", the second one starts there: the line belongs to the first range
+    //
+    TextFileInputData data = createDataObject( virtualFile, ",", "col1", "col2" );
+    data.fileRanges = Collections.singletonList( new long[] { 0L, 12L } );
+    TextFileInput input = StepMockUtil.getStep( TextFileInput.class, TextFileInputMeta.class, "test" );
+    List<Object[]> output = TransTestingUtil.execute( input, meta, data, 1, true );
+    TransTestingUtil.assertResult( new Object[] { "a", "1" }, output.get( 0 ) );
+
+    // Only the first range has the header
+    //
+    data = createDataObject( virtualFile, ",", "col1", "col2" );
+    data.fileRanges = Collections.singletonList( new long[] { 12L, 25L } );
+    input = StepMockUtil.getStep( TextFileInput.class, TextFileInputMeta.class, "test" );
+    output = TransTestingUtil.execute( input, meta, data, 2, true );
+    TransTestingUtil.assertResult( new Object[] { "bb", "2" }, output.get( 0 ) );
+    TransTestingUtil.assertResult( new Object[] { "ccc", "3" }, output.get( 1 ) );
+
+    deleteVfsFile( virtualFile );
+  }
+
+  @Test
+  public void testGetLineStart() throws Exception {
+    byte[] content = "ab\ncd\r\nef".getBytes( "UTF-8" );
+    long[][] expected = { { 0, 0 }, { 1, 3 }, { 3, 3 }, { 4, 7 }, { 6, 7 }, { 7, 7 }, { 8, 9 }, { 20, 9 } };
+    for ( long[] positions : expected ) {
+      ByteArrayInputStream in = new ByteArrayInputStream( content );
+      assertEquals( "position " + positions[0], positions[1], TextFileInputUtils.getLineStart( in, positions[0] ) );
+      assertEquals( content.length - positions[1], in.available() );
+    }
+  }
+
+  @Test
+  public void testDivideFiles() {
+    long mb = TextFileInput.PARALLEL_MIN_SPLIT_SIZE;
+    long[] sizes = { 10 * mb, 100, 200, 300, 20 * mb };
+    boolean[] splittable = { true, true, true, true, false };
+
+    long[][] copy0 = TextFileInputUtils.divideFiles( sizes, splittable, mb, 0, 2 );
+    long[][] copy1 = TextFileInputUtils.divideFiles( sizes, splittable, mb, 1, 2 );
+
+    // The large splittable file is split, the rest is read completely by the least loaded copy
+    //
+    assertArrayEquals( new long[] { 0, 5 * mb }, copy0[0] );
+    assertArrayEquals( new long[] { 5 * mb, 10 * mb }, copy1[0] );
+    assertArrayEquals( new long[] { 0, -1 }, copy0[4] );
+    assertNull( copy1[4] );
+    assertNull( copy0[3] );
+    assertArrayEquals( new long[] { 0, -1 }, copy1[3] );
+    assertNull( copy0[2] );
+    assertArrayEquals( new long[] { 0, -1 }, copy1[2] );
+    assertNull( copy0[1] );
+    assertArrayEquals( new long[] { 0, -1 }, copy1[1] );
+  }
+
   private TextFileInputMeta createMetaObject( BaseFileInputField... fields ) {
     TextFileInputMeta meta = new TextFileInputMeta();
     meta.content.fileCompression = "None";
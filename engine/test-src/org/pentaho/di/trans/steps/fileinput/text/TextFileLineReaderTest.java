@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+public class TextFileLineReaderTest {
+
+  private static final String[] SAMPLES = {
+    "", "a", "a\n", "first\nsecond\n\nfourth", "first\r\nsecond\r\n\r\nfourth\r\n", "mixed\r\nlines\nend\r",
+    "only\rreturns\r", "a rather long line that spans several blocks\nshort\n" };
+
+  @Test
+  public void testSameLinesAsGetLine() throws Exception {
+    int[] formats =
+      { TextFileInputMeta.FILE_FORMAT_UNIX, TextFileInputMeta.FILE_FORMAT_MIXED, TextFileInputMeta.FILE_FORMAT_DOS };
+    for ( String sample : SAMPLES ) {
+      for ( int format : formats ) {
+        for ( int blockSize : new int[] { 1, 2, 3, 7, TextFileLineReader.DEFAULT_BLOCK_SIZE } ) {
+          String context = "format " + format + ", block " + blockSize + ", [" + sample + "]";
+          assertEquals( context, readWithGetLine( sample, format ), readWithLineReader( sample, format, blockSize ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDosSingleLineEnd() throws Exception {
+    TextFileLineReader reader =
+      new TextFileLineReader( new StringReader( "one\r\ntwo\nthree" ), EncodingType.SINGLE,
+        TextFileInputMeta.FILE_FORMAT_DOS, 4 );
+    StringBuilder line = new StringBuilder();
+    assertEquals( "one", reader.readLine( line ) );
+    try {
+      reader.readLine( line );
+      fail( "A single line feed in DOS format should fail" );
+    } catch ( KettleFileException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testEndOfFile() throws Exception {
+    TextFileLineReader reader =
+      new TextFileLineReader( new StringReader( "x\n" ), EncodingType.SINGLE, TextFileInputMeta.FILE_FORMAT_UNIX );
+    StringBuilder line = new StringBuilder();
+    assertEquals( "x", reader.readLine( line ) );
+    assertNull( reader.readLine( line ) );
+    assertNull( reader.readLine( line ) );
+  }
+
+  @Test
+  public void testRegionEquals() {
+    assertTrue( TextFileInputUtils.regionEquals( "a;\"b\"", 2, 1, "\"", false ) );
+    assertTrue( TextFileInputUtils.regionEquals( "xAbx", 1, 2, "ab", true ) );
+    assertFalse( TextFileInputUtils.regionEquals( "xAbx", 1, 2, "ab", false ) );
+    assertFalse( TextFileInputUtils.regionEquals( "xab", 2, 2, "ab", false ) );
+    assertFalse( TextFileInputUtils.regionEquals( "xab", 1, 1, "ab", false ) );
+    assertFalse( TextFileInputUtils.regionEquals( "xab", 1, 2, null, false ) );
+  }
+
+  private static List<String> readWithGetLine( String sample, int format ) {
+    List<String> lines = new ArrayList<String>();
+    try {
+      InputStreamReader reader =
+        new InputStreamReader( new ByteArrayInputStream( sample.getBytes( "UTF-8" ) ), "UTF-8" );
+      StringBuilder line = new StringBuilder();
+      String s;
+      while ( ( s = TextFileInputUtils.getLine( mock( LogChannelInterface.class ), reader, EncodingType.SINGLE, format,
+          line ) ) != null ) {
+        lines.add( s );
+      }
+    } catch ( Exception e ) {
+      lines.add( e.getClass().getName() );
+    }
+    return lines;
+  }
+
+  private static List<String> readWithLineReader( String sample, int format, int blockSize ) {
+    List<String> lines = new ArrayList<String>();
+    try {
+      TextFileLineReader reader =
+        new TextFileLineReader( new StringReader( sample ), EncodingType.SINGLE, format, blockSize );
+      StringBuilder line = new StringBuilder();
+      String s;
+      while ( ( s = reader.readLine( line ) ) != null ) {
+        lines.add( s );
+      }
+    } catch ( Exception e ) {
+      lines.add( e.getClass().getName() );
+    }
+    return lines;
+  }
+}
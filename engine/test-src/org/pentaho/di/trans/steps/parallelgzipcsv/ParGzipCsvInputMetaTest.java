@@ -52,7 +52,8 @@ public class ParGzipCsvInputMetaTest implements InitializerInterface<StepMetaInt
     PluginRegistry.init( true );
     List<String> attributes =
         Arrays.asList( "filename", "filenameField", "includingFilename", "rowNumField", "headerPresent", "delimiter",
-            "enclosure", "bufferSize", "lazyConversionActive", "addResultFile", "runningInParallel", "encoding",
+            "enclosure", "bufferSize", "lazyConversionActive", "addResultFile", "runningInParallel", "blockGzipped",
+            "encoding",
             "inputFields" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
@@ -64,6 +64,11 @@ public class SortRowsMetaInjectionTest extends BaseMetadataInjectionTest<SortRow
         return meta.getCompressFiles();
       }
     } );
+    check( "RADIX_SORT", new BooleanGetter() {
+      public boolean get() {
+        return meta.isRadixSort();
+      }
+    } );
     check( "NAME", new StringGetter() {
       public String get() {
         return meta.getFieldName()[0];
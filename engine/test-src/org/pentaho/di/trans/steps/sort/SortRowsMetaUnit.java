@@ -45,7 +45,7 @@ public class SortRowsMetaUnit {
   @Test
   public void testRoundTrips() throws KettleException {
     List<String> attributes = Arrays.asList( "directory", "prefix", "sort_size", "free_memory", "compress",
-      "compress_variable", "unique_rows", "name", "ascending", "case_sensitive", "presorted" );
+      "compress_variable", "unique_rows", "radix_sort", "name", "ascending", "case_sensitive", "presorted" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
     getterMap.put( "sort_size", "getSortSize" );
@@ -53,6 +53,7 @@ public class SortRowsMetaUnit {
     getterMap.put( "compress", "getCompressFiles" );
     getterMap.put( "compress_variable", "getCompressFilesVariable" );
     getterMap.put( "unique_rows", "isOnlyPassingUniqueRows" );
+    getterMap.put( "radix_sort", "isRadixSort" );
     getterMap.put( "name", "getFieldName" );
     getterMap.put( "case_sensitive", "getCaseSensitive" );
     getterMap.put( "presorted", "getPreSortedField" );
@@ -66,6 +67,7 @@ public class SortRowsMetaUnit {
     setterMap.put( "case_sensitive", "setCaseSensitive" );
     setterMap.put( "presorted", "setPreSortedField" );
     setterMap.put( "unique_rows", "setOnlyPassingUniqueRows" );
+    setterMap.put( "radix_sort", "setRadixSort" );
 
     Map<String, FieldLoadSaveValidator<?>> fieldLoadSaveValidatorAttributeMap =
       new HashMap<String, FieldLoadSaveValidator<?>>();
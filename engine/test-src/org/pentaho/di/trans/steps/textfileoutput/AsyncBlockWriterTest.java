@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+public class AsyncBlockWriterTest {
+
+  @Test
+  public void testWritesEverythingInOrder() throws Exception {
+    AsyncBlockWriter writer = new AsyncBlockWriter( "test", 7, 2 );
+    TrackingOutputStream first = new TrackingOutputStream();
+    TrackingOutputStream second = new TrackingOutputStream();
+
+    OutputStream out = writer.createOutputStream( first );
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for ( int i = 0; i < 1000; i++ ) {
+      byte[] line = ( "line " + i + "\n" ).getBytes( "UTF-8" );
+      out.write( line );
+      expected.write( line );
+      if ( i % 100 == 0 ) {
+        out.write( 'x' );
+        expected.write( 'x' );
+        out.flush();
+      }
+    }
+    out.close();
+
+    // Split: the next file is filled while the writer thread is still busy with the first one
+    //
+    out = writer.createOutputStream( second );
+    out.write( "second".getBytes( "UTF-8" ) );
+    writer.flush();
+    assertTrue( first.closed );
+    assertArrayEquals( expected.toByteArray(), first.toByteArray() );
+
+    out.flush();
+    writer.close( second );
+    writer.finish();
+    assertTrue( second.closed );
+    assertEquals( "second", second.toString( "UTF-8" ) );
+  }
+
+  @Test
+  public void testErrorIsReportedAndFilesClosed() throws Exception {
+    AsyncBlockWriter writer = new AsyncBlockWriter( "test", 4, 1 );
+    TrackingOutputStream target = new TrackingOutputStream() {
+      @Override
+      public synchronized void write( byte[] b, int off, int len ) {
+        throw new IllegalStateException( "disk full" );
+      }
+    };
+    OutputStream out = writer.createOutputStream( target );
+    out.write( "abcd".getBytes( "UTF-8" ) );
+    out.flush();
+    try {
+      writer.flush();
+      fail( "The error of the writer thread should be reported" );
+    } catch ( IOException e ) {
+      // expected
+    }
+    try {
+      out.write( "efghijkl".getBytes( "UTF-8" ) );
+      fail( "Blocks can't be handed over after an error" );
+    } catch ( IOException e ) {
+      // expected
+    }
+    writer.close( target );
+    try {
+      writer.finish();
+      fail( "The error of the writer thread should be reported" );
+    } catch ( IOException e ) {
+      // expected
+    }
+    assertTrue( target.closed );
+  }
+
+  private static class TrackingOutputStream extends ByteArrayOutputStream {
+    private volatile boolean closed;
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+    }
+  }
+}
@@ -143,6 +143,11 @@ public class TextFileOutputMetaInjectionTest extends BaseMetadataInjectionTest<T
         return meta.isFastDump();
       }
     } );
+    check( "ASYNC_WRITER", new BooleanGetter() {
+      public boolean get() {
+        return meta.isAsyncWriter();
+      }
+    } );
     check( "ENCODING", new StringGetter() {
       public String get() {
         return meta.getEncoding();
@@ -0,0 +1,238 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LoggingObjectType;
+import org.pentaho.di.core.logging.SimpleLoggingObject;
+
+public class CarteObjectRegistryTest {
+
+  private CarteObjectRegistry<TestObject, String> registry;
+  private int heapUsagePercent;
+
+  @BeforeClass
+  public static void setUpClass() {
+    KettleLogStore.init();
+  }
+
+  @Before
+  public void setUp() {
+    heapUsagePercent = 0;
+    registry = new CarteObjectRegistry<TestObject, String>() {
+      @Override
+      protected boolean isFinished( TestObject object ) {
+        return object.finished;
+      }
+
+      @Override
+      protected Date getLogDate( TestObject object ) {
+        return object.logDate;
+      }
+
+      @Override
+      protected String getLogChannelId( TestObject object ) {
+        return object.log.getLogChannelId();
+      }
+
+      @Override
+      protected int getHeapUsagePercent() {
+        return heapUsagePercent;
+      }
+    };
+  }
+
+  @Test
+  public void testLookups() {
+    TestObject one = new TestObject( "one" );
+    TestObject two = new TestObject( "two" );
+    TestObject three = new TestObject( "three" );
+    registry.put( new CarteObjectEntry( "name", "id1" ), one, "conf1" );
+    registry.put( new CarteObjectEntry( "name", "id2" ), two, "conf2" );
+    registry.put( new CarteObjectEntry( "other", "id3" ), three, "conf3" );
+
+    assertEquals( 3, registry.size() );
+    assertSame( two, registry.get( "id2" ) );
+    assertSame( three, registry.get( new CarteObjectEntry( "other", "id3" ) ) );
+    assertEquals( "conf1", registry.getConfiguration( new CarteObjectEntry( "name", "id1" ) ) );
+
+    // An entry needs both the name and the ID to match
+    //
+    assertNull( registry.get( new CarteObjectEntry( "name", "id3" ) ) );
+    assertNull( registry.getConfiguration( new CarteObjectEntry( "other", "id1" ) ) );
+    assertNull( registry.get( new CarteObjectEntry( "name", null ) ) );
+    assertTrue( registry.setConfiguration( new CarteObjectEntry( "name", "id1" ), "conf5" ) );
+    assertFalse( registry.setConfiguration( new CarteObjectEntry( "other", "id1" ), "conf6" ) );
+    assertEquals( "conf5", registry.getConfiguration( new CarteObjectEntry( "name", "id1" ) ) );
+    assertEquals( "id1", registry.getFirstEntry( "name" ).getId() );
+    assertEquals( Arrays.asList( "id1", "id2", "id3" ), ids( registry.getEntries() ) );
+
+    assertSame( one, registry.remove( new CarteObjectEntry( "name", "id1" ) ) );
+    assertEquals( "id2", registry.getFirstEntry( "name" ).getId() );
+    registry.remove( new CarteObjectEntry( "name", "id2" ) );
+    assertNull( registry.getFirstEntry( "name" ) );
+    assertNull( registry.get( "id1" ) );
+
+    // Replacing keeps a single entry
+    //
+    TestObject replacement = new TestObject( "replacement" );
+    registry.put( new CarteObjectEntry( "other", "id3" ), replacement, "conf4" );
+    assertEquals( 1, registry.size() );
+    assertSame( replacement, registry.get( "id3" ) );
+    assertEquals( "conf4", registry.getConfiguration( registry.getFirstEntry( "other" ) ) );
+  }
+
+  @Test
+  public void testPurgeByAgeAndCount() {
+    long now = System.currentTimeMillis();
+    TestObject old = new TestObject( "old" ).finish( now - 120 * 60000L );
+    TestObject recent1 = new TestObject( "recent1" ).finish( now - 3 * 60000L );
+    TestObject recent2 = new TestObject( "recent2" ).finish( now - 2 * 60000L );
+    TestObject recent3 = new TestObject( "recent3" ).finish( now - 60000L );
+    TestObject running = new TestObject( "running" );
+    registry.put( new CarteObjectEntry( "t", "running" ), running, null );
+    registry.put( new CarteObjectEntry( "t", "recent3" ), recent3, null );
+    registry.put( new CarteObjectEntry( "t", "recent1" ), recent1, null );
+    registry.put( new CarteObjectEntry( "t", "old" ), old, null );
+    registry.put( new CarteObjectEntry( "t", "recent2" ), recent2, null );
+
+    registry.setObjectTimeoutMinutes( 60 );
+    registry.setMaxFinishedObjects( 2 );
+    assertEquals( Arrays.asList( "old", "recent1" ), ids( registry.purge() ) );
+    assertEquals( Arrays.asList( "running", "recent3", "recent2" ), ids( registry.getEntries() ) );
+    assertEquals( "running", registry.getFirstEntry( "t" ).getId() );
+
+    // The evicted objects don't have any lines left in the log store
+    //
+    assertTrue( KettleLogStore.getLogBufferFromTo( old.log.getLogChannelId(), false, 0, Integer.MAX_VALUE )
+      .isEmpty() );
+    assertEquals( 1, KettleLogStore.getLogBufferFromTo( recent3.log.getLogChannelId(), false, 0,
+      Integer.MAX_VALUE ).size() );
+  }
+
+  @Test
+  public void testPurgeByHeapUsage() {
+    long now = System.currentTimeMillis();
+    for ( int i = 0; i < 40; i++ ) {
+      registry.put( new CarteObjectEntry( "t", "id" + i ), new TestObject( "id" + i ).finish( now - 1000 + i ), null );
+    }
+    registry.setMaxHeapUsagePercent( 90 );
+    assertTrue( registry.purge().isEmpty() );
+
+    // The usage doesn't go down: a tenth of the finished objects is evicted per purge
+    //
+    heapUsagePercent = 95;
+    assertEquals( Arrays.asList( "id0", "id1", "id2", "id3" ), ids( registry.purge() ) );
+    assertEquals( 36, registry.size() );
+  }
+
+  @Test
+  public void testPurgeByHeapUsageStopsBelowLimit() {
+    registry = new CarteObjectRegistry<TestObject, String>() {
+      @Override
+      protected boolean isFinished( TestObject object ) {
+        return object.finished;
+      }
+
+      @Override
+      protected Date getLogDate( TestObject object ) {
+        return object.logDate;
+      }
+
+      @Override
+      protected String getLogChannelId( TestObject object ) {
+        return object.log.getLogChannelId();
+      }
+
+      @Override
+      protected int getHeapUsagePercent() {
+        // Every object takes 1% of the heap
+        return 60 + size();
+      }
+    };
+    long now = System.currentTimeMillis();
+    for ( int i = 0; i < 40; i++ ) {
+      registry.put( new CarteObjectEntry( "t", "id" + i ), new TestObject( "id" + i ).finish( now - 1000 + i ), null );
+    }
+    registry.setMaxHeapUsagePercent( 99 );
+    assertEquals( Arrays.asList( "id0", "id1" ), ids( registry.purge() ) );
+    assertEquals( 38, registry.size() );
+    assertTrue( registry.purge().isEmpty() );
+  }
+
+  @Test
+  public void testPurgeOnPutInBatches() {
+    long now = System.currentTimeMillis();
+    registry.setMaxFinishedObjects( 10 );
+    for ( int i = 0; i < 11; i++ ) {
+      registry.put( new CarteObjectEntry( "t", "id" + i ), new TestObject( "id" + i ).finish( now - 1000 + i ), null );
+    }
+    // Over the limit: purged down to 90% of it
+    assertEquals( 9, registry.size() );
+    assertNull( registry.get( "id0" ) );
+    assertNull( registry.get( "id1" ) );
+
+    // The next registration doesn't purge again
+    registry.put( new CarteObjectEntry( "t", "id11" ), new TestObject( "id11" ).finish( now ), null );
+    assertEquals( 10, registry.size() );
+  }
+
+  private static List<String> ids( List<CarteObjectEntry> entries ) {
+    String[] ids = new String[entries.size()];
+    for ( int i = 0; i < ids.length; i++ ) {
+      ids[i] = entries.get( i ).getId();
+    }
+    return Arrays.asList( ids );
+  }
+
+  private static class TestObject {
+    private final LogChannel log;
+    private boolean finished;
+    private Date logDate;
+
+    TestObject( String name ) {
+      log = new LogChannel( new SimpleLoggingObject( name, LoggingObjectType.TRANS, null ) );
+      log.logMinimal( "Started " + name );
+    }
+
+    TestObject finish( long time ) {
+      finished = true;
+      logDate = new Date( time );
+      return this;
+    }
+  }
+}
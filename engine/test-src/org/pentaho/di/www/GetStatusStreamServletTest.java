@@ -0,0 +1,187 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.continuation.Continuation;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.trans.Trans;
+
+public class GetStatusStreamServletTest {
+  private TransformationMap mockTransformationMap;
+  private GetStatusStreamServlet servlet;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private Continuation continuation;
+  private Trans trans;
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    KettleLogStore.init();
+  }
+
+  @Before
+  public void setup() {
+    mockTransformationMap = mock( TransformationMap.class );
+    servlet = new GetStatusStreamServlet( mockTransformationMap, mock( JobMap.class ) );
+
+    trans = mock( Trans.class );
+    when( trans.getLogChannelId() ).thenReturn( "GetStatusStreamServletTest" );
+    when( trans.getStatus() ).thenReturn( Trans.STRING_RUNNING );
+    when( trans.isRunning() ).thenReturn( true );
+    CarteObjectEntry entry = new CarteObjectEntry( "test", "id" );
+    when( mockTransformationMap.getFirstCarteObjectEntry( "test" ) ).thenReturn( entry );
+    when( mockTransformationMap.getTransformation( entry ) ).thenReturn( trans );
+
+    request = mock( HttpServletRequest.class );
+    when( request.getContextPath() ).thenReturn( GetStatusStreamServlet.CONTEXT_PATH );
+    when( request.getParameter( "name" ) ).thenReturn( "test" );
+    continuation = mock( Continuation.class );
+    when( request.getAttribute( Continuation.ATTRIBUTE ) ).thenReturn( continuation );
+    response = mock( HttpServletResponse.class );
+  }
+
+  @Test
+  public void testWriteEvent() {
+    StringWriter out = new StringWriter();
+    GetStatusStreamServlet.writeEvent( new PrintWriter( out ), GetStatusStreamServlet.EVENT_LOG, "12",
+      "line 1\r\n\nline 2\n" );
+    assertEquals( "id: 12\nevent: log\ndata: line 1\ndata: line 2\n\n", out.toString() );
+  }
+
+  @Test
+  public void testTransNotFound() throws Exception {
+    when( request.getParameter( "name" ) ).thenReturn( "unknown" );
+    StringWriter out = new StringWriter();
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+
+    servlet.doGet( request, response );
+
+    verify( response ).setStatus( HttpServletResponse.SC_NOT_FOUND );
+    verify( response, never() ).setContentType( "text/event-stream" );
+  }
+
+  @Test
+  public void testStreamSuspendsUntilTransIsFinished() throws Exception {
+    when( request.getParameter( "interval" ) ).thenReturn( "500" );
+    StringWriter out = new StringWriter();
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+
+    servlet.doGet( request, response );
+
+    verify( response ).setStatus( HttpServletResponse.SC_OK );
+    verify( response ).setContentType( "text/event-stream" );
+    verify( response ).setHeader( "Cache-Control", "no-cache" );
+    assertEquals( "event: status\ndata: " + Trans.STRING_RUNNING + "\n\n", out.toString() );
+
+    // The request is suspended until the next update, the state of the stream is kept in the request
+    //
+    verify( continuation ).setTimeout( 500 );
+    verify( continuation ).suspend();
+    ArgumentCaptor<Object> state = ArgumentCaptor.forClass( Object.class );
+    verify( request ).setAttribute( anyString(), state.capture() );
+    when( request.getAttribute( anyString() ) ).thenReturn( state.getValue() );
+    when( request.getAttribute( Continuation.ATTRIBUTE ) ).thenReturn( continuation );
+
+    // Nothing changed: nothing is sent
+    //
+    out.getBuffer().setLength( 0 );
+    servlet.doGet( request, response );
+    assertEquals( "", out.toString() );
+
+    // The transformation finished: the status and the end of the stream are sent
+    //
+    when( trans.getStatus() ).thenReturn( Trans.STRING_FINISHED );
+    when( trans.isFinished() ).thenReturn( true );
+    when( trans.isRunning() ).thenReturn( false );
+    servlet.doGet( request, response );
+    assertEquals( "event: status\ndata: " + Trans.STRING_FINISHED + "\n\nevent: end\ndata: "
+      + Trans.STRING_FINISHED + "\n\n", out.toString() );
+
+    // The headers are only sent once, the request isn't suspended again
+    //
+    verify( response ).setContentType( "text/event-stream" );
+    verify( continuation, times( 2 ) ).suspend();
+  }
+
+  @Test
+  public void testStreamEndsWhenTransIsFinished() throws Exception {
+    when( trans.getStatus() ).thenReturn( Trans.STRING_FINISHED );
+    when( trans.isFinished() ).thenReturn( true );
+    StringWriter out = new StringWriter();
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+
+    servlet.doGet( request, response );
+
+    assertTrue( out.toString().endsWith( "event: end\ndata: " + Trans.STRING_FINISHED + "\n\n" ) );
+    verify( continuation, never() ).suspend();
+    verify( request, never() ).setAttribute( anyString(), any() );
+  }
+
+  @Test
+  public void testStreamEndsWhenClientDisconnects() throws Exception {
+    Writer disconnected = new Writer() {
+      @Override
+      public void write( char[] cbuf, int off, int len ) throws IOException {
+        throw new IOException( "Connection reset by peer" );
+      }
+
+      @Override
+      public void flush() throws IOException {
+        throw new IOException( "Connection reset by peer" );
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    when( response.getWriter() ).thenReturn( new PrintWriter( disconnected ) );
+
+    servlet.doGet( request, response );
+
+    verify( response ).setContentType( "text/event-stream" );
+    verify( continuation, never() ).suspend();
+    verify( request, never() ).setAttribute( anyString(), any() );
+  }
+}
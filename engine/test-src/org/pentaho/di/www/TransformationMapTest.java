@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransConfiguration;
+
+public class TransformationMapTest {
+
+  private TransformationMap transformationMap;
+  private Trans first;
+  private Trans second;
+  private TransConfiguration firstConfiguration;
+  private TransConfiguration secondConfiguration;
+
+  @Before
+  public void setUp() {
+    transformationMap = new TransformationMap();
+    first = mock( Trans.class );
+    second = mock( Trans.class );
+    firstConfiguration = mock( TransConfiguration.class );
+    secondConfiguration = mock( TransConfiguration.class );
+    transformationMap.addTransformation( "trans", "id1", first, firstConfiguration );
+    transformationMap.addTransformation( "trans", "id2", second, secondConfiguration );
+  }
+
+  @Test
+  public void testLookupByName() {
+    assertSame( first, transformationMap.getTransformation( "trans" ) );
+    assertSame( firstConfiguration, transformationMap.getConfiguration( "trans" ) );
+    assertEquals( "id1", transformationMap.getFirstCarteObjectEntry( "trans" ).getId() );
+    assertNull( transformationMap.getTransformation( "other" ) );
+
+    transformationMap.removeTransformation( new CarteObjectEntry( "trans", "id1" ) );
+    assertSame( second, transformationMap.getTransformation( "trans" ) );
+  }
+
+  @Test
+  public void testLookupByNameAndId() {
+    assertSame( second, transformationMap.getTransformation( new CarteObjectEntry( "trans", "id2" ) ) );
+    assertSame( secondConfiguration, transformationMap.getConfiguration( new CarteObjectEntry( "trans", "id2" ) ) );
+    assertSame( second, transformationMap.findTransformation( "id2" ) );
+
+    // The ID alone isn't enough for an entry
+    //
+    assertNull( transformationMap.getTransformation( new CarteObjectEntry( "other", "id2" ) ) );
+    assertNull( transformationMap.getConfiguration( new CarteObjectEntry( "other", "id2" ) ) );
+    assertNull( transformationMap.getTransformation( new CarteObjectEntry( "trans", "id3" ) ) );
+  }
+
+  @SuppressWarnings( "deprecation" )
+  @Test
+  public void testConfigurationMap() {
+    Map<CarteObjectEntry, TransConfiguration> configurationMap = transformationMap.getConfigurationMap();
+    assertEquals( 2, configurationMap.size() );
+    assertSame( firstConfiguration, configurationMap.get( new CarteObjectEntry( "trans", "id1" ) ) );
+    assertTrue( configurationMap.containsKey( new CarteObjectEntry( "trans", "id2" ) ) );
+    assertFalse( configurationMap.containsKey( new CarteObjectEntry( "other", "id2" ) ) );
+
+    TransConfiguration replacement = mock( TransConfiguration.class );
+    transformationMap.setConfigurationMap( Collections.singletonMap( new CarteObjectEntry( "trans", "id2" ),
+      replacement ) );
+    assertSame( replacement, transformationMap.getConfiguration( new CarteObjectEntry( "trans", "id2" ) ) );
+    assertSame( replacement, configurationMap.get( new CarteObjectEntry( "trans", "id2" ) ) );
+
+    configurationMap.put( new CarteObjectEntry( "trans", "id1" ), replacement );
+    assertSame( replacement, transformationMap.getConfiguration( "trans" ) );
+  }
+}
@@ -306,6 +306,37 @@ public class SortRowsTest {
     checkStringRows( ret, false );
   }
 
+  /**
+   * Test case for sorting step .. descending order on binary keys, merging the temporary files on the keys as well.
+   */
+  @Test
+  public void testSortRowsRadixSort() throws Exception {
+
+    SortRowsMeta srm = new SortRowsMeta();
+    srm.setSortSize( Integer.toString( MAX_COUNT / 10 ) );
+    String[] sortFields = { "KEY1", "KEY2" };
+    boolean[] ascendingFields = { false, false };
+    boolean[] caseSensitive = { true, true };
+    boolean[] presortedFields = { false, false };
+    srm.setFieldName( sortFields );
+    srm.setAscending( ascendingFields );
+    srm.setCaseSensitive( caseSensitive );
+    srm.setPreSortedField( presortedFields );
+    srm.setPrefix( "SortRowsTest" );
+    srm.setDirectory( "." );
+    srm.setRadixSort( true );
+
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, srm, sortRowsStepname );
+
+    // add rows
+    List<RowMetaAndData> inputList = createStringData();
+    List<RowMetaAndData> ret =
+        TransTestFactory.executeTestTransformation( transMeta, TransTestFactory.INJECTOR_STEPNAME, sortRowsStepname,
+            TransTestFactory.DUMMY_STEPNAME, inputList );
+
+    checkStringRows( ret, false );
+  }
+
   /**
    * Test case for sorting step .. ascending order on "timestamp" data.
    */
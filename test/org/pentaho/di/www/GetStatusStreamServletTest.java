@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.job.Job;
+
+public class GetStatusStreamServletTest {
+  private TransformationMap mockTransformationMap;
+  private JobMap mockJobMap;
+  private GetStatusStreamServlet servlet;
+
+  @Before
+  public void setup() {
+    KettleLogStore.init();
+    mockTransformationMap = mock( TransformationMap.class );
+    mockJobMap = mock( JobMap.class );
+    servlet = new GetStatusStreamServlet( mockTransformationMap, mockJobMap );
+  }
+
+  @Test
+  public void testNotFound() throws ServletException, IOException {
+    HttpServletRequest request = mock( HttpServletRequest.class );
+    HttpServletResponse response = mock( HttpServletResponse.class );
+    StringWriter out = new StringWriter();
+
+    when( request.getContextPath() ).thenReturn( GetStatusStreamServlet.CONTEXT_PATH );
+    when( request.getParameter( "name" ) ).thenReturn( "unknown" );
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+
+    servlet.doGet( request, response );
+
+    verify( response ).setStatus( HttpServletResponse.SC_NOT_FOUND );
+    assertTrue( out.toString().contains( WebResult.STRING_ERROR ) );
+  }
+
+  @Test
+  public void testFinishedJobEndsStream() throws ServletException, IOException {
+    HttpServletRequest request = mock( HttpServletRequest.class );
+    HttpServletResponse response = mock( HttpServletResponse.class );
+    Job job = mock( Job.class );
+    StringWriter out = new StringWriter();
+
+    when( request.getContextPath() ).thenReturn( GetStatusStreamServlet.CONTEXT_PATH );
+    when( request.getParameter( "name" ) ).thenReturn( "job" );
+    when( request.getParameter( "id" ) ).thenReturn( "id" );
+    when( request.getParameter( "type" ) ).thenReturn( GetStatusStreamServlet.TYPE_JOB );
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+    when( mockJobMap.getJob( any( CarteObjectEntry.class ) ) ).thenReturn( job );
+    when( job.getLogChannelId() ).thenReturn( "channel" );
+    when( job.getStatus() ).thenReturn( "Finished" );
+    when( job.isFinished() ).thenReturn( true );
+
+    servlet.doGet( request, response );
+
+    verify( response ).setContentType( "text/event-stream" );
+    assertEquals( "event: status\ndata: Finished\n\nevent: end\ndata: Finished\n\n", out.toString() );
+  }
+
+  @Test
+  public void testStoppedJobStreamsUntilWoundDown() throws ServletException, IOException {
+    HttpServletRequest request = mock( HttpServletRequest.class );
+    HttpServletResponse response = mock( HttpServletResponse.class );
+    Job job = mock( Job.class );
+    StringWriter out = new StringWriter();
+
+    when( request.getContextPath() ).thenReturn( GetStatusStreamServlet.CONTEXT_PATH );
+    when( request.getParameter( "name" ) ).thenReturn( "job" );
+    when( request.getParameter( "id" ) ).thenReturn( "id" );
+    when( request.getParameter( "type" ) ).thenReturn( GetStatusStreamServlet.TYPE_JOB );
+    when( request.getParameter( "follow" ) ).thenReturn( "N" );
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+    when( mockJobMap.getJob( any( CarteObjectEntry.class ) ) ).thenReturn( job );
+    when( job.getLogChannelId() ).thenReturn( "channel" );
+    when( job.getStatus() ).thenReturn( "Stopped" );
+    when( job.isStopped() ).thenReturn( true );
+    when( job.isActive() ).thenReturn( true );
+
+    servlet.doGet( request, response );
+
+    // Still winding down: no end event yet
+    assertEquals( "event: status\ndata: Stopped\n\n", out.toString() );
+  }
+
+  @Test
+  public void testWriteEvent() {
+    StringWriter out = new StringWriter();
+    GetStatusStreamServlet.writeEvent( new PrintWriter( out ), GetStatusStreamServlet.EVENT_LOG, "12",
+      "line one\r\nline two\n\nline three\n" );
+
+    assertEquals( "id: 12\nevent: log\ndata: line one\ndata: line two\ndata: line three\n\n", out.toString() );
+    assertFalse( out.toString().contains( "\r" ) );
+  }
+}
@@ -253,6 +253,10 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
   private Button wNoempty;
   private FormData fdlNoempty, fdNoempty;
 
+  private Label wlParallel;
+  private Button wParallel;
+  private FormData fdlParallel, fdParallel;
+
   private Label wlInclFilename;
   private Button wInclFilename;
   private FormData fdlInclFilename, fdInclFilename;
@@ -1360,12 +1364,29 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     fdNoempty.right = new FormAttachment( 100, 0 );
     wNoempty.setLayoutData( fdNoempty );
 
+    wlParallel = new Label( wContentComp, SWT.RIGHT );
+    wlParallel.setText( BaseMessages.getString( PKG, "TextFileInputDialog.RunningInParallel.Label" ) );
+    props.setLook( wlParallel );
+    fdlParallel = new FormData();
+    fdlParallel.left = new FormAttachment( 0, 0 );
+    fdlParallel.top = new FormAttachment( wNoempty, margin );
+    fdlParallel.right = new FormAttachment( middle, -margin );
+    wlParallel.setLayoutData( fdlParallel );
+    wParallel = new Button( wContentComp, SWT.CHECK );
+    props.setLook( wParallel );
+    wParallel.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.RunningInParallel.Tooltip" ) );
+    fdParallel = new FormData();
+    fdParallel.left = new FormAttachment( middle, 0 );
+    fdParallel.top = new FormAttachment( wNoempty, margin );
+    fdParallel.right = new FormAttachment( 100, 0 );
+    wParallel.setLayoutData( fdParallel );
+
     wlInclFilename = new Label( wContentComp, SWT.RIGHT );
     wlInclFilename.setText( BaseMessages.getString( PKG, "TextFileInputDialog.InclFilename.Label" ) );
     props.setLook( wlInclFilename );
     fdlInclFilename = new FormData();
     fdlInclFilename.left = new FormAttachment( 0, 0 );
-    fdlInclFilename.top = new FormAttachment( wNoempty, margin );
+    fdlInclFilename.top = new FormAttachment( wParallel, margin );
     fdlInclFilename.right = new FormAttachment( middle, -margin );
     wlInclFilename.setLayoutData( fdlInclFilename );
     wInclFilename = new Button( wContentComp, SWT.CHECK );
@@ -1373,7 +1394,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     wInclFilename.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.InclFilename.Tooltip" ) );
     fdInclFilename = new FormData();
     fdInclFilename.left = new FormAttachment( middle, 0 );
-    fdInclFilename.top = new FormAttachment( wNoempty, margin );
+    fdInclFilename.top = new FormAttachment( wParallel, margin );
     wInclFilename.setLayoutData( fdInclFilename );
 
     wlInclFilenameField = new Label( wContentComp, SWT.LEFT );
@@ -1381,14 +1402,14 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     props.setLook( wlInclFilenameField );
     fdlInclFilenameField = new FormData();
     fdlInclFilenameField.left = new FormAttachment( wInclFilename, margin );
-    fdlInclFilenameField.top = new FormAttachment( wNoempty, margin );
+    fdlInclFilenameField.top = new FormAttachment( wParallel, margin );
     wlInclFilenameField.setLayoutData( fdlInclFilenameField );
     wInclFilenameField = new Text( wContentComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
     props.setLook( wInclFilenameField );
     wInclFilenameField.addModifyListener( lsMod );
     fdInclFilenameField = new FormData();
     fdInclFilenameField.left = new FormAttachment( wlInclFilenameField, margin );
-    fdInclFilenameField.top = new FormAttachment( wNoempty, margin );
+    fdInclFilenameField.top = new FormAttachment( wParallel, margin );
     fdInclFilenameField.right = new FormAttachment( 100, 0 );
     wInclFilenameField.setLayoutData( fdInclFilenameField );
 
@@ -2238,6 +2259,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
       wCompression.setText( meta.content.fileCompression );
     }
     wNoempty.setSelection( meta.content.noEmptyLines );
+    wParallel.setSelection( meta.content.runningInParallel );
     wInclFilename.setSelection( meta.content.includeFilename );
     wInclRownum.setSelection( meta.content.includeRowNumber );
     wRownumByFile.setSelection( meta.content.rowNumberByFile );
@@ -2519,6 +2541,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     meta.content.fileCompression = wCompression.getText();
     meta.content.dateFormatLenient = wDateLenient.getSelection();
     meta.content.noEmptyLines = wNoempty.getSelection();
+    meta.content.runningInParallel = wParallel.getSelection();
     meta.content.encoding = wEncoding.getText();
 
     int nrfiles = wFilenameList.getItemCount();
@@ -111,6 +111,7 @@ public class ParGzipCsvInputDialog extends BaseStepDialog implements StepDialogI
   private Button wAddResult;
   private boolean isReceivingInput;
   private Button wRunningInParallel;
+  private Button wBlockGzipped;
   private ComboVar wEncoding;
 
   private boolean gotEncodings = false;
@@ -415,6 +416,25 @@ public class ParGzipCsvInputDialog extends BaseStepDialog implements StepDialogI
     wRunningInParallel.setLayoutData( fdRunningInParallel );
     lastControl = wRunningInParallel;
 
+    // Split block gzipped files?
+    //
+    Label wlBlockGzipped = new Label( shell, SWT.RIGHT );
+    wlBlockGzipped.setText( BaseMessages.getString( PKG, "ParGzipCsvInputDialog.BlockGzipped.Label" ) );
+    props.setLook( wlBlockGzipped );
+    FormData fdlBlockGzipped = new FormData();
+    fdlBlockGzipped.top = new FormAttachment( lastControl, margin );
+    fdlBlockGzipped.left = new FormAttachment( 0, 0 );
+    fdlBlockGzipped.right = new FormAttachment( middle, -margin );
+    wlBlockGzipped.setLayoutData( fdlBlockGzipped );
+    wBlockGzipped = new Button( shell, SWT.CHECK );
+    props.setLook( wBlockGzipped );
+    wBlockGzipped.setToolTipText( BaseMessages.getString( PKG, "ParGzipCsvInputDialog.BlockGzipped.Tooltip" ) );
+    FormData fdBlockGzipped = new FormData();
+    fdBlockGzipped.top = new FormAttachment( lastControl, margin );
+    fdBlockGzipped.left = new FormAttachment( middle, 0 );
+    wBlockGzipped.setLayoutData( fdBlockGzipped );
+    lastControl = wBlockGzipped;
+
     // Encoding
     Label wlEncoding = new Label( shell, SWT.RIGHT );
     wlEncoding.setText( BaseMessages.getString( PKG, "ParGzipCsvInputDialog.Encoding.Label" ) );
@@ -669,6 +689,7 @@ public class ParGzipCsvInputDialog extends BaseStepDialog implements StepDialogI
     wLazyConversion.setSelection( inputMeta.isLazyConversionActive() );
     wHeaderPresent.setSelection( inputMeta.isHeaderPresent() );
     wRunningInParallel.setSelection( inputMeta.isRunningInParallel() );
+    wBlockGzipped.setSelection( inputMeta.isBlockGzipped() );
     wRowNumField.setText( Const.NVL( inputMeta.getRowNumField(), "" ) );
     wAddResult.setSelection( inputMeta.isAddResultFile() );
     wEncoding.setText( Const.NVL( inputMeta.getEncoding(), "" ) );
@@ -719,6 +740,7 @@ public class ParGzipCsvInputDialog extends BaseStepDialog implements StepDialogI
     inputMeta.setRowNumField( wRowNumField.getText() );
     inputMeta.setAddResultFile( wAddResult.getSelection() );
     inputMeta.setRunningInParallel( wRunningInParallel.getSelection() );
+    inputMeta.setBlockGzipped( wBlockGzipped.getSelection() );
     inputMeta.setEncoding( wEncoding.getText() );
 
     int nrNonEmptyFields = wFields.nrNonEmpty();
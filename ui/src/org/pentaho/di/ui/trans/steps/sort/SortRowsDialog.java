@@ -95,6 +95,10 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
   private Button wUniqueRows;
   private FormData fdlUniqueRows, fdUniqueRows;
 
+  private Label wlRadixSort;
+  private Button wRadixSort;
+  private FormData fdlRadixSort, fdRadixSort;
+
   private Label wlFields;
   private TableView wFields;
   private FormData fdlFields, fdFields;
@@ -297,6 +301,24 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     fdUniqueRows.right = new FormAttachment( 100, 0 );
     wUniqueRows.setLayoutData( fdUniqueRows );
 
+    // Sort on binary keys?
+    wlRadixSort = new Label( shell, SWT.RIGHT );
+    wlRadixSort.setText( BaseMessages.getString( PKG, "SortRowsDialog.RadixSort.Label" ) );
+    props.setLook( wlRadixSort );
+    fdlRadixSort = new FormData();
+    fdlRadixSort.left = new FormAttachment( 0, 0 );
+    fdlRadixSort.right = new FormAttachment( middle, -margin );
+    fdlRadixSort.top = new FormAttachment( wUniqueRows, margin );
+    wlRadixSort.setLayoutData( fdlRadixSort );
+    wRadixSort = new Button( shell, SWT.CHECK );
+    wRadixSort.setToolTipText( BaseMessages.getString( PKG, "SortRowsDialog.RadixSort.Tooltip" ) );
+    props.setLook( wRadixSort );
+    fdRadixSort = new FormData();
+    fdRadixSort.left = new FormAttachment( middle, 0 );
+    fdRadixSort.top = new FormAttachment( wUniqueRows, margin );
+    fdRadixSort.right = new FormAttachment( 100, 0 );
+    wRadixSort.setLayoutData( fdRadixSort );
+
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
     wGet = new Button( shell, SWT.PUSH );
@@ -312,7 +334,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     props.setLook( wlFields );
     fdlFields = new FormData();
     fdlFields.left = new FormAttachment( 0, 0 );
-    fdlFields.top = new FormAttachment( wUniqueRows, margin );
+    fdlFields.top = new FormAttachment( wRadixSort, margin );
     wlFields.setLayoutData( fdlFields );
 
     final int FieldsRows = input.getFieldName().length;
@@ -469,6 +491,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     wCompress.setSelection( input.getCompressFiles() );
     wCompress.setVariableName( input.getCompressFilesVariable() );
     wUniqueRows.setSelection( input.isOnlyPassingUniqueRows() );
+    wRadixSort.setSelection( input.isRadixSort() );
 
     Table table = wFields.table;
     if ( input.getFieldName().length > 0 ) {
@@ -515,6 +538,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     input.setCompressFiles( wCompress.getSelection() );
     input.setCompressFilesVariable( wCompress.getVariableName() );
     input.setOnlyPassingUniqueRows( wUniqueRows.getSelection() );
+    input.setRadixSort( wRadixSort.getSelection() );
 
     // Table table = wFields.table;
     int nrfields = wFields.nrNonEmpty();
@@ -188,6 +188,10 @@ public class TextFileOutputDialog extends BaseStepDialog implements StepDialogIn
   private Button wFastDump;
   private FormData fdlFastDump, fdFastDump;
 
+  private Label wlAsyncWriter;
+  private Button wAsyncWriter;
+  private FormData fdlAsyncWriter, fdAsyncWriter;
+
   private Label wlSplitEvery;
   private Text wSplitEvery;
   private FormData fdlSplitEvery, fdSplitEvery;
@@ -990,12 +994,34 @@ public class TextFileOutputDialog extends BaseStepDialog implements StepDialogIn
       }
     } );
 
+    wlAsyncWriter = new Label( wContentComp, SWT.RIGHT );
+    wlAsyncWriter.setText( BaseMessages.getString( PKG, "TextFileOutputDialog.AsyncWriter.Label" ) );
+    props.setLook( wlAsyncWriter );
+    fdlAsyncWriter = new FormData();
+    fdlAsyncWriter.left = new FormAttachment( 0, 0 );
+    fdlAsyncWriter.top = new FormAttachment( wFastDump, margin );
+    fdlAsyncWriter.right = new FormAttachment( middle, -margin );
+    wlAsyncWriter.setLayoutData( fdlAsyncWriter );
+    wAsyncWriter = new Button( wContentComp, SWT.CHECK );
+    wAsyncWriter.setToolTipText( BaseMessages.getString( PKG, "TextFileOutputDialog.AsyncWriter.Tooltip" ) );
+    props.setLook( wAsyncWriter );
+    fdAsyncWriter = new FormData();
+    fdAsyncWriter.left = new FormAttachment( middle, 0 );
+    fdAsyncWriter.top = new FormAttachment( wFastDump, margin );
+    fdAsyncWriter.right = new FormAttachment( 100, 0 );
+    wAsyncWriter.setLayoutData( fdAsyncWriter );
+    wAsyncWriter.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
     wlSplitEvery = new Label( wContentComp, SWT.RIGHT );
     wlSplitEvery.setText( BaseMessages.getString( PKG, "TextFileOutputDialog.SplitEvery.Label" ) );
     props.setLook( wlSplitEvery );
     fdlSplitEvery = new FormData();
     fdlSplitEvery.left = new FormAttachment( 0, 0 );
-    fdlSplitEvery.top = new FormAttachment( wFastDump, margin );
+    fdlSplitEvery.top = new FormAttachment( wAsyncWriter, margin );
     fdlSplitEvery.right = new FormAttachment( middle, -margin );
     wlSplitEvery.setLayoutData( fdlSplitEvery );
     wSplitEvery = new Text( wContentComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
@@ -1003,7 +1029,7 @@ public class TextFileOutputDialog extends BaseStepDialog implements StepDialogIn
     wSplitEvery.addModifyListener( lsMod );
     fdSplitEvery = new FormData();
     fdSplitEvery.left = new FormAttachment( middle, 0 );
-    fdSplitEvery.top = new FormAttachment( wFastDump, margin );
+    fdSplitEvery.top = new FormAttachment( wAsyncWriter, margin );
     fdSplitEvery.right = new FormAttachment( 100, 0 );
     wSplitEvery.setLayoutData( fdSplitEvery );
 
@@ -1499,6 +1525,7 @@ public class TextFileOutputDialog extends BaseStepDialog implements StepDialogIn
     wAddPartnr.setSelection( input.isPartNrInFilename() );
     wPad.setSelection( input.isPadded() );
     wFastDump.setSelection( input.isFastDump() );
+    wAsyncWriter.setSelection( input.isAsyncWriter() );
     wAddToResult.setSelection( input.isAddToResultFiles() );
 
     logDebug( "getting fields info..." );
@@ -1585,6 +1612,7 @@ public class TextFileOutputDialog extends BaseStepDialog implements StepDialogIn
     tfoi.setPadded( wPad.getSelection() );
     tfoi.setAddToResultFiles( wAddToResult.getSelection() );
     tfoi.setFastDump( wFastDump.getSelection() );
+    tfoi.setAsyncWriter( wAsyncWriter.getSelection() );
 
     int i;
     // Table table = wFields.table;